@@ -72,6 +72,9 @@ public final class AnnotationConstants {
 
     /** the name of cipher element */
     public static final String cipher = "cipher";
+
+    /** the name of lazy element */
+    public static final String lazy = "lazy";
     
     /** {@code org.slim3.datastore.json.Json} */
     public static final String Json = "org.slim3.datastore.json.Json";
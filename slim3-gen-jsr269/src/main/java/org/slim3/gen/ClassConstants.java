@@ -65,6 +65,10 @@ public final class ClassConstants {
     public static final String InverseModelListRef =
         "org.slim3.datastore.InverseModelListRef";
 
+    /** {@code org.slim3.datastore.AbstractAttributeMeta} */
+    public static final String AbstractAttributeMeta =
+        "org.slim3.datastore.AbstractAttributeMeta";
+
     /** {@code org.slim3.datastore.CoreAttributeMeta} */
     public static final String CoreAttributeMeta =
         "org.slim3.datastore.CoreAttributeMeta";
@@ -145,6 +149,15 @@ public final class ClassConstants {
     /** {@code java.lang.Object} */
     public static final String Object = "java.lang.Object";
 
+    /** {@code java.io.DataInput} */
+    public static final String DataInput = "java.io.DataInput";
+
+    /** {@code java.io.DataOutput} */
+    public static final String DataOutput = "java.io.DataOutput";
+
+    /** {@code java.io.IOException} */
+    public static final String IOException = "java.io.IOException";
+
     /** {@code java.lang.String} */
     public static final String String = "java.lang.String";
 
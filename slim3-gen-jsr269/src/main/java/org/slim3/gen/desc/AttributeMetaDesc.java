@@ -55,6 +55,9 @@ public class AttributeMetaDesc {
     /** the cipher */
     protected boolean cipher;
 
+    /** the lazy */
+    protected boolean lazy;
+
     /** the json */
     protected JsonAnnotation json;
 
@@ -187,6 +190,25 @@ public class AttributeMetaDesc {
     public void setCipher(boolean cipher) {
         this.cipher = cipher;
     }
+
+    /**
+     * Determines if this attribute is decoded lazily.
+     * 
+     * @return whether this attribute is decoded lazily
+     */
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    /**
+     * Sets whether this attribute is decoded lazily.
+     * 
+     * @param lazy
+     *            whether this attribute is decoded lazily
+     */
+    public void setLazy(boolean lazy) {
+        this.lazy = lazy;
+    }
     
     /**
      * @return the json annotation
@@ -24,6 +24,7 @@ import javax.annotation.processing.ProcessingEnvironment;
 import javax.annotation.processing.RoundEnvironment;
 import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.TypeElement;
@@ -180,6 +181,10 @@ public class AttributeMetaDescFactory {
                     return false;
                 }
 
+                public boolean lazy() {
+                    return false;
+                }
+
                 public Class<?> listener() {
                     return AttributeListener.class;
                 }
@@ -223,6 +228,9 @@ public class AttributeMetaDescFactory {
                 fieldElement,
                 attribute);
         }
+        if (attribute.lazy()) {
+            handleLazy(attributeMetaDesc, classElement, fieldElement, attribute);
+        }
         handleJson(attributeMetaDesc, classElement, fieldElement, attribute);
         handleAttributeListener(
             attributeMetaDesc,
@@ -518,6 +526,48 @@ public class AttributeMetaDescFactory {
         attributeMetaDesc.setCipher(true);
     }
 
+    /**
+     * Handles lazy.
+     * 
+     * @param attributeMetaDesc
+     *            the attribute meta description
+     * @param classElement
+     *            the model class declaration
+     * @param fieldElement
+     *            the field declaration
+     * @param attribute
+     *            the annotation mirror for Attribute
+     */
+    protected void handleLazy(AttributeMetaDesc attributeMetaDesc,
+            TypeElement classElement, VariableElement fieldElement,
+            Attribute attribute) {
+        if (attribute.primaryKey()) {
+            throwExceptionForConflictedElements(
+                classElement,
+                fieldElement,
+                attribute,
+                AnnotationConstants.primaryKey,
+                AnnotationConstants.lazy);
+        }
+        if (attribute.version()) {
+            throwExceptionForConflictedElements(
+                classElement,
+                fieldElement,
+                attribute,
+                AnnotationConstants.version,
+                AnnotationConstants.lazy);
+        }
+        if (!attribute.persistent()) {
+            throwExceptionForConflictedElements(
+                classElement,
+                fieldElement,
+                attribute,
+                AnnotationConstants.lazy,
+                AnnotationConstants.persistent + " = false");
+        }
+        attributeMetaDesc.setLazy(true);
+    }
+
     /**
      * Handles the json.
      * 
@@ -906,6 +956,82 @@ public class AttributeMetaDescFactory {
                 readMethodDeclaration,
                 wirteMethodDeclaration);
         }
+        if (attributeMetaDesc.isLazy()) {
+            validateLazyMethods(
+                attributeMetaDesc,
+                readMethodDeclaration,
+                wirteMethodDeclaration);
+        }
+    }
+
+    /**
+     * Validates that the read method resolves the lazy attribute and the write
+     * method discards it. The method bodies are only available through the
+     * compiler tree API of javac, so the validation is skipped on the other
+     * compilers and for the methods that are not compiled from source.
+     * 
+     * @param attributeMetaDesc
+     *            the attribute meta description
+     * @param readMethodDeclaration
+     *            the read method declaration
+     * @param wirteMethodDeclaration
+     *            the write method declaration
+     */
+    protected void validateLazyMethods(AttributeMetaDesc attributeMetaDesc,
+            ExecutableElement readMethodDeclaration,
+            ExecutableElement wirteMethodDeclaration) {
+        String attributeName = attributeMetaDesc.getAttributeName();
+        if (readMethodDeclaration != null) {
+            String source = getMethodSource(readMethodDeclaration);
+            if (source != null
+                && !source.contains("resolve(this, \""
+                    + attributeName
+                    + "\")")) {
+                throw new ValidationException(
+                    MessageCode.SLIM3GEN1056,
+                    readMethodDeclaration,
+                    readMethodDeclaration.getSimpleName(),
+                    attributeName);
+            }
+        }
+        if (wirteMethodDeclaration != null) {
+            String source = getMethodSource(wirteMethodDeclaration);
+            if (source != null
+                && !source.contains("discard(this, \""
+                    + attributeName
+                    + "\")")) {
+                throw new ValidationException(
+                    MessageCode.SLIM3GEN1057,
+                    wirteMethodDeclaration,
+                    wirteMethodDeclaration.getSimpleName(),
+                    attributeName);
+            }
+        }
+    }
+
+    /**
+     * Returns the source of the method using the compiler tree API of javac.
+     * 
+     * @param methodDeclaration
+     *            the method declaration
+     * @return the source of the method or null if it is not available
+     */
+    protected String getMethodSource(ExecutableElement methodDeclaration) {
+        try {
+            Class<?> treesClass = Class.forName("com.sun.source.util.Trees");
+            Object trees =
+                treesClass.getMethod("instance", ProcessingEnvironment.class)
+                    .invoke(null, processingEnv);
+            Object tree =
+                treesClass.getMethod("getTree", Element.class).invoke(
+                    trees,
+                    methodDeclaration);
+            return tree != null ? tree.toString() : null;
+        } catch (Exception e) {
+            return null;
+        } catch (LinkageError e) {
+            return null;
+        }
     }
 
     /**
@@ -86,6 +86,9 @@ public class ModelMetaDesc implements ClassDesc {
     /** the modelListenerClassName */
     protected String modelListenerClassName;
 
+    /** {@code true} if the binary codec is generated */
+    protected boolean binaryCodec;
+
     /**
      * Creates a new {@link ModelMetaDesc}.
      * 
@@ -345,6 +348,25 @@ public class ModelMetaDesc implements ClassDesc {
         this.modelListenerClassName = modelListenerClassName;
     }
 
+    /**
+     * Returns {@code true} if the binary codec is generated.
+     * 
+     * @return {@code true} if the binary codec is generated
+     */
+    public boolean isBinaryCodec() {
+        return binaryCodec;
+    }
+
+    /**
+     * Sets the binaryCodec.
+     * 
+     * @param binaryCodec
+     *            {@code true} if the binary codec is generated
+     */
+    public void setBinaryCodec(boolean binaryCodec) {
+        this.binaryCodec = binaryCodec;
+    }
+
     /**
      * Creates the jsonAttributeMetaDescList
      */
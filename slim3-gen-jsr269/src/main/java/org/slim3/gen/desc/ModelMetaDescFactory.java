@@ -150,6 +150,7 @@ public class ModelMetaDescFactory {
                 schemaVersion,
                 classHierarchyListName,
                 classHierarchyList);
+        modelMetaDesc.setBinaryCodec(model.binaryCodec());
         handleModelListener(modelMetaDesc, classElement, model);
         handleAttributes(classElement, modelMetaDesc);
         return modelMetaDesc;
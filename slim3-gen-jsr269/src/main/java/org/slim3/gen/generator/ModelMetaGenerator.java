@@ -17,11 +17,13 @@ package org.slim3.gen.generator;
 
 import static org.slim3.gen.ClassConstants.*;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -50,6 +52,7 @@ import org.slim3.gen.datastore.PrimitiveFloatType;
 import org.slim3.gen.datastore.PrimitiveIntType;
 import org.slim3.gen.datastore.PrimitiveLongType;
 import org.slim3.gen.datastore.PrimitiveShortType;
+import org.slim3.gen.datastore.PrimitiveType;
 import org.slim3.gen.datastore.SetType;
 import org.slim3.gen.datastore.ShortType;
 import org.slim3.gen.datastore.SimpleDataTypeVisitor;
@@ -74,6 +77,9 @@ public class ModelMetaGenerator implements Generator {
     /** the model meta description */
     protected final ModelMetaDesc modelMetaDesc;
 
+    /** the names of the attributes that have the attribute meta fields */
+    protected final Set<String> attributeMetaFieldNames = new HashSet<String>();
+
     /**
      * Creates a new {@link ModelMetaGenerator}.
      * 
@@ -150,8 +156,11 @@ public class ModelMetaGenerator implements Generator {
         printGetSchemaVersionName(printer);
         printGetClassHierarchyListName(printer);
         printIsCipherProperty(printer);
+        printGetAttributeValueMethod(printer);
         printModelToJsonMethod(printer);
         printJsonToModelMethod(printer);
+        printBinaryCodecMethods(printer);
+        printDecodeLazyAttributeMethod(printer);
         printCustomExtensionMethods(printer);
         printer.unindent();
         printer.print("}");
@@ -474,6 +483,46 @@ public class ModelMetaGenerator implements Generator {
         printer.println();
     }
 
+    /**
+     * Generates the {@code getAttributeValue} method. The attribute meta is
+     * compared by identity with the attribute meta fields, so this method must
+     * be called after {@link #printAttributeMetaFields(Printer)}.
+     * 
+     * @param printer
+     *            the printer
+     */
+    protected void printGetAttributeValueMethod(final Printer printer) {
+        List<AttributeMetaDesc> attrs = new ArrayList<AttributeMetaDesc>();
+        for (AttributeMetaDesc attr : modelMetaDesc.getAttributeMetaDescList()) {
+            if (attr.isPersistent()
+                && attr.getReadMethodName() != null
+                && attributeMetaFieldNames.contains(attr.getAttributeName())) {
+                attrs.add(attr);
+            }
+        }
+        if (attrs.isEmpty()) {
+            return;
+        }
+        printer.println("@Override");
+        printer
+            .println(
+                "protected Object getAttributeValue(Object model, %1$s<?, ?> attributeMeta) {",
+                AbstractAttributeMeta);
+        printer.println(
+            "    %1$s m = (%1$s) model;",
+            modelMetaDesc.getModelClassName());
+        for (AttributeMetaDesc attr : attrs) {
+            printer.println(
+                "    if (attributeMeta == this.%1$s) return m.%2$s();",
+                attr.getAttributeName(),
+                attr.getReadMethodName());
+        }
+        printer
+            .println("    return super.getAttributeValue(model, attributeMeta);");
+        printer.println("}");
+        printer.println();
+    }
+
     /**
      * Generates the {@code getKey} method.
      * 
@@ -629,6 +678,99 @@ public class ModelMetaGenerator implements Generator {
         new JsonToModelMethodGenerator(printer).generate();
     }
 
+    /**
+     * Generates the binary codec methods.
+     * 
+     * @param printer
+     *            the printer
+     */
+    protected void printBinaryCodecMethods(final Printer printer) {
+        if (!modelMetaDesc.isBinaryCodec() || modelMetaDesc.isAbstrct()) {
+            return;
+        }
+        printer.println("@Override");
+        printer.println("public boolean isBinaryCodecSupported() {");
+        printer.println("    return true;");
+        printer.println("}");
+        printer.println();
+        printer.println("@Override");
+        printer.println("public long getBinaryCodecSchemaHash() {");
+        printer.println(
+            "    return 0x%1$016xL;",
+            computeBinaryCodecSchemaHash());
+        printer.println("}");
+        printer.println();
+        new WriteToMethodGenerator(printer).generate();
+        new ReadFromMethodGenerator(printer).generate();
+    }
+
+    /**
+     * Computes the hash of the names and the types of the persistent
+     * attributes in the order written by the binary codec. The hash is
+     * changed when an attribute is added, removed, reordered or retyped, so a
+     * value written by the previous codec is not read by the new one.
+     * 
+     * @return the hash of the binary codec schema
+     */
+    protected long computeBinaryCodecSchemaHash() {
+        long hash = 0xcbf29ce484222325L;
+        for (AttributeMetaDesc attr : modelMetaDesc
+            .getAttributeMetaDescList()) {
+            if (!attr.isPersistent()) {
+                continue;
+            }
+            String s =
+                attr.getAttributeName()
+                    + ":"
+                    + attr.getDataType().getTypeName()
+                    + ";";
+            for (int i = 0; i < s.length(); i++) {
+                hash ^= s.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Generates the {@code decodeLazyAttribute} method.
+     * 
+     * @param printer
+     *            the printer
+     */
+    protected void printDecodeLazyAttributeMethod(final Printer printer) {
+        if (!hasLazyAttribute() || modelMetaDesc.isAbstrct()) {
+            return;
+        }
+        new DecodeLazyAttributeMethodGenerator(printer).generate();
+    }
+
+    /**
+     * Determines if the model has a lazy attribute.
+     * 
+     * @return whether the model has a lazy attribute
+     */
+    protected boolean hasLazyAttribute() {
+        for (AttributeMetaDesc attr : modelMetaDesc.getAttributeMetaDescList()) {
+            if (attr.isPersistent() && attr.isLazy()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Generates the statement to resolve the lazy attributes.
+     * 
+     * @param printer
+     *            the printer
+     */
+    protected void printResolveLazyAttributes(Printer printer) {
+        if (hasLazyAttribute()) {
+            printer.println("resolveLazyAttributes(model);");
+        }
+    }
+
     /**
      * Empty method body to be overwritten by custom extensions
      * 
@@ -675,11 +817,23 @@ public class ModelMetaGenerator implements Generator {
             }
         }
 
+        /**
+         * Prints the comment of the attribute meta field and records that the
+         * attribute has the field.
+         * 
+         * @param attr
+         *            the attribute meta description
+         */
+        protected void printFieldComment(AttributeMetaDesc attr) {
+            attributeMetaFieldNames.add(attr.getAttributeName());
+            printer.println("/** */");
+        }
+
         @Override
         protected Void defaultAction(DataType type, AttributeMetaDesc p)
                 throws RuntimeException {
             if (p.isLob() || p.isUnindexed()) {
-                printer.println("/** */");
+                printFieldComment(p);
                 printer
                     .println(
                         "public final %1$s<%2$s, %3$s> %4$s = new %1$s<%2$s, %3$s>(this, \"%5$s\", \"%4$s\", %6$s.class);",
@@ -697,7 +851,7 @@ public class ModelMetaGenerator implements Generator {
         @Override
         public Void visitCorePrimitiveType(CorePrimitiveType type,
                 AttributeMetaDesc p) throws RuntimeException {
-            printer.println("/** */");
+            printFieldComment(p);
             printer
                 .println(
                     "public final %1$s<%2$s, %3$s> %4$s = new %1$s<%2$s, %3$s>(this, \"%5$s\", \"%4$s\", %6$s.class);",
@@ -714,7 +868,7 @@ public class ModelMetaGenerator implements Generator {
         @Override
         public Void visitCoreReferenceType(CoreReferenceType type,
                 AttributeMetaDesc p) throws RuntimeException {
-            printer.println("/** */");
+            printFieldComment(p);
             if (p.isLob() || p.isUnindexed()) {
                 printer
                     .println(
@@ -743,7 +897,7 @@ public class ModelMetaGenerator implements Generator {
         @Override
         public Void visitModelRefType(ModelRefType type, AttributeMetaDesc p)
                 throws RuntimeException {
-            printer.println("/** */");
+            printFieldComment(p);
             printer
                 .println(
                     "public final %1$s<%2$s, %3$s, %4$s> %5$s = new %1$s<%2$s, %3$s, %4$s>(this, \"%6$s\", \"%5$s\", %7$s.class, %8$s.class);",
@@ -762,7 +916,7 @@ public class ModelMetaGenerator implements Generator {
         @Override
         public Void visitKeyType(KeyType type, AttributeMetaDesc p)
                 throws RuntimeException {
-            printer.println("/** */");
+            printFieldComment(p);
             printer
                 .println(
                     "public final %1$s<%2$s, %3$s> %4$s = new %1$s<%2$s, %3$s>(this, \"%5$s\", \"%4$s\", %6$s.class);",
@@ -779,7 +933,7 @@ public class ModelMetaGenerator implements Generator {
         @Override
         public Void visitStringType(StringType type, AttributeMetaDesc p)
                 throws RuntimeException {
-            printer.println("/** */");
+            printFieldComment(p);
             if (p.isLob() || p.isUnindexed()) {
                 printer
                     .println(
@@ -805,7 +959,7 @@ public class ModelMetaGenerator implements Generator {
         @Override
         public Void visitBlobType(BlobType type, AttributeMetaDesc p)
                 throws RuntimeException {
-            printer.println("/** */");
+            printFieldComment(p);
             printer
                 .println(
                     "public final %1$s<%2$s, %3$s> %4$s = new %1$s<%2$s, %3$s>(this, \"%5$s\", \"%4$s\", %6$s.class);",
@@ -822,7 +976,7 @@ public class ModelMetaGenerator implements Generator {
         @Override
         public Void visitTextType(TextType type, AttributeMetaDesc p)
                 throws RuntimeException {
-            printer.println("/** */");
+            printFieldComment(p);
             printer
                 .println(
                     "public final %1$s<%2$s, %3$s> %4$s = new %1$s<%2$s, %3$s>(this, \"%5$s\", \"%4$s\", %6$s.class);",
@@ -846,7 +1000,7 @@ public class ModelMetaGenerator implements Generator {
                     @Override
                     public Void visitStringType(StringType type, Void p)
                             throws RuntimeException {
-                        printer.println("/** */");
+                        printFieldComment(attr);
                         if (attr.isLob() || attr.isUnindexed()) {
                             printer
                                 .println(
@@ -876,7 +1030,7 @@ public class ModelMetaGenerator implements Generator {
                     public Void visitCoreReferenceType(
                             CoreReferenceType elementType, Void p)
                             throws RuntimeException {
-                        printer.println("/** */");
+                        printFieldComment(attr);
                         if (attr.isLob() || attr.isUnindexed()) {
                             printer
                                 .println(
@@ -912,7 +1066,7 @@ public class ModelMetaGenerator implements Generator {
         @Override
         public Void visitArrayType(ArrayType type, AttributeMetaDesc p)
                 throws RuntimeException {
-            printer.println("/** */");
+            printFieldComment(p);
             if (p.isLob() || p.isUnindexed()) {
                 printer
                     .println(
@@ -981,14 +1135,25 @@ public class ModelMetaGenerator implements Generator {
                 printer.println(
                     "%1$s model = new %1$s();",
                     modelMetaDesc.getModelClassName());
+                StringBuilder lazyNames = new StringBuilder();
                 for (AttributeMetaDesc attr : modelMetaDesc
                     .getAttributeMetaDescList()) {
                     if (!attr.isPersistent()) {
                         continue;
                     }
+                    if (attr.isLazy()) {
+                        lazyNames.append(", \"").append(
+                            attr.getAttributeName()).append("\"");
+                        continue;
+                    }
                     DataType dataType = attr.getDataType();
                     dataType.accept(this, attr);
                 }
+                if (lazyNames.length() > 0) {
+                    printer.println(
+                        "deferLazyAttributes(model, entity%1$s);",
+                        lazyNames);
+                }
                 printer.println("return model;");
             }
             printer.unindent();
@@ -1697,6 +1862,7 @@ public class ModelMetaGenerator implements Generator {
                     UnsupportedOperationException.class.getName(),
                     modelMetaDesc.getModelClassName());
             } else {
+                printResolveLazyAttributes(printer);
                 printer.println(
                     "%1$s m = (%1$s) model;",
                     modelMetaDesc.getModelClassName());
@@ -2179,6 +2345,7 @@ public class ModelMetaGenerator implements Generator {
                     modelMetaDesc.getModelClassName());
             } else {
                 Map<String, String> encoders = new HashMap<String, String>();
+                printResolveLazyAttributes(printer);
                 printer.println(
                     "%s m = (%1$s) model;",
                     modelMetaDesc.getModelClassName());
@@ -2792,6 +2959,369 @@ public class ModelMetaGenerator implements Generator {
         return false;
     }
 
+    /**
+     * Represents the {@code writeTo} method generator.
+     * 
+     * @author higa
+     * @since 1.0.18
+     * 
+     */
+    protected class WriteToMethodGenerator extends
+            SimpleDataTypeVisitor<Void, AttributeMetaDesc, RuntimeException> {
+
+        /** the printer */
+        protected final Printer printer;
+
+        /**
+         * Creates a new {@link WriteToMethodGenerator}.
+         * 
+         * @param printer
+         *            the printer
+         */
+        public WriteToMethodGenerator(Printer printer) {
+            this.printer = printer;
+        }
+
+        /**
+         * Generates the writeTo method.
+         */
+        public void generate() {
+            printer.println("@Override");
+            printer.println(
+                "public void writeTo(%1$s model, %2$s out) throws %3$s {",
+                Object,
+                DataOutput,
+                IOException);
+            printer.indent();
+            printResolveLazyAttributes(printer);
+            printer.println(
+                "%1$s m = (%1$s) model;",
+                modelMetaDesc.getModelClassName());
+            for (AttributeMetaDesc attr : modelMetaDesc
+                .getAttributeMetaDescList()) {
+                if (!attr.isPersistent()) {
+                    continue;
+                }
+                DataType dataType = attr.getDataType();
+                dataType.accept(this, attr);
+            }
+            printer.unindent();
+            printer.println("}");
+            printer.println();
+        }
+
+        @Override
+        protected Void defaultAction(DataType type, AttributeMetaDesc p)
+                throws RuntimeException {
+            printer.println(
+                "writeValue(out, m.%1$s());",
+                p.getReadMethodName());
+            return null;
+        }
+
+        @Override
+        public Void visitPrimitiveBooleanType(PrimitiveBooleanType type,
+                AttributeMetaDesc p) throws RuntimeException {
+            printer.println(
+                "out.writeBoolean(m.%1$s());",
+                p.getReadMethodName());
+            return null;
+        }
+
+        @Override
+        public Void visitPrimitiveDoubleType(PrimitiveDoubleType type,
+                AttributeMetaDesc p) throws RuntimeException {
+            printer.println(
+                "out.writeDouble(m.%1$s());",
+                p.getReadMethodName());
+            return null;
+        }
+
+        @Override
+        public Void visitPrimitiveFloatType(PrimitiveFloatType type,
+                AttributeMetaDesc p) throws RuntimeException {
+            printer.println("out.writeFloat(m.%1$s());", p.getReadMethodName());
+            return null;
+        }
+
+        @Override
+        public Void visitPrimitiveIntType(PrimitiveIntType type,
+                AttributeMetaDesc p) throws RuntimeException {
+            printer.println("out.writeInt(m.%1$s());", p.getReadMethodName());
+            return null;
+        }
+
+        @Override
+        public Void visitPrimitiveLongType(PrimitiveLongType type,
+                AttributeMetaDesc p) throws RuntimeException {
+            printer.println("out.writeLong(m.%1$s());", p.getReadMethodName());
+            return null;
+        }
+
+        @Override
+        public Void visitPrimitiveShortType(PrimitiveShortType type,
+                AttributeMetaDesc p) throws RuntimeException {
+            printer.println("out.writeShort(m.%1$s());", p.getReadMethodName());
+            return null;
+        }
+
+        @Override
+        public Void visitEnumType(EnumType type, AttributeMetaDesc p)
+                throws RuntimeException {
+            printer.println(
+                "writeValue(out, enumToString(m.%1$s()));",
+                p.getReadMethodName());
+            return null;
+        }
+
+        @Override
+        public Void visitModelRefType(ModelRefType type, AttributeMetaDesc p)
+                throws RuntimeException {
+            printer.println("if (m.%1$s() == null) {", p.getReadMethodName());
+            printer
+                .println(
+                    "    throw new NullPointerException(\"The property(%1$s) must not be null.\");",
+                    p.getAttributeName());
+            printer.println("}");
+            printer.println(
+                "writeValue(out, m.%1$s().getKey());",
+                p.getReadMethodName());
+            return null;
+        }
+    }
+
+    /**
+     * Represents the {@code readFrom} method generator.
+     * 
+     * @author higa
+     * @since 1.0.18
+     * 
+     */
+    protected class ReadFromMethodGenerator extends
+            SimpleDataTypeVisitor<Void, AttributeMetaDesc, RuntimeException> {
+
+        /** the printer */
+        protected final Printer printer;
+
+        /**
+         * Creates a new {@link ReadFromMethodGenerator}.
+         * 
+         * @param printer
+         *            the printer
+         */
+        public ReadFromMethodGenerator(Printer printer) {
+            this.printer = printer;
+        }
+
+        /**
+         * Generates the readFrom method.
+         */
+        public void generate() {
+            printer.println("@Override");
+            printer.println(
+                "public %1$s readFrom(%2$s in) throws %3$s {",
+                modelMetaDesc.getModelClassName(),
+                DataInput,
+                IOException);
+            printer.indent();
+            printer.println(
+                "%1$s model = new %1$s();",
+                modelMetaDesc.getModelClassName());
+            for (AttributeMetaDesc attr : modelMetaDesc
+                .getAttributeMetaDescList()) {
+                if (!attr.isPersistent()) {
+                    continue;
+                }
+                DataType dataType = attr.getDataType();
+                dataType.accept(this, attr);
+            }
+            printer.println("return model;");
+            printer.unindent();
+            printer.println("}");
+            printer.println();
+        }
+
+        @Override
+        protected Void defaultAction(DataType type, AttributeMetaDesc p)
+                throws RuntimeException {
+            printer.println(
+                "%1$s _%2$s = readValue(in);",
+                type.getTypeName(),
+                p.getAttributeName());
+            printer.println(
+                "model.%1$s(_%2$s);",
+                p.getWriteMethodName(),
+                p.getAttributeName());
+            return null;
+        }
+
+        @Override
+        public Void visitPrimitiveType(PrimitiveType type, AttributeMetaDesc p)
+                throws RuntimeException {
+            printer.println(
+                "%1$s _%2$s = readValue(in);",
+                type.getWrapperClassName(),
+                p.getAttributeName());
+            printer.println(
+                "model.%1$s(_%2$s);",
+                p.getWriteMethodName(),
+                p.getAttributeName());
+            return null;
+        }
+
+        @Override
+        public Void visitPrimitiveBooleanType(PrimitiveBooleanType type,
+                AttributeMetaDesc p) throws RuntimeException {
+            printer.println(
+                "model.%1$s(in.readBoolean());",
+                p.getWriteMethodName());
+            return null;
+        }
+
+        @Override
+        public Void visitPrimitiveDoubleType(PrimitiveDoubleType type,
+                AttributeMetaDesc p) throws RuntimeException {
+            printer.println(
+                "model.%1$s(in.readDouble());",
+                p.getWriteMethodName());
+            return null;
+        }
+
+        @Override
+        public Void visitPrimitiveFloatType(PrimitiveFloatType type,
+                AttributeMetaDesc p) throws RuntimeException {
+            printer.println(
+                "model.%1$s(in.readFloat());",
+                p.getWriteMethodName());
+            return null;
+        }
+
+        @Override
+        public Void visitPrimitiveIntType(PrimitiveIntType type,
+                AttributeMetaDesc p) throws RuntimeException {
+            printer.println(
+                "model.%1$s(in.readInt());",
+                p.getWriteMethodName());
+            return null;
+        }
+
+        @Override
+        public Void visitPrimitiveLongType(PrimitiveLongType type,
+                AttributeMetaDesc p) throws RuntimeException {
+            printer.println(
+                "model.%1$s(in.readLong());",
+                p.getWriteMethodName());
+            return null;
+        }
+
+        @Override
+        public Void visitPrimitiveShortType(PrimitiveShortType type,
+                AttributeMetaDesc p) throws RuntimeException {
+            printer.println(
+                "model.%1$s(in.readShort());",
+                p.getWriteMethodName());
+            return null;
+        }
+
+        @Override
+        public Void visitEnumType(EnumType type, AttributeMetaDesc p)
+                throws RuntimeException {
+            printer.println(
+                "%1$s _%2$s = readValue(in);",
+                String,
+                p.getAttributeName());
+            printer.println(
+                "model.%1$s(stringToEnum(%2$s.class, _%3$s));",
+                p.getWriteMethodName(),
+                type.getTypeName(),
+                p.getAttributeName());
+            return null;
+        }
+
+        @Override
+        public Void visitModelRefType(ModelRefType type, AttributeMetaDesc p)
+                throws RuntimeException {
+            printer.println(
+                "if (model.%1$s() == null) {",
+                p.getReadMethodName());
+            printer
+                .println(
+                    "    throw new NullPointerException(\"The property(%1$s) is null.\");",
+                    p.getAttributeName());
+            printer.println("}");
+            printer.println(
+                "%1$s _%2$s = readValue(in);",
+                Key,
+                p.getAttributeName());
+            printer.println(
+                "model.%1$s().setKey(_%2$s);",
+                p.getReadMethodName(),
+                p.getAttributeName());
+            return null;
+        }
+    }
+
+    /**
+     * Represents the {@code decodeLazyAttribute} method generator.
+     * 
+     * @author higa
+     * @since 1.0.18
+     * 
+     */
+    protected class DecodeLazyAttributeMethodGenerator {
+
+        /** the printer */
+        protected final Printer printer;
+
+        /**
+         * Creates a new {@link DecodeLazyAttributeMethodGenerator}.
+         * 
+         * @param printer
+         *            the printer
+         */
+        public DecodeLazyAttributeMethodGenerator(Printer printer) {
+            this.printer = printer;
+        }
+
+        /**
+         * Generates the decodeLazyAttribute method.
+         */
+        public void generate() {
+            printer.println("@Override");
+            printer
+                .println(
+                    "protected void decodeLazyAttribute(%1$s object, %2$s attributeName, %3$s entity) {",
+                    Object,
+                    String,
+                    Entity);
+            printer.indent();
+            printer.println(
+                "%1$s model = (%1$s) object;",
+                modelMetaDesc.getModelClassName());
+            EntityToModelMethodGenerator generator =
+                new EntityToModelMethodGenerator(printer);
+            for (AttributeMetaDesc attr : modelMetaDesc
+                .getAttributeMetaDescList()) {
+                if (!attr.isPersistent() || !attr.isLazy()) {
+                    continue;
+                }
+                printer.println(
+                    "if (\"%1$s\".equals(attributeName)) {",
+                    attr.getAttributeName());
+                printer.indent();
+                attr.getDataType().accept(generator, attr);
+                printer.println("return;");
+                printer.unindent();
+                printer.println("}");
+            }
+            printer.println(
+                "super.decodeLazyAttribute(object, attributeName, entity);");
+            printer.unindent();
+            printer.println("}");
+            printer.println();
+        }
+    }
+
     private static final Map<String, String> defaultsOfPrimitives =
         new HashMap<String, String>();
     private static final Set<String> jsonSupportedTypes = new HashSet<String>();
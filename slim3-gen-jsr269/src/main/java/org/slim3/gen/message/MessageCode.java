@@ -146,7 +146,11 @@ public enum MessageCode {
     /** */
     SLIM3GEN1054("The coder[{0}] of @Json does not have a default constructor."),
     /** */
-    SLIM3GEN1055("The coder of @Json must not be an interface.");
+    SLIM3GEN1055("The coder of @Json must not be an interface."),
+    /** */
+    SLIM3GEN1056("The read method[{0}] of the lazy attribute must call LazyAttributeUtil.resolve(this, \"{1}\") before reading the field."),
+    /** */
+    SLIM3GEN1057("The write method[{0}] of the lazy attribute must call LazyAttributeUtil.discard(this, \"{1}\") before writing the field.");
 
     /** the message */
     public final String message;
@@ -25,9 +25,12 @@ import org.slim3.gen.processor.ModelProcessor;
 import org.slim3.test.model.AttributeNotSupportedSampleModel;
 import org.slim3.test.model.AttributeParameterSampleModel;
 import org.slim3.test.model.BasicModel;
+import org.slim3.test.model.BinaryCodecModel;
 import org.slim3.test.model.ListenerModel;
 import org.slim3.test.model.AttributeSampleModel;
 import org.slim3.test.model.ImplementComparableModel;
+import org.slim3.test.model.LazyModel;
+import org.slim3.test.model.LazyNotResolvedModel;
 import org.slim3.test.model.RefAModel;
 import org.slim3.test.model.RefBModel;
 
@@ -193,6 +196,117 @@ public class ModelProcessorTest extends AptinaTestCase {
         }
     }
 
+    /**
+     * Test for generate Meta class of {@link BinaryCodecModel}.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testForBinaryCodec() throws Exception {
+        ModelProcessor processor = new ModelProcessor();
+        addProcessor(processor);
+
+        addCompilationUnit(BinaryCodecModel.class);
+
+        compile();
+        {
+            String sourceName = "org.slim3.test.meta.BinaryCodecModelMeta";
+            String source = getGeneratedSource(sourceName);
+            assertThat(source.contains("isBinaryCodecSupported()"), is(true));
+            assertThat(
+                source.contains("getBinaryCodecSchemaHash()"),
+                is(true));
+            assertThat(source.contains("writeTo("), is(true));
+            assertThat(source.contains("readFrom("), is(true));
+        }
+        assertThat(getCompiledResult(), is(true));
+    }
+
+    /**
+     * Test for generate Meta class of {@link LazyModel}.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testForLazy() throws Exception {
+        ModelProcessor processor = new ModelProcessor();
+        addProcessor(processor);
+
+        addCompilationUnit(LazyModel.class);
+
+        compile();
+        {
+            String sourceName = "org.slim3.test.meta.LazyModelMeta";
+            String source = getGeneratedSource(sourceName);
+            assertThat(
+                source.contains("deferLazyAttributes(model, entity, "
+                    + "\"content\", \"tags\");"),
+                is(true));
+            assertThat(source.contains("decodeLazyAttribute("), is(true));
+            assertThat(
+                source.contains("resolveLazyAttributes(model);"),
+                is(true));
+        }
+        assertThat(getCompiledResult(), is(true));
+    }
+
+    /**
+     * Test for generate getAttributeValue of {@link LazyModel}.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testForGetAttributeValue() throws Exception {
+        ModelProcessor processor = new ModelProcessor();
+        addProcessor(processor);
+
+        addCompilationUnit(LazyModel.class);
+
+        compile();
+        {
+            String sourceName = "org.slim3.test.meta.LazyModelMeta";
+            String source = getGeneratedSource(sourceName);
+            assertThat(
+                source.contains("if (attributeMeta == this.key) "
+                    + "return m.getKey();"),
+                is(true));
+            assertThat(
+                source.contains("if (attributeMeta == this.content) "
+                    + "return m.getContent();"),
+                is(true));
+            assertThat(
+                source.contains("if (attributeMeta == this.tags) "
+                    + "return m.getTags();"),
+                is(true));
+            assertThat(source.contains("getAttributeName()"), is(false));
+        }
+        assertThat(getCompiledResult(), is(true));
+    }
+
+    /**
+     * Test for generate Meta class of {@link LazyNotResolvedModel}.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testForLazyNotResolved() throws Exception {
+        ModelProcessor processor = new ModelProcessor();
+        addProcessor(processor);
+
+        addCompilationUnit(LazyNotResolvedModel.class);
+
+        compile();
+        {
+            String sourceName = "org.slim3.test.meta.LazyNotResolvedModelMeta";
+            try {
+                @SuppressWarnings("unused")
+                String source = getGeneratedSource(sourceName);
+                fail();
+            } catch (SourceNotGeneratedException e) {
+            }
+        }
+    }
+
     @Override
     protected void setUp() throws Exception {
         super.setUp();
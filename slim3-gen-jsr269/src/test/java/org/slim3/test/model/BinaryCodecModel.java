@@ -0,0 +1,117 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.test.model;
+
+import java.util.List;
+
+import org.slim3.datastore.Attribute;
+import org.slim3.datastore.Model;
+
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.Query.SortDirection;
+
+/**
+ * @author agent
+ * 
+ */
+@Model(binaryCodec = true)
+public class BinaryCodecModel {
+    @Attribute(primaryKey = true)
+    Key key;
+
+    int count;
+
+    String name;
+
+    SortDirection direction;
+
+    List<String> tags;
+
+    /**
+     * @return the key
+     */
+    public Key getKey() {
+        return key;
+    }
+
+    /**
+     * @param key
+     *            the key to set
+     */
+    public void setKey(Key key) {
+        this.key = key;
+    }
+
+    /**
+     * @return the count
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @param count
+     *            the count to set
+     */
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    /**
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param name
+     *            the name to set
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return the direction
+     */
+    public SortDirection getDirection() {
+        return direction;
+    }
+
+    /**
+     * @param direction
+     *            the direction to set
+     */
+    public void setDirection(SortDirection direction) {
+        this.direction = direction;
+    }
+
+    /**
+     * @return the tags
+     */
+    public List<String> getTags() {
+        return tags;
+    }
+
+    /**
+     * @param tags
+     *            the tags to set
+     */
+    public void setTags(List<String> tags) {
+        this.tags = tags;
+    }
+}
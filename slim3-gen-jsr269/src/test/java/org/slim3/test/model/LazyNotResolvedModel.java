@@ -0,0 +1,66 @@
+/*
+ * Copyright 2004-2009 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.test.model;
+
+import org.slim3.datastore.Attribute;
+import org.slim3.datastore.LazyAttributeUtil;
+import org.slim3.datastore.Model;
+
+import com.google.appengine.api.datastore.Key;
+
+/**
+ * @author agent
+ * 
+ */
+@Model
+public class LazyNotResolvedModel {
+    @Attribute(primaryKey = true)
+    Key key;
+
+    @Attribute(lob = true, lazy = true)
+    String content;
+
+    /**
+     * @return the key
+     */
+    public Key getKey() {
+        return key;
+    }
+
+    /**
+     * @param key
+     *            the key to set
+     */
+    public void setKey(Key key) {
+        this.key = key;
+    }
+
+    /**
+     * @return the content
+     */
+    public String getContent() {
+        return content;
+    }
+
+    /**
+     * @param content
+     *            the content to set
+     */
+    public void setContent(String content) {
+        LazyAttributeUtil.discard(this, "content");
+        this.content = content;
+    }
+}
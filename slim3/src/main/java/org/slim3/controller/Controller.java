@@ -15,10 +15,8 @@
  */
 package org.slim3.controller;
 
-import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.net.URLConnection;
 import java.net.URLEncoder;
 import java.text.DecimalFormat;
@@ -33,23 +31,18 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
+import org.slim3.controller.content.ByteArrayContent;
+import org.slim3.controller.content.Content;
+import org.slim3.controller.content.ContentWriter;
+import org.slim3.controller.content.InputStreamContent;
 import org.slim3.controller.upload.FileUpload;
 import org.slim3.controller.validator.Errors;
 import org.slim3.util.AppEngineUtil;
-import org.slim3.util.BooleanUtil;
-import org.slim3.util.DateUtil;
-import org.slim3.util.DoubleUtil;
-import org.slim3.util.FloatUtil;
-import org.slim3.util.IntegerUtil;
-import org.slim3.util.LongUtil;
-import org.slim3.util.NumberUtil;
+import org.slim3.util.ParsedRequestMap;
 import org.slim3.util.RequestMap;
-import org.slim3.util.ShortUtil;
-import org.slim3.util.StringUtil;
 import org.slim3.util.ThrowableUtil;
 
 import com.google.appengine.api.datastore.Key;
-import com.google.appengine.api.datastore.KeyFactory;
 
 /**
  * A base controller. This controller is created each request.
@@ -93,6 +86,11 @@ public abstract class Controller {
      */
     protected Errors errors;
 
+    /**
+     * The converted request attribute values.
+     */
+    protected ParsedRequestMap parsedRequestMap;
+
     /**
      * Runs the bare controller process.
      * 
@@ -257,7 +255,7 @@ public abstract class Controller {
             throw new NullPointerException(
                 "The name parameter must not be null.");
         }
-        return StringUtil.toString(request.getAttribute(name.toString()));
+        return asParsedMap().getString(name);
     }
 
     /**
@@ -274,7 +272,7 @@ public abstract class Controller {
             throw new NullPointerException(
                 "The name parameter must not be null.");
         }
-        return ShortUtil.toShort(request.getAttribute(name.toString()));
+        return asParsedMap().getShort(name);
     }
 
     /**
@@ -295,7 +293,7 @@ public abstract class Controller {
             throw new NullPointerException(
                 "The name parameter must not be null.");
         }
-        return ShortUtil.toShort(NumberUtil.toNumber(asString(name), pattern));
+        return asParsedMap().getShort(name, pattern);
     }
 
     /**
@@ -312,7 +310,7 @@ public abstract class Controller {
             throw new NullPointerException(
                 "The name parameter must not be null.");
         }
-        return IntegerUtil.toInteger(request.getAttribute(name.toString()));
+        return asParsedMap().getInteger(name);
     }
 
     /**
@@ -329,9 +327,11 @@ public abstract class Controller {
      */
     protected Integer asInteger(CharSequence name, String pattern)
             throws NullPointerException {
-        return IntegerUtil.toInteger(NumberUtil.toNumber(
-            asString(name),
-            pattern));
+        if (name == null) {
+            throw new NullPointerException(
+                "The name parameter must not be null.");
+        }
+        return asParsedMap().getInteger(name, pattern);
     }
 
     /**
@@ -348,7 +348,7 @@ public abstract class Controller {
             throw new NullPointerException(
                 "The name parameter must not be null.");
         }
-        return LongUtil.toLong(request.getAttribute(name.toString()));
+        return asParsedMap().getLong(name);
     }
 
     /**
@@ -365,7 +365,11 @@ public abstract class Controller {
      */
     protected Long asLong(CharSequence name, String pattern)
             throws NullPointerException {
-        return LongUtil.toLong(NumberUtil.toNumber(asString(name), pattern));
+        if (name == null) {
+            throw new NullPointerException(
+                "The name parameter must not be null.");
+        }
+        return asParsedMap().getLong(name, pattern);
     }
 
     /**
@@ -382,7 +386,7 @@ public abstract class Controller {
             throw new NullPointerException(
                 "The name parameter must not be null.");
         }
-        return FloatUtil.toFloat(request.getAttribute(name.toString()));
+        return asParsedMap().getFloat(name);
     }
 
     /**
@@ -399,7 +403,11 @@ public abstract class Controller {
      */
     protected Float asFloat(CharSequence name, String pattern)
             throws NullPointerException {
-        return FloatUtil.toFloat(NumberUtil.toNumber(asString(name), pattern));
+        if (name == null) {
+            throw new NullPointerException(
+                "The name parameter must not be null.");
+        }
+        return asParsedMap().getFloat(name, pattern);
     }
 
     /**
@@ -416,7 +424,7 @@ public abstract class Controller {
             throw new NullPointerException(
                 "The name parameter must not be null.");
         }
-        return DoubleUtil.toDouble(request.getAttribute(name.toString()));
+        return asParsedMap().getDouble(name);
     }
 
     /**
@@ -433,8 +441,11 @@ public abstract class Controller {
      */
     protected Double asDouble(CharSequence name, String pattern)
             throws NullPointerException {
-        return DoubleUtil
-            .toDouble(NumberUtil.toNumber(asString(name), pattern));
+        if (name == null) {
+            throw new NullPointerException(
+                "The name parameter must not be null.");
+        }
+        return asParsedMap().getDouble(name, pattern);
     }
 
     /**
@@ -451,7 +462,7 @@ public abstract class Controller {
             throw new NullPointerException(
                 "The name parameter must not be null.");
         }
-        return BooleanUtil.toBoolean(request.getAttribute(name.toString()));
+        return asParsedMap().getBoolean(name);
     }
 
     /**
@@ -468,7 +479,11 @@ public abstract class Controller {
      */
     protected Date asDate(CharSequence name, String pattern)
             throws NullPointerException {
-        return DateUtil.toDate(asString(name), pattern);
+        if (name == null) {
+            throw new NullPointerException(
+                "The name parameter must not be null.");
+        }
+        return asParsedMap().getDate(name, pattern);
     }
 
     /**
@@ -485,14 +500,7 @@ public abstract class Controller {
             throw new NullPointerException(
                 "The name parameter must not be null.");
         }
-        Object key = request.getAttribute(name.toString());
-        if (key == null) {
-            return null;
-        }
-        if (key instanceof Key) {
-            return (Key) key;
-        }
-        return KeyFactory.stringToKey(key.toString());
+        return asParsedMap().getKey(name);
     }
     
     /**
@@ -501,7 +509,23 @@ public abstract class Controller {
      * @return the request attribute values as {@link Map}
      */
     protected RequestMap asMap() {
-        return new RequestMap(request);
+        return asParsedMap();
+    }
+
+    /**
+     * Returns the request attribute values used by the asXxx methods. The
+     * converted values are cached in the returned map, so each attribute is
+     * parsed once per request.
+     * 
+     * @return the request attribute values
+     * @since 1.0.18
+     */
+    protected ParsedRequestMap asParsedMap() {
+        if (parsedRequestMap == null
+            || parsedRequestMap.getRequest() != request) {
+            parsedRequestMap = new ParsedRequestMap(request);
+        }
+        return parsedRequestMap;
     }
 
     /**
@@ -706,29 +730,11 @@ public abstract class Controller {
      */
     protected void download(String fileName, byte[] data)
             throws NullPointerException {
-        if (fileName == null) {
-            throw new NullPointerException(
-                "The fileName parameter must not be null.");
-        }
         if (data == null) {
             throw new NullPointerException(
                 "The data parameter must not be null.");
         }
-        try {
-            response.setContentType("application/octet-stream");
-            response.setHeader("Content-disposition", "attachment; "
-                + encodeFileName(fileName));
-            OutputStream out =
-                new BufferedOutputStream(response.getOutputStream());
-            try {
-                out.write(data);
-            } finally {
-                out.flush();
-                out.close();
-            }
-        } catch (IOException e) {
-            ThrowableUtil.wrapAndThrow(e);
-        }
+        download(fileName, new ByteArrayContent(data));
     }
 
     /**
@@ -743,29 +749,41 @@ public abstract class Controller {
      *             null
      */
     protected void download(String fileName, InputStream in) {
+        if (in == null) {
+            throw new NullPointerException("The in parameter must not be null.");
+        }
+        download(fileName, new InputStreamContent(in, -1));
+    }
+
+    /**
+     * Downloads the content. If the length of the content is known, a range
+     * request is supported. If the entity tag or the last modified time of the
+     * content is set, a conditional request is answered without the body.
+     * 
+     * @param fileName
+     *            the file name
+     * @param content
+     *            the content
+     * @throws NullPointerException
+     *             if the fileName parameter is null or if the content parameter
+     *             is null
+     * @since 1.0.18
+     */
+    protected void download(String fileName, Content content)
+            throws NullPointerException {
         if (fileName == null) {
             throw new NullPointerException(
                 "The fileName parameter must not be null.");
         }
-        if (in == null) {
-            throw new NullPointerException("The in parameter must not be null.");
+        if (content == null) {
+            throw new NullPointerException(
+                "The content parameter must not be null.");
         }
         try {
-            response.setContentType("application/octet-stream");
-            response.setHeader("Content-disposition", "attachment; "
-                + encodeFileName(fileName));
-            OutputStream out =
-                new BufferedOutputStream(response.getOutputStream());
-            try {
-                byte[] buf = new byte[BUFFER_SIZE];
-                int length;
-                while ((length = in.read(buf)) > 0) {
-                    out.write(buf, 0, length);
-                }
-            } finally {
-                out.flush();
-                out.close();
-            }
+            new ContentWriter(request, response).write(
+                content,
+                "application/octet-stream",
+                "attachment; " + encodeFileName(fileName));
         } catch (IOException e) {
             ThrowableUtil.wrapAndThrow(e);
         }
@@ -784,33 +802,11 @@ public abstract class Controller {
      */
     protected void show(String fileName, byte[] data)
             throws NullPointerException {
-        if (fileName == null) {
-            throw new NullPointerException(
-                "The fileName parameter must not be null.");
-        }
         if (data == null) {
             throw new NullPointerException(
                 "The data parameter must not be null.");
         }
-        try {
-            String contentType =
-                URLConnection.getFileNameMap().getContentTypeFor(fileName);
-            if (contentType != null) {
-                response.setContentType(contentType);
-            }
-            response.setHeader("Content-disposition", "inline; "
-                + encodeFileName(fileName));
-            OutputStream out =
-                new BufferedOutputStream(response.getOutputStream());
-            try {
-                out.write(data);
-            } finally {
-                out.flush();
-                out.close();
-            }
-        } catch (IOException e) {
-            ThrowableUtil.wrapAndThrow(e);
-        }
+        show(fileName, new ByteArrayContent(data));
     }
 
     /**
@@ -825,33 +821,41 @@ public abstract class Controller {
      *             null
      */
     protected void show(String fileName, InputStream in) {
+        if (in == null) {
+            throw new NullPointerException("The in parameter must not be null.");
+        }
+        show(fileName, new InputStreamContent(in, -1));
+    }
+
+    /**
+     * Shows the content. If the length of the content is known, a range
+     * request is supported. If the entity tag or the last modified time of the
+     * content is set, a conditional request is answered without the body.
+     * 
+     * @param fileName
+     *            the file name
+     * @param content
+     *            the content
+     * @throws NullPointerException
+     *             if the fileName parameter is null or if the content parameter
+     *             is null
+     * @since 1.0.18
+     */
+    protected void show(String fileName, Content content)
+            throws NullPointerException {
         if (fileName == null) {
             throw new NullPointerException(
                 "The fileName parameter must not be null.");
         }
-        if (in == null) {
-            throw new NullPointerException("The in parameter must not be null.");
+        if (content == null) {
+            throw new NullPointerException(
+                "The content parameter must not be null.");
         }
         try {
-            String contentType =
-                URLConnection.getFileNameMap().getContentTypeFor(fileName);
-            if (contentType != null) {
-                response.setContentType(contentType);
-            }
-            response.setHeader("Content-disposition", "inline; "
-                + encodeFileName(fileName));
-            OutputStream out =
-                new BufferedOutputStream(response.getOutputStream());
-            try {
-                byte[] buf = new byte[BUFFER_SIZE];
-                int length;
-                while ((length = in.read(buf)) > 0) {
-                    out.write(buf, 0, length);
-                }
-            } finally {
-                out.flush();
-                out.close();
-            }
+            new ContentWriter(request, response).write(
+                content,
+                URLConnection.getFileNameMap().getContentTypeFor(fileName),
+                "inline; " + encodeFileName(fileName));
         } catch (IOException e) {
             ThrowableUtil.wrapAndThrow(e);
         }
@@ -126,6 +126,47 @@ public final class ControllerConstants {
      */
     public static String ROUTED_KEY = "slim3.routed";
 
+    /**
+     * The key of configuration setting whether a routed path is dispatched to
+     * the controller directly instead of forwarding.
+     * 
+     * @since 1.0.18
+     */
+    public static String DIRECT_DISPATCH_KEY = "slim3.directDispatch";
+
+    /**
+     * The key of configuration setting for the maximum number of the paths
+     * cached as no controller.
+     * 
+     * @since 1.0.18
+     */
+    public static String CONTROLLER_CACHE_SIZE_KEY =
+        "slim3.controllerCacheSize";
+
+    /**
+     * The default maximum number of the paths cached as no controller.
+     * 
+     * @since 1.0.18
+     */
+    public static int DEFAULT_CONTROLLER_CACHE_SIZE = 1000;
+
+    /**
+     * The key of configuration setting for the class name of
+     * {@link ControllerRegistry}.
+     * 
+     * @since 1.0.18
+     */
+    public static String CONTROLLER_REGISTRY_KEY = "slim3.controllerRegistry";
+
+    /**
+     * The key of configuration setting for the comma separated class names of
+     * {@link org.slim3.util.TimelineSink}. If it is not specified, the
+     * timeline of the request is not recorded.
+     * 
+     * @since 1.0.18
+     */
+    public static String TIMELINE_SINK_KEY = "slim3.timelineSink";
+
     /**
      * The path before forwarding.
      */
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.controller;
+
+/**
+ * A registry of the controllers known at build time. If the class name of the
+ * implementation is specified by the context parameter
+ * "slim3.controllerRegistry", {@link FrontController} asks this registry
+ * before loading the controller class reflectively. The registry is not used
+ * while hot reloading.
+ * 
+ * @author agent
+ * @since 1.0.18
+ * 
+ */
+public interface ControllerRegistry {
+
+    /**
+     * Returns the controller class.
+     * 
+     * @param className
+     *            the controller class name
+     * @return the controller class or null if the controller is not registered
+     */
+    Class<? extends Controller> getControllerClass(String className);
+
+    /**
+     * Creates a new controller.
+     * 
+     * @param className
+     *            the controller class name
+     * @return a new controller or null if the controller is not registered
+     */
+    Controller newController(String className);
+}
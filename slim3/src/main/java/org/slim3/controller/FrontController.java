@@ -16,10 +16,22 @@
 package org.slim3.controller;
 
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.TimeZone;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
@@ -27,10 +39,12 @@ import javax.servlet.FilterConfig;
 import javax.servlet.RequestDispatcher;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
 import javax.servlet.http.HttpSession;
 
 import org.slim3.controller.router.Router;
@@ -39,15 +53,23 @@ import org.slim3.controller.validator.Errors;
 import org.slim3.util.ApplicationMessage;
 import org.slim3.util.CipherFactory;
 import org.slim3.util.ClassUtil;
+import org.slim3.util.Cleanable;
+import org.slim3.util.Cleaner;
+import org.slim3.util.IntegerUtil;
 import org.slim3.util.LocaleLocator;
 import org.slim3.util.LocaleUtil;
 import org.slim3.util.RequestLocator;
 import org.slim3.util.RequestUtil;
 import org.slim3.util.ResponseLocator;
+import org.slim3.util.ResponseTimelineSink;
 import org.slim3.util.ServletContextLocator;
 import org.slim3.util.StringUtil;
 import org.slim3.util.ThrowableUtil;
 import org.slim3.util.TimeZoneLocator;
+import org.slim3.util.Timeline;
+import org.slim3.util.TimelineLocator;
+import org.slim3.util.TimelineSink;
+import org.slim3.util.WrapRuntimeException;
 
 /**
  * The front controller of Slim3.
@@ -58,6 +80,9 @@ import org.slim3.util.TimeZoneLocator;
  */
 public class FrontController implements Filter {
 
+    private static final Logger logger =
+        Logger.getLogger(FrontController.class.getName());
+
     /**
      * The character set.
      */
@@ -98,6 +123,73 @@ public class FrontController implements Filter {
      */
     protected final String uuid = UUID.randomUUID().toString();
 
+    /**
+     * Whether a routed path is dispatched to the controller directly.
+     * 
+     * @since 1.0.18
+     */
+    protected boolean directDispatch = false;
+
+    /**
+     * The maximum number of the paths cached as no controller.
+     * 
+     * @since 1.0.18
+     */
+    protected int controllerCacheSize =
+        ControllerConstants.DEFAULT_CONTROLLER_CACHE_SIZE;
+
+    /**
+     * The controller registry.
+     * 
+     * @since 1.0.18
+     */
+    protected ControllerRegistry controllerRegistry;
+
+    /**
+     * The cache of the controller entries keyed by the path.
+     * 
+     * @since 1.0.18
+     */
+    protected final ConcurrentMap<String, ControllerEntry> controllerCache =
+        new ConcurrentHashMap<String, ControllerEntry>();
+
+    /**
+     * The cache of the paths that have no controller. The least recently used
+     * path is evicted when the number of the paths exceeds
+     * {@link #controllerCacheSize}.
+     * 
+     * @since 1.0.18
+     */
+    protected final Map<String, ControllerEntry> missingControllerCache =
+        Collections.synchronizedMap(new LinkedHashMap<String, ControllerEntry>(
+            16,
+            0.75f,
+            true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<String, ControllerEntry> eldest) {
+                return size() > controllerCacheSize;
+            }
+        });
+
+    /**
+     * Whether the controller cache is registered to {@link Cleaner}.
+     * 
+     * @since 1.0.18
+     */
+    protected boolean controllerCacheInitialized = false;
+
+    /**
+     * The sinks of the request timeline. If it is empty, the timeline is not
+     * recorded.
+     * 
+     * @since 1.0.18
+     */
+    protected List<TimelineSink> timelineSinks = new ArrayList<TimelineSink>();
+
     /**
      * Constructor.
      */
@@ -111,6 +203,9 @@ public class FrontController implements Filter {
         initDefaultLocale();
         initDefaultTimeZone();
         initRootPackageName();
+        initDirectDispatch();
+        initControllerCache();
+        initTimelineSinks();
     }
 
     /**
@@ -188,7 +283,61 @@ public class FrontController implements Filter {
         }
     }
 
+    /**
+     * Initializes whether a routed path is dispatched to the controller
+     * directly.
+     * 
+     * @since 1.0.18
+     */
+    protected void initDirectDispatch() {
+        directDispatch =
+            Boolean.valueOf(servletContext
+                .getInitParameter(ControllerConstants.DIRECT_DISPATCH_KEY));
+    }
+
+    /**
+     * Initializes the controller cache and the controller registry.
+     * 
+     * @since 1.0.18
+     */
+    protected void initControllerCache() {
+        Integer size =
+            IntegerUtil.toInteger(servletContext.getInitParameter(
+                ControllerConstants.CONTROLLER_CACHE_SIZE_KEY));
+        if (size != null) {
+            controllerCacheSize = size;
+        }
+        String registryClassName =
+            servletContext
+                .getInitParameter(ControllerConstants.CONTROLLER_REGISTRY_KEY);
+        if (!StringUtil.isEmpty(registryClassName)) {
+            controllerRegistry =
+                ClassUtil.newInstance(ClassUtil.forName(registryClassName));
+        }
+    }
+
+    /**
+     * Initializes the sinks of the request timeline.
+     * 
+     * @since 1.0.18
+     */
+    protected void initTimelineSinks() {
+        String classNames =
+            servletContext
+                .getInitParameter(ControllerConstants.TIMELINE_SINK_KEY);
+        if (StringUtil.isEmpty(classNames)) {
+            return;
+        }
+        for (String className : StringUtil.split(classNames, ", \t\r\n")) {
+            TimelineSink sink =
+                ClassUtil.newInstance(ClassUtil.forName(className));
+            timelineSinks.add(sink);
+        }
+    }
+
     public void destroy() {
+        controllerCache.clear();
+        missingControllerCache.clear();
         if (servletContextSet) {
             ServletContextLocator.set(null);
         }
@@ -196,10 +345,64 @@ public class FrontController implements Filter {
 
     public void doFilter(ServletRequest request, ServletResponse response,
             FilterChain chain) throws IOException, ServletException {
-        doFilter(
-            (HttpServletRequest) request,
-            (HttpServletResponse) response,
-            chain);
+        if (timelineSinks.isEmpty() || TimelineLocator.get() != null) {
+            doFilter(
+                (HttpServletRequest) request,
+                (HttpServletResponse) response,
+                chain);
+            return;
+        }
+        Timeline timeline = new Timeline();
+        TimelineLocator.set(timeline);
+        TimelineResponse timelineResponse =
+            new TimelineResponse(
+                timeline,
+                (HttpServletRequest) request,
+                (HttpServletResponse) response);
+        try {
+            doFilter((HttpServletRequest) request, timelineResponse, chain);
+        } finally {
+            TimelineLocator.set(null);
+            timelineResponse.exportBeforeCommit();
+            timeline.finish();
+            exportTimeline(
+                timeline,
+                (HttpServletRequest) request,
+                (HttpServletResponse) response,
+                false);
+        }
+    }
+
+    /**
+     * Exports the request timeline to the sinks. The error of a sink is logged
+     * and does not affect the response.
+     * 
+     * @param timeline
+     *            the timeline
+     * @param request
+     *            the request
+     * @param response
+     *            the response
+     * @param beforeCommit
+     *            whether the timeline is exported to the
+     *            {@link ResponseTimelineSink}s before the response is
+     *            committed, or to the other sinks after the request is
+     *            processed
+     * @since 1.0.18
+     */
+    protected void exportTimeline(Timeline timeline,
+            HttpServletRequest request, HttpServletResponse response,
+            boolean beforeCommit) {
+        for (TimelineSink sink : timelineSinks) {
+            if (sink instanceof ResponseTimelineSink != beforeCommit) {
+                continue;
+            }
+            try {
+                sink.export(timeline, request, response);
+            } catch (Throwable t) {
+                logger.log(Level.WARNING, t.getMessage(), t);
+            }
+        }
     }
 
     /**
@@ -231,8 +434,13 @@ public class FrontController implements Filter {
             if (!router.isStatic(path)) {
                 String routingPath = router.route(request, path);
                 if (routingPath != null) {
-                    request.setAttribute(ControllerConstants.ROUTED_KEY, true);
-                    doForward(request, response, routingPath);
+                    if (!directDispatch
+                        || !doDispatch(request, response, chain, routingPath)) {
+                        request.setAttribute(
+                            ControllerConstants.ROUTED_KEY,
+                            true);
+                        doForward(request, response, routingPath);
+                    }
                 } else {
                     doFilter(request, response, chain, path);
                 }
@@ -292,6 +500,46 @@ public class FrontController implements Filter {
         }
     }
 
+    /**
+     * Dispatches the routed path to the controller directly without
+     * forwarding. The routed query string is exposed as the parameters by
+     * {@link RoutedHttpServletRequest}.
+     * 
+     * @param request
+     *            the request
+     * @param response
+     *            the response
+     * @param chain
+     *            the filter chain
+     * @param routingPath
+     *            the routed path including the query string
+     * @return whether the routed path was dispatched, false if the routed path
+     *         is not for a controller
+     * @throws IOException
+     *             if {@link IOException} is encountered
+     * @throws ServletException
+     *             if {@link ServletException} is encountered
+     * @since 1.0.18
+     */
+    protected boolean doDispatch(HttpServletRequest request,
+            HttpServletResponse response, FilterChain chain, String routingPath)
+            throws IOException, ServletException {
+        int pos = routingPath.indexOf('?');
+        String path = pos < 0 ? routingPath : routingPath.substring(0, pos);
+        if (!path.startsWith("/")
+            || path.indexOf('.') >= 0
+            || getControllerClass(path) == null) {
+            return false;
+        }
+        String queryString = pos < 0 ? null : routingPath.substring(pos + 1);
+        doFilter(
+            new RoutedHttpServletRequest(request, path, queryString),
+            response,
+            chain,
+            path);
+        return true;
+    }
+
     /**
      * Processes the current locale.
      * 
@@ -401,12 +649,125 @@ public class FrontController implements Filter {
      */
     protected Controller createController(String path)
             throws IllegalStateException {
+        ControllerEntry entry = getControllerEntry(path);
+        if (entry == null) {
+            return null;
+        }
+        return entry.newController();
+    }
+
+    /**
+     * Returns the controller class specified by the path.
+     * 
+     * @param path
+     *            the path
+     * @return the controller class or null if the controller is not found
+     * @throws IllegalStateException
+     *             if the system property(slim3.controllerPackage) is not found
+     * @since 1.0.18
+     */
+    protected Class<? extends Controller> getControllerClass(String path)
+            throws IllegalStateException {
+        ControllerEntry entry = getControllerEntry(path);
+        return entry != null ? entry.controllerClass : null;
+    }
+
+    /**
+     * Returns the controller entry specified by the path. The entry is cached
+     * per path, including the path that has no controller, so a class is not
+     * loaded for the same path again. The entry is resolved again if the
+     * controller package or the class loader is changed. The paths cached as
+     * no controller are held in a bounded LRU cache to resist a flood of
+     * requests for the paths that do not exist. They are not cached while
+     * {@link HotReloadingClassLoader} is used, because a controller may be
+     * added at any time.
+     * 
+     * @param path
+     *            the path
+     * @return the controller entry or null if the controller is not found
+     * @throws IllegalStateException
+     *             if the system property(slim3.controllerPackage) is not found
+     * @since 1.0.18
+     */
+    protected ControllerEntry getControllerEntry(String path)
+            throws IllegalStateException {
+        String packageName = getControllerPackageName();
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        ControllerEntry entry = controllerCache.get(path);
+        if (entry == null) {
+            entry = missingControllerCache.get(path);
+        }
+        if (entry == null || !entry.isResolvedBy(packageName, loader)) {
+            entry = createControllerEntry(path, packageName, loader);
+            if (entry.controllerClass != null) {
+                registerControllerCacheCleaner();
+                controllerCache.put(path, entry);
+                missingControllerCache.remove(path);
+            } else {
+                controllerCache.remove(path);
+                if (loader instanceof HotReloadingClassLoader) {
+                    missingControllerCache.remove(path);
+                } else {
+                    registerControllerCacheCleaner();
+                    missingControllerCache.put(path, entry);
+                }
+            }
+        }
+        return entry.controllerClass != null ? entry : null;
+    }
+
+    /**
+     * Creates a new controller entry specified by the path.
+     * 
+     * @param path
+     *            the path
+     * @param packageName
+     *            the controller package name
+     * @param loader
+     *            the class loader
+     * @return a new controller entry
+     * @throws IllegalStateException
+     *             if the system property(slim3.controllerPackage) is not found
+     * @since 1.0.18
+     */
+    protected ControllerEntry createControllerEntry(String path,
+            String packageName, ClassLoader loader)
+            throws IllegalStateException {
         String className = toControllerClassName(path);
         if (className == null) {
-            return null;
+            return new ControllerEntry(packageName, loader, null, null);
         }
+        if (controllerRegistry != null
+            && !(loader instanceof HotReloadingClassLoader)) {
+            Class<? extends Controller> clazz =
+                controllerRegistry.getControllerClass(className);
+            if (clazz != null) {
+                return new ControllerEntry(
+                    packageName,
+                    loader,
+                    clazz,
+                    controllerRegistry);
+            }
+        }
+        return new ControllerEntry(packageName, loader, loadControllerClass(
+            className,
+            loader), null);
+    }
+
+    /**
+     * Loads the controller class.
+     * 
+     * @param className
+     *            the controller class name
+     * @param loader
+     *            the class loader
+     * @return the controller class or null if the controller is not found
+     * @since 1.0.18
+     */
+    @SuppressWarnings("unchecked")
+    protected Class<? extends Controller> loadControllerClass(
+            String className, ClassLoader loader) {
         Class<?> clazz = null;
-        ClassLoader loader = Thread.currentThread().getContextClassLoader();
         try {
             clazz = Class.forName(className, true, loader);
         } catch (Throwable t) {
@@ -418,7 +779,29 @@ public class FrontController implements Filter {
         if (Modifier.isAbstract(clazz.getModifiers())) {
             return null;
         }
-        return ClassUtil.newInstance(clazz);
+        return (Class<? extends Controller>) clazz;
+    }
+
+    /**
+     * Registers the cleaner of the controller cache, so hot reloaded classes
+     * are not held after the request.
+     * 
+     * @since 1.0.18
+     */
+    protected synchronized void registerControllerCacheCleaner() {
+        if (controllerCacheInitialized) {
+            return;
+        }
+        Cleaner.add(new Cleanable() {
+            public void clean() {
+                synchronized (FrontController.this) {
+                    controllerCache.clear();
+                    missingControllerCache.clear();
+                    controllerCacheInitialized = false;
+                }
+            }
+        });
+        controllerCacheInitialized = true;
     }
 
     /**
@@ -488,7 +871,21 @@ public class FrontController implements Filter {
             controller.createRequestHandler(request);
         requestHandler.handle();
         try {
-            Navigation navigation = controller.runBare();
+            Timeline timeline = TimelineLocator.get();
+            long start = timeline != null ? System.nanoTime() : 0;
+            Navigation navigation;
+            try {
+                navigation = controller.runBare();
+            } finally {
+                if (timeline != null) {
+                    timeline.record(
+                        Timeline.CONTROLLER,
+                        controller.getClass().getName(),
+                        start,
+                        0,
+                        0);
+                }
+            }
             handleNavigation(request, response, controller, navigation);
         } catch (Throwable t) {
             if (t instanceof IOException) {
@@ -635,6 +1032,220 @@ public class FrontController implements Filter {
                     + ") is not found.");
             return;
         }
-        rd.forward(request, response);
+        Timeline timeline = TimelineLocator.get();
+        if (timeline == null) {
+            rd.forward(request, response);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            rd.forward(request, response);
+        } finally {
+            timeline.record(Timeline.FORWARD, path, start, 0, 0);
+        }
+    }
+
+    /**
+     * A response that exports the request timeline to the
+     * {@link ResponseTimelineSink}s just before the response is committed.
+     * 
+     * @since 1.0.18
+     */
+    protected class TimelineResponse extends HttpServletResponseWrapper {
+
+        /**
+         * The timeline.
+         */
+        protected Timeline timeline;
+
+        /**
+         * The request.
+         */
+        protected HttpServletRequest request;
+
+        /**
+         * Whether the timeline has been exported.
+         */
+        protected boolean exported = false;
+
+        /**
+         * Constructor.
+         * 
+         * @param timeline
+         *            the timeline
+         * @param request
+         *            the request
+         * @param response
+         *            the response
+         */
+        public TimelineResponse(Timeline timeline, HttpServletRequest request,
+                HttpServletResponse response) {
+            super(response);
+            this.timeline = timeline;
+            this.request = request;
+        }
+
+        /**
+         * Exports the timeline to the {@link ResponseTimelineSink}s unless it
+         * has been exported.
+         */
+        public void exportBeforeCommit() {
+            if (exported) {
+                return;
+            }
+            exported = true;
+            exportTimeline(
+                timeline,
+                request,
+                (HttpServletResponse) getResponse(),
+                true);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            exportBeforeCommit();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            exportBeforeCommit();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            exportBeforeCommit();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            exportBeforeCommit();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            exportBeforeCommit();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            exportBeforeCommit();
+            super.sendRedirect(location);
+        }
+    }
+
+    /**
+     * An entry of the controller cache.
+     * 
+     * @since 1.0.18
+     */
+    protected static class ControllerEntry {
+
+        /**
+         * The controller package name that this entry is resolved with.
+         */
+        protected final String packageName;
+
+        /**
+         * The class loader that this entry is resolved with.
+         */
+        protected final ClassLoader loader;
+
+        /**
+         * The controller class or null if the controller is not found.
+         */
+        protected final Class<? extends Controller> controllerClass;
+
+        /**
+         * The public constructor without parameters.
+         */
+        protected final Constructor<? extends Controller> constructor;
+
+        /**
+         * The controller registry.
+         */
+        protected final ControllerRegistry registry;
+
+        /**
+         * Constructor.
+         * 
+         * @param packageName
+         *            the controller package name
+         * @param loader
+         *            the class loader
+         * @param controllerClass
+         *            the controller class
+         * @param registry
+         *            the controller registry
+         */
+        public ControllerEntry(String packageName, ClassLoader loader,
+                Class<? extends Controller> controllerClass,
+                ControllerRegistry registry) {
+            this.packageName = packageName;
+            this.loader = loader;
+            this.controllerClass = controllerClass;
+            this.registry = registry;
+            Constructor<? extends Controller> c = null;
+            if (controllerClass != null && registry == null) {
+                try {
+                    c = controllerClass.getConstructor();
+                } catch (NoSuchMethodException ignore) {
+                } catch (SecurityException ignore) {
+                }
+            }
+            constructor = c;
+        }
+
+        /**
+         * Determines if this entry is resolved with the controller package
+         * name and the class loader.
+         * 
+         * @param packageName
+         *            the controller package name
+         * @param loader
+         *            the class loader
+         * @return whether this entry is resolved with them
+         */
+        public boolean isResolvedBy(String packageName, ClassLoader loader) {
+            return this.loader == loader
+                && this.packageName.equals(packageName);
+        }
+
+        /**
+         * Creates a new controller.
+         * 
+         * @return a new controller
+         * @throws WrapRuntimeException
+         *             if an error occurred while creating a new controller
+         */
+        public Controller newController() throws WrapRuntimeException {
+            if (registry != null) {
+                Controller controller =
+                    registry.newController(controllerClass.getName());
+                if (controller != null) {
+                    return controller;
+                }
+            }
+            if (constructor == null) {
+                return ClassUtil.newInstance(controllerClass);
+            }
+            try {
+                return constructor.newInstance();
+            } catch (Throwable t) {
+                Throwable cause =
+                    t instanceof InvocationTargetException ? t.getCause() : t;
+                throw new WrapRuntimeException(
+                    "An error occurred while creating a new instance of "
+                        + "the class("
+                        + controllerClass.getName()
+                        + "). Error message: "
+                        + cause.getMessage(),
+                    cause);
+            }
+        }
     }
-}
\ No newline at end of file
+}
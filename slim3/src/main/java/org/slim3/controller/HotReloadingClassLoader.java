@@ -16,10 +16,16 @@
 package org.slim3.controller;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slim3.util.WrapRuntimeException;
 
@@ -41,6 +47,21 @@ public class HotReloadingClassLoader extends ClassLoader {
      */
     protected String coolPackageName;
 
+    /**
+     * The last modified times of the loaded class files.
+     */
+    protected final Map<URL, Long> lastModifiedMap =
+        new ConcurrentHashMap<URL, Long>();
+
+    /**
+     * The last modified times of the directories of the root package when
+     * this class loader is created.
+     * 
+     * @since 1.0.18
+     */
+    protected Map<File, Long> directoryLastModifiedMap =
+        Collections.emptyMap();
+
     /**
      * Constructor
      * 
@@ -68,6 +89,7 @@ public class HotReloadingClassLoader extends ClassLoader {
         }
         this.rootPackageName = rootPackageName;
         this.coolPackageName = coolPackageName;
+        directoryLastModifiedMap = getDirectoryLastModifiedMap();
     }
 
     /**
@@ -84,32 +106,51 @@ public class HotReloadingClassLoader extends ClassLoader {
     public Class<?> loadClass(String className, boolean resolve)
             throws ClassNotFoundException {
         if (isTarget(className)) {
-            Class<?> clazz = findLoadedClass(className);
-            if (clazz != null) {
-                return clazz;
+            synchronized (getClassLoadingLock(className)) {
+                return loadTargetClass(className, resolve);
             }
-            int index = className.lastIndexOf('.');
-            if (index >= 0) {
-                String packageName = className.substring(0, index);
-                if (getPackage(packageName) == null) {
-                    try {
-                        definePackage(
-                            packageName,
-                            null,
-                            null,
-                            null,
-                            null,
-                            null,
-                            null,
-                            null);
-                    } catch (IllegalArgumentException ignore) {
-                    }
+        }
+        return super.loadClass(className, resolve);
+    }
+
+    /**
+     * Loads the target class of hot deployment.
+     * 
+     * @param className
+     *            the class name
+     * @param resolve
+     *            whether the class is resolved
+     * @return the class
+     * @throws ClassNotFoundException
+     *             if the class is not found
+     */
+    protected Class<?> loadTargetClass(String className, boolean resolve)
+            throws ClassNotFoundException {
+        Class<?> clazz = findLoadedClass(className);
+        if (clazz != null) {
+            return clazz;
+        }
+        int index = className.lastIndexOf('.');
+        if (index >= 0) {
+            String packageName = className.substring(0, index);
+            if (getPackage(packageName) == null) {
+                try {
+                    definePackage(
+                        packageName,
+                        null,
+                        null,
+                        null,
+                        null,
+                        null,
+                        null,
+                        null);
+                } catch (IllegalArgumentException ignore) {
                 }
             }
-            clazz = defineClass(className, resolve);
-            if (clazz != null) {
-                return clazz;
-            }
+        }
+        clazz = defineClass(className, resolve);
+        if (clazz != null) {
+            return clazz;
         }
         return super.loadClass(className, resolve);
     }
@@ -176,6 +217,7 @@ public class HotReloadingClassLoader extends ClassLoader {
             if (url == null) {
                 return null;
             }
+            lastModifiedMap.put(url, getLastModified(url));
             URLConnection connection = url.openConnection();
             connection.setUseCaches(false);
             return connection.getInputStream();
@@ -184,6 +226,116 @@ public class HotReloadingClassLoader extends ClassLoader {
         }
     }
 
+    /**
+     * Determines if a class file loaded by this class loader is modified or
+     * deleted, or if a file is added to or deleted from a directory of the
+     * root package. The latter is detected by the last modified time of the
+     * directory, so a class that has not been found is looked up again.
+     * 
+     * @return whether a class file is modified, added or deleted
+     * @since 1.0.18
+     */
+    public boolean isModified() {
+        for (Map.Entry<URL, Long> e : lastModifiedMap.entrySet()) {
+            if (getLastModified(e.getKey()) != e.getValue()) {
+                return true;
+            }
+        }
+        return !getDirectoryLastModifiedMap().equals(directoryLastModifiedMap);
+    }
+
+    /**
+     * Returns the last modified times of the directories of the root package
+     * except the cool package. The directories in jar files are ignored.
+     * 
+     * @return the last modified times of the directories
+     * @since 1.0.18
+     */
+    protected Map<File, Long> getDirectoryLastModifiedMap() {
+        Map<File, Long> map = new HashMap<File, Long>();
+        if (rootPackageName == null) {
+            return map;
+        }
+        String path = rootPackageName.replace('.', '/');
+        try {
+            for (URL url : Collections.list(getResources(path))) {
+                if ("file".equals(url.getProtocol())) {
+                    File root = toFile(url);
+                    File cool = null;
+                    if (coolPackageName != null) {
+                        cool =
+                            new File(root, coolPackageName.replace(
+                                '.',
+                                File.separatorChar));
+                    }
+                    addDirectoryLastModified(root, cool, map);
+                }
+            }
+        } catch (IOException ignore) {
+        }
+        return map;
+    }
+
+    /**
+     * Adds the last modified times of the directory and its subdirectories.
+     * 
+     * @param dir
+     *            the directory
+     * @param excludedDir
+     *            the directory that is not added
+     * @param map
+     *            the map to which the times are added
+     * @since 1.0.18
+     */
+    protected void addDirectoryLastModified(File dir, File excludedDir,
+            Map<File, Long> map) {
+        if (!dir.isDirectory() || dir.equals(excludedDir)) {
+            return;
+        }
+        map.put(dir, dir.lastModified());
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                addDirectoryLastModified(file, excludedDir, map);
+            }
+        }
+    }
+
+    /**
+     * Returns the last modified time of the resource. The time of a resource
+     * that is not a file is always zero, so it is never regarded as modified.
+     * 
+     * @param url
+     *            the URL of the resource
+     * @return the last modified time of the resource
+     * @since 1.0.18
+     */
+    protected long getLastModified(URL url) {
+        if (!"file".equals(url.getProtocol())) {
+            return 0;
+        }
+        return toFile(url).lastModified();
+    }
+
+    /**
+     * Converts the URL of a file to the file.
+     * 
+     * @param url
+     *            the URL of a file
+     * @return the file
+     * @since 1.0.18
+     */
+    protected File toFile(URL url) {
+        try {
+            return new File(url.toURI());
+        } catch (URISyntaxException e) {
+            return new File(url.getPath());
+        }
+    }
+
     /**
      * Returns input stream data as the array of bytes.
      * 
@@ -16,6 +16,8 @@
 package org.slim3.controller;
 
 import java.io.IOException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
@@ -38,7 +40,11 @@ import org.slim3.util.ServletContextLocator;
 import org.slim3.util.StringUtil;
 
 /**
- * A filter for HOT reloading.
+ * A filter for HOT reloading. The requests share the
+ * {@link HotReloadingClassLoader} of the current generation and run
+ * concurrently. When a loaded class file is modified, the next request waits
+ * for the running requests, cleans the cached resources and starts a new
+ * generation with a new {@link HotReloadingClassLoader}.
  * 
  * @author higa
  * @since 1.0.0
@@ -72,6 +78,23 @@ public class HotReloadingFilter implements Filter {
      */
     protected String coolPackageName;
 
+    /**
+     * The class loader of the current generation.
+     */
+    protected HotReloadingClassLoader hotReloadingClassLoader;
+
+    /**
+     * The generation of the class loader.
+     */
+    protected volatile long generation = 0;
+
+    /**
+     * The lock of the generation. The requests hold the read lock, and the
+     * write lock is held while the generation is changed.
+     */
+    protected final ReadWriteLock generationLock =
+        new ReentrantReadWriteLock();
+
     /**
      * Constructor.
      */
@@ -146,6 +169,7 @@ public class HotReloadingFilter implements Filter {
     }
 
     public void destroy() {
+        hotReloadingClassLoader = null;
         Cleaner.cleanAll();
         if (hotReloading) {
             ServletContextLocator.set(null);
@@ -208,18 +232,15 @@ public class HotReloadingFilter implements Filter {
      * @throws ServletException
      *             if {@link ServletException} is encountered
      */
-    protected synchronized void doHotReloading(HttpServletRequest request,
+    protected void doHotReloading(HttpServletRequest request,
             HttpServletResponse response, FilterChain chain,
             ClassLoader previousLoader) throws IOException, ServletException {
-        Thread.currentThread().setContextClassLoader(
-            new HotReloadingClassLoader(
-                previousLoader,
-                rootPackageName,
-                coolPackageName));
-        request = new HotHttpServletRequestWrapper(request);
-        RequestLocator.set(request);
-        ResponseLocator.set(response);
+        HotReloadingClassLoader loader = beginGeneration(previousLoader);
         try {
+            Thread.currentThread().setContextClassLoader(loader);
+            request = new HotHttpServletRequestWrapper(request);
+            RequestLocator.set(request);
+            ResponseLocator.set(response);
             chain.doFilter(request, response);
         } catch (LinkageError e) {
             String msg = e.getMessage();
@@ -230,11 +251,84 @@ public class HotReloadingFilter implements Filter {
         } catch (ClassCastException e) {
             throw createHotReloadingRuntimeException(e);
         } finally {
-            Cleaner.cleanAll();
             Thread.currentThread().setContextClassLoader(previousLoader);
             RequestLocator.set(null);
             ResponseLocator.set(null);
+            generationLock.readLock().unlock();
+        }
+    }
 
+    /**
+     * Begins the request on the current generation and returns the class
+     * loader of the generation. The read lock of the generation is held when
+     * this method returns, so the caller must release it.
+     * 
+     * @param previousLoader
+     *            the previous class loader
+     * @return the class loader of the generation
+     */
+    protected HotReloadingClassLoader beginGeneration(
+            ClassLoader previousLoader) {
+        generationLock.readLock().lock();
+        HotReloadingClassLoader loader = hotReloadingClassLoader;
+        if (isCurrent(loader, previousLoader)) {
+            return loader;
+        }
+        generationLock.readLock().unlock();
+        generationLock.writeLock().lock();
+        try {
+            loader = hotReloadingClassLoader;
+            if (!isCurrent(loader, previousLoader)) {
+                cleanAll(loader);
+                loader =
+                    new HotReloadingClassLoader(
+                        previousLoader,
+                        rootPackageName,
+                        coolPackageName);
+                hotReloadingClassLoader = loader;
+                generation++;
+            }
+            generationLock.readLock().lock();
+        } finally {
+            generationLock.writeLock().unlock();
+        }
+        return loader;
+    }
+
+    /**
+     * Determines if the class loader can be used for the request.
+     * 
+     * @param loader
+     *            the class loader of the current generation
+     * @param previousLoader
+     *            the previous class loader
+     * @return whether the class loader can be used for the request
+     */
+    protected boolean isCurrent(HotReloadingClassLoader loader,
+            ClassLoader previousLoader) {
+        return loader != null
+            && loader.getParent() == previousLoader
+            && !loader.isModified();
+    }
+
+    /**
+     * Cleans the cached resources of the old generation.
+     * 
+     * @param oldLoader
+     *            the class loader of the old generation
+     */
+    protected void cleanAll(ClassLoader oldLoader) {
+        if (oldLoader == null) {
+            Cleaner.cleanAll();
+            return;
+        }
+        Thread thread = Thread.currentThread();
+        ClassLoader loader = thread.getContextClassLoader();
+        thread.setContextClassLoader(oldLoader);
+        try {
+            Cleaner.cleanAll();
+        } finally {
+            thread.setContextClassLoader(loader);
         }
     }
 
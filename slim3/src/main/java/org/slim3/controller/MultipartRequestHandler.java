@@ -15,23 +15,40 @@
  */
 package org.slim3.controller;
 
-import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import javax.servlet.http.HttpServletRequest;
 
+import org.slim3.controller.upload.ByteArrayFileItemSink;
 import org.slim3.controller.upload.FileItem;
 import org.slim3.controller.upload.FileItemIterator;
+import org.slim3.controller.upload.FileItemSink;
 import org.slim3.controller.upload.FileItemStream;
 import org.slim3.controller.upload.FileUpload;
 import org.slim3.controller.upload.Streams;
-import org.slim3.util.ArrayUtil;
 import org.slim3.util.StringUtil;
 import org.slim3.util.ThrowableUtil;
 
 /**
  * {@link RequestHandler} for multipart request.
  * 
+ * <p>
+ * An uploaded file is passed to the {@link FileItemSink} registered for the
+ * field while the request is parsed, and the value returned by the sink is set
+ * to the request attribute. By default, the file is read into memory as
+ * {@link FileItem}. To stream a large file, override
+ * {@link Controller#createRequestHandler(HttpServletRequest)} and add a sink
+ * by {@link #addSink(String, FileItemSink)}.
+ * </p>
+ * 
  * @author higa
  * @since 1.0.0
  * 
@@ -48,7 +65,23 @@ public class MultipartRequestHandler extends RequestHandler {
      */
     public static final String FILE_SIZE_MAX_KEY = "slim3.uploadFileSizeMax";
 
-    private static final int BYTE_ARRAY_SIZE = 8 * 1024;
+    private static final Logger logger =
+        Logger.getLogger(MultipartRequestHandler.class.getName());
+
+    /**
+     * The sinks keyed by the field name.
+     * 
+     * @since 1.0.18
+     */
+    protected Map<String, FileItemSink> sinkMap =
+        new HashMap<String, FileItemSink>();
+
+    /**
+     * The sink for the field that has no sink.
+     * 
+     * @since 1.0.18
+     */
+    protected FileItemSink defaultSink = new ByteArrayFileItemSink();
 
     /**
      * Constructor.
@@ -60,53 +93,136 @@ public class MultipartRequestHandler extends RequestHandler {
         super(request);
     }
 
+    /**
+     * Adds the sink for the field.
+     * 
+     * @param fieldName
+     *            the field name
+     * @param sink
+     *            the sink
+     * @throws NullPointerException
+     *             if the fieldName parameter is null or if the sink parameter
+     *             is null
+     * @since 1.0.18
+     */
+    public void addSink(String fieldName, FileItemSink sink)
+            throws NullPointerException {
+        if (fieldName == null) {
+            throw new NullPointerException("The fieldName parameter is null.");
+        }
+        if (sink == null) {
+            throw new NullPointerException("The sink parameter is null.");
+        }
+        sinkMap.put(fieldName, sink);
+    }
+
+    /**
+     * Sets the sink for the field that has no sink.
+     * 
+     * @param sink
+     *            the sink
+     * @throws NullPointerException
+     *             if the sink parameter is null
+     * @since 1.0.18
+     */
+    public void setDefaultSink(FileItemSink sink) throws NullPointerException {
+        if (sink == null) {
+            throw new NullPointerException("The sink parameter is null.");
+        }
+        defaultSink = sink;
+    }
+
+    /**
+     * Returns the sink for the field.
+     * 
+     * @param fieldName
+     *            the field name
+     * @return the sink
+     * @since 1.0.18
+     */
+    protected FileItemSink getSink(String fieldName) {
+        FileItemSink sink = sinkMap.get(fieldName);
+        return sink != null ? sink : defaultSink;
+    }
+
     @Override
     public void handle() {
+        List<ReceivedValue> receivedValues = new ArrayList<ReceivedValue>();
         try {
             FileUpload upload = createFileUpload();
             FileItemIterator iter = upload.getItemIterator(request);
+            Map<String, ArrayValue> arrayValueMap =
+                new LinkedHashMap<String, ArrayValue>();
             while (iter.hasNext()) {
                 FileItemStream item = iter.next();
                 String name = item.getFieldName();
                 InputStream stream = item.openStream();
-                if (item.isFormField()) {
-                    String value =
-                        normalizeValue(Streams.asString(stream, request
-                            .getCharacterEncoding()));
-                    if (name.endsWith(ARRAY_SUFFIX)) {
-                        String[] array = (String[]) request.getAttribute(name);
-                        if (array == null) {
-                            array = new String[0];
-                        }
-                        request.setAttribute(name, ArrayUtil.add(array, value));
+                Object value;
+                Class<?> componentType;
+                try {
+                    if (item.isFormField()) {
+                        value =
+                            normalizeValue(Streams.asString(stream, request
+                                .getCharacterEncoding()));
+                        componentType = String.class;
                     } else {
-                        request.setAttribute(name, value);
-                    }
-                } else {
-                    ByteArrayOutputStream baos =
-                        new ByteArrayOutputStream(BYTE_ARRAY_SIZE);
-                    Streams.copy(stream, baos, true);
-                    byte[] data = baos.toByteArray();
-                    FileItem value =
-                        data.length > 0 ? new FileItem(item.getFileName(), item
-                            .getContentType(), data) : null;
-                    if (name.endsWith(ARRAY_SUFFIX)) {
-                        FileItem[] array =
-                            (FileItem[]) request.getAttribute(name);
-                        if (array == null) {
-                            array = new FileItem[0];
+                        FileItemSink sink = getSink(name);
+                        value = sink.receive(item, stream);
+                        if (value != null) {
+                            receivedValues.add(new ReceivedValue(
+                                name,
+                                sink,
+                                value));
                         }
-                        request.setAttribute(name, ArrayUtil.add(array, value));
-                    } else {
-                        request.setAttribute(name, value);
+                        componentType = FileItem.class;
                     }
+                } finally {
+                    stream.close();
+                }
+                if (name.endsWith(ARRAY_SUFFIX)) {
+                    ArrayValue arrayValue = arrayValueMap.get(name);
+                    if (arrayValue == null) {
+                        arrayValue =
+                            new ArrayValue(componentType, request
+                                .getAttribute(name));
+                        arrayValueMap.put(name, arrayValue);
+                    }
+                    arrayValue.values.add(value);
+                } else {
+                    request.setAttribute(name, value);
                 }
             }
+            for (Map.Entry<String, ArrayValue> e : arrayValueMap.entrySet()) {
+                request.setAttribute(e.getKey(), e.getValue().toArray());
+            }
         } catch (Exception e) {
+            discard(receivedValues);
             ThrowableUtil.wrapAndThrow(e);
         }
     }
 
+    /**
+     * Discards the values received before the request failed to be parsed,
+     * and removes the request attributes set to them. The error of a sink is
+     * logged so that the other values are discarded.
+     * 
+     * @param receivedValues
+     *            the received values
+     * @since 1.0.18
+     */
+    protected void discard(List<ReceivedValue> receivedValues) {
+        for (ReceivedValue rv : receivedValues) {
+            if (request.getAttribute(rv.name) == rv.value) {
+                request.removeAttribute(rv.name);
+            }
+            try {
+                rv.sink.discard(rv.value);
+            } catch (Throwable t) {
+                logger.log(Level.WARNING, t.getMessage(), t);
+            }
+        }
+    }
+
     /**
      * Creates a {@link FileUpload}.
      * 
@@ -125,4 +241,106 @@ public class MultipartRequestHandler extends RequestHandler {
         }
         return upload;
     }
-}
\ No newline at end of file
+
+    /**
+     * A value returned by a sink while the request is parsed.
+     * 
+     * @since 1.0.18
+     */
+    protected static class ReceivedValue {
+
+        /**
+         * The field name.
+         */
+        protected String name;
+
+        /**
+         * The sink.
+         */
+        protected FileItemSink sink;
+
+        /**
+         * The value.
+         */
+        protected Object value;
+
+        /**
+         * Constructor.
+         * 
+         * @param name
+         *            the field name
+         * @param sink
+         *            the sink
+         * @param value
+         *            the value
+         */
+        public ReceivedValue(String name, FileItemSink sink, Object value) {
+            this.name = name;
+            this.sink = sink;
+            this.value = value;
+        }
+    }
+
+    /**
+     * The values of an array field. The values are collected in a list and
+     * converted to an array once, and the component type is the common class
+     * of the values.
+     * 
+     * @since 1.0.18
+     */
+    protected static class ArrayValue {
+
+        /**
+         * The component type used if all the values are null.
+         */
+        protected Class<?> defaultComponentType;
+
+        /**
+         * The values.
+         */
+        protected List<Object> values = new ArrayList<Object>();
+
+        /**
+         * Constructor.
+         * 
+         * @param defaultComponentType
+         *            the component type used if all the values are null
+         * @param initialValue
+         *            the array already set to the request attribute
+         */
+        public ArrayValue(Class<?> defaultComponentType, Object initialValue) {
+            this.defaultComponentType = defaultComponentType;
+            if (initialValue instanceof Object[]) {
+                for (Object o : (Object[]) initialValue) {
+                    values.add(o);
+                }
+            }
+        }
+
+        /**
+         * Converts the values to an array.
+         * 
+         * @return an array
+         */
+        public Object[] toArray() {
+            Class<?> componentType = null;
+            for (Object o : values) {
+                if (o == null) {
+                    continue;
+                }
+                if (componentType == null) {
+                    componentType = o.getClass();
+                }
+                while (!componentType.isInstance(o)) {
+                    componentType = componentType.getSuperclass();
+                }
+            }
+            if (componentType == null) {
+                componentType = defaultComponentType;
+            }
+            return values.toArray((Object[]) Array.newInstance(
+                componentType,
+                values.size()));
+        }
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.controller;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+
+import org.slim3.util.ArrayUtil;
+import org.slim3.util.WrapRuntimeException;
+
+/**
+ * {@link HttpServletRequestWrapper} for a routed path that is dispatched to
+ * the controller directly. This request looks like the request forwarded to
+ * the routed path, so the parameters of the routed query string take
+ * precedence over the original parameters.
+ *
+ * @author agent
+ * @since 1.0.18
+ *
+ */
+public class RoutedHttpServletRequest extends HttpServletRequestWrapper {
+
+    /**
+     * The key of the request URI before forwarding.
+     */
+    protected static final String FORWARD_REQUEST_URI_KEY =
+        "javax.servlet.forward.request_uri";
+
+    /**
+     * The key of the context path before forwarding.
+     */
+    protected static final String FORWARD_CONTEXT_PATH_KEY =
+        "javax.servlet.forward.context_path";
+
+    /**
+     * The key of the path information before forwarding.
+     */
+    protected static final String FORWARD_PATH_INFO_KEY =
+        "javax.servlet.forward.path_info";
+
+    /**
+     * The key of the query string before forwarding.
+     */
+    protected static final String FORWARD_QUERY_STRING_KEY =
+        "javax.servlet.forward.query_string";
+
+    /**
+     * The original request.
+     */
+    protected HttpServletRequest originalRequest;
+
+    /**
+     * The routed servlet path.
+     */
+    protected String servletPath;
+
+    /**
+     * The routed query string.
+     */
+    protected String queryString;
+
+    /**
+     * The merged parameters.
+     */
+    protected Map<String, String[]> parameterMap;
+
+    /**
+     * Constructor.
+     *
+     * @param request
+     *            the original request
+     * @param servletPath
+     *            the routed servlet path
+     * @param queryString
+     *            the routed query string
+     * @throws NullPointerException
+     *             if the servletPath parameter is null
+     */
+    public RoutedHttpServletRequest(HttpServletRequest request,
+            String servletPath, String queryString)
+            throws NullPointerException {
+        super(request);
+        if (servletPath == null) {
+            throw new NullPointerException(
+                "The servletPath parameter must not be null.");
+        }
+        originalRequest = request;
+        this.servletPath = servletPath;
+        this.queryString = queryString;
+    }
+
+    /**
+     * Returns the original request.
+     *
+     * @return the original request
+     */
+    public HttpServletRequest getOriginalRequest() {
+        return originalRequest;
+    }
+
+    @Override
+    public String getServletPath() {
+        return servletPath;
+    }
+
+    @Override
+    public String getPathInfo() {
+        return null;
+    }
+
+    @Override
+    public String getPathTranslated() {
+        return null;
+    }
+
+    @Override
+    public String getRequestURI() {
+        return getContextPath() + servletPath;
+    }
+
+    @Override
+    public StringBuffer getRequestURL() {
+        StringBuffer url = originalRequest.getRequestURL();
+        int pos = url.indexOf(originalRequest.getRequestURI());
+        if (pos >= 0) {
+            url.setLength(pos);
+        }
+        return url.append(getRequestURI());
+    }
+
+    @Override
+    public String getQueryString() {
+        return queryString;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        Object value = super.getAttribute(name);
+        if (value != null) {
+            return value;
+        }
+        if (FORWARD_REQUEST_URI_KEY.equals(name)) {
+            return originalRequest.getRequestURI();
+        }
+        if (FORWARD_CONTEXT_PATH_KEY.equals(name)) {
+            return originalRequest.getContextPath();
+        }
+        if (ControllerConstants.FORWARD_SERVLET_PATH_KEY.equals(name)) {
+            return originalRequest.getServletPath();
+        }
+        if (FORWARD_PATH_INFO_KEY.equals(name)) {
+            return originalRequest.getPathInfo();
+        }
+        if (FORWARD_QUERY_STRING_KEY.equals(name)) {
+            return originalRequest.getQueryString();
+        }
+        return null;
+    }
+
+    @Override
+    public String getParameter(String name) {
+        String[] values = getParameterMap().get(name);
+        return values != null && values.length > 0 ? values[0] : null;
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+        return getParameterMap().get(name);
+    }
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+        return Collections.enumeration(getParameterMap().keySet());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Map<String, String[]> getParameterMap() {
+        if (parameterMap != null) {
+            return parameterMap;
+        }
+        Map<String, String[]> map = parseQueryString();
+        Map<String, String[]> originalMap = super.getParameterMap();
+        for (Map.Entry<String, String[]> e : originalMap.entrySet()) {
+            String[] values = map.get(e.getKey());
+            if (values == null) {
+                map.put(e.getKey(), e.getValue());
+            } else {
+                for (String value : e.getValue()) {
+                    values = ArrayUtil.add(values, value);
+                }
+                map.put(e.getKey(), values);
+            }
+        }
+        parameterMap = Collections.unmodifiableMap(map);
+        return parameterMap;
+    }
+
+    /**
+     * Parses the routed query string.
+     *
+     * @return the parameters of the routed query string
+     * @throws WrapRuntimeException
+     *             if {@link UnsupportedEncodingException} occurred
+     */
+    protected Map<String, String[]> parseQueryString()
+            throws WrapRuntimeException {
+        Map<String, String[]> map = new LinkedHashMap<String, String[]>();
+        if (queryString == null || queryString.length() == 0) {
+            return map;
+        }
+        String encoding = getCharacterEncoding();
+        if (encoding == null) {
+            encoding = "UTF-8";
+        }
+        try {
+            for (String pair : queryString.split("&")) {
+                if (pair.length() == 0) {
+                    continue;
+                }
+                int pos = pair.indexOf('=');
+                String name =
+                    URLDecoder.decode(pos < 0 ? pair : pair.substring(0, pos),
+                        encoding);
+                String value =
+                    pos < 0 ? "" : URLDecoder.decode(
+                        pair.substring(pos + 1),
+                        encoding);
+                String[] values = map.get(name);
+                map.put(name, values == null
+                    ? new String[] { value }
+                    : ArrayUtil.add(values, value));
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new WrapRuntimeException(e);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.controller.content;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of the buffers used to copy the content, so a buffer is not
+ * allocated for each response.
+ * 
+ * @author agent
+ * @since 1.0.18
+ * 
+ */
+public final class BufferPool {
+
+    /**
+     * The size of a buffer.
+     */
+    public static final int BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * The maximum number of the pooled buffers.
+     */
+    public static final int MAX_POOL_SIZE = 16;
+
+    private static final Queue<byte[]> pool =
+        new ConcurrentLinkedQueue<byte[]>();
+
+    private static final AtomicInteger poolSize = new AtomicInteger();
+
+    /**
+     * Acquires a buffer.
+     * 
+     * @return a buffer
+     */
+    public static byte[] acquire() {
+        byte[] buffer = pool.poll();
+        if (buffer == null) {
+            return new byte[BUFFER_SIZE];
+        }
+        poolSize.decrementAndGet();
+        return buffer;
+    }
+
+    /**
+     * Releases the buffer. The buffer is discarded if the pool is full.
+     * 
+     * @param buffer
+     *            the buffer
+     */
+    public static void release(byte[] buffer) {
+        if (buffer == null || buffer.length != BUFFER_SIZE) {
+            return;
+        }
+        if (poolSize.incrementAndGet() > MAX_POOL_SIZE) {
+            poolSize.decrementAndGet();
+            return;
+        }
+        pool.offer(buffer);
+    }
+
+    /**
+     * Returns the number of the pooled buffers.
+     * 
+     * @return the number of the pooled buffers
+     */
+    public static int size() {
+        return poolSize.get();
+    }
+
+    private BufferPool() {
+    }
+}
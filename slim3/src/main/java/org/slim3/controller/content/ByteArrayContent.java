@@ -0,0 +1,64 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.controller.content;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * {@link Content} held in a byte array.
+ * 
+ * @author agent
+ * @since 1.0.18
+ * 
+ */
+public class ByteArrayContent extends Content {
+
+    /**
+     * The data.
+     */
+    protected byte[] data;
+
+    /**
+     * Constructor.
+     * 
+     * @param data
+     *            the data
+     * @throws NullPointerException
+     *             if the data parameter is null
+     */
+    public ByteArrayContent(byte[] data) throws NullPointerException {
+        if (data == null) {
+            throw new NullPointerException(
+                "The data parameter must not be null.");
+        }
+        this.data = data;
+    }
+
+    @Override
+    public long getLength() {
+        return data.length;
+    }
+
+    @Override
+    public void writeTo(OutputStream out, long offset, long length,
+            byte[] buffer) throws IOException {
+        if (length < 0) {
+            length = data.length - offset;
+        }
+        out.write(data, (int) offset, (int) length);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.controller.content;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * {@link Content} made of chunks that are read one by one, such as the chunk
+ * models of a blob that is split into several entities. The chunks are
+ * converted to bytes by {@link #getBytes(Object)}, which casts the chunk to a
+ * byte array by default. The following is an example.
+ * 
+ * <pre>
+ * ChunkedContent&lt;BlobChunk&gt; content =
+ *     new ChunkedContent&lt;BlobChunk&gt;(Datastore
+ *         .query(m)
+ *         .filter(m.blobKey.equal(key))
+ *         .sort(m.index.asc)
+ *         .asIterable(), length) {
+ *         protected byte[] getBytes(BlobChunk chunk) {
+ *             return chunk.getBytes();
+ *         }
+ *     };
+ * </pre>
+ * 
+ * @author agent
+ * @param <T>
+ *            the chunk type
+ * @since 1.0.18
+ * 
+ */
+public class ChunkedContent<T> extends Content {
+
+    /**
+     * The chunks.
+     */
+    protected Iterable<T> chunks;
+
+    /**
+     * The length or -1 if it is unknown.
+     */
+    protected long length;
+
+    /**
+     * Constructor.
+     * 
+     * @param chunks
+     *            the chunks
+     * @param length
+     *            the length or -1 if it is unknown
+     * @throws NullPointerException
+     *             if the chunks parameter is null
+     */
+    public ChunkedContent(Iterable<T> chunks, long length)
+            throws NullPointerException {
+        if (chunks == null) {
+            throw new NullPointerException(
+                "The chunks parameter must not be null.");
+        }
+        this.chunks = chunks;
+        this.length = length;
+    }
+
+    @Override
+    public long getLength() {
+        return length;
+    }
+
+    @Override
+    public void writeTo(OutputStream out, long offset, long length,
+            byte[] buffer) throws IOException {
+        for (T chunk : chunks) {
+            if (length == 0) {
+                break;
+            }
+            byte[] bytes = getBytes(chunk);
+            if (offset >= bytes.length) {
+                offset -= bytes.length;
+                continue;
+            }
+            int size = bytes.length - (int) offset;
+            if (length >= 0 && length < size) {
+                size = (int) length;
+            }
+            out.write(bytes, (int) offset, size);
+            offset = 0;
+            if (length > 0) {
+                length -= size;
+            }
+        }
+    }
+
+    /**
+     * Converts the chunk to bytes.
+     * 
+     * @param chunk
+     *            the chunk
+     * @return the bytes
+     */
+    protected byte[] getBytes(T chunk) {
+        return (byte[]) chunk;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.controller.content;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Date;
+
+/**
+ * The content written to the response by {@link ContentWriter}. If the length
+ * is known, a part of the content can be requested by the "Range" header. If
+ * the entity tag or the last modified time is set, the body is not written
+ * when the client already has the content.
+ * 
+ * @author agent
+ * @since 1.0.18
+ * 
+ */
+public abstract class Content {
+
+    /**
+     * The entity tag.
+     */
+    protected String eTag;
+
+    /**
+     * The last modified time or -1 if it is unknown.
+     */
+    protected long lastModified = -1;
+
+    /**
+     * Returns the entity tag.
+     * 
+     * @return the entity tag
+     */
+    public String getETag() {
+        return eTag;
+    }
+
+    /**
+     * Sets the entity tag. The tag is quoted if it is not quoted.
+     * 
+     * @param eTag
+     *            the entity tag
+     */
+    public void setETag(String eTag) {
+        if (eTag != null && !eTag.endsWith("\"")) {
+            eTag = "\"" + eTag + "\"";
+        }
+        this.eTag = eTag;
+    }
+
+    /**
+     * Returns the last modified time.
+     * 
+     * @return the last modified time or -1 if it is unknown
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Sets the last modified time.
+     * 
+     * @param lastModified
+     *            the last modified time or -1 if it is unknown
+     */
+    public void setLastModified(long lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Sets the last modified date.
+     * 
+     * @param lastModified
+     *            the last modified date
+     */
+    public void setLastModified(Date lastModified) {
+        this.lastModified = lastModified != null ? lastModified.getTime() : -1;
+    }
+
+    /**
+     * Returns the length of the content.
+     * 
+     * @return the length of the content or -1 if it is unknown
+     */
+    public abstract long getLength();
+
+    /**
+     * Writes the content.
+     * 
+     * @param out
+     *            the output stream
+     * @param offset
+     *            the offset of the first byte to write
+     * @param length
+     *            the number of bytes to write or -1 if the rest of the content
+     *            is written
+     * @param buffer
+     *            the buffer that can be used to copy the content
+     * @throws IOException
+     *             if an I/O error occurred
+     */
+    public abstract void writeTo(OutputStream out, long offset, long length,
+            byte[] buffer) throws IOException;
+}
@@ -0,0 +1,333 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.controller.content;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * The writer of {@link Content} to the response. This writer supports the
+ * conditional requests by "If-None-Match" and "If-Modified-Since", which are
+ * answered by 304 without the body, and the single range request by "Range",
+ * which is answered by 206 with the part of the content. The content is copied
+ * through a buffer acquired from {@link BufferPool}.
+ * 
+ * @author agent
+ * @since 1.0.18
+ * 
+ */
+public class ContentWriter {
+
+    /**
+     * The range that cannot be satisfied.
+     */
+    protected static final long[] INVALID_RANGE = new long[0];
+
+    /**
+     * The status code for the range that cannot be satisfied.
+     */
+    protected static final int RANGE_NOT_SATISFIABLE =
+        HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE;
+
+    /**
+     * The request.
+     */
+    protected HttpServletRequest request;
+
+    /**
+     * The response.
+     */
+    protected HttpServletResponse response;
+
+    /**
+     * Constructor.
+     * 
+     * @param request
+     *            the request
+     * @param response
+     *            the response
+     * @throws NullPointerException
+     *             if the request parameter is null or if the response
+     *             parameter is null
+     */
+    public ContentWriter(HttpServletRequest request,
+            HttpServletResponse response) throws NullPointerException {
+        if (request == null) {
+            throw new NullPointerException(
+                "The request parameter must not be null.");
+        }
+        if (response == null) {
+            throw new NullPointerException(
+                "The response parameter must not be null.");
+        }
+        this.request = request;
+        this.response = response;
+    }
+
+    /**
+     * Writes the content.
+     * 
+     * @param content
+     *            the content
+     * @param contentType
+     *            the content type or null if it is unknown
+     * @param contentDisposition
+     *            the value of "Content-disposition" header or null if the
+     *            header is not set
+     * @throws NullPointerException
+     *             if the content parameter is null
+     * @throws IOException
+     *             if an I/O error occurred
+     */
+    public void write(Content content, String contentType,
+            String contentDisposition) throws NullPointerException,
+            IOException {
+        if (content == null) {
+            throw new NullPointerException(
+                "The content parameter must not be null.");
+        }
+        long length = content.getLength();
+        String eTag = content.getETag();
+        long lastModified = content.getLastModified();
+        if (eTag != null) {
+            response.setHeader("ETag", eTag);
+        }
+        if (lastModified >= 0) {
+            response.setDateHeader("Last-Modified", lastModified);
+        }
+        if (isNotModified(eTag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        if (contentType != null) {
+            response.setContentType(contentType);
+        }
+        if (contentDisposition != null) {
+            response.setHeader("Content-disposition", contentDisposition);
+        }
+        long offset = 0;
+        long size = length;
+        if (length >= 0) {
+            response.setHeader("Accept-Ranges", "bytes");
+            long[] range = null;
+            if (isRangeApplicable(eTag, lastModified)) {
+                range = parseRange(request.getHeader("Range"), length);
+            }
+            if (range == INVALID_RANGE) {
+                response.setHeader("Content-Range", "bytes */" + length);
+                response.setStatus(RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (range != null) {
+                offset = range[0];
+                size = range[1] - range[0] + 1;
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader("Content-Range", "bytes "
+                    + range[0]
+                    + "-"
+                    + range[1]
+                    + "/"
+                    + length);
+            }
+            setContentLength(size);
+        }
+        if ("HEAD".equalsIgnoreCase(request.getMethod())) {
+            return;
+        }
+        OutputStream out = response.getOutputStream();
+        byte[] buffer = BufferPool.acquire();
+        try {
+            content.writeTo(out, offset, size, buffer);
+        } finally {
+            BufferPool.release(buffer);
+            out.flush();
+            out.close();
+        }
+    }
+
+    /**
+     * Determines if the client already has the content.
+     * 
+     * @param eTag
+     *            the entity tag
+     * @param lastModified
+     *            the last modified time
+     * @return whether the client already has the content
+     */
+    protected boolean isNotModified(String eTag, long lastModified) {
+        String method = request.getMethod();
+        if (method != null
+            && !"GET".equalsIgnoreCase(method)
+            && !"HEAD".equalsIgnoreCase(method)) {
+            return false;
+        }
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            return eTag != null && matches(ifNoneMatch, eTag);
+        }
+        if (lastModified < 0) {
+            return false;
+        }
+        long ifModifiedSince = getDateHeader("If-Modified-Since");
+        return ifModifiedSince >= 0
+            && lastModified / 1000 <= ifModifiedSince / 1000;
+    }
+
+    /**
+     * Determines if the "Range" header is applied. If the "If-Range" header
+     * does not match the current content, the whole content is written.
+     * 
+     * @param eTag
+     *            the entity tag
+     * @param lastModified
+     *            the last modified time
+     * @return whether the "Range" header is applied
+     */
+    protected boolean isRangeApplicable(String eTag, long lastModified) {
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.trim().endsWith("\"")) {
+            return eTag != null
+                && !ifRange.trim().startsWith("W/")
+                && ifRange.trim().equals(eTag);
+        }
+        long date = getDateHeader("If-Range");
+        return date >= 0
+            && lastModified >= 0
+            && lastModified / 1000 == date / 1000;
+    }
+
+    /**
+     * Determines if the list of the entity tags matches the entity tag. The
+     * weak comparison is used.
+     * 
+     * @param tags
+     *            the list of the entity tags
+     * @param eTag
+     *            the entity tag
+     * @return whether the list of the entity tags matches the entity tag
+     */
+    protected boolean matches(String tags, String eTag) {
+        String opaqueTag = stripWeak(eTag);
+        for (String tag : tags.split(",")) {
+            tag = tag.trim();
+            if (tag.equals("*") || stripWeak(tag).equals(opaqueTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Strips the weak indicator from the entity tag.
+     * 
+     * @param eTag
+     *            the entity tag
+     * @return the opaque tag
+     */
+    protected String stripWeak(String eTag) {
+        return eTag.startsWith("W/") ? eTag.substring(2) : eTag;
+    }
+
+    /**
+     * Parses the "Range" header. Only a single byte range is supported, and
+     * the header is ignored if it has several ranges.
+     * 
+     * @param header
+     *            the "Range" header
+     * @param length
+     *            the length of the content
+     * @return the first and the last byte positions, null if the whole
+     *         content is written, or {@link #INVALID_RANGE} if the range
+     *         cannot be satisfied
+     */
+    protected long[] parseRange(String header, long length) {
+        if (header == null) {
+            return null;
+        }
+        header = header.trim();
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = header.substring(6).trim();
+        int pos = spec.indexOf('-');
+        if (pos < 0) {
+            return null;
+        }
+        long first;
+        long last;
+        try {
+            String firstStr = spec.substring(0, pos).trim();
+            String lastStr = spec.substring(pos + 1).trim();
+            if (firstStr.length() == 0) {
+                long suffix = Long.parseLong(lastStr);
+                if (suffix <= 0) {
+                    return INVALID_RANGE;
+                }
+                first = Math.max(length - suffix, 0);
+                last = length - 1;
+            } else {
+                first = Long.parseLong(firstStr);
+                last =
+                    lastStr.length() == 0 ? length - 1 : Math.min(Long
+                        .parseLong(lastStr), length - 1);
+                if (last < first && lastStr.length() > 0 && first < length) {
+                    return null;
+                }
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (first < 0 || first >= length) {
+            return INVALID_RANGE;
+        }
+        return new long[] { first, last };
+    }
+
+    /**
+     * Returns the value of the date header.
+     * 
+     * @param name
+     *            the header name
+     * @return the value or -1 if the header is not found or invalid
+     */
+    protected long getDateHeader(String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Sets the content length.
+     * 
+     * @param length
+     *            the content length
+     */
+    protected void setContentLength(long length) {
+        if (length <= Integer.MAX_VALUE) {
+            response.setContentLength((int) length);
+        } else {
+            response.setHeader("Content-Length", String.valueOf(length));
+        }
+    }
+}
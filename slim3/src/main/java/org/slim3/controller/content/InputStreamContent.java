@@ -0,0 +1,100 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.controller.content;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * {@link Content} read from an input stream. The stream is closed after the
+ * content is written.
+ * 
+ * @author agent
+ * @since 1.0.18
+ * 
+ */
+public class InputStreamContent extends Content {
+
+    /**
+     * The input stream.
+     */
+    protected InputStream in;
+
+    /**
+     * The length or -1 if it is unknown.
+     */
+    protected long length;
+
+    /**
+     * Constructor.
+     * 
+     * @param in
+     *            the input stream
+     * @param length
+     *            the length or -1 if it is unknown
+     * @throws NullPointerException
+     *             if the in parameter is null
+     */
+    public InputStreamContent(InputStream in, long length)
+            throws NullPointerException {
+        if (in == null) {
+            throw new NullPointerException(
+                "The in parameter must not be null.");
+        }
+        this.in = in;
+        this.length = length;
+    }
+
+    @Override
+    public long getLength() {
+        return length;
+    }
+
+    @Override
+    public void writeTo(OutputStream out, long offset, long length,
+            byte[] buffer) throws IOException {
+        try {
+            while (offset > 0) {
+                long skipped = in.skip(offset);
+                if (skipped <= 0) {
+                    if (in.read() < 0) {
+                        throw new EOFException();
+                    }
+                    skipped = 1;
+                }
+                offset -= skipped;
+            }
+            while (length != 0) {
+                int size =
+                    length < 0 || length > buffer.length
+                        ? buffer.length
+                        : (int) length;
+                int n = in.read(buffer, 0, size);
+                if (n < 0) {
+                    break;
+                }
+                out.write(buffer, 0, n);
+                if (length > 0) {
+                    length -= n;
+                }
+            }
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -36,6 +36,13 @@ public class RouterImpl implements Router {
      */
     protected List<Routing> routingList = new ArrayList<Routing>();
 
+    /**
+     * The tree compiled from the list of {@link Routing}s.
+     * 
+     * @since 1.0.18
+     */
+    protected volatile RoutingTree routingTree;
+
     /**
      * Adds {@link Routing}.
      * 
@@ -68,13 +75,23 @@ public class RouterImpl implements Router {
         if (path == null) {
             throw new NullPointerException("The path parameter is null.");
         }
-        for (Routing r : routingList) {
-            String to = r.route(request, path);
-            if (to != null) {
-                return to;
-            }
+        return getRoutingTree().route(request, path);
+    }
+
+    /**
+     * Returns the tree compiled from the list of {@link Routing}s. The tree is
+     * compiled again when the list is changed.
+     * 
+     * @return the tree
+     * @since 1.0.18
+     */
+    protected RoutingTree getRoutingTree() {
+        RoutingTree tree = routingTree;
+        if (tree == null || tree.size() != routingList.size()) {
+            tree = new RoutingTree(routingList);
+            routingTree = tree;
         }
-        return null;
+        return tree;
     }
 
 }
@@ -240,6 +240,21 @@ public class Routing {
         for (String name : placeHolderList) {
             placeHolderValues.put(name, matcher.group(index++));
         }
+        return buildTo(request, placeHolderValues);
+    }
+
+    /**
+     * Builds the "to" path from the values of the place holders.
+     * 
+     * @param request
+     *            the request
+     * @param placeHolderValues
+     *            the map of place holders
+     * @return a routed path
+     * @since 1.0.18
+     */
+    protected String buildTo(HttpServletRequest request,
+            Map<String, String> placeHolderValues) {
         StringBuilder to = new StringBuilder(50);
         for (ToFragment f : toFragmentList) {
             f.append(request, to, placeHolderValues);
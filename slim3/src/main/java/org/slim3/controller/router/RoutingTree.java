@@ -0,0 +1,458 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.controller.router;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * A tree of path segments compiled from {@link Routing}s. The literal
+ * segments are looked up by hash, the place holders capture a whole segment
+ * and the catch-all captures the rest of the path, so no regular expression is
+ * evaluated. When several {@link Routing}s match the path, the first one wins
+ * as {@link RouterImpl} always did.
+ *
+ * <p>
+ * A {@link Routing} that cannot be compiled, such as a place holder in the
+ * middle of a segment or a character that has a special meaning in a regular
+ * expression, is evaluated by {@link Routing#route(HttpServletRequest, String)}
+ * as before.
+ * </p>
+ *
+ * @author agent
+ * @since 1.0.18
+ *
+ */
+public class RoutingTree {
+
+    /**
+     * The characters that have a special meaning in a regular expression.
+     */
+    protected static final String REGEX_CHARS = "\\^$.|?+()[]";
+
+    /**
+     * The list of {@link Routing}s.
+     */
+    protected List<Routing> routingList;
+
+    /**
+     * The root node.
+     */
+    protected Node root = new Node();
+
+    /**
+     * The list of {@link Routing}s that are not compiled in the order.
+     */
+    protected List<Entry> fallbackList = new ArrayList<Entry>();
+
+    /**
+     * The maximum number of place holders.
+     */
+    protected int maxPlaceHolderSize;
+
+    /**
+     * Constructor.
+     *
+     * @param routingList
+     *            the list of {@link Routing}s
+     * @throws NullPointerException
+     *             if the routingList parameter is null
+     */
+    public RoutingTree(List<Routing> routingList) throws NullPointerException {
+        if (routingList == null) {
+            throw new NullPointerException(
+                "The routingList parameter is null.");
+        }
+        this.routingList = new ArrayList<Routing>(routingList);
+        for (int i = 0; i < this.routingList.size(); i++) {
+            Routing routing = this.routingList.get(i);
+            if (!add(new Entry(routing, i))) {
+                fallbackList.add(new Entry(routing, i));
+            }
+        }
+    }
+
+    /**
+     * Returns the number of {@link Routing}s.
+     *
+     * @return the number of {@link Routing}s
+     */
+    public int size() {
+        return routingList.size();
+    }
+
+    /**
+     * Routes the path.
+     *
+     * @param request
+     *            the request
+     * @param path
+     *            the path
+     * @return a routed path
+     * @throws NullPointerException
+     *             if the request parameter is null or if the path parameter is
+     *             null
+     */
+    public String route(HttpServletRequest request, String path)
+            throws NullPointerException {
+        if (request == null) {
+            throw new NullPointerException("The request parameter is null.");
+        }
+        if (path == null) {
+            throw new NullPointerException("The path parameter is null.");
+        }
+        Match match = new Match(maxPlaceHolderSize);
+        search(root, path, 0, 0, match);
+        for (Entry e : fallbackList) {
+            if (e.index >= match.index) {
+                break;
+            }
+            String to = e.routing.route(request, path);
+            if (to != null) {
+                return to;
+            }
+        }
+        if (match.entry == null) {
+            return null;
+        }
+        Map<String, String> placeHolderValues = new HashMap<String, String>();
+        String[] names = match.entry.names;
+        for (int i = 0; i < names.length; i++) {
+            placeHolderValues.put(names[i], match.matchedValues[i]);
+        }
+        return match.entry.routing.buildTo(request, placeHolderValues);
+    }
+
+    /**
+     * Adds the entry to this tree.
+     *
+     * @param entry
+     *            the entry
+     * @return whether the entry was added
+     */
+    protected boolean add(Entry entry) {
+        Routing routing = entry.routing;
+        if (routing.getClass() != Routing.class) {
+            return false;
+        }
+        String from = routing.from;
+        String segments = from;
+        String prefix = null;
+        int starIndex = from.indexOf('*');
+        if (starIndex >= 0) {
+            int slashIndex = from.lastIndexOf('/', starIndex);
+            prefix = from.substring(slashIndex + 1, starIndex);
+            if (!isLiteral(prefix)) {
+                return false;
+            }
+            segments = slashIndex >= 0 ? from.substring(0, slashIndex) : null;
+        }
+        List<Node> path = new ArrayList<Node>();
+        path.add(root);
+        Node node = root;
+        int placeHolderSize = 0;
+        if (segments != null) {
+            for (String segment : segments.split("/", -1)) {
+                if (isPlaceHolder(segment)) {
+                    if (node.placeHolderChild == null) {
+                        node.placeHolderChild = new Node();
+                    }
+                    node = node.placeHolderChild;
+                    placeHolderSize++;
+                } else if (isLiteral(segment)) {
+                    if (node.literalChildren == null) {
+                        node.literalChildren = new HashMap<String, Node>();
+                    }
+                    Node child = node.literalChildren.get(segment);
+                    if (child == null) {
+                        child = new Node();
+                        node.literalChildren.put(segment, child);
+                    }
+                    node = child;
+                } else {
+                    return false;
+                }
+                path.add(node);
+            }
+        }
+        if (prefix != null) {
+            placeHolderSize++;
+        }
+        if (placeHolderSize != routing.placeHolderList.size()) {
+            return false;
+        }
+        entry.names =
+            routing.placeHolderList.toArray(new String[placeHolderSize]);
+        if (prefix != null) {
+            if (node.catchAllList == null) {
+                node.catchAllList = new ArrayList<CatchAll>();
+            }
+            node.catchAllList.add(new CatchAll(prefix, entry));
+        } else if (node.terminal == null) {
+            node.terminal = entry;
+        }
+        for (Node n : path) {
+            if (n.minIndex > entry.index) {
+                n.minIndex = entry.index;
+            }
+        }
+        if (maxPlaceHolderSize < placeHolderSize) {
+            maxPlaceHolderSize = placeHolderSize;
+        }
+        return true;
+    }
+
+    /**
+     * Determines if the segment is a place holder that captures the whole
+     * segment.
+     *
+     * @param segment
+     *            the segment
+     * @return whether the segment is a place holder
+     */
+    protected boolean isPlaceHolder(String segment) {
+        int length = segment.length();
+        return length > 2
+            && segment.charAt(0) == '{'
+            && segment.indexOf('}') == length - 1;
+    }
+
+    /**
+     * Determines if the segment is matched literally.
+     *
+     * @param segment
+     *            the segment
+     * @return whether the segment is matched literally
+     */
+    protected boolean isLiteral(String segment) {
+        for (int i = 0; i < segment.length(); i++) {
+            char c = segment.charAt(i);
+            if (c == '{' || c == '}' || REGEX_CHARS.indexOf(c) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Searches the first entry matching the path. The literal segment is
+     * tried first, then the place holder and then the catch-all, and the
+     * nodes that cannot hold an entry before the current match are skipped.
+     *
+     * @param node
+     *            the node
+     * @param path
+     *            the path
+     * @param pos
+     *            the start position of the next segment, or the length of
+     *            the path plus one if the whole path is consumed
+     * @param depth
+     *            the number of the captured values
+     * @param match
+     *            the current match
+     */
+    protected void search(Node node, String path, int pos, int depth,
+            Match match) {
+        if (node.minIndex >= match.index) {
+            return;
+        }
+        int length = path.length();
+        if (pos > length) {
+            if (node.terminal != null && node.terminal.index < match.index) {
+                match.set(node.terminal, depth);
+            }
+            return;
+        }
+        int end = path.indexOf('/', pos);
+        if (end < 0) {
+            end = length;
+        }
+        if (node.literalChildren != null) {
+            Node child = node.literalChildren.get(path.substring(pos, end));
+            if (child != null) {
+                search(child, path, end + 1, depth, match);
+            }
+        }
+        if (node.placeHolderChild != null && end > pos) {
+            match.values[depth] = path.substring(pos, end);
+            search(node.placeHolderChild, path, end + 1, depth + 1, match);
+        }
+        if (node.catchAllList != null) {
+            for (CatchAll c : node.catchAllList) {
+                if (c.entry.index >= match.index) {
+                    break;
+                }
+                int start = pos + c.prefix.length();
+                if (start < length
+                    && path.startsWith(c.prefix, pos)
+                    && path.indexOf('*', start) < 0) {
+                    match.values[depth] = path.substring(start);
+                    match.set(c.entry, depth + 1);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * A node of the tree.
+     */
+    protected static class Node {
+
+        /**
+         * The children for the literal segments.
+         */
+        protected Map<String, Node> literalChildren;
+
+        /**
+         * The child for a place holder.
+         */
+        protected Node placeHolderChild;
+
+        /**
+         * The catch-alls in the order.
+         */
+        protected List<CatchAll> catchAllList;
+
+        /**
+         * The entry that ends at this node.
+         */
+        protected Entry terminal;
+
+        /**
+         * The minimum index of the entries under this node.
+         */
+        protected int minIndex = Integer.MAX_VALUE;
+    }
+
+    /**
+     * A catch-all.
+     */
+    protected static class CatchAll {
+
+        /**
+         * The literal prefix.
+         */
+        protected String prefix;
+
+        /**
+         * The entry.
+         */
+        protected Entry entry;
+
+        /**
+         * Constructor.
+         *
+         * @param prefix
+         *            the literal prefix
+         * @param entry
+         *            the entry
+         */
+        public CatchAll(String prefix, Entry entry) {
+            this.prefix = prefix;
+            this.entry = entry;
+        }
+    }
+
+    /**
+     * An entry of {@link Routing}.
+     */
+    protected static class Entry {
+
+        /**
+         * The routing.
+         */
+        protected Routing routing;
+
+        /**
+         * The index in the list of {@link Routing}s.
+         */
+        protected int index;
+
+        /**
+         * The names of the place holders in the order.
+         */
+        protected String[] names;
+
+        /**
+         * Constructor.
+         *
+         * @param routing
+         *            the routing
+         * @param index
+         *            the index in the list of {@link Routing}s
+         */
+        public Entry(Routing routing, int index) {
+            this.routing = routing;
+            this.index = index;
+        }
+    }
+
+    /**
+     * The current match.
+     */
+    protected static class Match {
+
+        /**
+         * The values being captured.
+         */
+        protected String[] values;
+
+        /**
+         * The matched entry.
+         */
+        protected Entry entry;
+
+        /**
+         * The index of the matched entry.
+         */
+        protected int index = Integer.MAX_VALUE;
+
+        /**
+         * The captured values of the matched entry.
+         */
+        protected String[] matchedValues;
+
+        /**
+         * Constructor.
+         *
+         * @param size
+         *            the maximum number of the captured values
+         */
+        public Match(int size) {
+            values = new String[size];
+        }
+
+        /**
+         * Sets the matched entry.
+         *
+         * @param entry
+         *            the entry
+         * @param size
+         *            the number of the captured values
+         */
+        public void set(Entry entry, int size) {
+            this.entry = entry;
+            index = entry.index;
+            matchedValues = new String[size];
+            System.arraycopy(values, 0, matchedValues, 0, size);
+        }
+    }
+}
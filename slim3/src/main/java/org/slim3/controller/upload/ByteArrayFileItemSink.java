@@ -0,0 +1,47 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.controller.upload;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * {@link FileItemSink} that reads the uploaded file into memory and returns
+ * {@link FileItem}.
+ * 
+ * @author agent
+ * @since 1.0.18
+ * 
+ */
+public class ByteArrayFileItemSink implements FileItemSink {
+
+    private static final int BYTE_ARRAY_SIZE = 8 * 1024;
+
+    public Object receive(FileItemStream item, InputStream stream)
+            throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(BYTE_ARRAY_SIZE);
+        Streams.copy(stream, baos, true);
+        byte[] data = baos.toByteArray();
+        return data.length > 0 ? new FileItem(
+            item.getFileName(),
+            item.getContentType(),
+            data) : null;
+    }
+
+    public void discard(Object value) {
+    }
+}
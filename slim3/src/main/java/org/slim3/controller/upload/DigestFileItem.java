@@ -0,0 +1,75 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.controller.upload;
+
+/**
+ * {@link FileItem} that holds the digest of the contents computed by
+ * {@link DigestFileItemSink}. The contents are not kept, so
+ * {@link #getData()} returns null.
+ * 
+ * @author agent
+ * @since 1.0.18
+ * 
+ */
+public class DigestFileItem extends FileItem {
+
+    /**
+     * The digest as a lower-case hexadecimal string.
+     */
+    protected String digest;
+
+    /**
+     * The size of the contents.
+     */
+    protected long size;
+
+    /**
+     * Constructor.
+     * 
+     * @param fileName
+     *            the file name
+     * @param contentType
+     *            the content type
+     * @param digest
+     *            the digest as a lower-case hexadecimal string
+     * @param size
+     *            the size of the contents
+     */
+    public DigestFileItem(String fileName, String contentType, String digest,
+            long size) {
+        super(fileName, contentType, null);
+        this.digest = digest;
+        this.size = size;
+    }
+
+    /**
+     * Returns the digest as a lower-case hexadecimal string.
+     * 
+     * @return the digest
+     */
+    public String getDigest() {
+        return digest;
+    }
+
+    /**
+     * Returns the size of the contents.
+     * 
+     * @return the size of the contents
+     */
+    public long getSize() {
+        return size;
+    }
+}
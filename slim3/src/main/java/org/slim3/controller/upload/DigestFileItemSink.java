@@ -0,0 +1,121 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.controller.upload;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * {@link FileItemSink} that computes the digest of the uploaded file while
+ * the file is streamed and returns {@link DigestFileItem}. The contents are
+ * not kept.
+ * 
+ * @author agent
+ * @since 1.0.18
+ * 
+ */
+public class DigestFileItemSink implements FileItemSink {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private static final char[] HEX_CHARS = "0123456789abcdef".toCharArray();
+
+    /**
+     * The algorithm.
+     */
+    protected String algorithm;
+
+    /**
+     * Constructor.
+     * 
+     * @param algorithm
+     *            the algorithm such as "SHA-1"
+     * @throws NullPointerException
+     *             if the algorithm parameter is null
+     * @throws IllegalArgumentException
+     *             if the algorithm is not available
+     */
+    public DigestFileItemSink(String algorithm) throws NullPointerException,
+            IllegalArgumentException {
+        if (algorithm == null) {
+            throw new NullPointerException(
+                "The algorithm parameter must not be null.");
+        }
+        createMessageDigest(algorithm);
+        this.algorithm = algorithm;
+    }
+
+    public Object receive(FileItemStream item, InputStream stream)
+            throws IOException {
+        MessageDigest digest = createMessageDigest(algorithm);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long size = 0;
+        try {
+            for (int n; (n = stream.read(buffer)) != -1;) {
+                digest.update(buffer, 0, n);
+                size += n;
+            }
+        } finally {
+            stream.close();
+        }
+        return size > 0 ? new DigestFileItem(
+            item.getFileName(),
+            item.getContentType(),
+            toHexString(digest.digest()),
+            size) : null;
+    }
+
+    public void discard(Object value) {
+    }
+
+    /**
+     * Creates a new message digest.
+     * 
+     * @param algorithm
+     *            the algorithm
+     * @return a new message digest
+     * @throws IllegalArgumentException
+     *             if the algorithm is not available
+     */
+    protected static MessageDigest createMessageDigest(String algorithm)
+            throws IllegalArgumentException {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("The algorithm("
+                + algorithm
+                + ") is not available.", e);
+        }
+    }
+
+    /**
+     * Converts the bytes to a hexadecimal string.
+     * 
+     * @param bytes
+     *            the bytes
+     * @return a hexadecimal string
+     */
+    protected static String toHexString(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX_CHARS[(bytes[i] >> 4) & 0x0f];
+            chars[i * 2 + 1] = HEX_CHARS[bytes[i] & 0x0f];
+        }
+        return new String(chars);
+    }
+}
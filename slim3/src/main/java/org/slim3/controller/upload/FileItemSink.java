@@ -0,0 +1,59 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.controller.upload;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A consumer of an uploaded file that is called while the multipart request
+ * is being parsed. The stream is read incrementally, so the file does not
+ * have to be held in memory. The size limits of {@link FileUpload} are
+ * enforced while the stream is read, so reading the stream throws
+ * {@link SizeLimitExceededException} when a limit is exceeded.
+ * 
+ * @author agent
+ * @since 1.0.18
+ * 
+ */
+public interface FileItemSink {
+
+    /**
+     * Receives the uploaded file.
+     * 
+     * @param item
+     *            the file item
+     * @param stream
+     *            the stream of the contents
+     * @return the value set to the request attribute named by the field name,
+     *         or null if the file is empty
+     * @throws IOException
+     *             if an I/O error occurred
+     */
+    Object receive(FileItemStream item, InputStream stream) throws IOException;
+
+    /**
+     * Discards the value returned by
+     * {@link #receive(FileItemStream, InputStream)}. This method is called if
+     * the request fails to be parsed after the file was received, so that the
+     * resources such as a temporary file are released.
+     * 
+     * @param value
+     *            the value returned by
+     *            {@link #receive(FileItemStream, InputStream)}
+     */
+    void discard(Object value);
+}
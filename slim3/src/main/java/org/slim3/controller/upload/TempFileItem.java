@@ -0,0 +1,98 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.controller.upload;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import org.slim3.util.ThrowableUtil;
+
+/**
+ * {@link FileItem} whose contents are written to a temporary file by
+ * {@link TempFileItemSink}.
+ * 
+ * @author agent
+ * @since 1.0.18
+ * 
+ */
+public class TempFileItem extends FileItem {
+
+    /**
+     * The temporary file.
+     */
+    protected File file;
+
+    /**
+     * Constructor.
+     * 
+     * @param fileName
+     *            the file name
+     * @param contentType
+     *            the content type
+     * @param file
+     *            the temporary file
+     */
+    public TempFileItem(String fileName, String contentType, File file) {
+        super(fileName, contentType, null);
+        this.file = file;
+    }
+
+    /**
+     * Returns the temporary file.
+     * 
+     * @return the temporary file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the size of the contents.
+     * 
+     * @return the size of the contents
+     */
+    public long getSize() {
+        return file.length();
+    }
+
+    /**
+     * Reads the contents from the temporary file.
+     * 
+     * @return the contents
+     */
+    @Override
+    public byte[] getData() {
+        ByteArrayOutputStream baos =
+            new ByteArrayOutputStream((int) file.length());
+        try {
+            Streams.copy(new FileInputStream(file), baos, true);
+        } catch (IOException e) {
+            ThrowableUtil.wrapAndThrow(e);
+        }
+        return baos.toByteArray();
+    }
+
+    /**
+     * Deletes the temporary file.
+     * 
+     * @return whether the file was deleted
+     */
+    public boolean delete() {
+        return file.delete();
+    }
+}
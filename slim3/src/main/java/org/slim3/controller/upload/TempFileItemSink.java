@@ -0,0 +1,80 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.controller.upload;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * {@link FileItemSink} that writes the uploaded file to a temporary file and
+ * returns {@link TempFileItem}. The caller is responsible for deleting the
+ * file unless the request fails to be parsed.
+ * This sink is intended for the local development server, because App Engine
+ * does not allow an application to write files.
+ * 
+ * @author agent
+ * @since 1.0.18
+ * 
+ */
+public class TempFileItemSink implements FileItemSink {
+
+    /**
+     * The directory or null if the default temporary-file directory is used.
+     */
+    protected File directory;
+
+    /**
+     * Constructor.
+     */
+    public TempFileItemSink() {
+        this(null);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param directory
+     *            the directory or null if the default temporary-file directory
+     *            is used
+     */
+    public TempFileItemSink(File directory) {
+        this.directory = directory;
+    }
+
+    public Object receive(FileItemStream item, InputStream stream)
+            throws IOException {
+        File file = File.createTempFile("upload", null, directory);
+        boolean success = false;
+        try {
+            long size = Streams.copy(stream, new FileOutputStream(file), true);
+            success = size > 0;
+        } finally {
+            if (!success) {
+                file.delete();
+            }
+        }
+        return success ? new TempFileItem(
+            item.getFileName(),
+            item.getContentType(),
+            file) : null;
+    }
+
+    public void discard(Object value) {
+        ((TempFileItem) value).delete();
+    }
+}
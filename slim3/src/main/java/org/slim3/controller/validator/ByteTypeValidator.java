@@ -56,7 +56,7 @@ public class ByteTypeValidator extends AbstractValidator {
         }
         try {
             String s = (String) value;
-            Byte.valueOf(s);
+            Byte.parseByte(s);
             return null;
         } catch (Throwable ignore) {
             if (message != null) {
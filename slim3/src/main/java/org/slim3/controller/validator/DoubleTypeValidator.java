@@ -57,7 +57,7 @@ public class DoubleTypeValidator extends AbstractValidator {
         }
         try {
             String s = (String) value;
-            Double.valueOf(s);
+            Double.parseDouble(s);
             return null;
         } catch (Throwable ignore) {
             if (message != null) {
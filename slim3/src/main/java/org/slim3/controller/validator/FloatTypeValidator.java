@@ -57,7 +57,7 @@ public class FloatTypeValidator extends AbstractValidator {
         }
         try {
             String s = (String) value;
-            Float.valueOf(s);
+            Float.parseFloat(s);
             return null;
         } catch (Throwable ignore) {
             if (message != null) {
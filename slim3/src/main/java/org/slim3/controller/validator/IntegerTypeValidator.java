@@ -57,7 +57,7 @@ public class IntegerTypeValidator extends AbstractValidator {
         }
         try {
             String s = (String) value;
-            Integer.valueOf(s);
+            Integer.parseInt(s);
             return null;
         } catch (Throwable ignore) {
             if (message != null) {
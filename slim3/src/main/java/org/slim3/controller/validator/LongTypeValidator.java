@@ -57,7 +57,7 @@ public class LongTypeValidator extends AbstractValidator {
         }
         try {
             String s = (String) value;
-            Long.valueOf(s);
+            Long.parseLong(s);
             return null;
         } catch (Throwable ignore) {
             if (message != null) {
@@ -57,7 +57,7 @@ public class ShortTypeValidator extends AbstractValidator {
         }
         try {
             String s = (String) value;
-            Short.valueOf(s);
+            Short.parseShort(s);
             return null;
         } catch (Throwable ignore) {
             if (message != null) {
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.controller.validator;
+
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.slim3.controller.ControllerConstants;
+import org.slim3.util.RequestMap;
+
+/**
+ * An immutable set of the validation rules. Unlike {@link Validators}, a plan
+ * does not depend on the request, so it can be built once, for example in a
+ * static field of the controller class, and shared by the requests.
+ * {@link #add(CharSequence, Validator...)} returns a new plan and does not
+ * change this plan.
+ * 
+ * <pre>
+ * private static final ValidationPlan PLAN =
+ *     new ValidationPlan().add("age", RequiredValidator.INSTANCE,
+ *         IntegerTypeValidator.INSTANCE).add("zip",
+ *         new RegexpValidator("\\d{3}-\\d{4}"));
+ * 
+ * protected boolean validate() {
+ *     return PLAN.validate(request);
+ * }
+ * </pre>
+ * 
+ * <p>
+ * The validators of a plan are shared by the threads, so they must be
+ * stateless as the validators of this package are. {@link Errors} is looked up
+ * or created only when a value is invalid.
+ * </p>
+ * 
+ * @author agent
+ * @since 1.0.18
+ * 
+ */
+public final class ValidationPlan {
+
+    private static final String[] EMPTY_NAMES = new String[0];
+
+    private static final Validator[][] EMPTY_VALIDATORS = new Validator[0][];
+
+    private final String[] names;
+
+    private final Validator[][] validators;
+
+    /**
+     * Constructor for an empty plan.
+     */
+    public ValidationPlan() {
+        this(EMPTY_NAMES, EMPTY_VALIDATORS);
+    }
+
+    private ValidationPlan(String[] names, Validator[][] validators) {
+        this.names = names;
+        this.validators = validators;
+    }
+
+    /**
+     * Returns a new plan that has the validators for the name in addition to
+     * the rules of this plan. If this plan already has the name, the
+     * validators are replaced.
+     * 
+     * @param name
+     *            the parameter name
+     * @param validators
+     *            the validators
+     * @return a new plan
+     * @throws NullPointerException
+     *             if the name parameter is null or if the validators
+     *             parameter is null or if the element of the validators
+     *             parameter is null
+     */
+    public ValidationPlan add(CharSequence name, Validator... validators)
+            throws NullPointerException {
+        if (name == null) {
+            throw new NullPointerException(
+                "The name parameter must not be null.");
+        }
+        if (validators == null) {
+            throw new NullPointerException(
+                "The validators parameter must not be null.");
+        }
+        Validator[] copy = validators.clone();
+        for (Validator v : copy) {
+            if (v == null) {
+                throw new NullPointerException("The element of the "
+                    + "validators parameter must not be null.");
+            }
+        }
+        String key = name.toString();
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(key)) {
+                Validator[][] newValidators = this.validators.clone();
+                newValidators[i] = copy;
+                return new ValidationPlan(names, newValidators);
+            }
+        }
+        String[] newNames = new String[names.length + 1];
+        System.arraycopy(names, 0, newNames, 0, names.length);
+        newNames[names.length] = key;
+        Validator[][] newValidators = new Validator[names.length + 1][];
+        System.arraycopy(
+            this.validators,
+            0,
+            newValidators,
+            0,
+            names.length);
+        newValidators[names.length] = copy;
+        return new ValidationPlan(newNames, newValidators);
+    }
+
+    /**
+     * Returns the number of the parameter names.
+     * 
+     * @return the number of the parameter names
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Validates the request parameters.
+     * 
+     * @param request
+     *            the request
+     * @return whether the parameters are valid
+     * @throws NullPointerException
+     *             if the request parameter is null
+     */
+    public boolean validate(HttpServletRequest request)
+            throws NullPointerException {
+        if (request == null) {
+            throw new NullPointerException(
+                "The request parameter must not be null.");
+        }
+        return validate(new RequestMap(request));
+    }
+
+    /**
+     * Validates the parameters. The error messages are stored in
+     * {@link Errors} of the parameters.
+     * 
+     * @param parameters
+     *            the parameters
+     * @return whether the parameters are valid
+     * @throws NullPointerException
+     *             if the parameters parameter is null
+     */
+    public boolean validate(Map<String, Object> parameters)
+            throws NullPointerException {
+        if (parameters == null) {
+            throw new NullPointerException(
+                "The parameters parameter must not be null.");
+        }
+        Errors errors = null;
+        for (int i = 0; i < names.length; i++) {
+            String name = names[i];
+            for (Validator v : validators[i]) {
+                String message = v.validate(parameters, name);
+                if (message != null) {
+                    if (errors == null) {
+                        errors = getErrors(parameters);
+                    }
+                    errors.put(name, message);
+                    break;
+                }
+            }
+        }
+        return errors == null;
+    }
+
+    /**
+     * Returns the errors of the parameters. The errors are created if they
+     * are not found.
+     * 
+     * @param parameters
+     *            the parameters
+     * @return the errors
+     */
+    private Errors getErrors(Map<String, Object> parameters) {
+        Errors errors =
+            (Errors) parameters.get(ControllerConstants.ERRORS_KEY);
+        if (errors == null) {
+            errors = new Errors();
+            parameters.put(ControllerConstants.ERRORS_KEY, errors);
+        }
+        return errors;
+    }
+}
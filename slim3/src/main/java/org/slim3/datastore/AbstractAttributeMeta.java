@@ -151,15 +151,33 @@ public abstract class AbstractAttributeMeta<M, A> implements CharSequence {
     }
 
     /**
-     * Returns the property value.
+     * Returns the property value. The generated meta data of model reads the
+     * property value directly, so the property descriptor is used only for a
+     * model whose meta data does not.
      * 
      * @param model
      *            the model
      * @return the property value
      * @throws IllegalArgumentException
      *             if the property is not found
+     * @see ModelMeta#getAttributeValue(Object, AbstractAttributeMeta)
      */
     protected Object getValue(Object model) throws IllegalArgumentException {
+        return modelMeta.getAttributeValue(model, this);
+    }
+
+    /**
+     * Returns the property value using the property descriptor.
+     * 
+     * @param model
+     *            the model
+     * @return the property value
+     * @throws IllegalArgumentException
+     *             if the property is not found
+     * @since 1.0.18
+     */
+    protected Object getValueByPropertyDesc(Object model)
+            throws IllegalArgumentException {
         if (propertyDesc == null) {
             propertyDesc =
                 modelMeta.getBeanDesc().getPropertyDesc(attributeName);
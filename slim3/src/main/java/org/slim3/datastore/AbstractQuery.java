@@ -24,6 +24,8 @@ import org.slim3.repackaged.com.google.gdata.util.common.util.Base64DecoderExcep
 import org.slim3.util.AppEngineUtil;
 import org.slim3.util.ByteUtil;
 import org.slim3.util.ThrowableUtil;
+import org.slim3.util.Timeline;
+import org.slim3.util.TimelineLocator;
 
 import com.google.appengine.api.datastore.AsyncDatastoreService;
 import com.google.appengine.api.datastore.Cursor;
@@ -623,7 +625,14 @@ public abstract class AbstractQuery<SUB> {
      */
     public List<Entity> asEntityList() {
         PreparedQuery pq = prepareQuery();
-        return pq.asList(fetchOptions);
+        Timeline timeline = TimelineLocator.get();
+        if (timeline == null) {
+            return pq.asList(fetchOptions);
+        }
+        long start = System.nanoTime();
+        List<Entity> list = pq.asList(fetchOptions);
+        recordQuery(timeline, start);
+        return list;
     }
 
     /**
@@ -633,7 +642,14 @@ public abstract class AbstractQuery<SUB> {
      */
     public QueryResultList<Entity> asQueryResultEntityList() {
         PreparedQuery pq = prepareQuery();
-        return pq.asQueryResultList(fetchOptions);
+        Timeline timeline = TimelineLocator.get();
+        if (timeline == null) {
+            return pq.asQueryResultList(fetchOptions);
+        }
+        long start = System.nanoTime();
+        QueryResultList<Entity> list = pq.asQueryResultList(fetchOptions);
+        recordQuery(timeline, start);
+        return list;
     }
 
     /**
@@ -643,7 +659,15 @@ public abstract class AbstractQuery<SUB> {
      */
     protected QueryResultIterator<Entity> asQueryResultEntityIterator() {
         PreparedQuery pq = prepareQuery();
-        return pq.asQueryResultIterator(fetchOptions);
+        Timeline timeline = TimelineLocator.get();
+        if (timeline == null) {
+            return pq.asQueryResultIterator(fetchOptions);
+        }
+        long start = System.nanoTime();
+        QueryResultIterator<Entity> iterator =
+            pq.asQueryResultIterator(fetchOptions);
+        recordQuery(timeline, start);
+        return iterator;
     }
 
     /**
@@ -673,7 +697,19 @@ public abstract class AbstractQuery<SUB> {
             return list.get(0);
         }
         PreparedQuery pq = prepareQuery();
-        return pq.asSingleEntity();
+        Timeline timeline = TimelineLocator.get();
+        if (timeline == null) {
+            return pq.asSingleEntity();
+        }
+        long start = System.nanoTime();
+        Entity entity = pq.asSingleEntity();
+        timeline.record(
+            Timeline.DATASTORE_QUERY,
+            query.getKind(),
+            start,
+            entity != null ? 1 : 0,
+            0);
+        return entity;
     }
 
     /**
@@ -727,7 +763,14 @@ public abstract class AbstractQuery<SUB> {
         if (fetchOptions.getLimit() == null) {
             fetchOptions.limit(Integer.MAX_VALUE);
         }
-        return pq.countEntities(fetchOptions);
+        Timeline timeline = TimelineLocator.get();
+        if (timeline == null) {
+            return pq.countEntities(fetchOptions);
+        }
+        long start = System.nanoTime();
+        int count = pq.countEntities(fetchOptions);
+        recordQuery(timeline, start);
+        return count;
     }
 
     /**
@@ -810,7 +853,29 @@ public abstract class AbstractQuery<SUB> {
      */
     public Iterator<Entity> asEntityIterator() {
         PreparedQuery pq = prepareQuery();
-        return pq.asIterator(fetchOptions);
+        Timeline timeline = TimelineLocator.get();
+        if (timeline == null) {
+            return pq.asIterator(fetchOptions);
+        }
+        long start = System.nanoTime();
+        Iterator<Entity> iterator = pq.asIterator(fetchOptions);
+        recordQuery(timeline, start);
+        return iterator;
+    }
+
+    /**
+     * Records the query to the timeline. The entities are not counted,
+     * because the lists and the iterators returned by the datastore fetch the
+     * rest of the entities lazily and counting them would fetch all of them.
+     * 
+     * @param timeline
+     *            the timeline
+     * @param start
+     *            the start time of the query returned by
+     *            {@link System#nanoTime()}
+     */
+    protected void recordQuery(Timeline timeline, long start) {
+        timeline.record(Timeline.DATASTORE_QUERY, query.getKind(), start, 0, 0);
     }
 
     /**
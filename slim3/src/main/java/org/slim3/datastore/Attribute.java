@@ -70,6 +70,17 @@ public @interface Attribute {
      */
     boolean cipher() default false;
 
+    /**
+     * Whether this property is decoded lazily. If the value is true, the
+     * property is not decoded when the entity is converted to the model, and
+     * the getter of the model has to call
+     * {@link LazyAttributeUtil#resolve(Object, String)} before returning the
+     * field.
+     *
+     * @since 1.0.18
+     */
+    boolean lazy() default false;
+
     /**
      * The attribute listener.
      */
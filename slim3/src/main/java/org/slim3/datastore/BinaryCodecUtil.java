@@ -0,0 +1,445 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.datastore;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.TreeSet;
+
+import org.slim3.util.ByteUtil;
+import org.slim3.util.ClassUtil;
+
+import com.google.appengine.api.NamespaceManager;
+import com.google.appengine.api.blobstore.BlobKey;
+import com.google.appengine.api.datastore.Blob;
+import com.google.appengine.api.datastore.Category;
+import com.google.appengine.api.datastore.Email;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.GeoPt;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.api.datastore.Link;
+import com.google.appengine.api.datastore.PhoneNumber;
+import com.google.appengine.api.datastore.ShortBlob;
+import com.google.appengine.api.datastore.Text;
+
+/**
+ * A utility class to write and read values in a compact binary format. This
+ * format is used by the binary codec of {@link ModelMeta}. Each value is
+ * written as a one byte tag followed by its payload. The values that are not
+ * supported natively are written using Java serialization. A key is written as
+ * its namespace and its path, so an incomplete key can be written as well. The
+ * key is read for the current application.
+ *
+ * @author agent
+ * @since 1.0.18
+ *
+ */
+public final class BinaryCodecUtil {
+
+    private static final String ENCODING = "UTF-8";
+
+    private static final int NULL = 0;
+
+    private static final int STRING = 1;
+
+    private static final int LONG = 2;
+
+    private static final int INTEGER = 3;
+
+    private static final int SHORT = 4;
+
+    private static final int BYTE = 5;
+
+    private static final int DOUBLE = 6;
+
+    private static final int FLOAT = 7;
+
+    private static final int TRUE = 8;
+
+    private static final int FALSE = 9;
+
+    private static final int DATE = 10;
+
+    private static final int KEY = 11;
+
+    private static final int TEXT = 12;
+
+    private static final int SHORT_BLOB = 13;
+
+    private static final int BLOB = 14;
+
+    private static final int BYTES = 15;
+
+    private static final int ENUM = 16;
+
+    private static final int EMAIL = 17;
+
+    private static final int LINK = 18;
+
+    private static final int CATEGORY = 19;
+
+    private static final int PHONE_NUMBER = 20;
+
+    private static final int GEO_PT = 21;
+
+    private static final int BLOB_KEY = 22;
+
+    private static final int ARRAY_LIST = 30;
+
+    private static final int LINKED_LIST = 31;
+
+    private static final int HASH_SET = 32;
+
+    private static final int LINKED_HASH_SET = 33;
+
+    private static final int TREE_SET = 34;
+
+    private static final int SERIALIZABLE = 127;
+
+    /**
+     * Writes the string. The string can be null.
+     *
+     * @param out
+     *            the output
+     * @param value
+     *            the string
+     * @throws IOException
+     *             if an I/O error occurred
+     */
+    public static void writeString(DataOutput out, String value)
+            throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        writeBytes(out, value.getBytes(ENCODING));
+    }
+
+    /**
+     * Reads the string written by {@link #writeString(DataOutput, String)}.
+     *
+     * @param in
+     *            the input
+     * @return the string
+     * @throws IOException
+     *             if an I/O error occurred
+     */
+    public static String readString(DataInput in) throws IOException {
+        byte[] bytes = readBytes(in);
+        return bytes != null ? toString(bytes) : null;
+    }
+
+    /**
+     * Writes the value.
+     *
+     * @param out
+     *            the output
+     * @param value
+     *            the value
+     * @throws IOException
+     *             if an I/O error occurred
+     */
+    public static void writeValue(DataOutput out, Object value)
+            throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            writeBytes(out, ((String) value).getBytes(ENCODING));
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INTEGER);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(((Boolean) value) ? TRUE : FALSE);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Key) {
+            out.writeByte(KEY);
+            writeKey(out, (Key) value);
+        } else if (value.getClass() == Date.class) {
+            out.writeByte(DATE);
+            out.writeLong(((Date) value).getTime());
+        } else if (value instanceof Short) {
+            out.writeByte(SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Text) {
+            out.writeByte(TEXT);
+            writeString(out, ((Text) value).getValue());
+        } else if (value instanceof ShortBlob) {
+            out.writeByte(SHORT_BLOB);
+            writeBytes(out, ((ShortBlob) value).getBytes());
+        } else if (value instanceof Blob) {
+            out.writeByte(BLOB);
+            writeBytes(out, ((Blob) value).getBytes());
+        } else if (value instanceof byte[]) {
+            out.writeByte(BYTES);
+            writeBytes(out, (byte[]) value);
+        } else if (value instanceof Enum<?>) {
+            out.writeByte(ENUM);
+            writeString(out, ((Enum<?>) value)
+                .getDeclaringClass()
+                .getName());
+            writeString(out, ((Enum<?>) value).name());
+        } else if (value instanceof Email) {
+            out.writeByte(EMAIL);
+            writeString(out, ((Email) value).getEmail());
+        } else if (value instanceof Link) {
+            out.writeByte(LINK);
+            writeString(out, ((Link) value).getValue());
+        } else if (value instanceof Category) {
+            out.writeByte(CATEGORY);
+            writeString(out, ((Category) value).getCategory());
+        } else if (value instanceof PhoneNumber) {
+            out.writeByte(PHONE_NUMBER);
+            writeString(out, ((PhoneNumber) value).getNumber());
+        } else if (value instanceof GeoPt) {
+            out.writeByte(GEO_PT);
+            out.writeFloat(((GeoPt) value).getLatitude());
+            out.writeFloat(((GeoPt) value).getLongitude());
+        } else if (value instanceof BlobKey) {
+            out.writeByte(BLOB_KEY);
+            writeString(out, ((BlobKey) value).getKeyString());
+        } else if (value.getClass() == ArrayList.class) {
+            writeCollection(out, ARRAY_LIST, (Collection<?>) value);
+        } else if (value.getClass() == HashSet.class) {
+            writeCollection(out, HASH_SET, (Collection<?>) value);
+        } else if (value.getClass() == LinkedHashSet.class) {
+            writeCollection(out, LINKED_HASH_SET, (Collection<?>) value);
+        } else if (value.getClass() == LinkedList.class) {
+            writeCollection(out, LINKED_LIST, (Collection<?>) value);
+        } else if (value.getClass() == TreeSet.class
+            && ((TreeSet<?>) value).comparator() == null) {
+            writeCollection(out, TREE_SET, (Collection<?>) value);
+        } else {
+            out.writeByte(SERIALIZABLE);
+            writeBytes(out, ByteUtil.toByteArray(value));
+        }
+    }
+
+    /**
+     * Reads the value written by {@link #writeValue(DataOutput, Object)}.
+     *
+     * @param <T>
+     *            the value type
+     * @param in
+     *            the input
+     * @return the value
+     * @throws IOException
+     *             if an I/O error occurred
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T readValue(DataInput in) throws IOException {
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+        case NULL:
+            return null;
+        case STRING:
+            return (T) readString(in);
+        case LONG:
+            return (T) Long.valueOf(in.readLong());
+        case INTEGER:
+            return (T) Integer.valueOf(in.readInt());
+        case SHORT:
+            return (T) Short.valueOf(in.readShort());
+        case BYTE:
+            return (T) Byte.valueOf(in.readByte());
+        case DOUBLE:
+            return (T) Double.valueOf(in.readDouble());
+        case FLOAT:
+            return (T) Float.valueOf(in.readFloat());
+        case TRUE:
+            return (T) Boolean.TRUE;
+        case FALSE:
+            return (T) Boolean.FALSE;
+        case DATE:
+            return (T) new Date(in.readLong());
+        case KEY:
+            return (T) readKey(in);
+        case TEXT:
+            return (T) new Text(readString(in));
+        case SHORT_BLOB:
+            return (T) new ShortBlob(readBytes(in));
+        case BLOB:
+            return (T) new Blob(readBytes(in));
+        case BYTES:
+            return (T) readBytes(in);
+        case ENUM:
+            return (T) toEnum(readString(in), readString(in));
+        case EMAIL:
+            return (T) new Email(readString(in));
+        case LINK:
+            return (T) new Link(readString(in));
+        case CATEGORY:
+            return (T) new Category(readString(in));
+        case PHONE_NUMBER:
+            return (T) new PhoneNumber(readString(in));
+        case GEO_PT:
+            return (T) new GeoPt(in.readFloat(), in.readFloat());
+        case BLOB_KEY:
+            return (T) new BlobKey(readString(in));
+        case ARRAY_LIST: {
+            int size = in.readInt();
+            return (T) readElements(in, size, new ArrayList<Object>(size));
+        }
+        case LINKED_LIST:
+            return (T) readElements(in, in.readInt(), new LinkedList<Object>());
+        case HASH_SET: {
+            int size = in.readInt();
+            return (T) readElements(in, size, new HashSet<Object>(
+                Math.max(size * 4 / 3 + 1, 16)));
+        }
+        case LINKED_HASH_SET: {
+            int size = in.readInt();
+            return (T) readElements(in, size, new LinkedHashSet<Object>(
+                Math.max(size * 4 / 3 + 1, 16)));
+        }
+        case TREE_SET:
+            return (T) readElements(in, in.readInt(), new TreeSet<Object>());
+        case SERIALIZABLE:
+            return (T) ByteUtil.toObject(readBytes(in));
+        default:
+            throw new IOException("The tag(" + tag + ") is unknown.");
+        }
+    }
+
+    private static void writeBytes(DataOutput out, byte[] bytes)
+            throws IOException {
+        if (bytes == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static void writeKey(DataOutput out, Key key) throws IOException {
+        int depth = 0;
+        for (Key k = key; k != null; k = k.getParent()) {
+            depth++;
+        }
+        Key[] path = new Key[depth];
+        for (Key k = key; k != null; k = k.getParent()) {
+            path[--depth] = k;
+        }
+        writeString(out, key.getNamespace());
+        out.writeInt(path.length);
+        for (Key k : path) {
+            writeString(out, k.getKind());
+            writeString(out, k.getName());
+            if (k.getName() == null) {
+                out.writeLong(k.getId());
+            }
+        }
+    }
+
+    private static Key readKey(DataInput in) throws IOException {
+        String namespace = readString(in);
+        int depth = in.readInt();
+        if (namespace == null || depth <= 0) {
+            throw new IOException("The key is corrupted.");
+        }
+        String currentNamespace = NamespaceManager.get();
+        boolean switched =
+            !namespace.equals(currentNamespace != null
+                ? currentNamespace
+                : "");
+        if (switched) {
+            NamespaceManager.set(namespace);
+        }
+        try {
+            Key key = null;
+            for (int i = 0; i < depth; i++) {
+                String kind = readString(in);
+                String name = readString(in);
+                if (name != null) {
+                    key = KeyFactory.createKey(key, kind, name);
+                    continue;
+                }
+                long id = in.readLong();
+                if (id != 0) {
+                    key = KeyFactory.createKey(key, kind, id);
+                } else {
+                    key = new Entity(kind, key).getKey();
+                }
+            }
+            return key;
+        } finally {
+            if (switched) {
+                NamespaceManager.set(currentNamespace);
+            }
+        }
+    }
+
+    private static String toString(byte[] bytes)
+            throws UnsupportedEncodingException {
+        return new String(bytes, ENCODING);
+    }
+
+    private static void writeCollection(DataOutput out, int tag,
+            Collection<?> collection) throws IOException {
+        out.writeByte(tag);
+        out.writeInt(collection.size());
+        for (Object o : collection) {
+            writeValue(out, o);
+        }
+    }
+
+    private static Collection<Object> readElements(DataInput in, int size,
+            Collection<Object> collection) throws IOException {
+        for (int i = 0; i < size; i++) {
+            collection.add(readValue(in));
+        }
+        return collection;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Enum<?> toEnum(String className, String name) {
+        Class clazz = ClassUtil.forName(className);
+        return Enum.valueOf(clazz, name);
+    }
+
+    private BinaryCodecUtil() {
+    }
+}
@@ -17,6 +17,7 @@ package org.slim3.datastore;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -29,6 +30,8 @@ import org.slim3.util.ClassUtil;
 import org.slim3.util.Cleanable;
 import org.slim3.util.Cleaner;
 import org.slim3.util.FutureUtil;
+import org.slim3.util.Timeline;
+import org.slim3.util.TimelineLocator;
 
 import com.google.appengine.api.datastore.AsyncDatastoreService;
 import com.google.appengine.api.datastore.DatastoreService;
@@ -78,6 +81,12 @@ public final class DatastoreUtil {
 
     private static volatile boolean initialized = false;
 
+    /**
+     * The partial models loaded by projection queries.
+     */
+    private static final WeakIdentityMap<Object, Boolean> partialModels =
+        new WeakIdentityMap<Object, Boolean>();
+
     static {
         initialize();
     }
@@ -396,7 +405,17 @@ public final class DatastoreUtil {
         if (tx != null && !tx.isActive()) {
             throw new IllegalStateException("The transaction must be active.");
         }
-        return ds.get(tx, keys);
+        Timeline timeline = TimelineLocator.get();
+        if (timeline == null) {
+            return ds.get(tx, keys);
+        }
+        long start = System.nanoTime();
+        return timeline.wrap(
+            ds.get(tx, keys),
+            Timeline.DATASTORE_GET,
+            null,
+            start,
+            -1);
     }
 
     /**
@@ -513,7 +532,17 @@ public final class DatastoreUtil {
             throw new IllegalStateException("The transaction must be active.");
         }
         assignKeyIfNecessary(ds, entities);
-        return ds.put(tx, entities);
+        Timeline timeline = TimelineLocator.get();
+        if (timeline == null) {
+            return ds.put(tx, entities);
+        }
+        long start = System.nanoTime();
+        return timeline.wrap(
+            ds.put(tx, entities),
+            Timeline.DATASTORE_PUT,
+            null,
+            start,
+            count(entities));
     }
 
     /**
@@ -591,7 +620,17 @@ public final class DatastoreUtil {
         if (tx != null && !tx.isActive()) {
             throw new IllegalStateException("The transaction must be active.");
         }
-        return ds.delete(tx, keys);
+        Timeline timeline = TimelineLocator.get();
+        if (timeline == null) {
+            return ds.delete(tx, keys);
+        }
+        long start = System.nanoTime();
+        return timeline.wrap(
+            ds.delete(tx, keys),
+            Timeline.DATASTORE_DELETE,
+            null,
+            start,
+            count(keys));
     }
 
     /**
@@ -635,6 +674,17 @@ public final class DatastoreUtil {
         return newList;
     }
 
+    private static int count(Iterable<?> iterable) {
+        if (iterable instanceof Collection<?>) {
+            return ((Collection<?>) iterable).size();
+        }
+        int count = 0;
+        for (Iterator<?> i = iterable.iterator(); i.hasNext(); i.next()) {
+            count++;
+        }
+        return count;
+    }
+
     private static boolean accept(Object model,
             List<? extends InMemoryFilterCriterion> criteria) {
         for (InMemoryFilterCriterion c : criteria) {
@@ -916,9 +966,11 @@ public final class DatastoreUtil {
      * @return an entity
      * @throws NullPointerException
      *             if the ds parameter is null or if the model parameter is null
+     * @throws IllegalArgumentException
+     *             if the model is a partial model loaded by a projection query
      */
     public static Entity modelToEntity(AsyncDatastoreService ds, Object model)
-            throws NullPointerException {
+            throws NullPointerException, IllegalArgumentException {
         if (ds == null) {
             throw new NullPointerException("The ds parameter must not be null.");
         }
@@ -926,6 +978,11 @@ public final class DatastoreUtil {
             throw new NullPointerException(
                 "The model parameter must not be null.");
         }
+        if (isPartialModel(model)) {
+            throw new IllegalArgumentException("The model("
+                + model.getClass().getName()
+                + ") was loaded by a projection query, so it cannot be put.");
+        }
         ModelMeta<?> modelMeta = getModelMeta(model.getClass());
         Key key = modelMeta.getKey(model);
         if (key == null) {
@@ -938,6 +995,32 @@ public final class DatastoreUtil {
         return modelMeta.modelToEntity(model);
     }
 
+    /**
+     * Determines if the model is a partial model loaded by a projection query.
+     * Only the projected attributes of a partial model are loaded.
+     * 
+     * @param model
+     *            the model
+     * @return whether the model is a partial model
+     * @since 1.0.18
+     */
+    public static boolean isPartialModel(Object model) {
+        if (model == null) {
+            return false;
+        }
+        return partialModels.get(model) != null;
+    }
+
+    /**
+     * Marks the model as a partial model.
+     * 
+     * @param model
+     *            the model
+     */
+    static void markAsPartialModel(Object model) {
+        partialModels.put(model, Boolean.TRUE);
+    }
+
     /**
      * Converts the models to entities.
      * 
@@ -1152,6 +1235,11 @@ public final class DatastoreUtil {
                             value = modelMeta.encrypt((String) value);
                         } else if (value instanceof Text) {
                             value = modelMeta.encrypt((Text) value);
+                        } else if (value instanceof Collection<?>) {
+                            value =
+                                encryptStrings(
+                                    modelMeta,
+                                    (Collection<?>) value);
                         }
                         f =
                             new Query.FilterPredicate(
@@ -1165,4 +1253,31 @@ public final class DatastoreUtil {
         }
         return list;
     }
+
+    /**
+     * Encrypts the strings in the values with one cipher. The other values
+     * such as null are returned as they are.
+     * 
+     * @param modelMeta
+     *            the model meta
+     * @param values
+     *            the values
+     * @return the values whose strings are encrypted
+     */
+    protected static List<Object> encryptStrings(ModelMeta<?> modelMeta,
+            Collection<?> values) {
+        List<String> texts = new ArrayList<String>(values.size());
+        for (Object o : values) {
+            if (o instanceof String) {
+                texts.add((String) o);
+            }
+        }
+        Iterator<String> encryptedTexts =
+            modelMeta.encryptAll(texts).iterator();
+        List<Object> list = new ArrayList<Object>(values.size());
+        for (Object o : values) {
+            list.add(o instanceof String ? encryptedTexts.next() : o);
+        }
+        return list;
+    }
 }
\ No newline at end of file
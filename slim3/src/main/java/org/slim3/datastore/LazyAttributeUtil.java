@@ -0,0 +1,278 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.datastore;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.appengine.api.datastore.Entity;
+
+/**
+ * A utility for the attributes annotated with {@link Attribute#lazy()}.
+ *
+ * <p>
+ * The generated entityToModel method does not decode the lazy attributes.
+ * Instead, it keeps the raw entity for the model, and the attribute is decoded
+ * when {@link #resolve(Object, String)} is called. The getter of a lazy
+ * attribute should be written as follows:
+ * </p>
+ *
+ * <pre>
+ * public MyData getData() {
+ *     LazyAttributeUtil.resolve(this, &quot;data&quot;);
+ *     return data;
+ * }
+ *
+ * public void setData(MyData data) {
+ *     LazyAttributeUtil.discard(this, &quot;data&quot;);
+ *     this.data = data;
+ * }
+ * </pre>
+ *
+ * <p>
+ * The pending attributes are held weakly, so a model that is no longer used
+ * does not keep its entity alive. The generated modelToEntity, modelToJson and
+ * writeTo methods resolve all the pending attributes before reading the model,
+ * and {@link #resolveAllIn(Object)} is called before a value is serialized by
+ * Java serialization for memcache or by GWT RPC, because they read the fields
+ * directly. For the same reason, equals and hashCode of the model should read
+ * the lazy attributes through the getters.
+ * The pending attributes are looked up without a global lock, and only the
+ * model being resolved is locked while its attribute is decoded. An attribute
+ * stays pending until it is decoded successfully.
+ * </p>
+ *
+ * @author agent
+ * @since 1.0.18
+ *
+ */
+public final class LazyAttributeUtil {
+
+    private static final WeakIdentityMap<Object, Pending> pendings =
+        new WeakIdentityMap<Object, Pending>();
+
+    /**
+     * Decodes the lazy attribute of the model if it is still pending.
+     *
+     * @param model
+     *            the model
+     * @param attributeName
+     *            the attribute name
+     * @throws NullPointerException
+     *             if the model parameter is null or if the attributeName
+     *             parameter is null
+     */
+    public static void resolve(Object model, String attributeName)
+            throws NullPointerException {
+        if (model == null) {
+            throw new NullPointerException(
+                "The model parameter must not be null.");
+        }
+        if (attributeName == null) {
+            throw new NullPointerException(
+                "The attributeName parameter must not be null.");
+        }
+        Pending pending = pendings.get(model);
+        if (pending == null) {
+            return;
+        }
+        synchronized (pending) {
+            if (!pending.attributeNames.contains(attributeName)) {
+                return;
+            }
+            pending.modelMeta.decodeLazyAttribute(
+                model,
+                attributeName,
+                pending.entity);
+            pending.attributeNames.remove(attributeName);
+            if (pending.attributeNames.isEmpty()) {
+                pendings.remove(model, pending);
+            }
+        }
+    }
+
+    /**
+     * Discards the pending value of the lazy attribute. The setter of a lazy
+     * attribute should call this method so that the pending value does not
+     * overwrite the new value.
+     *
+     * @param model
+     *            the model
+     * @param attributeName
+     *            the attribute name
+     * @throws NullPointerException
+     *             if the model parameter is null or if the attributeName
+     *             parameter is null
+     */
+    public static void discard(Object model, String attributeName)
+            throws NullPointerException {
+        if (model == null) {
+            throw new NullPointerException(
+                "The model parameter must not be null.");
+        }
+        if (attributeName == null) {
+            throw new NullPointerException(
+                "The attributeName parameter must not be null.");
+        }
+        Pending pending = pendings.get(model);
+        if (pending == null) {
+            return;
+        }
+        synchronized (pending) {
+            if (pending.attributeNames.remove(attributeName)
+                && pending.attributeNames.isEmpty()) {
+                pendings.remove(model, pending);
+            }
+        }
+    }
+
+    /**
+     * Determines if the lazy attribute of the model is still pending.
+     *
+     * @param model
+     *            the model
+     * @param attributeName
+     *            the attribute name
+     * @return whether the lazy attribute is still pending
+     */
+    public static boolean isPending(Object model, String attributeName) {
+        if (model == null || attributeName == null) {
+            return false;
+        }
+        Pending pending = pendings.get(model);
+        if (pending == null) {
+            return false;
+        }
+        synchronized (pending) {
+            return pending.attributeNames.contains(attributeName);
+        }
+    }
+
+    /**
+     * Decodes all the pending lazy attributes of the model.
+     *
+     * @param model
+     *            the model
+     */
+    public static void resolveAll(Object model) {
+        if (model == null) {
+            return;
+        }
+        Pending pending = pendings.get(model);
+        if (pending == null) {
+            return;
+        }
+        synchronized (pending) {
+            for (Iterator<String> i = pending.attributeNames.iterator(); i
+                .hasNext();) {
+                pending.modelMeta.decodeLazyAttribute(
+                    model,
+                    i.next(),
+                    pending.entity);
+                i.remove();
+            }
+            pendings.remove(model, pending);
+        }
+    }
+
+    /**
+     * Decodes all the pending lazy attributes of the value. If the value is a
+     * collection, a map or an array, the attributes of its elements are decoded
+     * as well.
+     *
+     * @param value
+     *            the value
+     */
+    public static void resolveAllIn(Object value) {
+        if (value == null || pendings.isEmpty()) {
+            return;
+        }
+        resolveAllIn(value, new IdentityHashMap<Object, Boolean>());
+    }
+
+    private static void resolveAllIn(Object value,
+            IdentityHashMap<Object, Boolean> visited) {
+        if (value == null || visited.put(value, Boolean.TRUE) != null) {
+            return;
+        }
+        if (value instanceof Collection<?>) {
+            for (Object element : (Collection<?>) value) {
+                resolveAllIn(element, visited);
+            }
+        } else if (value instanceof Map<?, ?>) {
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) value).entrySet()) {
+                resolveAllIn(e.getKey(), visited);
+                resolveAllIn(e.getValue(), visited);
+            }
+        } else if (value instanceof Object[]) {
+            for (Object element : (Object[]) value) {
+                resolveAllIn(element, visited);
+            }
+        } else if (!value.getClass().isArray()) {
+            resolveAll(value);
+        }
+    }
+
+    /**
+     * Defers decoding the lazy attributes of the model.
+     *
+     * @param modelMeta
+     *            the meta data of model
+     * @param model
+     *            the model
+     * @param entity
+     *            the entity
+     * @param attributeNames
+     *            the lazy attribute names
+     */
+    static void defer(ModelMeta<?> modelMeta, Object model, Entity entity,
+            String... attributeNames) {
+        if (attributeNames.length == 0) {
+            return;
+        }
+        Set<String> names = new HashSet<String>(attributeNames.length * 2);
+        for (String name : attributeNames) {
+            names.add(name);
+        }
+        pendings.put(model, new Pending(modelMeta, entity, names));
+    }
+
+    private LazyAttributeUtil() {
+    }
+
+    /**
+     * The pending attributes of a model.
+     */
+    private static final class Pending {
+
+        final ModelMeta<?> modelMeta;
+
+        final Entity entity;
+
+        final Set<String> attributeNames;
+
+        Pending(ModelMeta<?> modelMeta, Entity entity,
+                Set<String> attributeNames) {
+            this.modelMeta = modelMeta;
+            this.entity = entity;
+            this.attributeNames = attributeNames;
+        }
+    }
+}
@@ -58,4 +58,13 @@ public @interface Model {
      * The model listener.
      */
     Class<?> listener() default ModelListener.class;
+
+    /**
+     * Whether the binary codec is generated. If the value is true, the model
+     * is cached in memcache using the compact binary format instead of Java
+     * serialization.
+     *
+     * @since 1.0.18
+     */
+    boolean binaryCodec() default false;
 }
\ No newline at end of file
@@ -40,6 +40,11 @@ public class ModelIterator<M> implements Iterator<M> {
      */
     protected ModelMeta<M> modelMeta;
 
+    /**
+     * Whether the entities are the results of a projection query.
+     */
+    protected boolean partial;
+
     /**
      * Constructor.
      * 
@@ -73,6 +78,9 @@ public class ModelIterator<M> implements Iterator<M> {
         Entity entity = entityIterator.next();
         ModelMeta<M> mm = DatastoreUtil.getModelMeta(modelMeta, entity);
         M model = mm.entityToModel(entity);
+        if (partial) {
+            DatastoreUtil.markAsPartialModel(model);
+        }
         mm.postGet(model);
         return model;
     }
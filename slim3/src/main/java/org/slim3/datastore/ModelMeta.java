@@ -15,6 +15,9 @@
  */
 package org.slim3.datastore;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -212,6 +215,74 @@ public abstract class ModelMeta<M> {
      */
     public abstract Entity modelToEntity(Object model);
 
+    /**
+     * Determines if the binary codec is generated for this model. The binary
+     * codec is generated when {@link Model#binaryCodec()} is true.
+     * 
+     * @return whether the binary codec is generated for this model
+     * @since 1.0.18
+     */
+    public boolean isBinaryCodecSupported() {
+        return false;
+    }
+
+    /**
+     * Returns the hash of the names and the types of the persistent properties
+     * written by the binary codec. The hash is written ahead of the model, so
+     * a model written by another version of the codec can be detected.
+     * 
+     * @return the hash of the binary codec schema
+     * @throws UnsupportedOperationException
+     *             if the binary codec is not generated for this model
+     * @since 1.0.18
+     */
+    public long getBinaryCodecSchemaHash()
+            throws UnsupportedOperationException {
+        throw new UnsupportedOperationException("The binary codec of the model("
+            + modelClass.getName()
+            + ") is not generated.");
+    }
+
+    /**
+     * Writes the persistent properties of the model in a compact binary
+     * format.
+     * 
+     * @param model
+     *            the model
+     * @param out
+     *            the output
+     * @throws IOException
+     *             if an I/O error occurred
+     * @throws UnsupportedOperationException
+     *             if the binary codec is not generated for this model
+     * @since 1.0.18
+     */
+    public void writeTo(Object model, DataOutput out) throws IOException,
+            UnsupportedOperationException {
+        throw new UnsupportedOperationException("The binary codec of the model("
+            + modelClass.getName()
+            + ") is not generated.");
+    }
+
+    /**
+     * Reads a model written by {@link #writeTo(Object, DataOutput)}.
+     * 
+     * @param in
+     *            the input
+     * @return a model
+     * @throws IOException
+     *             if an I/O error occurred
+     * @throws UnsupportedOperationException
+     *             if the binary codec is not generated for this model
+     * @since 1.0.18
+     */
+    public M readFrom(DataInput in) throws IOException,
+            UnsupportedOperationException {
+        throw new UnsupportedOperationException("The binary codec of the model("
+            + modelClass.getName()
+            + ") is not generated.");
+    }
+
     /**
      * Converts the model to JSON string assuming maxDepth is 0.
      * 
@@ -997,6 +1068,88 @@ public abstract class ModelMeta<M> {
         return list;
     }
 
+    /**
+     * Writes the value for the binary codec.
+     * 
+     * @param out
+     *            the output
+     * @param value
+     *            the value
+     * @throws IOException
+     *             if an I/O error occurred
+     * @since 1.0.18
+     */
+    protected void writeValue(DataOutput out, Object value) throws IOException {
+        BinaryCodecUtil.writeValue(out, value);
+    }
+
+    /**
+     * Reads the value for the binary codec.
+     * 
+     * @param <T>
+     *            the type
+     * @param in
+     *            the input
+     * @return the value
+     * @throws IOException
+     *             if an I/O error occurred
+     * @since 1.0.18
+     */
+    protected <T> T readValue(DataInput in) throws IOException {
+        return BinaryCodecUtil.<T> readValue(in);
+    }
+
+    /**
+     * Decodes the lazy attribute from the entity and sets it to the model.
+     * This method is overridden by the generated meta class if the model has
+     * an attribute annotated with {@link Attribute#lazy()}.
+     *
+     * @param model
+     *            the model
+     * @param attributeName
+     *            the attribute name
+     * @param entity
+     *            the entity
+     * @throws IllegalArgumentException
+     *             if the attribute is not lazy
+     * @since 1.0.18
+     */
+    protected void decodeLazyAttribute(Object model, String attributeName,
+            Entity entity) throws IllegalArgumentException {
+        throw new IllegalArgumentException("The attribute("
+            + attributeName
+            + ") of the model("
+            + modelClass.getName()
+            + ") is not lazy.");
+    }
+
+    /**
+     * Defers decoding the lazy attributes until they are resolved.
+     *
+     * @param model
+     *            the model
+     * @param entity
+     *            the entity
+     * @param attributeNames
+     *            the lazy attribute names
+     * @since 1.0.18
+     */
+    protected void deferLazyAttributes(Object model, Entity entity,
+            String... attributeNames) {
+        LazyAttributeUtil.defer(this, model, entity, attributeNames);
+    }
+
+    /**
+     * Decodes all the pending lazy attributes of the model.
+     *
+     * @param model
+     *            the model
+     * @since 1.0.18
+     */
+    protected void resolveLazyAttributes(Object model) {
+        LazyAttributeUtil.resolveAll(model);
+    }
+
     /**
      * Returns the bean descriptor.
      * 
@@ -1010,6 +1163,26 @@ public abstract class ModelMeta<M> {
         return beanDesc;
     }
 
+    /**
+     * Returns the value of the attribute. The generated meta data overrides
+     * this method to call the read method of the model directly, so the
+     * in-memory criteria and sorts do not use reflection.
+     * 
+     * @param model
+     *            the model
+     * @param attributeMeta
+     *            the meta data of attribute
+     * @return the value of the attribute
+     * @throws IllegalArgumentException
+     *             if the property is not found
+     * @since 1.0.18
+     */
+    protected Object getAttributeValue(Object model,
+            AbstractAttributeMeta<?, ?> attributeMeta)
+            throws IllegalArgumentException {
+        return attributeMeta.getValueByPropertyDesc(model);
+    }
+
     /**
      * Determines if the property is cipher.
      * 
@@ -1075,4 +1248,28 @@ public abstract class ModelMeta<M> {
             return null;
         return new Text(decrypt(encryptedText.getValue()));
     }
+
+    /**
+     * Encrypt the texts with one cipher.
+     * 
+     * @param texts
+     *            the texts
+     * @return the encrypted texts
+     * @throws NullPointerException
+     *             if the texts parameter is null
+     * @since 1.0.18
+     */
+    protected List<String> encryptAll(List<String> texts)
+            throws NullPointerException {
+        if (texts == null) {
+            throw new NullPointerException(
+                "The texts parameter must not be null.");
+        }
+        Cipher c = CipherFactory.getFactory().createCipher();
+        List<String> list = new ArrayList<String>(texts.size());
+        for (String text : texts) {
+            list.add(c.encrypt(text));
+        }
+        return list;
+    }
 }
\ No newline at end of file
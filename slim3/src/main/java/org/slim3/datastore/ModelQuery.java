@@ -15,10 +15,14 @@
  */
 package org.slim3.datastore;
 
+import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 import org.slim3.util.ConversionUtil;
 
@@ -27,6 +31,7 @@ import com.google.appengine.api.datastore.Cursor;
 import com.google.appengine.api.datastore.Entity;
 import com.google.appengine.api.datastore.Key;
 import com.google.appengine.api.datastore.PreparedQuery;
+import com.google.appengine.api.datastore.PropertyProjection;
 import com.google.appengine.api.datastore.Query;
 import com.google.appengine.api.datastore.Query.FilterOperator;
 import com.google.appengine.api.datastore.QueryResultIterator;
@@ -61,6 +66,17 @@ public class ModelQuery<M> extends AbstractQuery<ModelQuery<M>> {
     protected List<InMemorySortCriterion> inMemorySortCriteria =
         new ArrayList<InMemorySortCriterion>();
 
+    /**
+     * The projected attributes.
+     */
+    protected List<CoreAttributeMeta<?, ?>> projections =
+        new ArrayList<CoreAttributeMeta<?, ?>>();
+
+    /**
+     * The number of the projections applied to the query.
+     */
+    protected int appliedProjectionCount = 0;
+
     /**
      * Constructor.
      * 
@@ -218,20 +234,72 @@ public class ModelQuery<M> extends AbstractQuery<ModelQuery<M>> {
         return this;
     }
 
+    /**
+     * Projects the attributes. Only the projected attributes are loaded from
+     * datastore and the other attributes of the returned models are left as
+     * the default values. The returned models are partial, so they cannot be
+     * put.
+     * 
+     * <p>
+     * The projected properties have to be indexed. If a projected property is
+     * multi-valued, the query returns a model for each value. The in-memory
+     * criteria can refer only to the projected attributes and the primary key.
+     * </p>
+     * 
+     * <p>
+     * A projection query does not return the class hierarchy of the entity,
+     * so a sub model and an abstract model cannot be projected. A query for
+     * the root model of a poly model returns the root model class.
+     * </p>
+     * 
+     * @param attributeMetas
+     *            the meta data of the projected attributes
+     * @return this instance
+     * @throws NullPointerException
+     *             if the element of the attributeMetas parameter is null
+     * @throws IllegalArgumentException
+     *             if the attribute is the primary key
+     * @throws IllegalStateException
+     *             if the model is a sub model or an abstract model
+     * @since 1.0.18
+     * @see DatastoreUtil#isPartialModel(Object)
+     */
+    public ModelQuery<M> project(CoreAttributeMeta<?, ?>... attributeMetas)
+            throws NullPointerException, IllegalArgumentException,
+            IllegalStateException {
+        if (!modelMeta.getClassHierarchyList().isEmpty()
+            || Modifier.isAbstract(modelMeta.getModelClass().getModifiers())) {
+            throw new IllegalStateException("The model("
+                + modelMeta.getModelClass().getName()
+                + ") is a poly model, so it cannot be projected.");
+        }
+        for (CoreAttributeMeta<?, ?> attributeMeta : attributeMetas) {
+            if (attributeMeta == null) {
+                throw new NullPointerException(
+                    "The element of the attributeMetas parameter must not be null.");
+            }
+            if (Entity.KEY_RESERVED_PROPERTY.equals(attributeMeta.getName())) {
+                throw new IllegalArgumentException(
+                    "The primary key cannot be projected. It is always loaded.");
+            }
+            projections.add(attributeMeta);
+        }
+        return this;
+    }
+
     /**
      * Returns the result as a list.
      * 
      * @return the result as a list
      */
     public List<M> asList() {
+        assertInMemoryCriteriaAreProjected();
         applyPolyModelFilter();
+        applyProjections();
         List<Entity> entityList = asEntityList();
         List<M> ret = new ArrayList<M>(entityList.size());
         for (Entity e : entityList) {
-            ModelMeta<M> mm = DatastoreUtil.getModelMeta(modelMeta, e);
-            M model = mm.entityToModel(e);
-            mm.postGet(model);
-            ret.add(model);
+            ret.add(toModel(e));
         }
         ret = DatastoreUtil.filterInMemory(ret, inMemoryFilterCriteria);
         return DatastoreUtil.sortInMemory(ret, inMemorySortCriteria);
@@ -252,6 +320,7 @@ public class ModelQuery<M> extends AbstractQuery<ModelQuery<M>> {
                 "In case of asQueryResultList(), you cannot specify sortInMemory().");
         }
         applyPolyModelFilter();
+        applyProjections();
         List<M> modelList = null;
         boolean hasNext = false;
         Cursor cursor = null;
@@ -259,10 +328,7 @@ public class ModelQuery<M> extends AbstractQuery<ModelQuery<M>> {
             QueryResultList<Entity> entityList = asQueryResultEntityList();
             modelList = new ArrayList<M>(entityList.size());
             for (Entity e : entityList) {
-                ModelMeta<M> mm = DatastoreUtil.getModelMeta(modelMeta, e);
-                M model = mm.entityToModel(e);
-                mm.postGet(model);
-                modelList.add(model);
+                modelList.add(toModel(e));
             }
             cursor = entityList.getCursor();
         } else {
@@ -276,11 +342,7 @@ public class ModelQuery<M> extends AbstractQuery<ModelQuery<M>> {
                     cursor = ite.getCursor();
                     break;
                 }
-                Entity e = ite.next();
-                ModelMeta<M> mm = DatastoreUtil.getModelMeta(modelMeta, e);
-                M model = mm.entityToModel(e);
-                mm.postGet(model);
-                modelList.add(model);
+                modelList.add(toModel(ite.next()));
             }
         }
         String cursorWebSafeString =
@@ -299,12 +361,16 @@ public class ModelQuery<M> extends AbstractQuery<ModelQuery<M>> {
      * @return a query result iterator
      */
     public S3QueryResultIterator<M> asQueryResultIterator() {
+        applyProjections();
         QueryResultIterator<Entity> iterator = asQueryResultEntityIterator();
-        return new S3QueryResultIterator<M>(
-            iterator,
-            modelMeta,
-            getEncodedFilter(),
-            getEncodedSorts());
+        S3QueryResultIterator<M> ret =
+            new S3QueryResultIterator<M>(
+                iterator,
+                modelMeta,
+                getEncodedFilter(),
+                getEncodedSorts());
+        ret.partial = !projections.isEmpty();
+        return ret;
     }
 
     /**
@@ -388,8 +454,11 @@ public class ModelQuery<M> extends AbstractQuery<ModelQuery<M>> {
                 "In case of asIterator(), you cannot specify sortInMemory().");
         }
         applyPolyModelFilter();
+        applyProjections();
         Iterator<Entity> entityIterator = asEntityIterator();
-        return new ModelIterator<M>(entityIterator, modelMeta);
+        ModelIterator<M> ret = new ModelIterator<M>(entityIterator, modelMeta);
+        ret.partial = !projections.isEmpty();
+        return ret;
     }
 
     /**
@@ -499,6 +568,105 @@ public class ModelQuery<M> extends AbstractQuery<ModelQuery<M>> {
         return super.count();
     }
 
+    /**
+     * Converts the entity to a model.
+     * 
+     * @param entity
+     *            the entity
+     * @return a model
+     */
+    protected M toModel(Entity entity) {
+        ModelMeta<M> mm = DatastoreUtil.getModelMeta(modelMeta, entity);
+        M model = mm.entityToModel(entity);
+        if (!projections.isEmpty()) {
+            DatastoreUtil.markAsPartialModel(model);
+        }
+        mm.postGet(model);
+        return model;
+    }
+
+    /**
+     * Applies the projections that are not applied yet to the query.
+     */
+    protected void applyProjections() {
+        while (appliedProjectionCount < projections.size()) {
+            CoreAttributeMeta<?, ?> attributeMeta =
+                projections.get(appliedProjectionCount++);
+            query.addProjection(new PropertyProjection(
+                attributeMeta.getName(),
+                toProjectionType(attributeMeta.getAttributeClass())));
+        }
+    }
+
+    /**
+     * Asserts that the in-memory criteria refer only to the projected
+     * attributes or the primary key. The other attributes of a partial model
+     * are not loaded.
+     * 
+     * @throws IllegalStateException
+     *             if an in-memory criterion refers to an attribute that is not
+     *             projected
+     */
+    protected void assertInMemoryCriteriaAreProjected()
+            throws IllegalStateException {
+        if (projections.isEmpty()) {
+            return;
+        }
+        Set<String> names = new HashSet<String>();
+        names.add(Entity.KEY_RESERVED_PROPERTY);
+        for (CoreAttributeMeta<?, ?> attributeMeta : projections) {
+            names.add(attributeMeta.getName());
+        }
+        List<Object> criteria = new ArrayList<Object>(inMemoryFilterCriteria);
+        criteria.addAll(inMemorySortCriteria);
+        for (Object c : criteria) {
+            String name =
+                c instanceof AbstractCriterion
+                    ? ((AbstractCriterion) c).attributeMeta.name
+                    : null;
+            if (name == null || !names.contains(name)) {
+                throw new IllegalStateException(
+                    "In case of project(), you cannot specify filterInMemory() or sortInMemory() for the attribute("
+                        + name
+                        + ") that is not projected.");
+            }
+        }
+    }
+
+    /**
+     * Returns the type of the projected property stored in datastore.
+     * 
+     * @param attributeClass
+     *            the attribute class
+     * @return the type of the projected property
+     */
+    protected Class<?> toProjectionType(Class<?> attributeClass) {
+        if (attributeClass == int.class
+            || attributeClass == Integer.class
+            || attributeClass == short.class
+            || attributeClass == Short.class
+            || attributeClass == long.class
+            || attributeClass == Long.class) {
+            return Long.class;
+        }
+        if (attributeClass == float.class
+            || attributeClass == Float.class
+            || attributeClass == double.class
+            || attributeClass == Double.class) {
+            return Double.class;
+        }
+        if (attributeClass == boolean.class) {
+            return Boolean.class;
+        }
+        if (Enum.class.isAssignableFrom(attributeClass)) {
+            return String.class;
+        }
+        if (Date.class.isAssignableFrom(attributeClass)) {
+            return Date.class;
+        }
+        return attributeClass;
+    }
+
     /**
      * Applies the criteria.
      * 
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.datastore;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A map that holds the keys weakly and compares them by identity. This class
+ * is used to attach state to models without touching the model classes. This
+ * class is thread-safe, and reading it takes no lock.
+ *
+ * @author agent
+ * @param <K>
+ *            the key type
+ * @param <V>
+ *            the value type
+ * @since 1.0.18
+ *
+ */
+final class WeakIdentityMap<K, V> {
+
+    private final ConcurrentHashMap<IdentityReference<K>, V> map =
+        new ConcurrentHashMap<IdentityReference<K>, V>();
+
+    private final ReferenceQueue<K> queue = new ReferenceQueue<K>();
+
+    /**
+     * Returns the value for the key.
+     *
+     * @param key
+     *            the key
+     * @return the value
+     */
+    V get(K key) {
+        if (map.isEmpty()) {
+            return null;
+        }
+        return map.get(new IdentityReference<K>(key, null));
+    }
+
+    /**
+     * Associates the value with the key.
+     *
+     * @param key
+     *            the key
+     * @param value
+     *            the value
+     */
+    void put(K key, V value) {
+        expungeStaleEntries();
+        map.put(new IdentityReference<K>(key, queue), value);
+    }
+
+    /**
+     * Removes the value for the key.
+     *
+     * @param key
+     *            the key
+     * @return the removed value
+     */
+    V remove(K key) {
+        if (map.isEmpty()) {
+            return null;
+        }
+        return map.remove(new IdentityReference<K>(key, null));
+    }
+
+    /**
+     * Removes the value for the key only if the key is mapped to the value.
+     *
+     * @param key
+     *            the key
+     * @param value
+     *            the value
+     * @return whether the value was removed
+     */
+    boolean remove(K key, V value) {
+        if (map.isEmpty()) {
+            return false;
+        }
+        return map.remove(new IdentityReference<K>(key, null), value);
+    }
+
+    /**
+     * Determines if this map is empty. The stale entries may be included.
+     *
+     * @return whether this map is empty
+     */
+    boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    /**
+     * Returns the number of the live entries.
+     *
+     * @return the number of the live entries
+     */
+    int size() {
+        expungeStaleEntries();
+        return map.size();
+    }
+
+    private void expungeStaleEntries() {
+        for (Reference<? extends K> ref; (ref = queue.poll()) != null;) {
+            map.remove(ref);
+        }
+    }
+
+    /**
+     * A weak reference that is compared by identity.
+     *
+     * @param <K>
+     *            the key type
+     */
+    private static final class IdentityReference<K> extends WeakReference<K> {
+
+        private final int hash;
+
+        IdentityReference(K key, ReferenceQueue<K> queue) {
+            super(key, queue);
+            hash = System.identityHashCode(key);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof IdentityReference<?>)) {
+                return false;
+            }
+            Object key = get();
+            return key != null
+                && key == ((IdentityReference<?>) obj).get();
+        }
+    }
+}
@@ -22,7 +22,10 @@ import java.lang.reflect.Method;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.text.ParseException;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
@@ -30,12 +33,18 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.slim3.controller.HotReloadingClassLoader;
+import org.slim3.datastore.LazyAttributeUtil;
 import org.slim3.util.CipherFactory;
 import org.slim3.util.ClassUtil;
+import org.slim3.util.Cleanable;
+import org.slim3.util.Cleaner;
+import org.slim3.util.IntegerUtil;
 import org.slim3.util.RequestLocator;
 import org.slim3.util.ResponseLocator;
 import org.slim3.util.ServletContextLocator;
 import org.slim3.util.StringUtil;
+import org.slim3.util.Timeline;
+import org.slim3.util.TimelineLocator;
 
 import com.google.gwt.user.client.rpc.IncompatibleRemoteServiceException;
 import com.google.gwt.user.client.rpc.RemoteService;
@@ -73,11 +82,84 @@ public class GWTServiceServlet extends RemoteServiceServlet {
         TYPE_NAMES.put("S", short.class);
     }
 
+    /**
+     * The key of the init parameter that specifies whether a service instance
+     * is shared by the calls. Set it to true only if all the services are
+     * stateless.
+     * 
+     * @since 1.0.18
+     */
+    public static final String SERVICE_SINGLETON_KEY =
+        "slim3.serviceSingleton";
+
+    /**
+     * The key of the init parameter that specifies the minimum number of the
+     * characters of the response payload that is compressed by gzip when the
+     * client accepts it. If it is not specified, the limit of GWT is used.
+     * 
+     * @since 1.0.18
+     */
+    public static final String GZIP_THRESHOLD_KEY = "slim3.gzipThreshold";
+
     /**
      * Whether the servlet context is set to {@link ServletContextLocator}.
      */
     protected boolean servletContextSet = false;
 
+    /**
+     * The minimum number of the characters of the response payload that is
+     * compressed by gzip, or a negative value to use the limit of GWT.
+     * 
+     * @since 1.0.18
+     */
+    protected int gzipThreshold = -1;
+
+    /**
+     * The histogram of the sizes of the response payloads.
+     * 
+     * @since 1.0.18
+     */
+    protected PayloadHistogram payloadHistogram = new PayloadHistogram();
+
+    /**
+     * Whether a service instance is shared by the calls.
+     * 
+     * @since 1.0.18
+     */
+    protected boolean serviceSingleton = false;
+
+    /**
+     * The cache of the classes. The key is the class name.
+     * 
+     * @since 1.0.18
+     */
+    protected final ConcurrentMap<String, Class<?>> classCache =
+        new ConcurrentHashMap<String, Class<?>>();
+
+    /**
+     * The cache of the service methods.
+     * 
+     * @since 1.0.18
+     */
+    protected final ConcurrentMap<MethodKey, Method> methodCache =
+        new ConcurrentHashMap<MethodKey, Method>();
+
+    /**
+     * The cache of the shared service instances. The key is the service
+     * class.
+     * 
+     * @since 1.0.18
+     */
+    protected final ConcurrentMap<Class<?>, Object> serviceCache =
+        new ConcurrentHashMap<Class<?>, Object>();
+
+    /**
+     * Whether the cleaner of the caches is registered.
+     * 
+     * @since 1.0.18
+     */
+    protected boolean cacheInitialized = false;
+
     private static SerializationPolicy loadHotSerializationPolicy(
             HttpServlet servlet, HttpServletRequest request,
             String moduleBaseURL, String strongName) {
@@ -173,6 +255,13 @@ public class GWTServiceServlet extends RemoteServiceServlet {
             ServletContextLocator.set(getServletContext());
             servletContextSet = true;
         }
+        serviceSingleton =
+            Boolean.parseBoolean(getInitParameter(SERVICE_SINGLETON_KEY));
+        Integer threshold =
+            IntegerUtil.toInteger(getInitParameter(GZIP_THRESHOLD_KEY));
+        if (threshold != null) {
+            gzipThreshold = threshold;
+        }
     }
 
     @Override
@@ -180,6 +269,7 @@ public class GWTServiceServlet extends RemoteServiceServlet {
         if (servletContextSet) {
             ServletContextLocator.set(null);
         }
+        clearCaches();
     }
 
     /**
@@ -211,6 +301,8 @@ public class GWTServiceServlet extends RemoteServiceServlet {
         }
         S3RPCRequest request = null;
         RPCRequest rpcRequest = null;
+        Timeline timeline = TimelineLocator.get();
+        long start = timeline != null ? System.nanoTime() : 0;
         try {
             CipherFactory.getFactory().clearLimitedKey();
             request = decodeRequest(payload);
@@ -219,10 +311,23 @@ public class GWTServiceServlet extends RemoteServiceServlet {
             Object result =
                 invoke(request.getService(), rpcRequest.getMethod(), rpcRequest
                     .getParameters());
-            return RPC.encodeResponseForSuccess(
-                rpcRequest.getMethod(),
-                result,
-                rpcRequest.getSerializationPolicy());
+            LazyAttributeUtil.resolveAllIn(result);
+            String response =
+                RPC.encodeResponseForSuccess(
+                    rpcRequest.getMethod(),
+                    result,
+                    rpcRequest.getSerializationPolicy());
+            recordPayload(rpcRequest.getMethod(), response);
+            if (timeline != null) {
+                Method method = rpcRequest.getMethod();
+                timeline.record(Timeline.RPC, method
+                    .getDeclaringClass()
+                    .getName()
+                    + "."
+                    + method.getName(), start, 0, payload.length()
+                    + response.length());
+            }
+            return response;
         } catch (IncompatibleRemoteServiceException ex) {
             log(
                 "An IncompatibleRemoteServiceException was thrown while processing this call.",
@@ -242,6 +347,43 @@ public class GWTServiceServlet extends RemoteServiceServlet {
         }
     }
 
+    /**
+     * Returns the histogram of the sizes of the response payloads.
+     * 
+     * @return the histogram of the sizes of the response payloads
+     * @since 1.0.18
+     */
+    public PayloadHistogram getPayloadHistogram() {
+        return payloadHistogram;
+    }
+
+    /**
+     * Records the size of the response payload to the histogram.
+     * 
+     * @param method
+     *            the service method
+     * @param responsePayload
+     *            the response payload
+     * @since 1.0.18
+     */
+    protected void recordPayload(Method method, String responsePayload) {
+        payloadHistogram.record(method.getDeclaringClass().getName()
+            + "."
+            + method.getName(), responsePayload.length());
+    }
+
+    @Override
+    protected boolean shouldCompressResponse(HttpServletRequest request,
+            HttpServletResponse response, String responsePayload) {
+        if (gzipThreshold < 0) {
+            return super.shouldCompressResponse(
+                request,
+                response,
+                responsePayload);
+        }
+        return responsePayload.length() >= gzipThreshold;
+    }
+
     /**
      * Returns RPC request.
      * 
@@ -300,7 +442,7 @@ public class GWTServiceServlet extends RemoteServiceServlet {
             }
             try {
                 Method method =
-                    serviceClass.getMethod(methodName, parameterTypes);
+                    getMethod(serviceClass, methodName, parameterTypes);
                 Object[] parameterValues = new Object[parameterTypes.length];
                 for (int i = 0; i < parameterValues.length; i++) {
                     parameterValues[i] =
@@ -424,10 +566,23 @@ public class GWTServiceServlet extends RemoteServiceServlet {
         if (clazz != null) {
             return clazz;
         }
+        boolean cacheable = isCacheable();
+        if (cacheable) {
+            clazz = classCache.get(className);
+            if (clazz != null) {
+                return clazz;
+            }
+        }
         try {
-            return Class.forName(className, false, Thread
-                .currentThread()
-                .getContextClassLoader());
+            clazz =
+                Class.forName(className, false, Thread
+                    .currentThread()
+                    .getContextClassLoader());
+            if (cacheable) {
+                registerCacheCleaner();
+                classCache.put(className, clazz);
+            }
+            return clazz;
         } catch (ClassNotFoundException e) {
             throw new IncompatibleRemoteServiceException(
                 "Could not load the class("
@@ -458,7 +613,37 @@ public class GWTServiceServlet extends RemoteServiceServlet {
     }
 
     /**
-     * Returns the service.
+     * Returns the service method.
+     * 
+     * @param serviceClass
+     *            the service class
+     * @param methodName
+     *            the method name
+     * @param parameterTypes
+     *            the parameter types
+     * @return the service method
+     * @throws NoSuchMethodException
+     *             if the method is not found
+     * @since 1.0.18
+     */
+    protected Method getMethod(Class<?> serviceClass, String methodName,
+            Class<?>[] parameterTypes) throws NoSuchMethodException {
+        if (!isCacheable()) {
+            return serviceClass.getMethod(methodName, parameterTypes);
+        }
+        MethodKey key = new MethodKey(serviceClass, methodName, parameterTypes);
+        Method method = methodCache.get(key);
+        if (method == null) {
+            method = serviceClass.getMethod(methodName, parameterTypes);
+            registerCacheCleaner();
+            methodCache.put(key, method);
+        }
+        return method;
+    }
+
+    /**
+     * Returns the service. A new instance is created for each call unless
+     * {@link #SERVICE_SINGLETON_KEY} is true.
      * 
      * @param serviceClass
      *            the class name
@@ -472,6 +657,112 @@ public class GWTServiceServlet extends RemoteServiceServlet {
             throw new NullPointerException(
                 "The serviceClass parameter is null.");
         }
-        return ClassUtil.newInstance(serviceClass);
+        if (!serviceSingleton || !isCacheable()) {
+            return ClassUtil.newInstance(serviceClass);
+        }
+        Object service = serviceCache.get(serviceClass);
+        if (service == null) {
+            registerCacheCleaner();
+            Object newService = ClassUtil.newInstance(serviceClass);
+            service = serviceCache.putIfAbsent(serviceClass, newService);
+            if (service == null) {
+                service = newService;
+            }
+        }
+        return service;
+    }
+
+    /**
+     * Determines if the classes and the services can be cached. The classes
+     * loaded by {@link HotReloadingClassLoader} are not cached.
+     * 
+     * @return whether the classes and the services can be cached
+     * @since 1.0.18
+     */
+    protected boolean isCacheable() {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        return !(loader instanceof HotReloadingClassLoader);
+    }
+
+    /**
+     * Registers the cleaner of the caches.
+     * 
+     * @since 1.0.18
+     */
+    protected synchronized void registerCacheCleaner() {
+        if (cacheInitialized) {
+            return;
+        }
+        Cleaner.add(new Cleanable() {
+            public void clean() {
+                clearCaches();
+            }
+        });
+        cacheInitialized = true;
+    }
+
+    /**
+     * Clears the caches.
+     * 
+     * @since 1.0.18
+     */
+    protected synchronized void clearCaches() {
+        classCache.clear();
+        methodCache.clear();
+        serviceCache.clear();
+        cacheInitialized = false;
+    }
+
+    /**
+     * A key of the service method.
+     * 
+     * @since 1.0.18
+     */
+    protected static final class MethodKey {
+
+        private final Class<?> serviceClass;
+
+        private final String methodName;
+
+        private final Class<?>[] parameterTypes;
+
+        private final int hashCode;
+
+        /**
+         * Constructor.
+         * 
+         * @param serviceClass
+         *            the service class
+         * @param methodName
+         *            the method name
+         * @param parameterTypes
+         *            the parameter types
+         */
+        public MethodKey(Class<?> serviceClass, String methodName,
+                Class<?>[] parameterTypes) {
+            this.serviceClass = serviceClass;
+            this.methodName = methodName;
+            this.parameterTypes = parameterTypes;
+            hashCode =
+                (serviceClass.hashCode() * 31 + methodName.hashCode())
+                    * 31
+                    + Arrays.hashCode(parameterTypes);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof MethodKey)) {
+                return false;
+            }
+            MethodKey o = (MethodKey) other;
+            return serviceClass == o.serviceClass
+                && methodName.equals(o.methodName)
+                && Arrays.equals(parameterTypes, o.parameterTypes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
     }
 }
\ No newline at end of file
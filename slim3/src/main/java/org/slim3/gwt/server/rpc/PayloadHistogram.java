@@ -0,0 +1,150 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.gwt.server.rpc;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of the sizes of the response payloads per service method. The
+ * sizes are counted by the number of characters in the buckets whose upper
+ * bounds are {@link #BOUNDS}, and the last bucket holds the larger payloads.
+ * 
+ * @author agent
+ * @since 1.0.18
+ * 
+ */
+public class PayloadHistogram {
+
+    /**
+     * The exclusive upper bounds of the buckets.
+     */
+    protected static final int[] BOUNDS =
+        { 1024, 4096, 16384, 65536, 262144, 1048576 };
+
+    /**
+     * The counts per service method.
+     */
+    protected final ConcurrentMap<String, AtomicLongArray> countsMap =
+        new ConcurrentHashMap<String, AtomicLongArray>();
+
+    /**
+     * Records the size of the payload.
+     * 
+     * @param name
+     *            the name of the service method
+     * @param size
+     *            the size of the payload
+     * @throws NullPointerException
+     *             if the name parameter is null
+     */
+    public void record(String name, int size) throws NullPointerException {
+        if (name == null) {
+            throw new NullPointerException("The name parameter is null.");
+        }
+        AtomicLongArray counts = countsMap.get(name);
+        if (counts == null) {
+            AtomicLongArray newCounts = new AtomicLongArray(BOUNDS.length + 1);
+            counts = countsMap.putIfAbsent(name, newCounts);
+            if (counts == null) {
+                counts = newCounts;
+            }
+        }
+        counts.incrementAndGet(getBucketIndex(size));
+    }
+
+    /**
+     * Returns the counts of the buckets for the service method.
+     * 
+     * @param name
+     *            the name of the service method
+     * @return the counts of the buckets or null if nothing is recorded
+     */
+    public long[] getCounts(String name) {
+        AtomicLongArray counts = countsMap.get(name);
+        if (counts == null) {
+            return null;
+        }
+        long[] result = new long[counts.length()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = counts.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the names of the recorded service methods.
+     * 
+     * @return the names of the recorded service methods
+     */
+    public Set<String> getNames() {
+        return Collections.unmodifiableSet(countsMap.keySet());
+    }
+
+    /**
+     * Returns the upper bounds of the buckets.
+     * 
+     * @return the upper bounds of the buckets
+     */
+    public int[] getBounds() {
+        return BOUNDS.clone();
+    }
+
+    /**
+     * Removes all the counts.
+     */
+    public void clear() {
+        countsMap.clear();
+    }
+
+    /**
+     * Returns the index of the bucket for the size.
+     * 
+     * @param size
+     *            the size of the payload
+     * @return the index of the bucket
+     */
+    protected int getBucketIndex(int size) {
+        for (int i = 0; i < BOUNDS.length; i++) {
+            if (size < BOUNDS[i]) {
+                return i;
+            }
+        }
+        return BOUNDS.length;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (String name : countsMap.keySet()) {
+            long[] counts = getCounts(name);
+            sb.append(name).append(':');
+            for (int i = 0; i < counts.length; i++) {
+                if (i < BOUNDS.length) {
+                    sb.append(" <").append(BOUNDS[i]);
+                } else {
+                    sb.append(" >=").append(BOUNDS[i - 1]);
+                }
+                sb.append('=').append(counts[i]);
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,342 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.jsp;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.slim3.util.BooleanUtil;
+import org.slim3.util.HtmlUtil;
+import org.slim3.util.StringUtil;
+
+/**
+ * A snapshot of the form values used by {@link Functions} while a page is
+ * rendered. The converted and escaped values are computed once per field and
+ * kept as long as the same attribute value is set to the request. Only the
+ * immutable values and the string arrays, which are compared with a copy, are
+ * kept, because a mutable value such as {@link java.util.Date} can be changed
+ * without being set again.
+ * 
+ * @author agent
+ * @since 1.0.18
+ * 
+ */
+public class FormState {
+
+    /**
+     * The key of the form state stored in the request.
+     */
+    protected static final String FORM_STATE_KEY = "slim3.formState";
+
+    /**
+     * The request.
+     */
+    protected HttpServletRequest request;
+
+    /**
+     * The fields.
+     */
+    protected Map<String, Field> fields = new HashMap<String, Field>();
+
+    /**
+     * Constructor.
+     * 
+     * @param request
+     *            the request
+     * @throws NullPointerException
+     *             if the request parameter is null
+     */
+    public FormState(HttpServletRequest request) throws NullPointerException {
+        if (request == null) {
+            throw new NullPointerException(
+                "The request parameter must not be null.");
+        }
+        this.request = request;
+    }
+
+    /**
+     * Returns the form state of the request. If the request has no form
+     * state, a new one is stored in the request.
+     * 
+     * @param request
+     *            the request
+     * @return the form state
+     * @throws NullPointerException
+     *             if the request parameter is null
+     */
+    public static FormState get(HttpServletRequest request)
+            throws NullPointerException {
+        if (request == null) {
+            throw new NullPointerException(
+                "The request parameter must not be null.");
+        }
+        FormState state = (FormState) request.getAttribute(FORM_STATE_KEY);
+        if (state == null) {
+            state = new FormState(request);
+            request.setAttribute(FORM_STATE_KEY, state);
+        }
+        return state;
+    }
+
+    /**
+     * Returns the field. If the attribute value has been changed, the field is
+     * created again.
+     * 
+     * @param name
+     *            the property name
+     * @return the field
+     * @throws NullPointerException
+     *             if the name parameter is null
+     */
+    public Field getField(String name) throws NullPointerException {
+        if (name == null) {
+            throw new NullPointerException(
+                "The name parameter must not be null.");
+        }
+        Object value = request.getAttribute(name);
+        Field field = fields.get(name);
+        if (field != null && field.isValidFor(value)) {
+            return field;
+        }
+        field = new Field(name, value);
+        if (isImmutable(value) || value instanceof String[]) {
+            fields.put(name, field);
+        } else {
+            fields.remove(name);
+        }
+        return field;
+    }
+
+    /**
+     * Determines if the value is immutable.
+     * 
+     * @param value
+     *            the value
+     * @return whether the value is immutable
+     */
+    protected static boolean isImmutable(Object value) {
+        if (value == null || value instanceof Enum<?>) {
+            return true;
+        }
+        Class<?> clazz = value.getClass();
+        return clazz == String.class
+            || clazz == Boolean.class
+            || clazz == Character.class
+            || clazz == Integer.class
+            || clazz == Long.class
+            || clazz == Short.class
+            || clazz == Byte.class
+            || clazz == Double.class
+            || clazz == Float.class
+            || clazz == BigDecimal.class
+            || clazz == BigInteger.class;
+    }
+
+    /**
+     * A field of the form.
+     */
+    public static class Field {
+
+        /**
+         * The property name.
+         */
+        protected String name;
+
+        /**
+         * The attribute value.
+         */
+        protected Object value;
+
+        /**
+         * The attribute value as string.
+         */
+        protected String stringValue;
+
+        /**
+         * Whether the string value is computed.
+         */
+        protected boolean stringValueComputed = false;
+
+        /**
+         * The text tag representation.
+         */
+        protected String textAttributes;
+
+        /**
+         * The checkbox tag representation.
+         */
+        protected String checkboxAttributes;
+
+        /**
+         * The values of the string array.
+         */
+        protected Set<String> arrayValues;
+
+        /**
+         * The copy of the string array or null if the attribute value is not
+         * a string array.
+         */
+        protected String[] arraySnapshot;
+
+        /**
+         * Constructor.
+         * 
+         * @param name
+         *            the property name
+         * @param value
+         *            the attribute value
+         */
+        public Field(String name, Object value) {
+            this.name = name;
+            this.value = value;
+            if (value instanceof String[]) {
+                arraySnapshot = ((String[]) value).clone();
+            }
+        }
+
+        /**
+         * Determines if this field is still valid for the attribute value.
+         * 
+         * @param value
+         *            the attribute value
+         * @return whether this field is still valid
+         */
+        public boolean isValidFor(Object value) {
+            if (this.value != value) {
+                return false;
+            }
+            return arraySnapshot == null
+                || Arrays.equals(arraySnapshot, (String[]) value);
+        }
+
+        /**
+         * Returns the attribute value.
+         * 
+         * @return the attribute value
+         */
+        public Object getValue() {
+            return value;
+        }
+
+        /**
+         * Returns the attribute value as string.
+         * 
+         * @return the attribute value as string
+         */
+        public String getStringValue() {
+            if (!stringValueComputed) {
+                stringValue = StringUtil.toString(value);
+                stringValueComputed = true;
+            }
+            return stringValue;
+        }
+
+        /**
+         * Returns the text tag representation.
+         * 
+         * @return the text tag representation
+         */
+        public String getTextAttributes() {
+            if (textAttributes == null) {
+                StringBuilder sb = new StringBuilder(name.length() + 32);
+                sb.append("name=\"").append(name).append("\" value=\"");
+                if (value instanceof String) {
+                    HtmlUtil.escape((String) value, sb);
+                } else {
+                    sb.append(Functions.h(value));
+                }
+                textAttributes = sb.append('"').toString();
+            }
+            return textAttributes;
+        }
+
+        /**
+         * Returns the checkbox tag representation.
+         * 
+         * @return the checkbox tag representation
+         */
+        public String getCheckboxAttributes() {
+            if (checkboxAttributes == null) {
+                StringBuilder sb = new StringBuilder(name.length() + 32);
+                sb.append("name=\"").append(name).append('"');
+                if (BooleanUtil.toPrimitiveBoolean(value)) {
+                    sb.append(" checked=\"checked\"");
+                }
+                checkboxAttributes = sb.toString();
+            }
+            return checkboxAttributes;
+        }
+
+        /**
+         * Determines if the string value equals the value.
+         * 
+         * @param other
+         *            the value
+         * @return whether the string value equals the value
+         */
+        public boolean isSelected(String other) {
+            String s = getStringValue();
+            return other == null ? s == null : other.equals(s);
+        }
+
+        /**
+         * Determines if the string array contains the value.
+         * 
+         * @param other
+         *            the value
+         * @param tagName
+         *            the tag name used in the error message
+         * @return whether the string array contains the value
+         * @throws IllegalStateException
+         *             if the property is not an array or if the property is
+         *             not a string array
+         */
+        public boolean contains(String other, String tagName)
+                throws IllegalStateException {
+            if (arrayValues == null) {
+                if (value == null) {
+                    arrayValues = Collections.emptySet();
+                } else {
+                    if (!value.getClass().isArray()) {
+                        throw new IllegalStateException("The "
+                            + tagName
+                            + " property("
+                            + name
+                            + ") must be an array.");
+                    }
+                    if (value.getClass().getComponentType() != String.class) {
+                        throw new IllegalStateException("The "
+                            + tagName
+                            + " property("
+                            + name
+                            + ") must be a string array.");
+                    }
+                    arrayValues =
+                        new HashSet<String>(Arrays.asList((String[]) value));
+                }
+            }
+            return arrayValues.contains(other);
+        }
+    }
+}
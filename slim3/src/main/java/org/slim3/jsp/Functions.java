@@ -15,10 +15,7 @@
  */
 package org.slim3.jsp;
 
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.TimeZone;
@@ -26,7 +23,6 @@ import java.util.TimeZone;
 import javax.servlet.http.HttpServletRequest;
 
 import org.slim3.controller.ControllerConstants;
-import org.slim3.util.BooleanUtil;
 import org.slim3.util.HtmlUtil;
 import org.slim3.util.LocaleLocator;
 import org.slim3.util.RequestLocator;
@@ -55,7 +51,9 @@ public final class Functions {
 
     private static String ARRAY_SUFFIX = "Array";
 
-    private static List<String> EMPTY_STRING_LIST = new ArrayList<String>(0);
+    private static String CHECKED = " checked=\"checked\"";
+
+    private static String SELECTED = " selected=\"selected\"";
 
     /**
      * Encodes the input object. If the object is a string, it is escaped as
@@ -97,19 +95,19 @@ public final class Functions {
         if (contextPath.length() > 1) {
             sb.append(contextPath);
         }
-        String path =
-            (String) request.getAttribute(ControllerConstants.BASE_PATH_KEY);
-        if (path == null) {
-            path = RequestUtil.getPath(request);
-        }
-        int pos = path.lastIndexOf('/');
-        path = path.substring(0, pos + 1);
-        if (empty) {
-            sb.append(path);
-        } else if (input.startsWith("/")) {
+        if (!empty && input.startsWith("/")) {
             sb.append(input);
         } else {
-            sb.append(path).append(input);
+            String path =
+                (String) request
+                    .getAttribute(ControllerConstants.BASE_PATH_KEY);
+            if (path == null) {
+                path = RequestUtil.getPath(request);
+            }
+            sb.append(path, 0, path.lastIndexOf('/') + 1);
+            if (!empty) {
+                sb.append(input);
+            }
         }
         return ResponseLocator.get().encodeURL(sb.toString());
     }
@@ -154,7 +152,19 @@ public final class Functions {
         if (StringUtil.isEmpty(input)) {
             return "";
         }
-        return input.replaceAll(" ", NBSP);
+        int index = input.indexOf(' ');
+        if (index < 0) {
+            return input;
+        }
+        int length = input.length();
+        StringBuilder sb = new StringBuilder(length + 16);
+        int start = 0;
+        while (index >= 0) {
+            sb.append(input, start, index).append(NBSP);
+            start = index + 1;
+            index = input.indexOf(' ', start);
+        }
+        return sb.append(input, start, length).toString();
     }
 
     /**
@@ -168,9 +178,34 @@ public final class Functions {
         if (StringUtil.isEmpty(input)) {
             return "";
         }
-        return input.replaceAll("\r\n", BR).replaceAll("\r", BR).replaceAll(
-            "\n",
-            BR);
+        int length = input.length();
+        int index = 0;
+        while (index < length) {
+            char c = input.charAt(index);
+            if (c == '\r' || c == '\n') {
+                break;
+            }
+            index++;
+        }
+        if (index == length) {
+            return input;
+        }
+        StringBuilder sb = new StringBuilder(length + 16);
+        sb.append(input, 0, index);
+        for (int i = index; i < length; i++) {
+            char c = input.charAt(i);
+            if (c == '\r') {
+                sb.append(BR);
+                if (i + 1 < length && input.charAt(i + 1) == '\n') {
+                    i++;
+                }
+            } else if (c == '\n') {
+                sb.append(BR);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
     }
 
     /**
@@ -206,12 +241,7 @@ public final class Functions {
                 + name
                 + ") must not end with \"Array\".");
         }
-        HttpServletRequest request = request();
-        return "name=\""
-            + name
-            + "\" value=\""
-            + h(request.getAttribute(name))
-            + "\"";
+        return formState().getField(name).getTextAttributes();
     }
 
     /**
@@ -242,13 +272,7 @@ public final class Functions {
                 + name
                 + ") must not end with \"Array\".");
         }
-        HttpServletRequest request = request();
-        return "name=\""
-            + name
-            + "\""
-            + (BooleanUtil.toPrimitiveBoolean(request.getAttribute(name))
-                ? " checked=\"checked\""
-                : "");
+        return formState().getField(name).getCheckboxAttributes();
     }
 
     /**
@@ -272,30 +296,9 @@ public final class Functions {
                 + name
                 + ") must end with \"Array\".");
         }
-        HttpServletRequest request = request();
-        Object o = request.getAttribute(name);
-        List<String> list = null;
-        if (o != null) {
-            if (!o.getClass().isArray()) {
-                throw new IllegalStateException("The multibox property("
-                    + name
-                    + ") must be an array.");
-            }
-            if (o.getClass().getComponentType() != String.class) {
-                throw new IllegalStateException("The multibox property("
-                    + name
-                    + ") must be a string array.");
-            }
-            list = Arrays.asList((String[]) o);
-        } else {
-            list = EMPTY_STRING_LIST;
-        }
-        return "name=\""
-            + name
-            + "\" value=\""
-            + h(value)
-            + "\""
-            + (list.contains(value) ? " checked=\"checked\"" : "");
+        boolean checked =
+            formState().getField(name).contains(value, "multibox");
+        return optionAttributes(name, value, checked ? CHECKED : null);
     }
 
     /**
@@ -316,16 +319,8 @@ public final class Functions {
                 + name
                 + ") must not end with \"Array\".");
         }
-        HttpServletRequest request = request();
-        String s = StringUtil.toString(request.getAttribute(name));
-        return "name=\""
-            + name
-            + "\" value=\""
-            + h(value)
-            + "\""
-            + (value == null && s == null || value != null && value.equals(s)
-                ? " checked=\"checked\""
-                : "");
+        boolean checked = formState().getField(name).isSelected(value);
+        return optionAttributes(name, value, checked ? CHECKED : null);
     }
 
     /**
@@ -346,14 +341,8 @@ public final class Functions {
                 + name
                 + ") must not end with \"Array\".");
         }
-        HttpServletRequest request = request();
-        String s = StringUtil.toString(request.getAttribute(name));
-        return "value=\""
-            + h(value)
-            + "\""
-            + (value == null && s == null || value != null && value.equals(s)
-                ? " selected=\"selected\""
-                : "");
+        boolean selected = formState().getField(name).isSelected(value);
+        return optionAttributes(null, value, selected ? SELECTED : null);
     }
 
     /**
@@ -377,28 +366,9 @@ public final class Functions {
                 + name
                 + ") must end with \"Array\".");
         }
-        HttpServletRequest request = request();
-        Object o = request.getAttribute(name);
-        List<String> list = null;
-        if (o != null) {
-            if (!o.getClass().isArray()) {
-                throw new IllegalStateException("The multiselect property("
-                    + name
-                    + ") must be an array.");
-            }
-            if (o.getClass().getComponentType() != String.class) {
-                throw new IllegalStateException("The multiselect property("
-                    + name
-                    + ") must be a string array.");
-            }
-            list = Arrays.asList((String[]) o);
-        } else {
-            list = EMPTY_STRING_LIST;
-        }
-        return "value=\""
-            + h(value)
-            + "\""
-            + (list.contains(value) ? " selected=\"selected\"" : "");
+        boolean selected =
+            formState().getField(name).contains(value, "multiselect");
+        return optionAttributes(null, value, selected ? SELECTED : null);
     }
 
     /**
@@ -483,6 +453,43 @@ public final class Functions {
         return "name=\"" + name + "\" value=\"" + s + "\"";
     }
 
+    /**
+     * Returns the form state of the current request.
+     * 
+     * @return the form state of the current request
+     * @throws IllegalStateException
+     *             if the current request does not exists
+     */
+    protected static FormState formState() throws IllegalStateException {
+        return FormState.get(request());
+    }
+
+    /**
+     * Returns the attributes of an option such as a radio button.
+     * 
+     * @param name
+     *            the property name or null if the name is not needed
+     * @param value
+     *            the value
+     * @param state
+     *            the checked or selected attribute or null
+     * @return the attributes of an option
+     */
+    protected static String optionAttributes(String name, String value,
+            String state) {
+        StringBuilder sb = new StringBuilder(64);
+        if (name != null) {
+            sb.append("name=\"").append(name).append("\" ");
+        }
+        sb.append("value=\"");
+        HtmlUtil.escape(value, sb);
+        sb.append('"');
+        if (state != null) {
+            sb.append(state);
+        }
+        return sb.toString();
+    }
+
     /**
      * Returns the current request.
      * 
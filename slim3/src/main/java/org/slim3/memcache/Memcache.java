@@ -17,8 +17,12 @@ package org.slim3.memcache;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import org.slim3.util.ClassUtil;
+import org.slim3.util.IntegerUtil;
+import org.slim3.util.WrapRuntimeException;
 
 import com.google.appengine.api.memcache.ConsistentErrorHandler;
 import com.google.appengine.api.memcache.Expiration;
@@ -36,9 +40,24 @@ import com.google.apphosting.api.ApiProxy.CapabilityDisabledException;
  */
 public final class Memcache {
 
+    /**
+     * The key of the serializer class name.
+     * 
+     * @since 1.0.18
+     */
+    public static final String SERIALIZER_KEY = "slim3.memcacheSerializer";
+
     private static Class<? extends MemcacheDelegate> delegateClass =
         MemcacheDelegate.class;
 
+    private static volatile boolean nearCacheInitialized = false;
+
+    private static volatile NearCache nearCache;
+
+    private static volatile MemcacheSerializer serializer;
+
+    private static volatile Integer compressionThreshold;
+
     /**
      * Empties the cache of all values. Statistics are not affected. Note that
      * clearAll() does not respect namespaces - this flushes the cache for every
@@ -189,6 +208,71 @@ public final class Memcache {
         return delegate().getAll(keys);
     }
 
+    /**
+     * Returns a previously-stored value asynchronously.
+     * 
+     * @param <T>
+     *            the return type
+     * 
+     * @param key
+     *            the key
+     * @return a previously-stored value represented as {@link Future}
+     * @throws IllegalArgumentException
+     *             if the key cannot be serialized
+     * @since 1.0.18
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Future<T> getAsync(Object key)
+            throws IllegalArgumentException {
+        return (Future<T>) delegate().getAsync(key);
+    }
+
+    /**
+     * Performs a get of multiple keys at once asynchronously.
+     * 
+     * @param keys
+     *            the keys.
+     * @return a mapping from keys to values of any entries found represented
+     *         as {@link Future}
+     * @throws NullPointerException
+     *             if the keys parameter is null
+     * @throws IllegalArgumentException
+     *             if the key cannot be serialized
+     * @since 1.0.18
+     */
+    public static Future<Map<Object, Object>> getAllAsync(Iterable<?> keys)
+            throws NullPointerException, IllegalArgumentException {
+        return delegate().getAllAsync(keys);
+    }
+
+    /**
+     * Returns the value computed by the callable and cached in memcache. The
+     * concurrent computations of the same key are merged into one, and the
+     * value is recomputed early before it expires. See
+     * {@link MemcacheDelegate#getOrCompute(Object, Expiration, Callable)}.
+     * 
+     * @param <T>
+     *            the value type
+     * @param key
+     *            the key
+     * @param expires
+     *            expiration time for the value, or null for no time-based
+     *            expiration
+     * @param callable
+     *            the callable to compute the value
+     * @return the value
+     * @throws NullPointerException
+     *             if the callable parameter is null
+     * @throws IllegalArgumentException
+     *             if the key or the value cannot be serialized
+     * @since 1.0.18
+     */
+    public static <T> T getOrCompute(Object key, Expiration expires,
+            Callable<T> callable) throws NullPointerException,
+            IllegalArgumentException {
+        return delegate().getOrCompute(key, expires, callable);
+    }
+
     /**
      * Atomically fetches, increments, and stores a given integral value.
      * "Integral" types are Byte, Short, Integer, Long, and in some cases String
@@ -343,6 +427,90 @@ public final class Memcache {
         return delegate().incrementAll(offsets, initialValue);
     }
 
+    /**
+     * Like normal increment, but increments a batch of separate keys
+     * asynchronously by the same delta.
+     * 
+     * @param keys
+     *            the keys
+     * @param delta
+     *            the size of the increment, positive or negative.
+     * @return mapping keys to their new values represented as {@link Future}
+     * @throws NullPointerException
+     *             if the keys parameter is null
+     * @throws IllegalArgumentException
+     *             if the key cannot be serialized
+     * @since 1.0.18
+     */
+    public static Future<Map<Object, Long>> incrementAllAsync(
+            Iterable<?> keys, long delta) throws NullPointerException,
+            IllegalArgumentException {
+        return delegate().incrementAllAsync(keys, delta);
+    }
+
+    /**
+     * Like normal increment, but increments a batch of separate keys
+     * asynchronously by the same delta and potentially sets a starting value.
+     * 
+     * @param keys
+     *            the keys
+     * @param delta
+     *            the size of the increment, positive or negative.
+     * @param initialValue
+     *            the value to insert into the cache if the key is not present
+     * @return mapping keys to their new values represented as {@link Future}
+     * @throws NullPointerException
+     *             if the keys parameter is null
+     * @throws IllegalArgumentException
+     *             if the key cannot be serialized
+     * @since 1.0.18
+     */
+    public static Future<Map<Object, Long>> incrementAllAsync(
+            Iterable<?> keys, long delta, long initialValue)
+            throws NullPointerException, IllegalArgumentException {
+        return delegate().incrementAllAsync(keys, delta, initialValue);
+    }
+
+    /**
+     * Like normal increment, but accepts a mapping of separate controllable
+     * offsets for each key individually and increments them asynchronously.
+     * 
+     * @param offsets
+     *            the offsets
+     * @return mapping keys to their new values represented as {@link Future}
+     * @throws NullPointerException
+     *             if the offsets parameter is null
+     * @throws IllegalArgumentException
+     *             if the key cannot be serialized
+     * @since 1.0.18
+     */
+    public static Future<Map<Object, Long>> incrementAllAsync(
+            Map<Object, Long> offsets) throws NullPointerException,
+            IllegalArgumentException {
+        return delegate().incrementAllAsync(offsets);
+    }
+
+    /**
+     * Like normal increment, but accepts a mapping of separate controllable
+     * offsets for each key individually and increments them asynchronously.
+     * 
+     * @param offsets
+     *            the offsets
+     * @param initialValue
+     *            the value to insert into the cache if the key is not present
+     * @return mapping keys to their new values represented as {@link Future}
+     * @throws NullPointerException
+     *             if the offsets parameter is null
+     * @throws IllegalArgumentException
+     *             if the key cannot be serialized
+     * @since 1.0.18
+     */
+    public static Future<Map<Object, Long>> incrementAllAsync(
+            Map<Object, Long> offsets, long initialValue)
+            throws NullPointerException, IllegalArgumentException {
+        return delegate().incrementAllAsync(offsets, initialValue);
+    }
+
     /**
      * A convenience shortcut, equivalent to put(key, value, null,
      * SetPolicy.SET_ALWAYS).
@@ -482,6 +650,74 @@ public final class Memcache {
         return delegate().putAll(values, expires, policy);
     }
 
+    /**
+     * Stores the values asynchronously. This is a convenience shortcut,
+     * equivalent to putAllAsync(values, null, SetPolicy.SET_ALWAYS).
+     * 
+     * @param values
+     *            key/value mappings for new entries to add to the cache
+     * @return the set of keys for which entries were created represented as
+     *         {@link Future}
+     * @throws NullPointerException
+     *             if the values parameter is null
+     * @throws IllegalArgumentException
+     *             if the key or the value cannot be serialized
+     * @since 1.0.18
+     */
+    public static Future<Set<Object>> putAllAsync(Map<Object, Object> values)
+            throws NullPointerException, IllegalArgumentException {
+        return delegate().putAllAsync(values);
+    }
+
+    /**
+     * Stores the values asynchronously. This is a convenience shortcut,
+     * equivalent to putAllAsync(values, expires, SetPolicy.SET_ALWAYS).
+     * 
+     * @param values
+     *            key/value mappings for new entries to add to the cache
+     * @param expires
+     *            expiration time for the new values, or null for no time-based
+     *            expiration
+     * @return the set of keys for which entries were created represented as
+     *         {@link Future}
+     * @throws NullPointerException
+     *             if the values parameter is null
+     * @throws IllegalArgumentException
+     *             if the key or the value cannot be serialized
+     * @since 1.0.18
+     */
+    public static Future<Set<Object>> putAllAsync(Map<Object, Object> values,
+            Expiration expires) throws NullPointerException,
+            IllegalArgumentException {
+        return delegate().putAllAsync(values, expires);
+    }
+
+    /**
+     * A batch-processing variant of put that stores the values
+     * asynchronously.
+     * 
+     * @param values
+     *            key/value mappings for new entries to add to the cache
+     * @param expires
+     *            expiration time for the new values, or null for no time-based
+     *            expiration
+     * @param policy
+     *            what to do if the entry is or is not already present
+     * @return the set of keys for which entries were created represented as
+     *         {@link Future}
+     * @throws NullPointerException
+     *             if the values parameter is null or if the policy parameter is
+     *             null
+     * @throws IllegalArgumentException
+     *             if the key or the value cannot be serialized
+     * @since 1.0.18
+     */
+    public static Future<Set<Object>> putAllAsync(Map<Object, Object> values,
+            Expiration expires, SetPolicy policy) throws NullPointerException,
+            IllegalArgumentException {
+        return delegate().putAllAsync(values, expires, policy);
+    }
+
     /**
      * Sets the current error handler.
      * 
@@ -499,7 +735,8 @@ public final class Memcache {
     /**
      * Returns some statistics about the cache and its usage. Note that
      * statistics() does not respect namespaces - this will return stats for
-     * every namespace. The response will never be null.
+     * every namespace. The response will never be null. The response is
+     * {@link S3Stats} that includes the hit ratio of the near cache.
      * 
      * @return some statistics
      */
@@ -537,6 +774,148 @@ public final class Memcache {
         return old;
     }
 
+    /**
+     * Returns the near cache.
+     * 
+     * @return the near cache or null if the near cache is not enabled
+     * @since 1.0.18
+     */
+    public static NearCache nearCache() {
+        if (!nearCacheInitialized) {
+            nearCache = NearCache.fromSystemProperties();
+            nearCacheInitialized = true;
+        }
+        return nearCache;
+    }
+
+    /**
+     * Sets the near cache and returns the old one. If the nearCache parameter
+     * is null, the near cache is disabled.
+     * 
+     * @param nearCache
+     *            the near cache
+     * @return the old near cache
+     * @since 1.0.18
+     */
+    public static NearCache nearCache(NearCache nearCache) {
+        NearCache old = nearCache();
+        Memcache.nearCache = nearCache;
+        return old;
+    }
+
+    /**
+     * Returns the serializer. If no serializer is set, the class specified by
+     * the "slim3.memcacheSerializer" system property is instantiated.
+     * 
+     * @return the serializer
+     * @throws IllegalStateException
+     *             if the class specified by the system property is not a
+     *             {@link MemcacheSerializer}
+     * @throws WrapRuntimeException
+     *             if the class specified by the system property cannot be
+     *             instantiated
+     * @since 1.0.18
+     */
+    public static MemcacheSerializer serializer()
+            throws IllegalStateException, WrapRuntimeException {
+        MemcacheSerializer s = serializer;
+        if (s == null) {
+            s = newSerializer();
+            serializer = s;
+        }
+        return s;
+    }
+
+    /**
+     * Sets the serializer and returns the old one.
+     * 
+     * @param serializer
+     *            the serializer
+     * @return the old serializer
+     * @throws NullPointerException
+     *             if the serializer parameter is null
+     * @since 1.0.18
+     */
+    public static MemcacheSerializer serializer(MemcacheSerializer serializer)
+            throws NullPointerException {
+        if (serializer == null) {
+            throw new NullPointerException(
+                "The serializer parameter must not be null.");
+        }
+        MemcacheSerializer old = Memcache.serializer;
+        Memcache.serializer = serializer;
+        return old;
+    }
+
+    /**
+     * Creates the serializer specified by the "slim3.memcacheSerializer"
+     * system property.
+     * 
+     * @return the serializer
+     * @throws IllegalStateException
+     *             if the class specified by the system property is not a
+     *             {@link MemcacheSerializer}
+     * @throws WrapRuntimeException
+     *             if the class specified by the system property cannot be
+     *             instantiated
+     * @since 1.0.18
+     */
+    protected static MemcacheSerializer newSerializer()
+            throws IllegalStateException, WrapRuntimeException {
+        String className =
+            System.getProperty(
+                SERIALIZER_KEY,
+                S3MemcacheSerializer.class.getName());
+        Class<?> clazz = ClassUtil.forName(className);
+        if (!MemcacheSerializer.class.isAssignableFrom(clazz)) {
+            throw new IllegalStateException("The class("
+                + className
+                + ") specified by the system property("
+                + SERIALIZER_KEY
+                + ") does not implement "
+                + MemcacheSerializer.class.getName()
+                + ".");
+        }
+        return ClassUtil.newInstance(clazz);
+    }
+
+    /**
+     * Returns the minimum length of a serialized value that is compressed. If
+     * no threshold is set, the "slim3.memcacheCompressionThreshold" system
+     * property is read.
+     * 
+     * @return the minimum length of a serialized value that is compressed
+     * @throws NumberFormatException
+     *             if the system property is not a number
+     * @since 1.0.18
+     */
+    public static int compressionThreshold() throws NumberFormatException {
+        Integer threshold = compressionThreshold;
+        if (threshold == null) {
+            threshold =
+                IntegerUtil.toPrimitiveInt(System
+                    .getProperty(MemcacheDelegate.COMPRESSION_THRESHOLD_KEY));
+            compressionThreshold = threshold;
+        }
+        return threshold;
+    }
+
+    /**
+     * Sets the minimum length of a serialized value that is compressed and
+     * returns the old one. If the threshold parameter is null, the system
+     * property is read again.
+     * 
+     * @param threshold
+     *            the minimum length of a serialized value that is compressed
+     * @return the old threshold
+     * @since 1.0.18
+     */
+    public static int compressionThreshold(Integer threshold) {
+        int old = compressionThreshold();
+        compressionThreshold = threshold;
+        return old;
+    }
+
     /**
      * Creates a {@link MemcacheDelegate}.
      * 
@@ -15,18 +15,39 @@
  */
 package org.slim3.memcache;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Logger;
 
+import org.slim3.util.FakeFuture;
+import org.slim3.util.ThrowableUtil;
+import org.slim3.util.Timeline;
+import org.slim3.util.TimelineLocator;
+
 import com.google.appengine.api.NamespaceManager;
+import com.google.appengine.api.memcache.AsyncMemcacheService;
 import com.google.appengine.api.memcache.ConsistentErrorHandler;
 import com.google.appengine.api.memcache.Expiration;
 import com.google.appengine.api.memcache.InvalidValueException;
@@ -52,6 +73,79 @@ import com.google.apphosting.api.ApiProxy.CapabilityDisabledException;
  */
 public class MemcacheDelegate {
 
+    /**
+     * The key of the minimum length of a serialized value that is compressed.
+     * If the property is not set or the value is not positive, no value is
+     * compressed.
+     * 
+     * <p>
+     * A compressed value is stored with
+     * {@link S3MemcacheSerialization#COMPRESSED}, which only this version of
+     * Slim3 can read. An older version of Slim3 fails to read it, and
+     * MemcacheService of the SDK returns the compressed bytes, so set this
+     * property only after all the instances that share memcache are updated.
+     * </p>
+     * 
+     * @since 1.0.18
+     */
+    public static final String COMPRESSION_THRESHOLD_KEY =
+        "slim3.memcacheCompressionThreshold";
+
+    /**
+     * The default maximum length of a chunk. A larger value is split into
+     * chunks so that each item fits in the item size limit of memcache.
+     * 
+     * <p>
+     * The manifest of the chunks is stored with
+     * {@link S3MemcacheSerialization#CHUNKED}, which an older version of
+     * Slim3 and MemcacheService of the SDK cannot read. Such a value could not
+     * be stored at all without the chunks.
+     * </p>
+     * 
+     * @since 1.0.18
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1000 * 1000;
+
+    /**
+     * The prefix of the keys of chunks.
+     * 
+     * @since 1.0.18
+     */
+    protected static final String CHUNK_KEY_PREFIX = "slim3.chunk.";
+
+    /**
+     * The default factor of the early refresh. The larger the value is, the
+     * earlier a value is recomputed before it expires.
+     * 
+     * @since 1.0.18
+     */
+    public static final double DEFAULT_REFRESH_BETA = 1.0;
+
+    /**
+     * The default time(milliseconds) for which a lease to compute a value is
+     * held.
+     * 
+     * @since 1.0.18
+     */
+    public static final int DEFAULT_LEASE_MILLIS = 10 * 1000;
+
+    /**
+     * The default maximum time(milliseconds) to wait for the value computed by
+     * another instance. After that, the value is computed locally.
+     * 
+     * @since 1.0.18
+     */
+    public static final long DEFAULT_MAX_WAIT_MILLIS = 2 * 1000;
+
+    /**
+     * The computations running in this process.
+     * 
+     * @since 1.0.18
+     */
+    protected static final ConcurrentMap<NearCache.EntryKey, FutureTask<Object>>
+        computations =
+            new ConcurrentHashMap<NearCache.EntryKey, FutureTask<Object>>();
+
     private static final Logger logger =
         Logger.getLogger(MemcacheDelegate.class.getName());
 
@@ -60,12 +154,105 @@ public class MemcacheDelegate {
      */
     protected MemcacheService ms;
 
+    /**
+     * The asynchronous memcache service, which is created by
+     * {@link #asyncService()} when it is used first.
+     * 
+     * @since 1.0.18
+     */
+    protected AsyncMemcacheService ams;
+
+    /**
+     * The near cache.
+     * 
+     * @since 1.0.18
+     */
+    protected NearCache nearCache;
+
+    /**
+     * The serializer.
+     * 
+     * @since 1.0.18
+     */
+    protected MemcacheSerializer serializer;
+
+    /**
+     * The minimum length of a serialized value that is compressed. If the
+     * value is not positive, no value is compressed.
+     * 
+     * @since 1.0.18
+     */
+    protected int compressionThreshold;
+
+    /**
+     * The maximum length of a chunk.
+     * 
+     * @since 1.0.18
+     */
+    protected int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    /**
+     * The factor of the early refresh.
+     * 
+     * @since 1.0.18
+     */
+    protected double refreshBeta = DEFAULT_REFRESH_BETA;
+
+    /**
+     * The time(milliseconds) for which a lease to compute a value is held.
+     * 
+     * @since 1.0.18
+     */
+    protected int leaseMillis = DEFAULT_LEASE_MILLIS;
+
+    /**
+     * The first interval(milliseconds) to poll the value computed by another
+     * instance. The interval is doubled after each poll.
+     * 
+     * @since 1.0.18
+     */
+    protected long pollMillis = 50;
+
+    /**
+     * The maximum interval(milliseconds) to poll the value computed by another
+     * instance.
+     * 
+     * @since 1.0.18
+     */
+    protected long maxPollMillis = 800;
+
+    /**
+     * The maximum time(milliseconds) to wait for the value computed by
+     * another instance.
+     * 
+     * @since 1.0.18
+     */
+    protected long maxWaitMillis = DEFAULT_MAX_WAIT_MILLIS;
+
     /**
      * Constructor.
      */
     public MemcacheDelegate() {
         ms = MemcacheServiceFactory.getMemcacheService();
         ms.setErrorHandler(new S3ErrorHandler());
+        nearCache = Memcache.nearCache();
+        serializer = Memcache.serializer();
+        compressionThreshold = Memcache.compressionThreshold();
+    }
+
+    /**
+     * Returns the asynchronous memcache service. It is created when it is
+     * used first, with the same error handler as the memcache service.
+     * 
+     * @return the asynchronous memcache service
+     * @since 1.0.18
+     */
+    protected AsyncMemcacheService asyncService() {
+        if (ams == null) {
+            ams = MemcacheServiceFactory.getAsyncMemcacheService();
+            ams.setErrorHandler(ms.getErrorHandler());
+        }
+        return ams;
     }
 
     /**
@@ -78,6 +265,9 @@ public class MemcacheDelegate {
      */
     public void cleanAll() throws CapabilityDisabledException {
         ms.clearAll();
+        if (nearCache != null) {
+            nearCache.clear();
+        }
     }
 
     /**
@@ -109,7 +299,9 @@ public class MemcacheDelegate {
      */
     public boolean delete(Object key) throws IllegalArgumentException,
             CapabilityDisabledException {
-        return ms.delete(key);
+        boolean deleted = ms.delete(key);
+        invalidate(key);
+        return deleted;
     }
 
     /**
@@ -133,7 +325,9 @@ public class MemcacheDelegate {
      */
     public boolean delete(Object key, long millisNoReAdd)
             throws IllegalArgumentException, CapabilityDisabledException {
-        return ms.delete(key, millisNoReAdd);
+        boolean deleted = ms.delete(key, millisNoReAdd);
+        invalidate(key);
+        return deleted;
     }
 
     /**
@@ -154,7 +348,9 @@ public class MemcacheDelegate {
     public Set<Object> deleteAll(Iterable<?> keys) throws NullPointerException,
             IllegalArgumentException, CapabilityDisabledException {
         Collection<Object> keys2 = toCollection(keys);
-        return ms.deleteAll(keys2);
+        Set<Object> deleted = ms.deleteAll(keys2);
+        invalidateAll(keys2);
+        return deleted;
     }
 
     /**
@@ -179,7 +375,9 @@ public class MemcacheDelegate {
             throws NullPointerException, IllegalArgumentException,
             CapabilityDisabledException {
         Collection<Object> keys2 = toCollection(keys);
-        return ms.deleteAll(keys2, millisNoReAdd);
+        Set<Object> deleted = ms.deleteAll(keys2, millisNoReAdd);
+        invalidateAll(keys2);
+        return deleted;
     }
 
     /**
@@ -212,25 +410,36 @@ public class MemcacheDelegate {
      *             if the key cannot be serialized
      */
     @SuppressWarnings("deprecation")
-	protected Object getInternal(Object key) {
-        MemcacheServicePb.MemcacheGetResponse.Builder response =
-            MemcacheServicePb.MemcacheGetResponse.newBuilder();
-        MemcacheServicePb.MemcacheGetRequest request;
+    protected Object getInternal(Object key) {
+        String namespace = getNamespace();
+        byte keybytes[];
         try {
-            request =
-                MemcacheServicePb.MemcacheGetRequest
-                    .newBuilder()
-                    .setNameSpace(getNamespace())
-                    .addKey(
-                        ByteString.copyFrom(MemcacheSerialization
-                            .makePbKey(key)))
-                    .build();
+            keybytes = MemcacheSerialization.makePbKey(key);
         } catch (IOException ex) {
             throw new IllegalArgumentException(
                 (new StringBuilder()).append("Cannot use as a key: '").append(
                     key).append("'").toString(),
                 ex);
         }
+        if (nearCache != null) {
+            NearCache.Entry entry = nearCache.get(namespace, keybytes);
+            if (entry != null) {
+                try {
+                    return entry.getValue(serializer);
+                } catch (Exception ignore) {
+                    nearCache.remove(namespace, keybytes);
+                }
+            }
+        }
+        long[] versions = nearCache != null ? nearCache.getVersions() : null;
+        MemcacheServicePb.MemcacheGetResponse.Builder response =
+            MemcacheServicePb.MemcacheGetResponse.newBuilder();
+        MemcacheServicePb.MemcacheGetRequest request =
+            MemcacheServicePb.MemcacheGetRequest
+                .newBuilder()
+                .setNameSpace(namespace)
+                .addKey(ByteString.copyFrom(keybytes))
+                .build();
         if (!makeSyncCall("Get", request, response, (new StringBuilder())
             .append("Memcache get: exception getting 1 key (")
             .append(key)
@@ -241,9 +450,25 @@ public class MemcacheDelegate {
             return null;
         MemcacheServicePb.MemcacheGetResponse.Item item = response.getItem(0);
         try {
-            return S3MemcacheSerialization.deserialize(item
-                .getValue()
-                .toByteArray(), item.getFlags());
+            S3MemcacheSerialization.ValueAndFlags vaf =
+                decode(namespace, item.getValue().toByteArray(), item
+                    .getFlags());
+            if (vaf == null) {
+                return null;
+            }
+            Object obj = serializer.deserialize(vaf.value, vaf.flags);
+            if (nearCache != null) {
+                nearCache.put(
+                    namespace,
+                    keybytes,
+                    vaf.value,
+                    vaf.flags,
+                    serializer.isImmutable(obj) ? obj : null,
+                    versions);
+            }
+            return obj;
+        } catch (SchemaMismatchException ex) {
+            return null;
         } catch (ClassNotFoundException ex) {
             ms.getErrorHandler().handleDeserializationError(
                 new InvalidValueException((new StringBuilder()).append(
@@ -309,20 +534,427 @@ public class MemcacheDelegate {
      * @throws IllegalArgumentException
      *             if the key cannot be serialized
      */
-    @SuppressWarnings({ "unchecked", "rawtypes", "deprecation" })
     protected Map<Object, Object> getAllInternal(Iterable<?> keys)
             throws NullPointerException, IllegalArgumentException {
         if (keys == null) {
             throw new NullPointerException(
                 "The keys parameter must not be null.");
         }
+        String namespace = getNamespace();
+        Map<Object, Object> hits = null;
+        if (nearCache != null) {
+            List<Object> misses = new ArrayList<Object>();
+            hits = getAllFromNearCache(namespace, keys, misses);
+            if (misses.isEmpty()) {
+                return hits;
+            }
+            keys = misses;
+        }
+        long[] versions = nearCache != null ? nearCache.getVersions() : null;
         MemcacheServicePb.MemcacheGetResponse.Builder response =
             MemcacheServicePb.MemcacheGetResponse.newBuilder();
-        MemcacheServicePb.MemcacheGetRequest.Builder requestBuilder =
-            MemcacheServicePb.MemcacheGetRequest.newBuilder().setNameSpace(
-                getNamespace());
         Map<CacheKey, Object> cacheKeyToObjectKey =
             new HashMap<CacheKey, Object>();
+        if (!makeSyncCall(
+            "Get",
+            createGetRequest(namespace, keys, cacheKeyToObjectKey),
+            response,
+            "Memcache get: exception getting multiple keys")) {
+            if (hits != null) {
+                return hits;
+            }
+            return Collections.emptyMap();
+        }
+        return toValues(
+            namespace,
+            response,
+            cacheKeyToObjectKey,
+            hits,
+            versions);
+    }
+
+    /**
+     * Returns a previously-stored value asynchronously. The value is
+     * deserialized by {@link MemcacheSerializer} when
+     * {@link Future#get()} is called.
+     * 
+     * @param key
+     *            the key
+     * @return a previously-stored value represented as {@link Future}
+     * @throws IllegalArgumentException
+     *             if the key cannot be serialized
+     * @since 1.0.18
+     */
+    public Future<Object> getAsync(final Object key)
+            throws IllegalArgumentException {
+        final String namespace = getNamespace();
+        if (nearCache != null) {
+            Map<Object, Object> hits =
+                getAllFromNearCache(
+                    namespace,
+                    Collections.singletonList(key),
+                    new ArrayList<Object>());
+            if (!hits.isEmpty()) {
+                return new FakeFuture<Object>(hits.get(key));
+            }
+        }
+        final long[] versions =
+            nearCache != null ? nearCache.getVersions() : null;
+        final MemcacheServicePb.MemcacheGetResponse.Builder response =
+            MemcacheServicePb.MemcacheGetResponse.newBuilder();
+        final Map<CacheKey, Object> cacheKeyToObjectKey =
+            new HashMap<CacheKey, Object>();
+        return new MemcacheFuture<Object>(
+            "Get",
+            createGetRequest(
+                namespace,
+                Collections.singletonList(key),
+                cacheKeyToObjectKey),
+            response,
+            (new StringBuilder())
+                .append("Memcache get: exception getting 1 key (")
+                .append(key)
+                .append(")")
+                .toString(),
+            null) {
+
+            @Override
+            protected Object convert() {
+                Map<Object, Object> values =
+                    toValues(
+                        namespace,
+                        response,
+                        cacheKeyToObjectKey,
+                        null,
+                        versions);
+                return values != null ? values.get(key) : null;
+            }
+        };
+    }
+
+    /**
+     * Performs a get of multiple keys at once asynchronously. The values are
+     * deserialized by {@link MemcacheSerializer} when
+     * {@link Future#get()} is called.
+     * 
+     * @param keys
+     *            the keys.
+     * @return a mapping from keys to values represented as {@link Future}
+     * @throws NullPointerException
+     *             if the keys parameter is null
+     * @throws IllegalArgumentException
+     *             if the key cannot be serialized
+     * @since 1.0.18
+     */
+    public Future<Map<Object, Object>> getAllAsync(Iterable<?> keys)
+            throws NullPointerException, IllegalArgumentException {
+        if (keys == null) {
+            throw new NullPointerException(
+                "The keys parameter must not be null.");
+        }
+        final String namespace = getNamespace();
+        Map<Object, Object> nearCacheHits = null;
+        if (nearCache != null) {
+            List<Object> misses = new ArrayList<Object>();
+            nearCacheHits = getAllFromNearCache(namespace, keys, misses);
+            if (misses.isEmpty()) {
+                return new FakeFuture<Map<Object, Object>>(nearCacheHits);
+            }
+            keys = misses;
+        }
+        final Map<Object, Object> hits = nearCacheHits;
+        final long[] versions =
+            nearCache != null ? nearCache.getVersions() : null;
+        final MemcacheServicePb.MemcacheGetResponse.Builder response =
+            MemcacheServicePb.MemcacheGetResponse.newBuilder();
+        final Map<CacheKey, Object> cacheKeyToObjectKey =
+            new HashMap<CacheKey, Object>();
+        return new MemcacheFuture<Map<Object, Object>>(
+            "Get",
+            createGetRequest(namespace, keys, cacheKeyToObjectKey),
+            response,
+            "Memcache get: exception getting multiple keys",
+            hits != null ? hits : Collections.<Object, Object> emptyMap()) {
+
+            @Override
+            protected Map<Object, Object> convert() {
+                return toValues(
+                    namespace,
+                    response,
+                    cacheKeyToObjectKey,
+                    hits,
+                    versions);
+            }
+        };
+    }
+
+    /**
+     * Returns the value computed by the callable and cached in memcache. The
+     * concurrent computations of the same key in this process are merged into
+     * one, and a lease stored using {@link SetPolicy#ADD_ONLY_IF_NOT_PRESENT}
+     * allows only one instance to compute the value at once. The other
+     * instances wait for the value until the lease expires. Before the value
+     * expires, it is recomputed early with a probability that grows as the
+     * expiration approaches and as the computation takes longer, so the value
+     * rarely expires under load.
+     * 
+     * <p>
+     * The value is stored wrapped in {@link ComputedValue}, so the key should
+     * be used only through this method.
+     * </p>
+     * 
+     * @param <T>
+     *            the value type
+     * @param key
+     *            the key
+     * @param expires
+     *            expiration time for the value, or null for no time-based
+     *            expiration
+     * @param callable
+     *            the callable to compute the value
+     * @return the value
+     * @throws NullPointerException
+     *             if the callable parameter is null
+     * @throws IllegalArgumentException
+     *             if the key or the value cannot be serialized
+     * @since 1.0.18
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getOrCompute(Object key, Expiration expires,
+            Callable<T> callable) throws NullPointerException,
+            IllegalArgumentException {
+        if (callable == null) {
+            throw new NullPointerException(
+                "The callable parameter must not be null.");
+        }
+        Object cached = getInternal(key);
+        ComputedValue stale = null;
+        if (cached instanceof ComputedValue) {
+            stale = (ComputedValue) cached;
+            if (!shouldRefresh(stale)) {
+                return (T) stale.getValue();
+            }
+        }
+        return (T) computeOnce(key, expires, callable, stale);
+    }
+
+    /**
+     * Computes the value merging the concurrent computations of the same key
+     * in this process.
+     * 
+     * @param key
+     *            the key
+     * @param expires
+     *            expiration time for the value
+     * @param callable
+     *            the callable to compute the value
+     * @param stale
+     *            the value to be refreshed or null if the value is not cached
+     * @return the value
+     * @throws IllegalArgumentException
+     *             if the key cannot be serialized
+     * @since 1.0.18
+     */
+    @SuppressWarnings("deprecation")
+    protected Object computeOnce(final Object key, final Expiration expires,
+            final Callable<?> callable, final ComputedValue stale)
+            throws IllegalArgumentException {
+        byte keybytes[];
+        try {
+            keybytes = MemcacheSerialization.makePbKey(key);
+        } catch (IOException ex) {
+            throw new IllegalArgumentException((new StringBuilder())
+                .append("Cannot use as a key: '")
+                .append(key)
+                .append("'")
+                .toString(), ex);
+        }
+        NearCache.EntryKey computationKey =
+            new NearCache.EntryKey(getNamespace(), keybytes);
+        FutureTask<Object> task =
+            new FutureTask<Object>(new Callable<Object>() {
+                public Object call() throws Exception {
+                    return compute(key, expires, callable, stale);
+                }
+            });
+        FutureTask<Object> running =
+            computations.putIfAbsent(computationKey, task);
+        if (running == null) {
+            try {
+                task.run();
+            } finally {
+                computations.remove(computationKey, task);
+            }
+            running = task;
+        }
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw ThrowableUtil.wrap(e);
+        } catch (ExecutionException e) {
+            throw ThrowableUtil.wrap(e.getCause());
+        }
+    }
+
+    /**
+     * Computes the value and stores it if the lease is acquired. Otherwise
+     * returns the stale value or waits for the value computed by another
+     * instance.
+     * 
+     * @param key
+     *            the key
+     * @param expires
+     *            expiration time for the value
+     * @param callable
+     *            the callable to compute the value
+     * @param stale
+     *            the value to be refreshed or null if the value is not cached
+     * @return the value
+     * @throws Exception
+     *             if the callable failed
+     * @since 1.0.18
+     */
+    protected Object compute(Object key, Expiration expires,
+            Callable<?> callable, ComputedValue stale) throws Exception {
+        Object leaseKey = new LeaseKey(key);
+        boolean leased =
+            put(
+                leaseKey,
+                Boolean.TRUE,
+                Expiration.byDeltaMillis(leaseMillis),
+                SetPolicy.ADD_ONLY_IF_NOT_PRESENT);
+        try {
+            if (!leased) {
+                if (stale != null) {
+                    return stale.getValue();
+                }
+                ComputedValue computed = waitForValue(key);
+                if (computed != null) {
+                    return computed.getValue();
+                }
+            }
+            long start = currentTimeMillis();
+            Object value = callable.call();
+            long now = currentTimeMillis();
+            put(key, new ComputedValue(value, now - start, expires != null
+                ? expires.getMillisecondsValue()
+                : 0), expires, SetPolicy.SET_ALWAYS);
+            return value;
+        } finally {
+            if (leased) {
+                delete(leaseKey);
+            }
+        }
+    }
+
+    /**
+     * Waits for the value computed by another instance. The interval to poll
+     * the value starts at {@link #pollMillis} and is doubled up to
+     * {@link #maxPollMillis}. The wait ends after {@link #maxWaitMillis} or
+     * when the lease expires, whichever comes first, and then the caller
+     * computes the value locally.
+     * 
+     * @param key
+     *            the key
+     * @return the value or null if the value is not computed in time
+     * @since 1.0.18
+     */
+    protected ComputedValue waitForValue(Object key) {
+        long now = currentTimeMillis();
+        long deadline = now + Math.min(maxWaitMillis, leaseMillis);
+        long interval = pollMillis;
+        while (now < deadline) {
+            try {
+                sleep(Math.min(interval, deadline - now));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            Object value = getInternal(key);
+            if (value instanceof ComputedValue) {
+                return (ComputedValue) value;
+            }
+            interval = Math.min(interval * 2, maxPollMillis);
+            now = currentTimeMillis();
+        }
+        return null;
+    }
+
+    /**
+     * Sleeps for the time.
+     * 
+     * @param millis
+     *            the time(milliseconds) to sleep
+     * @throws InterruptedException
+     *             if the current thread is interrupted
+     * @since 1.0.18
+     */
+    protected void sleep(long millis) throws InterruptedException {
+        Thread.sleep(millis);
+    }
+
+    /**
+     * Determines if the value should be recomputed before it expires. The
+     * probability grows exponentially as the expiration approaches, scaled by
+     * the time taken to compute the value.
+     * 
+     * @param computed
+     *            the computed value
+     * @return whether the value should be recomputed
+     * @since 1.0.18
+     */
+    protected boolean shouldRefresh(ComputedValue computed) {
+        if (computed.getExpirationTime() == 0) {
+            return false;
+        }
+        double gap =
+            -computed.getDelta() * refreshBeta * Math.log(random());
+        return currentTimeMillis() + gap >= computed.getExpirationTime();
+    }
+
+    /**
+     * Returns a random number between 0.0 (exclusive) and 1.0 (inclusive).
+     * 
+     * @return a random number
+     * @since 1.0.18
+     */
+    protected double random() {
+        return 1.0 - Math.random();
+    }
+
+    /**
+     * Returns the current time in milliseconds.
+     * 
+     * @return the current time in milliseconds
+     * @since 1.0.18
+     */
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Creates a get request.
+     * 
+     * @param namespace
+     *            the namespace
+     * @param keys
+     *            the keys
+     * @param cacheKeyToObjectKey
+     *            the map to which the serialized keys are added
+     * @return a get request
+     * @throws IllegalArgumentException
+     *             if the key cannot be serialized
+     * @since 1.0.18
+     */
+    @SuppressWarnings("deprecation")
+    protected MemcacheServicePb.MemcacheGetRequest createGetRequest(
+            String namespace, Iterable<?> keys,
+            Map<CacheKey, Object> cacheKeyToObjectKey)
+            throws IllegalArgumentException {
+        MemcacheServicePb.MemcacheGetRequest.Builder requestBuilder =
+            MemcacheServicePb.MemcacheGetRequest.newBuilder().setNameSpace(
+                namespace);
         for (Object key : keys) {
             try {
                 byte keybytes[] = MemcacheSerialization.makePbKey(key);
@@ -336,31 +968,63 @@ public class MemcacheDelegate {
                     .toString(), ex);
             }
         }
-        if (!makeSyncCall(
-            "Get",
-            requestBuilder.build(),
-            response,
-            "Memcache get: exception getting multiple keys"))
-            return Collections.emptyMap();
-        Map result = new HashMap();
-        Iterator i = response.getItemList().iterator();
-        do {
-            if (!i.hasNext()) {
-                break;
-            }
-            MemcacheServicePb.MemcacheGetResponse.Item item =
-                (MemcacheServicePb.MemcacheGetResponse.Item) i.next();
+        return requestBuilder.build();
+    }
+
+    /**
+     * Converts the get response to the values using
+     * {@link MemcacheSerializer}. The values are stored in the near cache
+     * if it is enabled, unless the near cache has been invalidated since the
+     * versions were taken.
+     * 
+     * @param namespace
+     *            the namespace
+     * @param response
+     *            the get response
+     * @param cacheKeyToObjectKey
+     *            the map of the serialized keys to the keys
+     * @param hits
+     *            the values found in the near cache
+     * @param versions
+     *            the versions of the near cache taken before the call, or null
+     *            if the near cache is not enabled
+     * @return a mapping from keys to values
+     * @since 1.0.18
+     */
+    @SuppressWarnings("deprecation")
+    protected Map<Object, Object> toValues(String namespace,
+            MemcacheServicePb.MemcacheGetResponse.Builder response,
+            Map<CacheKey, Object> cacheKeyToObjectKey,
+            Map<Object, Object> hits, long[] versions) {
+        Map<Object, Object> result = new HashMap<Object, Object>();
+        if (hits != null) {
+            result.putAll(hits);
+        }
+        for (MemcacheServicePb.MemcacheGetResponse.Item item : response
+            .getItemList()) {
             Object key = null;
             try {
-                key =
-                    cacheKeyToObjectKey.get(new CacheKey(item
-                        .getKey()
-                        .toByteArray()));
-                Object obj =
-                    S3MemcacheSerialization.deserialize(item
-                        .getValue()
-                        .toByteArray(), item.getFlags());
+                byte keybytes[] = item.getKey().toByteArray();
+                key = cacheKeyToObjectKey.get(new CacheKey(keybytes));
+                S3MemcacheSerialization.ValueAndFlags vaf =
+                    decode(namespace, item.getValue().toByteArray(), item
+                        .getFlags());
+                if (vaf == null) {
+                    continue;
+                }
+                Object obj = serializer.deserialize(vaf.value, vaf.flags);
                 result.put(key, obj);
+                if (nearCache != null) {
+                    nearCache.put(
+                        namespace,
+                        keybytes,
+                        vaf.value,
+                        vaf.flags,
+                        serializer.isImmutable(obj) ? obj : null,
+                        versions);
+                }
+            } catch (SchemaMismatchException ex) {
+                continue;
             } catch (ClassNotFoundException ex) {
                 ms.getErrorHandler().handleDeserializationError(
                     new InvalidValueException((new StringBuilder())
@@ -376,12 +1040,219 @@ public class MemcacheDelegate {
                     .append("'")
                     .toString(), ex);
             }
-        } while (true);
+        }
         return result;
     }
 
     /**
-     * Atomically fetches, increments, and stores a given integral value.
+     * Decodes the stored value. The chunks of the value are read if the value
+     * is a manifest, and the value is decompressed if it is compressed.
+     * 
+     * @param namespace
+     *            the namespace
+     * @param value
+     *            the stored value
+     * @param flags
+     *            the stored flags
+     * @return the serialized value and the flags, or null if any chunk of the
+     *         value is missing
+     * @throws IOException
+     *             if the value is corrupted
+     * @since 1.0.18
+     */
+    protected S3MemcacheSerialization.ValueAndFlags decode(String namespace,
+            byte[] value, int flags) throws IOException {
+        S3MemcacheSerialization.ValueAndFlags vaf =
+            new S3MemcacheSerialization.ValueAndFlags(value, flags);
+        if (flags == S3MemcacheSerialization.CHUNKED) {
+            vaf = readChunks(namespace, value);
+            if (vaf == null) {
+                return null;
+            }
+        }
+        return S3MemcacheSerialization.decompress(vaf);
+    }
+
+    /**
+     * Reads the chunks of the value using one get request.
+     * 
+     * @param namespace
+     *            the namespace
+     * @param manifest
+     *            the manifest of the chunks
+     * @return the joined value and the flags, or null if any chunk is missing
+     * @throws IOException
+     *             if the manifest is corrupted
+     * @since 1.0.18
+     */
+    @SuppressWarnings("deprecation")
+    protected S3MemcacheSerialization.ValueAndFlags readChunks(
+            String namespace, byte[] manifest) throws IOException {
+        DataInputStream in =
+            new DataInputStream(new ByteArrayInputStream(manifest));
+        String id = in.readUTF();
+        int count = in.readInt();
+        int flags = in.readInt();
+        int length = in.readInt();
+        if (count < 0
+            || length < 0
+            || length > S3MemcacheSerialization.MAX_VALUE_LENGTH) {
+            throw new IOException("The manifest of the chunks is corrupted.");
+        }
+        MemcacheServicePb.MemcacheGetRequest.Builder requestBuilder =
+            MemcacheServicePb.MemcacheGetRequest.newBuilder().setNameSpace(
+                namespace);
+        List<CacheKey> chunkKeys = new ArrayList<CacheKey>(count);
+        for (int i = 0; i < count; i++) {
+            byte keybytes[] = MemcacheSerialization.makePbKey(chunkKey(id, i));
+            chunkKeys.add(new CacheKey(keybytes));
+            requestBuilder.addKey(ByteString.copyFrom(keybytes));
+        }
+        MemcacheServicePb.MemcacheGetResponse.Builder response =
+            MemcacheServicePb.MemcacheGetResponse.newBuilder();
+        if (!makeSyncCall("Get", requestBuilder.build(), response,
+            (new StringBuilder())
+                .append("Memcache get: exception getting ")
+                .append(count)
+                .append(" chunks")
+                .toString())) {
+            return null;
+        }
+        Map<CacheKey, byte[]> chunks = new HashMap<CacheKey, byte[]>();
+        for (MemcacheServicePb.MemcacheGetResponse.Item item : response
+            .getItemList()) {
+            chunks.put(new CacheKey(item.getKey().toByteArray()), item
+                .getValue()
+                .toByteArray());
+        }
+        byte value[] = new byte[length];
+        int offset = 0;
+        for (CacheKey chunkKey : chunkKeys) {
+            byte chunk[] = chunks.get(chunkKey);
+            if (chunk == null || offset + chunk.length > length) {
+                return null;
+            }
+            System.arraycopy(chunk, 0, value, offset, chunk.length);
+            offset += chunk.length;
+        }
+        if (offset != length) {
+            return null;
+        }
+        return new S3MemcacheSerialization.ValueAndFlags(value, flags);
+    }
+
+    /**
+     * Returns the key of the chunk.
+     * 
+     * @param id
+     *            the identifier of the chunked value
+     * @param index
+     *            the index of the chunk
+     * @return the key of the chunk
+     * @since 1.0.18
+     */
+    protected String chunkKey(String id, int index) {
+        return CHUNK_KEY_PREFIX + id + "." + index;
+    }
+
+    /**
+     * Reads the values from the near cache.
+     * 
+     * @param namespace
+     *            the namespace
+     * @param keys
+     *            the keys
+     * @param misses
+     *            the list to which the keys not found in the near cache are
+     *            added
+     * @return a mapping from keys to values found in the near cache
+     * @throws IllegalArgumentException
+     *             if the key cannot be serialized
+     * @since 1.0.18
+     */
+    @SuppressWarnings("deprecation")
+    protected Map<Object, Object> getAllFromNearCache(String namespace,
+            Iterable<?> keys, List<Object> misses)
+            throws IllegalArgumentException {
+        Map<Object, Object> hits = new HashMap<Object, Object>();
+        for (Object key : keys) {
+            byte keybytes[];
+            try {
+                keybytes = MemcacheSerialization.makePbKey(key);
+            } catch (IOException ex) {
+                throw new IllegalArgumentException((new StringBuilder())
+                    .append("Cannot use as key: '")
+                    .append(key)
+                    .append("'")
+                    .toString(), ex);
+            }
+            NearCache.Entry entry = nearCache.get(namespace, keybytes);
+            if (entry != null) {
+                try {
+                    hits.put(key, entry.getValue(serializer));
+                    continue;
+                } catch (Exception ignore) {
+                    nearCache.remove(namespace, keybytes);
+                }
+            }
+            misses.add(key);
+        }
+        return hits;
+    }
+
+    /**
+     * Removes the entry of the key from the near cache.
+     * 
+     * @param key
+     *            the key
+     * @since 1.0.18
+     */
+    protected void invalidate(Object key) {
+        if (nearCache == null) {
+            return;
+        }
+        invalidateAll(Collections.singletonList(key));
+    }
+
+    /**
+     * Removes the entries of the keys from the near cache.
+     * 
+     * @param keys
+     *            the keys
+     * @since 1.0.18
+     */
+    protected void invalidateAll(Iterable<?> keys) {
+        if (nearCache == null) {
+            return;
+        }
+        invalidateAll(getNamespace(), keys);
+    }
+
+    /**
+     * Removes the entries of the keys in the namespace from the near cache.
+     * 
+     * @param namespace
+     *            the namespace
+     * @param keys
+     *            the keys
+     * @since 1.0.18
+     */
+    @SuppressWarnings("deprecation")
+    protected void invalidateAll(String namespace, Iterable<?> keys) {
+        if (nearCache == null) {
+            return;
+        }
+        for (Object key : keys) {
+            try {
+                nearCache.remove(namespace, MemcacheSerialization
+                    .makePbKey(key));
+            } catch (IOException ignore) {
+            }
+        }
+    }
+
+    /**
+     * Atomically fetches, increments, and stores a given integral value.
      * "Integral" types are Byte, Short, Integer, Long, and in some cases String
      * (if the string is parseable as a number, for example via
      * Long.parseLong(String). The entry must already exist, and have a
@@ -421,7 +1292,9 @@ public class MemcacheDelegate {
     public Long increment(Object key, long delta)
             throws IllegalArgumentException, InvalidValueException,
             CapabilityDisabledException {
-        return ms.increment(key, delta);
+        Long value = ms.increment(key, delta);
+        invalidate(key);
+        return value;
     }
 
     /**
@@ -447,7 +1320,9 @@ public class MemcacheDelegate {
     public Long increment(Object key, long delta, long initialValue)
             throws IllegalArgumentException, InvalidValueException,
             CapabilityDisabledException {
-        return ms.increment(key, delta, initialValue);
+        Long value = ms.increment(key, delta, initialValue);
+        invalidate(key);
+        return value;
     }
 
     /**
@@ -467,7 +1342,10 @@ public class MemcacheDelegate {
      */
     public Map<Object, Long> incrementAll(Iterable<?> keys, long delta)
             throws IllegalArgumentException, CapabilityDisabledException {
-        return ms.incrementAll(toCollection(keys), delta);
+        Collection<Object> keys2 = toCollection(keys);
+        Map<Object, Long> values = ms.incrementAll(keys2, delta);
+        invalidateAll(keys2);
+        return values;
     }
 
     /**
@@ -490,7 +1368,10 @@ public class MemcacheDelegate {
     public Map<Object, Long> incrementAll(Iterable<?> keys, long delta,
             long initialValue) throws IllegalArgumentException,
             CapabilityDisabledException {
-        return ms.incrementAll(toCollection(keys), delta, initialValue);
+        Collection<Object> keys2 = toCollection(keys);
+        Map<Object, Long> values = ms.incrementAll(keys2, delta, initialValue);
+        invalidateAll(keys2);
+        return values;
     }
 
     /**
@@ -509,7 +1390,9 @@ public class MemcacheDelegate {
      */
     public Map<Object, Long> incrementAll(Map<Object, Long> offsets)
             throws IllegalArgumentException, CapabilityDisabledException {
-        return ms.incrementAll(offsets);
+        Map<Object, Long> values = ms.incrementAll(offsets);
+        invalidateAll(offsets.keySet());
+        return values;
     }
 
     /**
@@ -531,7 +1414,113 @@ public class MemcacheDelegate {
     public Map<Object, Long> incrementAll(Map<Object, Long> offsets,
             long initialValue) throws IllegalArgumentException,
             CapabilityDisabledException {
-        return ms.incrementAll(offsets);
+        Map<Object, Long> values = ms.incrementAll(offsets);
+        invalidateAll(offsets.keySet());
+        return values;
+    }
+
+    /**
+     * Like {@link #incrementAll(Iterable, long)}, but increments the keys
+     * asynchronously.
+     * 
+     * @param keys
+     *            the keys
+     * @param delta
+     *            the size of the increment, positive or negative.
+     * @return mapping keys to their new values represented as {@link Future}
+     * @throws NullPointerException
+     *             if the keys parameter is null
+     * @throws IllegalArgumentException
+     *             if the key cannot be serialized
+     * @since 1.0.18
+     */
+    public Future<Map<Object, Long>> incrementAllAsync(Iterable<?> keys,
+            long delta) throws NullPointerException, IllegalArgumentException {
+        Collection<Object> keys2 = toCollection(keys);
+        Future<Map<Object, Long>> future =
+            asyncService().incrementAll(keys2, delta);
+        invalidateAll(keys2);
+        return future;
+    }
+
+    /**
+     * Like {@link #incrementAll(Iterable, long, long)}, but increments the
+     * keys asynchronously.
+     * 
+     * @param keys
+     *            the keys
+     * @param delta
+     *            the size of the increment, positive or negative.
+     * @param initialValue
+     *            the value to insert into the cache if the key is not present
+     * @return mapping keys to their new values represented as {@link Future}
+     * @throws NullPointerException
+     *             if the keys parameter is null
+     * @throws IllegalArgumentException
+     *             if the key cannot be serialized
+     * @since 1.0.18
+     */
+    public Future<Map<Object, Long>> incrementAllAsync(Iterable<?> keys,
+            long delta, long initialValue) throws NullPointerException,
+            IllegalArgumentException {
+        Collection<Object> keys2 = toCollection(keys);
+        Future<Map<Object, Long>> future =
+            asyncService().incrementAll(keys2, delta, initialValue);
+        invalidateAll(keys2);
+        return future;
+    }
+
+    /**
+     * Like {@link #incrementAll(Map)}, but increments the keys
+     * asynchronously.
+     * 
+     * @param offsets
+     *            the offsets
+     * @return mapping keys to their new values represented as {@link Future}
+     * @throws NullPointerException
+     *             if the offsets parameter is null
+     * @throws IllegalArgumentException
+     *             if the key cannot be serialized
+     * @since 1.0.18
+     */
+    public Future<Map<Object, Long>> incrementAllAsync(
+            Map<Object, Long> offsets) throws NullPointerException,
+            IllegalArgumentException {
+        if (offsets == null) {
+            throw new NullPointerException(
+                "The offsets parameter must not be null.");
+        }
+        Future<Map<Object, Long>> future = asyncService().incrementAll(offsets);
+        invalidateAll(offsets.keySet());
+        return future;
+    }
+
+    /**
+     * Like {@link #incrementAll(Map, long)}, but increments the keys
+     * asynchronously.
+     * 
+     * @param offsets
+     *            the offsets
+     * @param initialValue
+     *            the value to insert into the cache if the key is not present
+     * @return mapping keys to their new values represented as {@link Future}
+     * @throws NullPointerException
+     *             if the offsets parameter is null
+     * @throws IllegalArgumentException
+     *             if the key cannot be serialized
+     * @since 1.0.18
+     */
+    public Future<Map<Object, Long>> incrementAllAsync(
+            Map<Object, Long> offsets, long initialValue)
+            throws NullPointerException, IllegalArgumentException {
+        if (offsets == null) {
+            throw new NullPointerException(
+                "The offsets parameter must not be null.");
+        }
+        Future<Map<Object, Long>> future =
+            asyncService().incrementAll(offsets, initialValue);
+        invalidateAll(offsets.keySet());
+        return future;
     }
 
     /**
@@ -549,7 +1538,10 @@ public class MemcacheDelegate {
      */
     public void put(Object key, Object value) throws IllegalArgumentException,
             CapabilityDisabledException {
-        ms.put(key, value);
+        putAllInternal(
+            Collections.singletonMap(key, value),
+            null,
+            SetPolicy.SET_ALWAYS);
     }
 
     /**
@@ -570,7 +1562,10 @@ public class MemcacheDelegate {
      */
     public void put(Object key, Object value, Expiration expires)
             throws IllegalArgumentException, CapabilityDisabledException {
-        ms.put(key, value, expires);
+        putAllInternal(
+            Collections.singletonMap(key, value),
+            expires,
+            SetPolicy.SET_ALWAYS);
     }
 
     /**
@@ -603,7 +1598,10 @@ public class MemcacheDelegate {
             throw new NullPointerException(
                 "The policy parameter must not be null.");
         }
-        return ms.put(key, value, expires, policy);
+        return !putAllInternal(
+            Collections.singletonMap(key, value),
+            expires,
+            policy).isEmpty();
     }
 
     /**
@@ -625,7 +1623,7 @@ public class MemcacheDelegate {
             throw new NullPointerException(
                 "The values parameter must not be null.");
         }
-        ms.putAll(values);
+        putAllInternal(values, null, SetPolicy.SET_ALWAYS);
     }
 
     /**
@@ -651,7 +1649,7 @@ public class MemcacheDelegate {
             throw new NullPointerException(
                 "The values parameter must not be null.");
         }
-        ms.putAll(values, expires);
+        putAllInternal(values, expires, SetPolicy.SET_ALWAYS);
     }
 
     /**
@@ -689,7 +1687,444 @@ public class MemcacheDelegate {
             throw new NullPointerException(
                 "The policy parameter must not be null.");
         }
-        return ms.putAll(values, expires, policy);
+        return putAllInternal(values, expires, policy);
+    }
+
+    /**
+     * A convenience shortcut, equivalent to putAllAsync(values, null,
+     * SetPolicy.SET_ALWAYS).
+     * 
+     * @param values
+     *            key/value mappings for new entries to add to the cache
+     * @return the set of keys for which entries were created represented as
+     *         {@link Future}
+     * @throws NullPointerException
+     *             if the values parameter is null
+     * @throws IllegalArgumentException
+     *             if the key or the value cannot be serialized
+     * @since 1.0.18
+     */
+    public Future<Set<Object>> putAllAsync(Map<Object, Object> values)
+            throws NullPointerException, IllegalArgumentException {
+        return putAllAsync(values, null, SetPolicy.SET_ALWAYS);
+    }
+
+    /**
+     * A convenience shortcut, equivalent to putAllAsync(values, expires,
+     * SetPolicy.SET_ALWAYS).
+     * 
+     * @param values
+     *            key/value mappings for new entries to add to the cache
+     * @param expires
+     *            expiration time for the new values, or null for no time-based
+     *            expiration
+     * @return the set of keys for which entries were created represented as
+     *         {@link Future}
+     * @throws NullPointerException
+     *             if the values parameter is null
+     * @throws IllegalArgumentException
+     *             if the key or the value cannot be serialized
+     * @since 1.0.18
+     */
+    public Future<Set<Object>> putAllAsync(Map<Object, Object> values,
+            Expiration expires) throws NullPointerException,
+            IllegalArgumentException {
+        return putAllAsync(values, expires, SetPolicy.SET_ALWAYS);
+    }
+
+    /**
+     * Stores the values asynchronously. The values are serialized by
+     * {@link MemcacheSerializer} before this method returns. The chunks of a
+     * value longer than the chunk size are stored before this method returns,
+     * and the chunks of a value that is not stored are deleted when
+     * {@link Future#get()} is called. The near cache entries of the keys are
+     * removed right before the call is issued, so this method covers the
+     * callers that never call {@link Future#get()}. A value read by another
+     * thread while the call is in flight can be put into the near cache, so
+     * the entries are removed again when {@link Future#get()} is called.
+     * 
+     * @param values
+     *            key/value mappings for new entries to add to the cache
+     * @param expires
+     *            expiration time for the new values, or null for no time-based
+     *            expiration
+     * @param policy
+     *            what to do if the entry is or is not already present
+     * @return the set of keys for which entries were created represented as
+     *         {@link Future}
+     * @throws NullPointerException
+     *             if the values parameter is null or if the policy parameter is
+     *             null
+     * @throws IllegalArgumentException
+     *             if the key or the value cannot be serialized
+     * @since 1.0.18
+     */
+    public Future<Set<Object>> putAllAsync(Map<Object, Object> values,
+            Expiration expires, SetPolicy policy) throws NullPointerException,
+            IllegalArgumentException {
+        if (values == null) {
+            throw new NullPointerException(
+                "The values parameter must not be null.");
+        }
+        if (policy == null) {
+            throw new NullPointerException(
+                "The policy parameter must not be null.");
+        }
+        final SetRequest request = createSetRequest(values, expires, policy);
+        final List<Object> keys = request.keys;
+        final MemcacheServicePb.MemcacheSetResponse.Builder response =
+            MemcacheServicePb.MemcacheSetResponse.newBuilder();
+        final String namespace = getNamespace();
+        if (!putChunks(request)) {
+            deleteUnusedChunks(request, new HashSet<Object>());
+            return new FakeFuture<Set<Object>>(new HashSet<Object>());
+        }
+        invalidateAll(namespace, keys);
+        return new MemcacheFuture<Set<Object>>(
+            "Set",
+            request.request,
+            response,
+            (new StringBuilder())
+                .append("Memcache put: exception setting ")
+                .append(keys.size())
+                .append(" keys")
+                .toString(),
+            new HashSet<Object>()) {
+
+            @Override
+            protected Set<Object> convert() {
+                Set<Object> stored = toStoredKeys(response, keys);
+                deleteUnusedChunks(request, stored);
+                return stored;
+            }
+
+            @Override
+            protected void complete() {
+                invalidateAll(namespace, keys);
+            }
+
+            @Override
+            protected synchronized Set<Object> fail(ExecutionException e)
+                    throws ExecutionException {
+                if (!resolved) {
+                    deleteUnusedChunks(request, new HashSet<Object>());
+                }
+                return super.fail(e);
+            }
+        };
+    }
+
+    /**
+     * Stores the values using {@link MemcacheSerializer}.
+     * 
+     * @param values
+     *            key/value mappings for new entries to add to the cache
+     * @param expires
+     *            expiration time for the new values, or null for no time-based
+     *            expiration
+     * @param policy
+     *            what to do if the entry is or is not already present
+     * @return the set of keys for which entries were created
+     * @throws IllegalArgumentException
+     *             if the key or the value cannot be serialized
+     */
+    protected Set<Object> putAllInternal(Map<?, ?> values, Expiration expires,
+            SetPolicy policy) throws IllegalArgumentException {
+        SetRequest request = createSetRequest(values, expires, policy);
+        List<Object> keys = request.keys;
+        MemcacheServicePb.MemcacheSetResponse.Builder response =
+            MemcacheServicePb.MemcacheSetResponse.newBuilder();
+        if (!putChunks(request)
+            || !makeSyncCall(
+                "Set",
+                request.request,
+                response,
+                (new StringBuilder())
+                    .append("Memcache put: exception setting ")
+                    .append(keys.size())
+                    .append(" keys")
+                    .toString())) {
+            invalidateAll(keys);
+            deleteUnusedChunks(request, new HashSet<Object>());
+            return new HashSet<Object>();
+        }
+        invalidateAll(keys);
+        Set<Object> stored = toStoredKeys(response, keys);
+        deleteUnusedChunks(request, stored);
+        return stored;
+    }
+
+    /**
+     * Stores the chunks of the set request. The chunks are stored before the
+     * manifests, so a manifest is never read before its chunks.
+     * 
+     * @param request
+     *            the set request
+     * @return whether the chunks were stored
+     * @since 1.0.18
+     */
+    protected boolean putChunks(SetRequest request) {
+        if (request.chunkRequest == null) {
+            return true;
+        }
+        return makeSyncCall(
+            "Set",
+            request.chunkRequest,
+            MemcacheServicePb.MemcacheSetResponse.newBuilder(),
+            (new StringBuilder())
+                .append("Memcache put: exception setting ")
+                .append(request.chunkRequest.getItemCount())
+                .append(" chunks")
+                .toString());
+    }
+
+    /**
+     * Deletes the chunks of the values that were not stored, for example
+     * because of {@link SetPolicy#ADD_ONLY_IF_NOT_PRESENT}.
+     * 
+     * @param request
+     *            the set request
+     * @param stored
+     *            the keys stored
+     * @since 1.0.18
+     */
+    @SuppressWarnings("deprecation")
+    protected void deleteUnusedChunks(SetRequest request, Set<Object> stored) {
+        MemcacheServicePb.MemcacheDeleteRequest.Builder requestBuilder =
+            MemcacheServicePb.MemcacheDeleteRequest.newBuilder().setNameSpace(
+                request.namespace);
+        for (Map.Entry<Object, List<byte[]>> e : request.chunkKeys.entrySet()) {
+            if (stored.contains(e.getKey())) {
+                continue;
+            }
+            for (byte[] chunkKey : e.getValue()) {
+                requestBuilder
+                    .addItem(MemcacheServicePb.MemcacheDeleteRequest.Item
+                        .newBuilder()
+                        .setKey(ByteString.copyFrom(chunkKey)));
+            }
+        }
+        if (requestBuilder.getItemCount() == 0) {
+            return;
+        }
+        makeSyncCall(
+            "Delete",
+            requestBuilder.build(),
+            MemcacheServicePb.MemcacheDeleteResponse.newBuilder(),
+            (new StringBuilder())
+                .append("Memcache delete: exception deleting ")
+                .append(requestBuilder.getItemCount())
+                .append(" chunks")
+                .toString());
+    }
+
+    /**
+     * Creates a set request using {@link MemcacheSerializer}. A value longer
+     * than the compression threshold is compressed, and a value longer than
+     * the chunk size is split into chunks that are stored with a manifest.
+     * The chunks are stored by their own request with
+     * {@link SetPolicy#SET_ALWAYS} and the expiration of the manifest.
+     * 
+     * <p>
+     * When a chunked value is overwritten or deleted, its old chunks are not
+     * deleted. They are left until they expire with the old manifest or are
+     * evicted by memcache.
+     * </p>
+     * 
+     * @param values
+     *            key/value mappings for new entries to add to the cache
+     * @param expires
+     *            expiration time for the new values, or null for no time-based
+     *            expiration
+     * @param policy
+     *            what to do if the entry is or is not already present
+     * @return a set request
+     * @throws IllegalArgumentException
+     *             if the key or the value cannot be serialized
+     * @since 1.0.18
+     */
+    @SuppressWarnings("deprecation")
+    protected SetRequest createSetRequest(Map<?, ?> values,
+            Expiration expires, SetPolicy policy)
+            throws IllegalArgumentException {
+        String namespace = getNamespace();
+        MemcacheServicePb.MemcacheSetRequest.Builder requestBuilder =
+            MemcacheServicePb.MemcacheSetRequest.newBuilder().setNameSpace(
+                namespace);
+        MemcacheServicePb.MemcacheSetRequest.SetPolicy pbPolicy =
+            toPbSetPolicy(policy);
+        int expirationTime = expires != null ? expires.getSecondsValue() : 0;
+        List<MemcacheServicePb.MemcacheSetRequest.Item.Builder> chunkItems =
+            new ArrayList<MemcacheServicePb.MemcacheSetRequest.Item.Builder>();
+        List<Object> keys = new ArrayList<Object>(values.size());
+        Map<Object, List<byte[]>> chunkKeys =
+            new HashMap<Object, List<byte[]>>();
+        for (Map.Entry<?, ?> e : values.entrySet()) {
+            Object key = e.getKey();
+            byte keybytes[];
+            try {
+                keybytes = MemcacheSerialization.makePbKey(key);
+            } catch (IOException ex) {
+                throw new IllegalArgumentException((new StringBuilder())
+                    .append("Cannot use as a key: '")
+                    .append(key)
+                    .append("'")
+                    .toString(), ex);
+            }
+            S3MemcacheSerialization.ValueAndFlags vaf;
+            try {
+                vaf = serializer.serialize(e.getValue());
+            } catch (IOException ex) {
+                throw new IllegalArgumentException((new StringBuilder())
+                    .append("Cannot convert value to bytes: '")
+                    .append(e.getValue())
+                    .append("'")
+                    .toString(), ex);
+            }
+            if (compressionThreshold > 0
+                && vaf.value.length >= compressionThreshold) {
+                vaf = S3MemcacheSerialization.compress(vaf);
+            }
+            if (vaf.value.length > chunkSize) {
+                List<byte[]> keysOfChunks = new ArrayList<byte[]>();
+                vaf =
+                    splitIntoChunks(
+                        vaf,
+                        expirationTime,
+                        chunkItems,
+                        keysOfChunks);
+                chunkKeys.put(key, keysOfChunks);
+            }
+            requestBuilder.addItem(MemcacheServicePb.MemcacheSetRequest.Item
+                .newBuilder()
+                .setKey(ByteString.copyFrom(keybytes))
+                .setValue(ByteString.copyFrom(vaf.value))
+                .setFlags(vaf.flags)
+                .setSetPolicy(pbPolicy)
+                .setExpirationTime(expirationTime));
+            keys.add(key);
+        }
+        MemcacheServicePb.MemcacheSetRequest chunkRequest = null;
+        if (!chunkItems.isEmpty()) {
+            MemcacheServicePb.MemcacheSetRequest.Builder chunkRequestBuilder =
+                MemcacheServicePb.MemcacheSetRequest
+                    .newBuilder()
+                    .setNameSpace(namespace);
+            for (int i = 0; i < chunkItems.size(); i++) {
+                chunkRequestBuilder.addItem(chunkItems.get(i));
+            }
+            chunkRequest = chunkRequestBuilder.build();
+        }
+        return new SetRequest(
+            namespace,
+            requestBuilder.build(),
+            chunkRequest,
+            keys,
+            chunkKeys);
+    }
+
+    /**
+     * Splits the value into chunks.
+     * 
+     * @param valueAndFlags
+     *            the serialized value and the flags
+     * @param expirationTime
+     *            the expiration time
+     * @param chunkItems
+     *            the list to which the items of the chunks are added
+     * @param chunkKeys
+     *            the list to which the serialized keys of the chunks are added
+     * @return the manifest of the chunks and
+     *         {@link S3MemcacheSerialization#CHUNKED}
+     * @throws IllegalArgumentException
+     *             if the manifest cannot be written
+     * @since 1.0.18
+     */
+    @SuppressWarnings("deprecation")
+    protected S3MemcacheSerialization.ValueAndFlags splitIntoChunks(
+            S3MemcacheSerialization.ValueAndFlags valueAndFlags,
+            int expirationTime,
+            List<MemcacheServicePb.MemcacheSetRequest.Item.Builder> chunkItems,
+            List<byte[]> chunkKeys) throws IllegalArgumentException {
+        byte value[] = valueAndFlags.value;
+        String id = UUID.randomUUID().toString();
+        int count = (value.length + chunkSize - 1) / chunkSize;
+        try {
+            for (int i = 0; i < count; i++) {
+                int offset = i * chunkSize;
+                byte keybytes[] =
+                    MemcacheSerialization.makePbKey(chunkKey(id, i));
+                chunkKeys.add(keybytes);
+                chunkItems.add(MemcacheServicePb.MemcacheSetRequest.Item
+                    .newBuilder()
+                    .setKey(ByteString.copyFrom(keybytes))
+                    .setValue(
+                        ByteString.copyFrom(value, offset, Math.min(
+                            chunkSize,
+                            value.length - offset)))
+                    .setFlags(MemcacheSerialization.Flag.BYTES.ordinal())
+                    .setSetPolicy(
+                        MemcacheServicePb.MemcacheSetRequest.SetPolicy.SET)
+                    .setExpirationTime(expirationTime));
+            }
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(baos);
+            out.writeUTF(id);
+            out.writeInt(count);
+            out.writeInt(valueAndFlags.flags);
+            out.writeInt(value.length);
+            out.close();
+            S3MemcacheSerialization.incrementChunkedCount();
+            return new S3MemcacheSerialization.ValueAndFlags(
+                baos.toByteArray(),
+                S3MemcacheSerialization.CHUNKED);
+        } catch (IOException ex) {
+            throw new IllegalArgumentException(
+                "Cannot split value into chunks.",
+                ex);
+        }
+    }
+
+    /**
+     * Returns the keys stored by the set request.
+     * 
+     * @param response
+     *            the set response
+     * @param keys
+     *            the keys in the request order
+     * @return the set of keys for which entries were created
+     * @since 1.0.18
+     */
+    protected Set<Object> toStoredKeys(
+            MemcacheServicePb.MemcacheSetResponse.Builder response,
+            List<Object> keys) {
+        Set<Object> result = new HashSet<Object>();
+        int count = Math.min(response.getSetStatusCount(), keys.size());
+        for (int i = 0; i < count; i++) {
+            if (response.getSetStatus(i) == MemcacheServicePb.MemcacheSetResponse.SetStatusCode.STORED) {
+                result.add(keys.get(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Converts the set policy to the protocol buffer one.
+     * 
+     * @param policy
+     *            the set policy
+     * @return the protocol buffer set policy
+     */
+    protected MemcacheServicePb.MemcacheSetRequest.SetPolicy toPbSetPolicy(
+            SetPolicy policy) {
+        switch (policy) {
+        case ADD_ONLY_IF_NOT_PRESENT:
+            return MemcacheServicePb.MemcacheSetRequest.SetPolicy.ADD;
+        case REPLACE_ONLY_IF_PRESENT:
+            return MemcacheServicePb.MemcacheSetRequest.SetPolicy.REPLACE;
+        default:
+            return MemcacheServicePb.MemcacheSetRequest.SetPolicy.SET;
+        }
     }
 
     /**
@@ -717,18 +2152,22 @@ public class MemcacheDelegate {
                 "The errorHandler parameter must not be null.");
         }
         ms.setErrorHandler(errorHandler);
+        if (ams != null) {
+            ams.setErrorHandler(errorHandler);
+        }
         return this;
     }
 
     /**
      * Returns some statistics about the cache and its usage. Note that
      * statistics() does not respect namespaces - this will return stats for
-     * every namespace. The response will never be null.
+     * every namespace. The response will never be null. The response is
+     * {@link S3Stats} that includes the statistics of the near cache.
      * 
      * @return some statistics
      */
     public Stats statistics() {
-        return ms.getStatistics();
+        return new S3Stats(ms.getStatistics(), nearCache);
     }
 
     /**
@@ -747,16 +2186,51 @@ public class MemcacheDelegate {
     @SuppressWarnings("deprecation")
 	protected boolean makeSyncCall(String methodName, Message request,
             Message.Builder response, String errorText) {
+        Timeline timeline = TimelineLocator.get();
+        long start = timeline != null ? System.nanoTime() : 0;
         try {
+            byte requestBytes[] = request.toByteArray();
             byte responseBytes[] =
-                ApiProxy.makeSyncCall("memcache", methodName, request
-                    .toByteArray());
+                ApiProxy.makeSyncCall("memcache", methodName, requestBytes);
             response.mergeFrom(responseBytes);
+            if (timeline != null) {
+                timeline.record(
+                    Timeline.MEMCACHE,
+                    methodName,
+                    start,
+                    0,
+                    requestBytes.length + responseBytes.length);
+            }
             return true;
         } catch (InvalidProtocolBufferException ex) {
+            handleCallError(ex, errorText);
+        } catch (ApiProxy.ApiProxyException ex) {
+            handleCallError(ex, errorText);
+        }
+        return false;
+    }
+
+    /**
+     * Handles the error of a call.
+     * 
+     * @param cause
+     *            the cause
+     * @param errorText
+     *            the error text.
+     * @return whether the error was handled
+     * @since 1.0.18
+     */
+    @SuppressWarnings("deprecation")
+    protected boolean handleCallError(Throwable cause, String errorText) {
+        if (cause instanceof InvalidProtocolBufferException) {
             ms.getErrorHandler().handleServiceError(
-                new MemcacheServiceException("Could not decode response:", ex));
-        } catch (com.google.apphosting.api.ApiProxy.ApplicationException ae) {
+                new MemcacheServiceException("Could not decode response:",
+                    (InvalidProtocolBufferException) cause));
+            return true;
+        }
+        if (cause instanceof ApiProxy.ApplicationException) {
+            ApiProxy.ApplicationException ae =
+                (ApiProxy.ApplicationException) cause;
             logger.info((new StringBuilder())
                 .append(errorText)
                 .append(": ")
@@ -764,9 +2238,14 @@ public class MemcacheDelegate {
                 .toString());
             ms.getErrorHandler().handleServiceError(
                 new MemcacheServiceException(errorText));
-        } catch (com.google.apphosting.api.ApiProxy.ApiProxyException ex) {
+            return true;
+        }
+        if (cause instanceof ApiProxy.ApiProxyException) {
             ms.getErrorHandler().handleServiceError(
-                new MemcacheServiceException(errorText, ex));
+                new MemcacheServiceException(
+                    errorText,
+                    (ApiProxy.ApiProxyException) cause));
+            return true;
         }
         return false;
     }
@@ -797,6 +2276,394 @@ public class MemcacheDelegate {
         return ret;
     }
 
+    /**
+     * A set request and the request of the chunks of its values.
+     * 
+     * @since 1.0.18
+     */
+    protected static class SetRequest {
+
+        /**
+         * The namespace.
+         */
+        protected final String namespace;
+
+        /**
+         * The request of the values and the manifests.
+         */
+        protected final MemcacheServicePb.MemcacheSetRequest request;
+
+        /**
+         * The request of the chunks or null if no value is split into chunks.
+         */
+        protected final MemcacheServicePb.MemcacheSetRequest chunkRequest;
+
+        /**
+         * The keys in the request order.
+         */
+        protected final List<Object> keys;
+
+        /**
+         * The serialized keys of the chunks for each key of a chunked value.
+         */
+        protected final Map<Object, List<byte[]>> chunkKeys;
+
+        /**
+         * Constructor.
+         * 
+         * @param namespace
+         *            the namespace
+         * @param request
+         *            the request of the values and the manifests
+         * @param chunkRequest
+         *            the request of the chunks
+         * @param keys
+         *            the keys in the request order
+         * @param chunkKeys
+         *            the serialized keys of the chunks for each key
+         */
+        protected SetRequest(String namespace,
+                MemcacheServicePb.MemcacheSetRequest request,
+                MemcacheServicePb.MemcacheSetRequest chunkRequest,
+                List<Object> keys, Map<Object, List<byte[]>> chunkKeys) {
+            this.namespace = namespace;
+            this.request = request;
+            this.chunkRequest = chunkRequest;
+            this.keys = keys;
+            this.chunkKeys = chunkKeys;
+        }
+    }
+
+    /**
+     * A {@link Future} for an asynchronous memcache call. The response is
+     * converted only once, when {@link #get()} is called for the first time.
+     * If the call fails and the error handler does not throw an exception,
+     * the default value is returned. If the conversion throws an exception,
+     * the same exception is thrown by the later calls of {@link #get()}.
+     * If a {@link Timeline} is attached, the call is recorded even if
+     * {@link #get()} is never called.
+     * 
+     * @param <T>
+     *            the result type
+     * @since 1.0.18
+     */
+    protected abstract class MemcacheFuture<T> implements Future<T> {
+
+        /**
+         * The future of the response bytes.
+         */
+        protected Future<byte[]> future;
+
+        /**
+         * The response.
+         */
+        protected Message.Builder response;
+
+        /**
+         * The error text.
+         */
+        protected String errorText;
+
+        /**
+         * The default value.
+         */
+        protected T defaultValue;
+
+        /**
+         * Whether the result is resolved.
+         */
+        protected boolean resolved = false;
+
+        /**
+         * The result.
+         */
+        protected T result;
+
+        /**
+         * The exception thrown when the result was resolved.
+         */
+        protected ExecutionException exception;
+
+        /**
+         * Constructor.
+         * 
+         * @param methodName
+         *            the method name
+         * @param request
+         *            the request
+         * @param response
+         *            the response
+         * @param errorText
+         *            the error text
+         * @param defaultValue
+         *            the default value
+         */
+        public MemcacheFuture(String methodName, Message request,
+                Message.Builder response, String errorText, T defaultValue) {
+            Timeline timeline = TimelineLocator.get();
+            long start = timeline != null ? System.nanoTime() : 0;
+            this.future =
+                ApiProxy.makeAsyncCall("memcache", methodName, request
+                    .toByteArray());
+            if (timeline != null) {
+                this.future =
+                    timeline.wrap(
+                        future,
+                        Timeline.MEMCACHE,
+                        methodName,
+                        start,
+                        0);
+            }
+            this.response = response;
+            this.errorText = errorText;
+            this.defaultValue = defaultValue;
+        }
+
+        /**
+         * Converts the response to the result.
+         * 
+         * @return the result
+         */
+        protected abstract T convert();
+
+        /**
+         * Is called once when the result is resolved, after the response is
+         * converted, whether the call and the conversion succeeded or not.
+         */
+        protected void complete() {
+        }
+
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return future.cancel(mayInterruptIfRunning);
+        }
+
+        public boolean isCancelled() {
+            return future.isCancelled();
+        }
+
+        public boolean isDone() {
+            return future.isDone();
+        }
+
+        public T get() throws InterruptedException, ExecutionException {
+            synchronized (this) {
+                if (resolved) {
+                    return getResult();
+                }
+            }
+            byte[] responseBytes;
+            try {
+                responseBytes = future.get();
+            } catch (ExecutionException e) {
+                return fail(e);
+            }
+            return resolve(responseBytes);
+        }
+
+        public T get(long timeout, TimeUnit unit) throws InterruptedException,
+                ExecutionException, TimeoutException {
+            synchronized (this) {
+                if (resolved) {
+                    return getResult();
+                }
+            }
+            byte[] responseBytes;
+            try {
+                responseBytes = future.get(timeout, unit);
+            } catch (ExecutionException e) {
+                return fail(e);
+            }
+            return resolve(responseBytes);
+        }
+
+        /**
+         * Returns the resolved result.
+         * 
+         * @return the result
+         * @throws ExecutionException
+         *             if the result was resolved with an exception
+         */
+        protected T getResult() throws ExecutionException {
+            if (exception != null) {
+                throw exception;
+            }
+            return result;
+        }
+
+        /**
+         * Resolves the result from the response bytes. The response builder is
+         * cleared before the bytes are merged into it.
+         * 
+         * @param responseBytes
+         *            the response bytes
+         * @return the result
+         * @throws ExecutionException
+         *             if the conversion failed
+         */
+        protected synchronized T resolve(byte[] responseBytes)
+                throws ExecutionException {
+            if (resolved) {
+                return getResult();
+            }
+            try {
+                try {
+                    response.clear().mergeFrom(responseBytes);
+                    result = convert();
+                } catch (InvalidProtocolBufferException ex) {
+                    handleCallError(ex, errorText);
+                    result = defaultValue;
+                }
+            } catch (RuntimeException e) {
+                exception = new ExecutionException(e);
+                throw exception;
+            } finally {
+                resolved = true;
+                complete();
+            }
+            return result;
+        }
+
+        /**
+         * Handles the failure of the call.
+         * 
+         * @param e
+         *            the exception
+         * @return the default value
+         * @throws ExecutionException
+         *             if the error handler threw an exception or if the
+         *             cause is not a memcache error
+         */
+        protected synchronized T fail(ExecutionException e)
+                throws ExecutionException {
+            if (resolved) {
+                return getResult();
+            }
+            try {
+                if (!handleCallError(e.getCause(), errorText)) {
+                    exception = e;
+                    throw exception;
+                }
+            } catch (RuntimeException re) {
+                exception = new ExecutionException(re);
+                throw exception;
+            } finally {
+                resolved = true;
+                complete();
+            }
+            result = defaultValue;
+            return result;
+        }
+    }
+
+    /**
+     * A value stored by {@link MemcacheDelegate#getOrCompute(Object,
+     * Expiration, Callable)}.
+     * 
+     * @since 1.0.18
+     */
+    protected static class ComputedValue implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The value.
+         */
+        protected Object value;
+
+        /**
+         * The time(milliseconds) taken to compute the value.
+         */
+        protected long delta;
+
+        /**
+         * The expiration time(milliseconds) or 0 if the value does not
+         * expire.
+         */
+        protected long expirationTime;
+
+        /**
+         * Constructor.
+         * 
+         * @param value
+         *            the value
+         * @param delta
+         *            the time(milliseconds) taken to compute the value
+         * @param expirationTime
+         *            the expiration time(milliseconds)
+         */
+        public ComputedValue(Object value, long delta, long expirationTime) {
+            this.value = value;
+            this.delta = delta;
+            this.expirationTime = expirationTime;
+        }
+
+        /**
+         * Returns the value.
+         * 
+         * @return the value
+         */
+        public Object getValue() {
+            return value;
+        }
+
+        /**
+         * Returns the time(milliseconds) taken to compute the value.
+         * 
+         * @return the time taken to compute the value
+         */
+        public long getDelta() {
+            return delta;
+        }
+
+        /**
+         * Returns the expiration time(milliseconds).
+         * 
+         * @return the expiration time
+         */
+        public long getExpirationTime() {
+            return expirationTime;
+        }
+    }
+
+    /**
+     * A key of the lease to compute a value.
+     * 
+     * @since 1.0.18
+     */
+    protected static class LeaseKey implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The key of the value.
+         */
+        protected Object key;
+
+        /**
+         * Constructor.
+         * 
+         * @param key
+         *            the key of the value
+         */
+        public LeaseKey(Object key) {
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (other instanceof LeaseKey) {
+                Object otherKey = ((LeaseKey) other).key;
+                return key == null ? otherKey == null : key.equals(otherKey);
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return key == null ? 0 : key.hashCode();
+        }
+    }
+
     /**
      * A key class for an array of bytes.
      * 
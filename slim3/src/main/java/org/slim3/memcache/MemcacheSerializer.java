@@ -0,0 +1,69 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.memcache;
+
+import java.io.IOException;
+
+/**
+ * A serializer that converts a value of memcache to an array of bytes and the
+ * flags, and vice versa. {@link MemcacheDelegate} uses the serializer returned
+ * by {@link Memcache#serializer()}.
+ *
+ * @author agent
+ * @since 1.0.18
+ *
+ */
+public interface MemcacheSerializer {
+
+    /**
+     * Serializes the value.
+     *
+     * @param value
+     *            the value
+     * @return the serialized value and the flags
+     * @throws IOException
+     *             if {@link IOException} occurred
+     */
+    S3MemcacheSerialization.ValueAndFlags serialize(Object value)
+            throws IOException;
+
+    /**
+     * Deserializes the array of bytes.
+     *
+     * @param value
+     *            the value
+     * @param flags
+     *            the flags
+     * @return an object
+     * @throws ClassNotFoundException
+     *             if {@link ClassNotFoundException} occurred
+     * @throws IOException
+     *             if {@link IOException} occurred
+     */
+    Object deserialize(byte[] value, int flags)
+            throws ClassNotFoundException, IOException;
+
+    /**
+     * Determines if the deserialized value is immutable. {@link NearCache}
+     * shares an immutable value between the requests instead of deserializing
+     * it whenever it is read.
+     *
+     * @param value
+     *            the deserialized value
+     * @return whether the value is immutable
+     */
+    boolean isImmutable(Object value);
+}
@@ -0,0 +1,565 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.memcache;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slim3.util.Cleanable;
+import org.slim3.util.Cleaner;
+import org.slim3.util.LongUtil;
+
+/**
+ * An in-process cache in front of memcache. The entries are held per namespace
+ * for a short time, and the least recently used entries are evicted when the
+ * total weight exceeds the maximum weight. The weight of an entry is the
+ * length of the serialized key and value. The entries are split into
+ * segments that are locked separately, and each segment evicts its own least
+ * recently used entries.
+ *
+ * <p>
+ * The values that {@link MemcacheSerializer#isImmutable(Object)} accepts are
+ * shared between the requests. The other values are deserialized again when
+ * they are read, so a caller cannot change the cached value. The entry is
+ * invalidated when the key
+ * is put or deleted through {@link MemcacheDelegate} on this instance, but
+ * the changes on the other instances are visible only after the entry expires.
+ * </p>
+ *
+ * <p>
+ * A value read from memcache is put using the versions returned by
+ * {@link #getVersions()} before the read. The version of a segment is
+ * incremented whenever an entry of the segment is removed, so a value read
+ * before a local put or delete does not overwrite the invalidation.
+ * </p>
+ *
+ * @author agent
+ * @since 1.0.18
+ *
+ */
+public class NearCache {
+
+    /**
+     * The key of the time to live(milliseconds). If the value is positive, the
+     * near cache is enabled.
+     */
+    public static final String TTL_KEY = "slim3.memcacheNearCacheTtl";
+
+    /**
+     * The key of the maximum weight.
+     */
+    public static final String MAX_WEIGHT_KEY =
+        "slim3.memcacheNearCacheMaxWeight";
+
+    /**
+     * The default maximum weight.
+     */
+    public static final long DEFAULT_MAX_WEIGHT = 1024 * 1024;
+
+    /**
+     * The maximum number of the segments.
+     */
+    protected static final int MAX_SEGMENT_COUNT = 16;
+
+    /**
+     * The minimum weight of a segment.
+     */
+    protected static final long MIN_SEGMENT_WEIGHT = 64 * 1024;
+
+    /**
+     * The time to live(milliseconds).
+     */
+    protected final long ttl;
+
+    /**
+     * The maximum weight.
+     */
+    protected final long maxWeight;
+
+    /**
+     * The segments.
+     */
+    protected final Segment[] segments;
+
+    /**
+     * The hit count.
+     */
+    protected final AtomicLong hitCount = new AtomicLong();
+
+    /**
+     * The miss count.
+     */
+    protected final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Whether this cache is registered to {@link Cleaner}.
+     */
+    protected volatile boolean initialized = false;
+
+    /**
+     * Constructor.
+     *
+     * @param ttl
+     *            the time to live(milliseconds)
+     * @param maxWeight
+     *            the maximum weight
+     * @throws IllegalArgumentException
+     *             if the ttl parameter is not positive or if the maxWeight
+     *             parameter is not positive
+     */
+    public NearCache(long ttl, long maxWeight) throws IllegalArgumentException {
+        if (ttl <= 0) {
+            throw new IllegalArgumentException("The ttl parameter("
+                + ttl
+                + ") must be positive.");
+        }
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("The maxWeight parameter("
+                + maxWeight
+                + ") must be positive.");
+        }
+        this.ttl = ttl;
+        this.maxWeight = maxWeight;
+        int segmentCount = 1;
+        while (segmentCount < MAX_SEGMENT_COUNT
+            && maxWeight / (segmentCount * 2) >= MIN_SEGMENT_WEIGHT) {
+            segmentCount *= 2;
+        }
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(maxWeight / segmentCount);
+        }
+    }
+
+    /**
+     * Creates a near cache from the system properties.
+     *
+     * @return a near cache or null if the near cache is not enabled
+     */
+    public static NearCache fromSystemProperties() {
+        Long ttl = LongUtil.toLong(System.getProperty(TTL_KEY));
+        if (ttl == null || ttl <= 0) {
+            return null;
+        }
+        Long maxWeight = LongUtil.toLong(System.getProperty(MAX_WEIGHT_KEY));
+        return new NearCache(ttl, maxWeight != null
+            ? maxWeight
+            : DEFAULT_MAX_WEIGHT);
+    }
+
+    /**
+     * Returns the time to live(milliseconds).
+     *
+     * @return the time to live
+     */
+    public long getTtl() {
+        return ttl;
+    }
+
+    /**
+     * Returns the maximum weight.
+     *
+     * @return the maximum weight
+     */
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * Returns the entry. The expired entry is removed.
+     *
+     * @param namespace
+     *            the namespace
+     * @param key
+     *            the serialized key
+     * @return the entry or null if the entry is not found
+     */
+    public Entry get(String namespace, byte[] key) {
+        EntryKey entryKey = new EntryKey(namespace, key);
+        Entry entry = segmentFor(entryKey).get(entryKey, currentTimeMillis());
+        if (entry == null) {
+            missCount.incrementAndGet();
+        } else {
+            hitCount.incrementAndGet();
+        }
+        return entry;
+    }
+
+    /**
+     * Returns the versions of the segments. Pass them to
+     * {@link #put(String, byte[], byte[], int, Object, long[])} after reading
+     * the value.
+     *
+     * @return the versions of the segments
+     */
+    public long[] getVersions() {
+        long[] versions = new long[segments.length];
+        for (int i = 0; i < segments.length; i++) {
+            versions[i] = segments[i].version;
+        }
+        return versions;
+    }
+
+    /**
+     * Puts the entry.
+     *
+     * @param namespace
+     *            the namespace
+     * @param key
+     *            the serialized key
+     * @param value
+     *            the serialized value
+     * @param flags
+     *            the flags
+     * @param sharedValue
+     *            the deserialized value shared between the requests, or null
+     *            if the value is deserialized whenever it is read
+     */
+    public void put(String namespace, byte[] key, byte[] value, int flags,
+            Object sharedValue) {
+        put(namespace, key, value, flags, sharedValue, null);
+    }
+
+    /**
+     * Puts the entry unless the segment of the entry has been invalidated
+     * since the versions were returned by {@link #getVersions()}.
+     *
+     * @param namespace
+     *            the namespace
+     * @param key
+     *            the serialized key
+     * @param value
+     *            the serialized value
+     * @param flags
+     *            the flags
+     * @param sharedValue
+     *            the deserialized value shared between the requests, or null
+     *            if the value is deserialized whenever it is read
+     * @param versions
+     *            the versions of the segments, or null if the entry is put
+     *            unconditionally
+     * @return whether the entry was put
+     */
+    public boolean put(String namespace, byte[] key, byte[] value, int flags,
+            Object sharedValue, long[] versions) {
+        if (!initialized) {
+            register();
+        }
+        EntryKey entryKey = new EntryKey(namespace, key);
+        int index = indexFor(entryKey);
+        Entry entry =
+            new Entry(
+                value,
+                flags,
+                sharedValue,
+                key.length + value.length,
+                currentTimeMillis() + ttl);
+        return segments[index].put(entryKey, entry, versions != null
+            ? versions[index]
+            : -1);
+    }
+
+    /**
+     * Removes the entry.
+     *
+     * @param namespace
+     *            the namespace
+     * @param key
+     *            the serialized key
+     */
+    public void remove(String namespace, byte[] key) {
+        EntryKey entryKey = new EntryKey(namespace, key);
+        segmentFor(entryKey).remove(entryKey);
+    }
+
+    /**
+     * Removes all the entries.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * Returns the number of the entries.
+     *
+     * @return the number of the entries
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Returns the total weight.
+     *
+     * @return the total weight
+     */
+    public long getWeight() {
+        long weight = 0;
+        for (Segment segment : segments) {
+            weight += segment.getWeight();
+        }
+        return weight;
+    }
+
+    /**
+     * Returns the hit count.
+     *
+     * @return the hit count
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Returns the miss count.
+     *
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Returns the hit ratio.
+     *
+     * @return the hit ratio
+     */
+    public double getHitRatio() {
+        long hits = hitCount.get();
+        long count = hits + missCount.get();
+        return count == 0 ? 0 : (double) hits / count;
+    }
+
+    /**
+     * Returns the current time in milliseconds.
+     *
+     * @return the current time in milliseconds
+     */
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Returns the segment for the key.
+     *
+     * @param entryKey
+     *            the key
+     * @return the segment
+     */
+    protected Segment segmentFor(EntryKey entryKey) {
+        return segments[indexFor(entryKey)];
+    }
+
+    /**
+     * Returns the index of the segment for the key.
+     *
+     * @param entryKey
+     *            the key
+     * @return the index of the segment
+     */
+    protected int indexFor(EntryKey entryKey) {
+        int h = entryKey.hashCode();
+        h ^= (h >>> 20) ^ (h >>> 12);
+        h ^= (h >>> 7) ^ (h >>> 4);
+        return h & (segments.length - 1);
+    }
+
+    /**
+     * Registers this cache to {@link Cleaner}.
+     */
+    protected synchronized void register() {
+        if (initialized) {
+            return;
+        }
+        Cleaner.add(new Cleanable() {
+            public void clean() {
+                synchronized (NearCache.this) {
+                    clear();
+                    initialized = false;
+                }
+            }
+        });
+        initialized = true;
+    }
+
+    /**
+     * A part of the entries in the access order, which is locked by itself.
+     */
+    protected static final class Segment {
+
+        private final long maxWeight;
+
+        private final LinkedHashMap<EntryKey, Entry> entries =
+            new LinkedHashMap<EntryKey, Entry>(16, 0.75f, true);
+
+        private long weight;
+
+        private volatile long version;
+
+        private Segment(long maxWeight) {
+            this.maxWeight = maxWeight;
+        }
+
+        private synchronized Entry get(EntryKey entryKey, long now) {
+            Entry entry = entries.get(entryKey);
+            if (entry != null && entry.expirationTime <= now) {
+                entries.remove(entryKey);
+                weight -= entry.weight;
+                entry = null;
+            }
+            return entry;
+        }
+
+        private synchronized boolean put(EntryKey entryKey, Entry entry,
+                long expectedVersion) {
+            if (expectedVersion >= 0 && version != expectedVersion) {
+                return false;
+            }
+            Entry old = entries.remove(entryKey);
+            if (old != null) {
+                weight -= old.weight;
+            }
+            if (entry.weight > maxWeight) {
+                return false;
+            }
+            entries.put(entryKey, entry);
+            weight += entry.weight;
+            for (Iterator<Map.Entry<EntryKey, Entry>> i =
+                entries.entrySet().iterator(); weight > maxWeight
+                && i.hasNext();) {
+                weight -= i.next().getValue().weight;
+                i.remove();
+            }
+            return true;
+        }
+
+        private synchronized void remove(EntryKey entryKey) {
+            version++;
+            Entry entry = entries.remove(entryKey);
+            if (entry != null) {
+                weight -= entry.weight;
+            }
+        }
+
+        private synchronized void clear() {
+            version++;
+            entries.clear();
+            weight = 0;
+        }
+
+        private synchronized int size() {
+            return entries.size();
+        }
+
+        private synchronized long getWeight() {
+            return weight;
+        }
+    }
+
+    /**
+     * An entry of the near cache.
+     */
+    public static final class Entry {
+
+        private final byte[] value;
+
+        private final int flags;
+
+        private final Object deserializedValue;
+
+        private final long weight;
+
+        private final long expirationTime;
+
+        private Entry(byte[] value, int flags, Object deserializedValue,
+                long weight, long expirationTime) {
+            this.value = value;
+            this.flags = flags;
+            this.deserializedValue = deserializedValue;
+            this.weight = weight;
+            this.expirationTime = expirationTime;
+        }
+
+        /**
+         * Returns the value. The value is deserialized unless it is shared.
+         *
+         * @param serializer
+         *            the serializer
+         * @return the value
+         * @throws ClassNotFoundException
+         *             if {@link ClassNotFoundException} occurred
+         * @throws IOException
+         *             if {@link IOException} occurred
+         */
+        public Object getValue(MemcacheSerializer serializer)
+                throws ClassNotFoundException, IOException {
+            if (deserializedValue != null) {
+                return deserializedValue;
+            }
+            return serializer.deserialize(value.clone(), flags);
+        }
+    }
+
+    /**
+     * A key of the near cache.
+     */
+    protected static final class EntryKey {
+
+        private final String namespace;
+
+        private final byte[] key;
+
+        private final int hashCode;
+
+        /**
+         * Constructor.
+         *
+         * @param namespace
+         *            the namespace
+         * @param key
+         *            the serialized key
+         */
+        public EntryKey(String namespace, byte[] key) {
+            this.namespace = namespace;
+            this.key = key;
+            hashCode = namespace.hashCode() * 31 + Arrays.hashCode(key);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof EntryKey)) {
+                return false;
+            }
+            EntryKey o = (EntryKey) other;
+            return namespace.equals(o.namespace) && Arrays.equals(key, o.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
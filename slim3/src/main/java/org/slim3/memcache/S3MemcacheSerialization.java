@@ -16,11 +16,28 @@
 package org.slim3.memcache;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectStreamClass;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.slim3.datastore.DatastoreUtil;
+import org.slim3.datastore.LazyAttributeUtil;
+import org.slim3.datastore.Model;
+import org.slim3.datastore.ModelMeta;
+import org.slim3.util.Cleanable;
+import org.slim3.util.Cleaner;
 
 import com.google.appengine.api.memcache.InvalidValueException;
+import com.google.appengine.api.memcache.MemcacheSerialization;
 import com.google.appengine.api.memcache.MemcacheSerialization.Flag;
 
 /**
@@ -32,6 +49,290 @@ import com.google.appengine.api.memcache.MemcacheSerialization.Flag;
  */
 public final class S3MemcacheSerialization {
 
+    /**
+     * The flags for a model written by the binary codec of its meta data.
+     * 
+     * @since 1.0.18
+     */
+    public static final int MODEL = 0x0100;
+
+    /**
+     * The flag bit for a value compressed by {@link #compress(ValueAndFlags)}.
+     * 
+     * @since 1.0.18
+     */
+    public static final int COMPRESSED = 0x0200;
+
+    /**
+     * The flags for a manifest of a value split into chunks.
+     * 
+     * @since 1.0.18
+     */
+    public static final int CHUNKED = 0x0400;
+
+    /**
+     * The maximum length of a value read from memcache. A chunked value is
+     * read using one get request, whose response is limited to 32 megabytes,
+     * so a longer length means that the value is corrupted.
+     * 
+     * @since 1.0.18
+     */
+    public static final int MAX_VALUE_LENGTH = 32 * 1024 * 1024;
+
+    /**
+     * The maximum ratio of the length of a value to the length of the value
+     * compressed by deflate.
+     */
+    private static final int MAX_COMPRESSION_RATIO = 1032;
+
+    private static final AtomicLong compressedCount = new AtomicLong();
+
+    private static final AtomicLong bytesBeforeCompression = new AtomicLong();
+
+    private static final AtomicLong bytesAfterCompression = new AtomicLong();
+
+    private static final AtomicLong chunkedCount = new AtomicLong();
+
+    /**
+     * The cache of the classes resolved while deserializing the values.
+     */
+    private static final ConcurrentHashMap<String, Class<?>> classCache =
+        new ConcurrentHashMap<String, Class<?>>();
+
+    private static volatile boolean initialized = false;
+
+    private static synchronized void initialize() {
+        if (initialized) {
+            return;
+        }
+        Cleaner.add(new Cleanable() {
+            public void clean() {
+                classCache.clear();
+                initialized = false;
+            }
+        });
+        initialized = true;
+    }
+
+    /**
+     * Serializes the value. If the value is a model whose binary codec is
+     * generated, the class name and the schema hash of the model are written
+     * ahead of the model written by the codec, and the flags are
+     * {@link #MODEL}. Otherwise the pending lazy attributes of the value are
+     * decoded, and the value is serialized by {@link MemcacheSerialization}.
+     * 
+     * @param value
+     *            the value
+     * @return the serialized value and the flags
+     * @throws IOException
+     *             if {@link IOException} occurred
+     * @since 1.0.18
+     */
+    public static ValueAndFlags serialize(Object value) throws IOException {
+        ModelMeta<?> modelMeta = getBinaryCodecModelMeta(value);
+        if (modelMeta != null) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream(256);
+            DataOutputStream out = new DataOutputStream(baos);
+            out.writeUTF(modelMeta.getModelClass().getName());
+            out.writeLong(modelMeta.getBinaryCodecSchemaHash());
+            modelMeta.writeTo(value, out);
+            out.flush();
+            return new ValueAndFlags(baos.toByteArray(), MODEL);
+        }
+        LazyAttributeUtil.resolveAllIn(value);
+        MemcacheSerialization.ValueAndFlags vaf =
+            MemcacheSerialization.serialize(value);
+        return new ValueAndFlags(vaf.value, vaf.flags.ordinal());
+    }
+
+    /**
+     * Compresses the serialized value using deflate. If the compressed value
+     * is not smaller than the original one, the original one is returned.
+     * 
+     * @param valueAndFlags
+     *            the serialized value and the flags
+     * @return the compressed value and the flags including
+     *         {@link #COMPRESSED}
+     * @throws NullPointerException
+     *             if the valueAndFlags parameter is null
+     * @since 1.0.18
+     */
+    public static ValueAndFlags compress(ValueAndFlags valueAndFlags)
+            throws NullPointerException {
+        if (valueAndFlags == null) {
+            throw new NullPointerException(
+                "The valueAndFlags parameter must not be null.");
+        }
+        byte[] value = valueAndFlags.value;
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(value);
+            deflater.finish();
+            byte[] buf = new byte[value.length];
+            int length = 4;
+            while (!deflater.finished() && length < buf.length) {
+                length += deflater.deflate(buf, length, buf.length - length);
+            }
+            if (!deflater.finished()) {
+                return valueAndFlags;
+            }
+            buf[0] = (byte) (value.length >>> 24);
+            buf[1] = (byte) (value.length >>> 16);
+            buf[2] = (byte) (value.length >>> 8);
+            buf[3] = (byte) value.length;
+            byte[] compressed = new byte[length];
+            System.arraycopy(buf, 0, compressed, 0, length);
+            compressedCount.incrementAndGet();
+            bytesBeforeCompression.addAndGet(value.length);
+            bytesAfterCompression.addAndGet(length);
+            return new ValueAndFlags(compressed, valueAndFlags.flags
+                | COMPRESSED);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Decompresses the value compressed by {@link #compress(ValueAndFlags)}.
+     * If the flags do not include {@link #COMPRESSED}, the value is returned
+     * as is.
+     * 
+     * @param valueAndFlags
+     *            the compressed value and the flags
+     * @return the decompressed value and the flags
+     * @throws NullPointerException
+     *             if the valueAndFlags parameter is null
+     * @throws IOException
+     *             if the value is corrupted
+     * @since 1.0.18
+     */
+    public static ValueAndFlags decompress(ValueAndFlags valueAndFlags)
+            throws NullPointerException, IOException {
+        if (valueAndFlags == null) {
+            throw new NullPointerException(
+                "The valueAndFlags parameter must not be null.");
+        }
+        if ((valueAndFlags.flags & COMPRESSED) == 0) {
+            return valueAndFlags;
+        }
+        byte[] value = valueAndFlags.value;
+        if (value.length < 4) {
+            throw new IOException("The compressed value is too short.");
+        }
+        int length =
+            ((value[0] & 0xff) << 24)
+                | ((value[1] & 0xff) << 16)
+                | ((value[2] & 0xff) << 8)
+                | (value[3] & 0xff);
+        if (length < 0
+            || length > MAX_VALUE_LENGTH
+            || length > (long) (value.length - 4) * MAX_COMPRESSION_RATIO) {
+            throw new IOException("The length("
+                + length
+                + ") of the compressed value is invalid.");
+        }
+        byte[] decompressed = new byte[length];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(value, 4, value.length - 4);
+            int offset = 0;
+            while (offset < length) {
+                int n =
+                    inflater.inflate(decompressed, offset, length - offset);
+                if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IOException(
+                        "The compressed value is truncated.");
+                }
+                offset += n;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+        return new ValueAndFlags(decompressed, valueAndFlags.flags
+            & ~COMPRESSED);
+    }
+
+    /**
+     * Returns the number of the compressed values.
+     * 
+     * @return the number of the compressed values
+     * @since 1.0.18
+     */
+    public static long getCompressedCount() {
+        return compressedCount.get();
+    }
+
+    /**
+     * Returns the total bytes of the values before compression.
+     * 
+     * @return the total bytes of the values before compression
+     * @since 1.0.18
+     */
+    public static long getBytesBeforeCompression() {
+        return bytesBeforeCompression.get();
+    }
+
+    /**
+     * Returns the total bytes of the values after compression.
+     * 
+     * @return the total bytes of the values after compression
+     * @since 1.0.18
+     */
+    public static long getBytesAfterCompression() {
+        return bytesAfterCompression.get();
+    }
+
+    /**
+     * Returns the number of the values split into chunks.
+     * 
+     * @return the number of the values split into chunks
+     * @since 1.0.18
+     */
+    public static long getChunkedCount() {
+        return chunkedCount.get();
+    }
+
+    /**
+     * Records that a value is split into chunks.
+     */
+    static void incrementChunkedCount() {
+        chunkedCount.incrementAndGet();
+    }
+
+    /**
+     * Determines if the value is a model whose binary codec is generated.
+     * 
+     * @param value
+     *            the value
+     * @return whether the value is a model whose binary codec is generated
+     * @since 1.0.18
+     */
+    public static boolean isBinaryCodecSupported(Object value) {
+        return getBinaryCodecModelMeta(value) != null;
+    }
+
+    /**
+     * Returns the meta data of the model if the binary codec is generated.
+     * 
+     * @param value
+     *            the value
+     * @return the meta data of the model or null
+     */
+    private static ModelMeta<?> getBinaryCodecModelMeta(Object value) {
+        if (value == null) {
+            return null;
+        }
+        Class<?> clazz = value.getClass();
+        Model model = clazz.getAnnotation(Model.class);
+        if (model == null || !model.binaryCodec()) {
+            return null;
+        }
+        ModelMeta<?> modelMeta = DatastoreUtil.getModelMeta(clazz);
+        return modelMeta.isBinaryCodecSupported() ? modelMeta : null;
+    }
+
     /**
      * Deserializes the array of bytes.
      * 
@@ -47,6 +348,9 @@ public final class S3MemcacheSerialization {
      */
     public static Object deserialize(byte value[], int flags)
             throws ClassNotFoundException, IOException {
+        if (flags == MODEL) {
+            return readModel(value);
+        }
         Flag flagval = Flag.fromInt(flags);
         switch (flagval) {
         case BYTES:
@@ -79,20 +383,7 @@ public final class S3MemcacheSerialization {
                 return null;
             }
             ByteArrayInputStream bais = new ByteArrayInputStream(value);
-            ObjectInputStream ois = new ObjectInputStream(bais) {
-                @Override
-                protected Class<?> resolveClass(ObjectStreamClass desc)
-                        throws IOException, ClassNotFoundException {
-                    String name = desc.getName();
-                    try {
-                        return Class.forName(name, false, Thread
-                            .currentThread()
-                            .getContextClassLoader());
-                    } catch (ClassNotFoundException ex) {
-                        return super.resolveClass(desc);
-                    }
-                }
-            };
+            ObjectInputStream ois = new ClassCachingObjectInputStream(bais);
             Object o = null;
             try {
                 o = ois.readObject();
@@ -104,6 +395,138 @@ public final class S3MemcacheSerialization {
         return null;
     }
 
+    /**
+     * Reads the model written by the binary codec.
+     * 
+     * @param value
+     *            the value
+     * @return a model
+     * @throws ClassNotFoundException
+     *             if {@link ClassNotFoundException} occurred
+     * @throws SchemaMismatchException
+     *             if the model was written by another version of the codec
+     * @throws IOException
+     *             if {@link IOException} occurred
+     */
+    private static Object readModel(byte value[])
+            throws ClassNotFoundException, SchemaMismatchException,
+            IOException {
+        DataInputStream in =
+            new DataInputStream(new ByteArrayInputStream(value));
+        Class<?> modelClass = resolveClass(in.readUTF());
+        ModelMeta<?> modelMeta = DatastoreUtil.getModelMeta(modelClass);
+        if (in.readLong() != modelMeta.getBinaryCodecSchemaHash()) {
+            throw new SchemaMismatchException("The schema of the model("
+                + modelClass.getName()
+                + ") does not match the binary codec.");
+        }
+        return modelMeta.readFrom(in);
+    }
+
+    /**
+     * Resolves the class using the context class loader. The resolved class is
+     * cached until {@link Cleaner#cleanAll()} is called.
+     * 
+     * @param className
+     *            the class name
+     * @return the class
+     * @throws ClassNotFoundException
+     *             if the class is not found
+     */
+    static Class<?> resolveClass(String className)
+            throws ClassNotFoundException {
+        Class<?> clazz = classCache.get(className);
+        if (clazz != null) {
+            return clazz;
+        }
+        clazz =
+            Class.forName(className, false, Thread
+                .currentThread()
+                .getContextClassLoader());
+        cacheClass(className, clazz);
+        return clazz;
+    }
+
+    /**
+     * Caches the resolved class.
+     * 
+     * @param className
+     *            the class name
+     * @param clazz
+     *            the class
+     */
+    static void cacheClass(String className, Class<?> clazz) {
+        if (!initialized) {
+            initialize();
+        }
+        classCache.put(className, clazz);
+    }
+
+    /**
+     * Returns the number of the cached classes.
+     * 
+     * @return the number of the cached classes
+     */
+    static int getCachedClassCount() {
+        return classCache.size();
+    }
+
     private S3MemcacheSerialization() {
     }
+
+    /**
+     * An {@link ObjectInputStream} that resolves the classes through the
+     * cache.
+     */
+    private static final class ClassCachingObjectInputStream extends
+            ObjectInputStream {
+
+        ClassCachingObjectInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc)
+                throws IOException, ClassNotFoundException {
+            String name = desc.getName();
+            try {
+                return S3MemcacheSerialization.resolveClass(name);
+            } catch (ClassNotFoundException ex) {
+                Class<?> clazz = super.resolveClass(desc);
+                cacheClass(name, clazz);
+                return clazz;
+            }
+        }
+    }
+
+    /**
+     * The serialized value and the flags.
+     * 
+     * @since 1.0.18
+     */
+    public static final class ValueAndFlags {
+
+        /**
+         * The serialized value.
+         */
+        public final byte[] value;
+
+        /**
+         * The flags.
+         */
+        public final int flags;
+
+        /**
+         * Constructor.
+         * 
+         * @param value
+         *            the serialized value
+         * @param flags
+         *            the flags
+         */
+        public ValueAndFlags(byte[] value, int flags) {
+            this.value = value;
+            this.flags = flags;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.memcache;
+
+import java.io.IOException;
+
+import com.google.appengine.api.datastore.Key;
+
+/**
+ * The default {@link MemcacheSerializer} using
+ * {@link S3MemcacheSerialization}. A model whose binary codec is generated is
+ * written by the codec, and the classes of the serialized objects are resolved
+ * through the cache of {@link S3MemcacheSerialization}.
+ *
+ * @author agent
+ * @since 1.0.18
+ *
+ */
+public class S3MemcacheSerializer implements MemcacheSerializer {
+
+    /**
+     * Constructor.
+     */
+    public S3MemcacheSerializer() {
+    }
+
+    public S3MemcacheSerialization.ValueAndFlags serialize(Object value)
+            throws IOException {
+        return S3MemcacheSerialization.serialize(value);
+    }
+
+    public Object deserialize(byte[] value, int flags)
+            throws ClassNotFoundException, IOException {
+        return S3MemcacheSerialization.deserialize(value, flags);
+    }
+
+    /**
+     * Returns true if the value is a string, a boxed primitive or a
+     * {@link Key}. Override this method to share the other immutable types.
+     * Models are mutable, so they are never shared.
+     */
+    public boolean isImmutable(Object value) {
+        return value instanceof String
+            || value instanceof Boolean
+            || value instanceof Byte
+            || value instanceof Short
+            || value instanceof Integer
+            || value instanceof Long
+            || value instanceof Float
+            || value instanceof Double
+            || value instanceof Character
+            || value instanceof Key;
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.memcache;
+
+import com.google.appengine.api.memcache.Stats;
+
+/**
+ * The statistics of memcache including the statistics of {@link NearCache}
+ * and the compression of the values in this process.
+ *
+ * @author agent
+ * @since 1.0.18
+ *
+ */
+public class S3Stats implements Stats {
+
+    /**
+     * The statistics of memcache.
+     */
+    protected Stats stats;
+
+    /**
+     * The hit count of the near cache.
+     */
+    protected long nearCacheHitCount;
+
+    /**
+     * The miss count of the near cache.
+     */
+    protected long nearCacheMissCount;
+
+    /**
+     * The number of the entries of the near cache.
+     */
+    protected long nearCacheItemCount;
+
+    /**
+     * The total weight of the near cache.
+     */
+    protected long nearCacheWeight;
+
+    /**
+     * The number of the compressed values.
+     */
+    protected long compressedItemCount;
+
+    /**
+     * The total bytes of the values before compression.
+     */
+    protected long bytesBeforeCompression;
+
+    /**
+     * The total bytes of the values after compression.
+     */
+    protected long bytesAfterCompression;
+
+    /**
+     * The number of the values split into chunks.
+     */
+    protected long chunkedItemCount;
+
+    /**
+     * Constructor.
+     *
+     * @param stats
+     *            the statistics of memcache
+     * @param nearCache
+     *            the near cache
+     * @throws NullPointerException
+     *             if the stats parameter is null
+     */
+    public S3Stats(Stats stats, NearCache nearCache)
+            throws NullPointerException {
+        if (stats == null) {
+            throw new NullPointerException(
+                "The stats parameter must not be null.");
+        }
+        this.stats = stats;
+        if (nearCache != null) {
+            nearCacheHitCount = nearCache.getHitCount();
+            nearCacheMissCount = nearCache.getMissCount();
+            nearCacheItemCount = nearCache.size();
+            nearCacheWeight = nearCache.getWeight();
+        }
+        compressedItemCount = S3MemcacheSerialization.getCompressedCount();
+        bytesBeforeCompression =
+            S3MemcacheSerialization.getBytesBeforeCompression();
+        bytesAfterCompression =
+            S3MemcacheSerialization.getBytesAfterCompression();
+        chunkedItemCount = S3MemcacheSerialization.getChunkedCount();
+    }
+
+    public long getHitCount() {
+        return stats.getHitCount();
+    }
+
+    public long getMissCount() {
+        return stats.getMissCount();
+    }
+
+    public long getBytesReturnedForHits() {
+        return stats.getBytesReturnedForHits();
+    }
+
+    public long getItemCount() {
+        return stats.getItemCount();
+    }
+
+    public long getTotalItemBytes() {
+        return stats.getTotalItemBytes();
+    }
+
+    public int getMaxTimeWithoutAccess() {
+        return stats.getMaxTimeWithoutAccess();
+    }
+
+    /**
+     * Returns the hit count of the near cache.
+     *
+     * @return the hit count of the near cache
+     */
+    public long getNearCacheHitCount() {
+        return nearCacheHitCount;
+    }
+
+    /**
+     * Returns the miss count of the near cache.
+     *
+     * @return the miss count of the near cache
+     */
+    public long getNearCacheMissCount() {
+        return nearCacheMissCount;
+    }
+
+    /**
+     * Returns the hit ratio of the near cache.
+     *
+     * @return the hit ratio of the near cache
+     */
+    public double getNearCacheHitRatio() {
+        long count = nearCacheHitCount + nearCacheMissCount;
+        return count == 0 ? 0 : (double) nearCacheHitCount / count;
+    }
+
+    /**
+     * Returns the number of the entries of the near cache.
+     *
+     * @return the number of the entries of the near cache
+     */
+    public long getNearCacheItemCount() {
+        return nearCacheItemCount;
+    }
+
+    /**
+     * Returns the total weight of the near cache.
+     *
+     * @return the total weight of the near cache
+     */
+    public long getNearCacheWeight() {
+        return nearCacheWeight;
+    }
+
+    /**
+     * Returns the number of the compressed values.
+     *
+     * @return the number of the compressed values
+     */
+    public long getCompressedItemCount() {
+        return compressedItemCount;
+    }
+
+    /**
+     * Returns the ratio of the compressed bytes to the original bytes.
+     *
+     * @return the compression ratio
+     */
+    public double getCompressionRatio() {
+        return bytesBeforeCompression == 0
+            ? 0
+            : (double) bytesAfterCompression / bytesBeforeCompression;
+    }
+
+    /**
+     * Returns the bytes saved by compression.
+     *
+     * @return the bytes saved by compression
+     */
+    public long getBytesSavedByCompression() {
+        return bytesBeforeCompression - bytesAfterCompression;
+    }
+
+    /**
+     * Returns the number of the values split into chunks.
+     *
+     * @return the number of the values split into chunks
+     */
+    public long getChunkedItemCount() {
+        return chunkedItemCount;
+    }
+
+    @Override
+    public String toString() {
+        return stats.toString()
+            + ", nearCacheHitCount="
+            + nearCacheHitCount
+            + ", nearCacheMissCount="
+            + nearCacheMissCount
+            + ", nearCacheItemCount="
+            + nearCacheItemCount
+            + ", nearCacheWeight="
+            + nearCacheWeight
+            + ", compressedItemCount="
+            + compressedItemCount
+            + ", compressionRatio="
+            + getCompressionRatio()
+            + ", chunkedItemCount="
+            + chunkedItemCount;
+    }
+}
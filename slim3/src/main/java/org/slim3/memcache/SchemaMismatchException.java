@@ -0,0 +1,42 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.memcache;
+
+import java.io.IOException;
+
+/**
+ * An exception thrown when a model in memcache was written by another version
+ * of the binary codec. {@link MemcacheDelegate} treats such a value as a cache
+ * miss.
+ * 
+ * @author agent
+ * @since 1.0.18
+ * 
+ */
+public class SchemaMismatchException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructor.
+     * 
+     * @param message
+     *            the message
+     */
+    public SchemaMismatchException(String message) {
+        super(message);
+    }
+}
@@ -15,6 +15,8 @@
  */
 package org.slim3.util;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -24,7 +26,9 @@ import javax.crypto.spec.SecretKeySpec;
 import org.slim3.repackaged.com.google.gdata.util.common.util.Base64;
 
 /**
- * A class to cipher using the AES algorithm.
+ * A class to cipher using the AES algorithm. The initialized
+ * {@link javax.crypto.Cipher}s are kept per thread and per key, so the
+ * provider is not looked up for each text.
  * 
  * @author oyama1102
  * @since 1.0.6
@@ -68,6 +72,18 @@ public class AesCipher implements Cipher {
     private static final Logger logger =
         Logger.getLogger(AesCipher.class.getName());
 
+    /**
+     * The maximum number of the keys whose ciphers are kept per thread.
+     */
+    protected static final int MAX_CACHED_KEYS = 16;
+
+    /**
+     * The initialized ciphers of the current thread. The key is the key for
+     * cipher and the value is the ciphers for encryption and decryption.
+     */
+    protected static final ThreadLocal<Map<String, javax.crypto.Cipher[]>>
+        ciphers = new ThreadLocal<Map<String, javax.crypto.Cipher[]>>();
+
     /**
      * The key.
      */
@@ -109,20 +125,17 @@ public class AesCipher implements Cipher {
         if (StringUtil.isEmpty(text)) {
             return text;
         }
-        validateAesKey(key);
+        javax.crypto.Cipher cipher =
+            getCipher(javax.crypto.Cipher.ENCRYPT_MODE, key);
+        if (cipher == null) {
+            return null;
+        }
         String result = null;
         try {
-            SecretKeySpec spec =
-                new SecretKeySpec(key.getBytes(ENCODING), ALGORITHM_KEY);
-            javax.crypto.Cipher cipher =
-                javax.crypto.Cipher.getInstance(ALGORITHM);
-            cipher.init(
-                javax.crypto.Cipher.ENCRYPT_MODE,
-                spec,
-                new IvParameterSpec(CBC_IV));
             byte[] encText = cipher.doFinal(text.getBytes(ENCODING));
             result = Base64.encode(encText);
         } catch (Exception e) {
+            removeCiphers(key);
             logger.log(Level.WARNING, e.getMessage(), e);
         }
         return result;
@@ -164,25 +177,85 @@ public class AesCipher implements Cipher {
         if (StringUtil.isEmpty(encryptedText)) {
             return encryptedText;
         }
-        validateAesKey(key);
+        javax.crypto.Cipher cipher =
+            getCipher(javax.crypto.Cipher.DECRYPT_MODE, key);
+        if (cipher == null) {
+            return null;
+        }
         String result = null;
         try {
-            SecretKeySpec spec =
-                new SecretKeySpec(key.getBytes(ENCODING), ALGORITHM_KEY);
-            javax.crypto.Cipher cipher =
-                javax.crypto.Cipher.getInstance(ALGORITHM);
-            cipher.init(
-                javax.crypto.Cipher.DECRYPT_MODE,
-                spec,
-                new IvParameterSpec(CBC_IV));
             byte[] bytes = Base64.decode(encryptedText);
             result = new String(cipher.doFinal(bytes), ENCODING);
         } catch (Exception e) {
+            removeCiphers(key);
             logger.log(Level.WARNING, e.getMessage(), e);
         }
         return result;
     }
 
+    /**
+     * Returns the initialized cipher of the current thread. The cipher is
+     * reset by {@link javax.crypto.Cipher#doFinal(byte[])}, so it can be used
+     * again for the next text.
+     * 
+     * @param mode
+     *            the mode of the cipher
+     * @param key
+     *            the key for cipher
+     * @return the initialized cipher or null if the cipher cannot be
+     *         initialized
+     * @throws NullPointerException
+     *             if the key parameter is null
+     * @throws IllegalArgumentException
+     *             if the key parameter is not 128 bits
+     */
+    protected javax.crypto.Cipher getCipher(int mode, String key)
+            throws NullPointerException, IllegalArgumentException {
+        Map<String, javax.crypto.Cipher[]> map = ciphers.get();
+        if (map == null) {
+            map = new HashMap<String, javax.crypto.Cipher[]>();
+            ciphers.set(map);
+        }
+        javax.crypto.Cipher[] pair = map.get(key);
+        if (pair == null) {
+            validateAesKey(key);
+            if (map.size() >= MAX_CACHED_KEYS) {
+                map.clear();
+            }
+            pair = new javax.crypto.Cipher[2];
+            map.put(key, pair);
+        }
+        int index = mode == javax.crypto.Cipher.ENCRYPT_MODE ? 0 : 1;
+        javax.crypto.Cipher cipher = pair[index];
+        if (cipher == null) {
+            try {
+                SecretKeySpec spec =
+                    new SecretKeySpec(key.getBytes(ENCODING), ALGORITHM_KEY);
+                cipher = javax.crypto.Cipher.getInstance(ALGORITHM);
+                cipher.init(mode, spec, new IvParameterSpec(CBC_IV));
+            } catch (Exception e) {
+                logger.log(Level.WARNING, e.getMessage(), e);
+                return null;
+            }
+            pair[index] = cipher;
+        }
+        return cipher;
+    }
+
+    /**
+     * Removes the ciphers of the current thread for the key, since a cipher
+     * that failed may not be reset.
+     * 
+     * @param key
+     *            the key for cipher
+     */
+    protected void removeCiphers(String key) {
+        Map<String, javax.crypto.Cipher[]> map = ciphers.get();
+        if (map != null) {
+            map.remove(key);
+        }
+    }
+
     /**
      * Sets the Key for cipher.
      * 
@@ -16,9 +16,12 @@
 package org.slim3.util;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 /**
@@ -35,6 +38,11 @@ public final class BeanDesc {
     private CaseInsensitiveMap<PropertyDesc> propertyDescCache =
         new CaseInsensitiveMap<PropertyDesc>();
 
+    private PropertyDesc[] readablePropertyDescs;
+
+    private ConcurrentHashMap<Class<?>, PropertyDesc[][]> copyCache =
+        new ConcurrentHashMap<Class<?>, PropertyDesc[][]>();
+
     /**
      * Constructor.
      * 
@@ -60,6 +68,7 @@ public final class BeanDesc {
         }
         BeanDesc beanDesc = new BeanDesc(beanClass);
         setupPropertyDesc(beanDesc);
+        setupReadablePropertyDescs(beanDesc);
         return beanDesc;
     }
 
@@ -109,6 +118,19 @@ public final class BeanDesc {
         }
     }
 
+    private static void setupReadablePropertyDescs(BeanDesc beanDesc) {
+        List<PropertyDesc> list = new ArrayList<PropertyDesc>();
+        int size = beanDesc.getPropertyDescSize();
+        for (int i = 0; i < size; i++) {
+            PropertyDesc pd = beanDesc.getPropertyDesc(i);
+            if (pd.isReadable()) {
+                list.add(pd);
+            }
+        }
+        beanDesc.readablePropertyDescs =
+            list.toArray(new PropertyDesc[list.size()]);
+    }
+
     private static void setupReadMethod(BeanDesc beanDesc, Method readMethod,
             String propertyName, Set<String> illegalPropertyNames) {
         Class<?> propertyClass = readMethod.getReturnType();
@@ -190,4 +212,41 @@ public final class BeanDesc {
     public int getPropertyDescSize() {
         return propertyDescCache.size();
     }
+
+    /**
+     * Returns the pairs of the readable property descriptor of this bean and
+     * the writable property descriptor of the destination bean that have the
+     * same name. The pairs are resolved once for each destination class, so
+     * the returned array must not be modified.
+     * 
+     * @param destBeanDesc
+     *            the bean descriptor of the destination
+     * @return the pairs of the source and the destination property
+     *         descriptors
+     * @throws NullPointerException
+     *             if the destBeanDesc parameter is null
+     * @since 1.0.18
+     */
+    public PropertyDesc[][] getCopyPropertyDescs(BeanDesc destBeanDesc)
+            throws NullPointerException {
+        if (destBeanDesc == null) {
+            throw new NullPointerException(
+                "The destBeanDesc parameter is null.");
+        }
+        PropertyDesc[][] pairs =
+            copyCache.get(destBeanDesc.beanClass);
+        if (pairs != null) {
+            return pairs;
+        }
+        List<PropertyDesc[]> list = new ArrayList<PropertyDesc[]>();
+        for (PropertyDesc src : readablePropertyDescs) {
+            PropertyDesc dest = destBeanDesc.getPropertyDesc(src.getName());
+            if (dest != null && dest.isWritable()) {
+                list.add(new PropertyDesc[] { src, dest });
+            }
+        }
+        pairs = list.toArray(new PropertyDesc[list.size()][]);
+        copyCache.put(destBeanDesc.beanClass, pairs);
+        return pairs;
+    }
 }
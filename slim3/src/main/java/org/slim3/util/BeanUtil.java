@@ -123,20 +123,12 @@ public final class BeanUtil {
         }
         BeanDesc srcBeanDesc = getBeanDesc(src.getClass());
         BeanDesc destBeanDesc = getBeanDesc(dest.getClass());
-        int size = srcBeanDesc.getPropertyDescSize();
-        for (int i = 0; i < size; i++) {
-            PropertyDesc srcPropertyDesc = srcBeanDesc.getPropertyDesc(i);
+        for (PropertyDesc[] pair : srcBeanDesc
+            .getCopyPropertyDescs(destBeanDesc)) {
+            PropertyDesc srcPropertyDesc = pair[0];
+            PropertyDesc destPropertyDesc = pair[1];
             String propertyName = srcPropertyDesc.getName();
-            if (!srcPropertyDesc.isReadable()
-                || !options.isTargetProperty(propertyName)) {
-                continue;
-            }
-            PropertyDesc destPropertyDesc =
-                destBeanDesc.getPropertyDesc(propertyName);
-            if (destPropertyDesc == null) {
-                continue;
-            }
-            if (!destPropertyDesc.isWritable()) {
+            if (!options.isTargetProperty(propertyName)) {
                 continue;
             }
             Object value = srcPropertyDesc.getValue(src);
@@ -29,6 +29,14 @@ public abstract class CipherFactory {
      */
     public static final String CIPHER_FACTORY_KEY = "slim3.cipherFactory";
 
+    /**
+     * The cached factory. It is created again when the class name of the
+     * factory is changed.
+     */
+    private static volatile CipherFactory factory;
+
+    private static volatile boolean initialized = false;
+
     /**
      * Create the cipher. If the global key or the limited key of the current
      * thread is set, The key is set to the cipher. The key of the current
@@ -40,7 +48,29 @@ public abstract class CipherFactory {
         String className =
             System.getProperty(CIPHER_FACTORY_KEY, AesCipherFactory.class
                 .getName());
-        return ClassUtil.newInstance(className);
+        CipherFactory f = factory;
+        if (f != null && f.getClass().getName().equals(className)) {
+            return f;
+        }
+        if (!initialized) {
+            initialize();
+        }
+        f = ClassUtil.newInstance(className);
+        factory = f;
+        return f;
+    }
+
+    private static synchronized void initialize() {
+        if (initialized) {
+            return;
+        }
+        Cleaner.add(new Cleanable() {
+            public void clean() {
+                factory = null;
+                initialized = false;
+            }
+        });
+        initialized = true;
     }
 
     /**
@@ -63,7 +63,9 @@ public final class Cleaner {
      *            the cleanable resource
      */
     public static void add(Cleanable cleanable) {
-        cleanables.add(cleanable);
+        synchronized (cleanables) {
+            cleanables.add(cleanable);
+        }
     }
 
     /**
@@ -73,15 +75,23 @@ public final class Cleaner {
      *            the cleanable resource
      */
     public static void remove(Cleanable cleanable) {
-        cleanables.remove(cleanable);
+        synchronized (cleanables) {
+            cleanables.remove(cleanable);
+        }
     }
 
     /**
      * Cleans all resources.
      */
     public static void cleanAll() {
-        while (!cleanables.isEmpty()) {
-            Cleanable cleanable = cleanables.removeLast();
+        for (;;) {
+            Cleanable cleanable;
+            synchronized (cleanables) {
+                if (cleanables.isEmpty()) {
+                    break;
+                }
+                cleanable = cleanables.removeLast();
+            }
             try {
                 cleanable.clean();
             } catch (Throwable t) {
@@ -242,6 +242,9 @@ public class CopyOptions {
         if (value == null) {
             return null;
         }
+        if (converters.isEmpty() && converterMap.isEmpty()) {
+            return value;
+        }
         try {
             if (value.getClass() == String.class) {
                 return convertString(
@@ -108,8 +108,11 @@ public final class DateUtil {
             return null;
         }
         try {
-            SimpleDateFormat df = new SimpleDateFormat(pattern);
-            df.setTimeZone(TimeZoneLocator.get());
+            SimpleDateFormat df =
+                FormatUtil.getDateFormat(
+                    pattern,
+                    FormatUtil.getDefaultLocale(),
+                    TimeZoneLocator.get());
             return df.parse(text);
         } catch (ParseException cause) {
             throw new WrapRuntimeException(
@@ -261,8 +264,10 @@ public final class DateUtil {
             return null;
         }
         SimpleDateFormat df =
-            new SimpleDateFormat(pattern, LocaleLocator.get());
-        df.setTimeZone(TimeZoneLocator.get());
+            FormatUtil.getDateFormat(
+                pattern,
+                LocaleLocator.get(),
+                TimeZoneLocator.get());
         return df.format(value);
     }
 
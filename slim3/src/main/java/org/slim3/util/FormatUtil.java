@@ -0,0 +1,145 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.util;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.SimpleDateFormat;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * A utility class to reuse {@link SimpleDateFormat} and {@link DecimalFormat}.
+ * The formats are not thread safe, so they are cached per thread and per
+ * pattern, locale and time zone. The returned format must be used by the
+ * current thread only and must not be changed.
+ * 
+ * @author agent
+ * @since 1.0.18
+ * 
+ */
+public final class FormatUtil {
+
+    /**
+     * The maximum number of the formats that are kept per thread.
+     */
+    protected static final int MAX_CACHED_FORMATS = 32;
+
+    private static ThreadLocal<Map<String, SimpleDateFormat>> dateFormats =
+        new ThreadLocal<Map<String, SimpleDateFormat>>();
+
+    private static ThreadLocal<Map<String, DecimalFormat>> decimalFormats =
+        new ThreadLocal<Map<String, DecimalFormat>>();
+
+    /**
+     * Returns the {@link SimpleDateFormat} of the current thread.
+     * 
+     * @param pattern
+     *            the pattern for {@link SimpleDateFormat}
+     * @param locale
+     *            the locale
+     * @param timeZone
+     *            the time zone
+     * @return the {@link SimpleDateFormat}
+     * @throws NullPointerException
+     *             if the pattern parameter is null or if the locale parameter
+     *             is null or if the timeZone parameter is null
+     */
+    public static SimpleDateFormat getDateFormat(String pattern,
+            Locale locale, TimeZone timeZone) throws NullPointerException {
+        if (pattern == null) {
+            throw new NullPointerException("The pattern parameter is null.");
+        }
+        if (locale == null) {
+            throw new NullPointerException("The locale parameter is null.");
+        }
+        if (timeZone == null) {
+            throw new NullPointerException("The timeZone parameter is null.");
+        }
+        Map<String, SimpleDateFormat> map = dateFormats.get();
+        if (map == null) {
+            map = new HashMap<String, SimpleDateFormat>();
+            dateFormats.set(map);
+        }
+        String key = pattern + '\u0000' + locale + '\u0000' + timeZone.getID();
+        SimpleDateFormat format = map.get(key);
+        if (format == null) {
+            if (map.size() >= MAX_CACHED_FORMATS) {
+                map.clear();
+            }
+            format = new SimpleDateFormat(pattern, locale);
+            format.setTimeZone(timeZone);
+            map.put(key, format);
+        } else if (!timeZone.getID().equals(format.getTimeZone().getID())) {
+            // parsing a zone name can change the time zone of the format
+            format.setTimeZone(timeZone);
+        }
+        return format;
+    }
+
+    /**
+     * Returns the {@link DecimalFormat} of the current thread.
+     * 
+     * @param pattern
+     *            the pattern for {@link DecimalFormat}
+     * @param locale
+     *            the locale
+     * @return the {@link DecimalFormat}
+     * @throws NullPointerException
+     *             if the pattern parameter is null or if the locale parameter
+     *             is null
+     */
+    public static DecimalFormat getDecimalFormat(String pattern, Locale locale)
+            throws NullPointerException {
+        if (pattern == null) {
+            throw new NullPointerException("The pattern parameter is null.");
+        }
+        if (locale == null) {
+            throw new NullPointerException("The locale parameter is null.");
+        }
+        Map<String, DecimalFormat> map = decimalFormats.get();
+        if (map == null) {
+            map = new HashMap<String, DecimalFormat>();
+            decimalFormats.set(map);
+        }
+        String key = pattern + '\u0000' + locale;
+        DecimalFormat format = map.get(key);
+        if (format == null) {
+            if (map.size() >= MAX_CACHED_FORMATS) {
+                map.clear();
+            }
+            format =
+                new DecimalFormat(pattern, DecimalFormatSymbols
+                    .getInstance(locale));
+            map.put(key, format);
+        }
+        return format;
+    }
+
+    /**
+     * Returns the default locale for formatting.
+     * 
+     * @return the default locale for formatting
+     */
+    public static Locale getDefaultLocale() {
+        return Locale.getDefault(Locale.Category.FORMAT);
+    }
+
+    private FormatUtil() {
+    }
+}
@@ -15,6 +15,9 @@
  */
 package org.slim3.util;
 
+import java.io.IOException;
+import java.io.Writer;
+
 /**
  * A utility class for HTML.
  * 
@@ -38,40 +41,133 @@ public final class HtmlUtil {
     }
 
     /**
-     * Escapes string that could be interpreted as HTML.
+     * Escapes string that could be interpreted as HTML. If the input has no
+     * character to be escaped, the input itself is returned.
      * 
      * @param input
      *            the input value
      * @return the escaped value
      */
     public static String escape(String input) {
+        int index = indexOfSpecialCharacter(input, 0);
+        if (index < 0) {
+            return input;
+        }
+        StringBuilder sb = new StringBuilder(input.length() + 16);
+        appendEscaped(input, index, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Appends the escaped string to the {@link StringBuilder}.
+     * 
+     * @param input
+     *            the input value
+     * @param sb
+     *            the {@link StringBuilder}
+     * @throws NullPointerException
+     *             if the sb parameter is null
+     */
+    public static void escape(String input, StringBuilder sb)
+            throws NullPointerException {
+        if (sb == null) {
+            throw new NullPointerException("The sb parameter is null.");
+        }
+        if (input == null) {
+            return;
+        }
+        int index = indexOfSpecialCharacter(input, 0);
+        if (index < 0) {
+            sb.append(input);
+            return;
+        }
+        appendEscaped(input, index, sb);
+    }
+
+    /**
+     * Writes the escaped string to the {@link Writer} without creating an
+     * intermediate string.
+     * 
+     * @param input
+     *            the input value
+     * @param writer
+     *            the {@link Writer}
+     * @throws NullPointerException
+     *             if the writer parameter is null
+     * @throws IOException
+     *             if {@link IOException} occurred
+     */
+    public static void escape(String input, Writer writer)
+            throws NullPointerException, IOException {
+        if (writer == null) {
+            throw new NullPointerException("The writer parameter is null.");
+        }
+        if (input == null) {
+            return;
+        }
+        int length = input.length();
         int start = 0;
-        char[] arrayBuffer = input.toCharArray();
-        int length = arrayBuffer.length;
-        StringBuilder escapedBuffer = null;
-        for (int i = 0; i < length; i++) {
-            char c = arrayBuffer[i];
-            if (c <= HIGHEST_SPECIAL) {
-                char[] escaped = specialCharactersRepresentation[c];
-                if (escaped != null) {
-                    if (start == 0) {
-                        escapedBuffer = new StringBuilder(length + 5);
-                    }
-                    if (start < i) {
-                        escapedBuffer.append(arrayBuffer, start, i - start);
-                    }
-                    start = i + 1;
-                    escapedBuffer.append(escaped);
-                }
+        int index = indexOfSpecialCharacter(input, 0);
+        while (index >= 0) {
+            if (start < index) {
+                writer.write(input, start, index - start);
             }
+            writer.write(specialCharactersRepresentation[input.charAt(index)]);
+            start = index + 1;
+            index = indexOfSpecialCharacter(input, start);
         }
-        if (start == 0) {
-            return input;
+        if (start < length) {
+            writer.write(input, start, length - start);
+        }
+    }
+
+    /**
+     * Returns the index of the first character to be escaped.
+     * 
+     * @param input
+     *            the input value
+     * @param fromIndex
+     *            the index to start the search from
+     * @return the index of the first character to be escaped or -1 if the
+     *         input has no character to be escaped
+     */
+    private static int indexOfSpecialCharacter(String input, int fromIndex) {
+        int length = input.length();
+        for (int i = fromIndex; i < length; i++) {
+            char c = input.charAt(i);
+            if (c <= HIGHEST_SPECIAL
+                && specialCharactersRepresentation[c] != null) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Appends the escaped string from the first character to be escaped.
+     * 
+     * @param input
+     *            the input value
+     * @param index
+     *            the index of the first character to be escaped
+     * @param sb
+     *            the {@link StringBuilder}
+     */
+    private static void appendEscaped(String input, int index,
+            StringBuilder sb) {
+        int length = input.length();
+        int start = 0;
+        while (index >= 0) {
+            if (start < index) {
+                sb.append(input, start, index);
+            }
+            sb.append(specialCharactersRepresentation[input.charAt(index)]);
+            start = index + 1;
+            index = indexOfSpecialCharacter(input, start);
         }
         if (start < length) {
-            escapedBuffer.append(arrayBuffer, start, length - start);
+            sb.append(input, start, length);
         }
-        return escapedBuffer.toString();
     }
 
     private HtmlUtil() {
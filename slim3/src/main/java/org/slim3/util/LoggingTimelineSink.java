@@ -0,0 +1,39 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.util;
+
+import java.util.logging.Logger;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * {@link TimelineSink} that logs one line per request.
+ * 
+ * @author agent
+ * @since 1.0.18
+ * 
+ */
+public class LoggingTimelineSink implements TimelineSink {
+
+    private static final Logger logger =
+        Logger.getLogger(LoggingTimelineSink.class.getName());
+
+    public void export(Timeline timeline, HttpServletRequest request,
+            HttpServletResponse response) {
+        logger.info(RequestUtil.getPath(request) + " " + timeline);
+    }
+}
@@ -49,7 +49,10 @@ public final class NumberUtil {
             throw new NullPointerException("The pattern parameter is null.");
         }
         try {
-            DecimalFormat df = new DecimalFormat(pattern);
+            DecimalFormat df =
+                FormatUtil.getDecimalFormat(
+                    pattern,
+                    FormatUtil.getDefaultLocale());
             return df.parse(text);
         } catch (ParseException cause) {
             throw new WrapRuntimeException(
@@ -80,7 +83,8 @@ public final class NumberUtil {
         if (StringUtil.isEmpty(pattern)) {
             throw new NullPointerException("The pattern parameter is null.");
         }
-        DecimalFormat df = new DecimalFormat(pattern);
+        DecimalFormat df =
+            FormatUtil.getDecimalFormat(pattern, FormatUtil.getDefaultLocale());
         return df.format(value);
     }
 
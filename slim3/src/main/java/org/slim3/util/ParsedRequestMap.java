@@ -0,0 +1,480 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.util;
+
+import java.text.DecimalFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+
+/**
+ * {@link RequestMap} that converts the attributes to the typed values. The
+ * converted value is kept as long as the same attribute value is set to the
+ * request, so each attribute is parsed once per request. This class is not
+ * thread safe, so it should be used in the request only.
+ * 
+ * @author agent
+ * @since 1.0.18
+ * 
+ */
+public class ParsedRequestMap extends RequestMap {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The converted values.
+     */
+    protected Map<String, ParsedValue> parsedValues =
+        new HashMap<String, ParsedValue>();
+
+    /**
+     * Constructor.
+     * 
+     * @param request
+     *            the request
+     * @throws NullPointerException
+     *             if the request parameter is null
+     */
+    public ParsedRequestMap(HttpServletRequest request)
+            throws NullPointerException {
+        super(request);
+    }
+
+    /**
+     * Returns the attribute as string.
+     * 
+     * @param name
+     *            the attribute name
+     * @return the attribute value
+     * @throws NullPointerException
+     *             if the name parameter is null
+     */
+    public String getString(CharSequence name) throws NullPointerException {
+        return (String) getParsedValue(name, ParsedType.STRING, null);
+    }
+
+    /**
+     * Returns the attribute as short.
+     * 
+     * @param name
+     *            the attribute name
+     * @return the attribute value
+     * @throws NullPointerException
+     *             if the name parameter is null
+     */
+    public Short getShort(CharSequence name) throws NullPointerException {
+        return (Short) getParsedValue(name, ParsedType.SHORT, null);
+    }
+
+    /**
+     * Returns the attribute as short.
+     * 
+     * @param name
+     *            the attribute name
+     * @param pattern
+     *            the pattern for {@link DecimalFormat}
+     * @return the attribute value
+     * @throws NullPointerException
+     *             if the name parameter is null or if the pattern parameter
+     *             is null
+     */
+    public Short getShort(CharSequence name, String pattern)
+            throws NullPointerException {
+        if (pattern == null) {
+            throw new NullPointerException("The pattern parameter is null.");
+        }
+        return (Short) getParsedValue(name, ParsedType.SHORT, pattern);
+    }
+
+    /**
+     * Returns the attribute as integer.
+     * 
+     * @param name
+     *            the attribute name
+     * @return the attribute value
+     * @throws NullPointerException
+     *             if the name parameter is null
+     */
+    public Integer getInteger(CharSequence name) throws NullPointerException {
+        return (Integer) getParsedValue(name, ParsedType.INTEGER, null);
+    }
+
+    /**
+     * Returns the attribute as integer.
+     * 
+     * @param name
+     *            the attribute name
+     * @param pattern
+     *            the pattern for {@link DecimalFormat}
+     * @return the attribute value
+     * @throws NullPointerException
+     *             if the name parameter is null or if the pattern parameter
+     *             is null
+     */
+    public Integer getInteger(CharSequence name, String pattern)
+            throws NullPointerException {
+        if (pattern == null) {
+            throw new NullPointerException("The pattern parameter is null.");
+        }
+        return (Integer) getParsedValue(name, ParsedType.INTEGER, pattern);
+    }
+
+    /**
+     * Returns the attribute as long.
+     * 
+     * @param name
+     *            the attribute name
+     * @return the attribute value
+     * @throws NullPointerException
+     *             if the name parameter is null
+     */
+    public Long getLong(CharSequence name) throws NullPointerException {
+        return (Long) getParsedValue(name, ParsedType.LONG, null);
+    }
+
+    /**
+     * Returns the attribute as long.
+     * 
+     * @param name
+     *            the attribute name
+     * @param pattern
+     *            the pattern for {@link DecimalFormat}
+     * @return the attribute value
+     * @throws NullPointerException
+     *             if the name parameter is null or if the pattern parameter
+     *             is null
+     */
+    public Long getLong(CharSequence name, String pattern)
+            throws NullPointerException {
+        if (pattern == null) {
+            throw new NullPointerException("The pattern parameter is null.");
+        }
+        return (Long) getParsedValue(name, ParsedType.LONG, pattern);
+    }
+
+    /**
+     * Returns the attribute as float.
+     * 
+     * @param name
+     *            the attribute name
+     * @return the attribute value
+     * @throws NullPointerException
+     *             if the name parameter is null
+     */
+    public Float getFloat(CharSequence name) throws NullPointerException {
+        return (Float) getParsedValue(name, ParsedType.FLOAT, null);
+    }
+
+    /**
+     * Returns the attribute as float.
+     * 
+     * @param name
+     *            the attribute name
+     * @param pattern
+     *            the pattern for {@link DecimalFormat}
+     * @return the attribute value
+     * @throws NullPointerException
+     *             if the name parameter is null or if the pattern parameter
+     *             is null
+     */
+    public Float getFloat(CharSequence name, String pattern)
+            throws NullPointerException {
+        if (pattern == null) {
+            throw new NullPointerException("The pattern parameter is null.");
+        }
+        return (Float) getParsedValue(name, ParsedType.FLOAT, pattern);
+    }
+
+    /**
+     * Returns the attribute as double.
+     * 
+     * @param name
+     *            the attribute name
+     * @return the attribute value
+     * @throws NullPointerException
+     *             if the name parameter is null
+     */
+    public Double getDouble(CharSequence name) throws NullPointerException {
+        return (Double) getParsedValue(name, ParsedType.DOUBLE, null);
+    }
+
+    /**
+     * Returns the attribute as double.
+     * 
+     * @param name
+     *            the attribute name
+     * @param pattern
+     *            the pattern for {@link DecimalFormat}
+     * @return the attribute value
+     * @throws NullPointerException
+     *             if the name parameter is null or if the pattern parameter
+     *             is null
+     */
+    public Double getDouble(CharSequence name, String pattern)
+            throws NullPointerException {
+        if (pattern == null) {
+            throw new NullPointerException("The pattern parameter is null.");
+        }
+        return (Double) getParsedValue(name, ParsedType.DOUBLE, pattern);
+    }
+
+    /**
+     * Returns the attribute as boolean.
+     * 
+     * @param name
+     *            the attribute name
+     * @return the attribute value
+     * @throws NullPointerException
+     *             if the name parameter is null
+     */
+    public Boolean getBoolean(CharSequence name) throws NullPointerException {
+        return (Boolean) getParsedValue(name, ParsedType.BOOLEAN, null);
+    }
+
+    /**
+     * Returns the attribute as date. The returned date is a copy, so the
+     * caller can change it.
+     * 
+     * @param name
+     *            the attribute name
+     * @param pattern
+     *            the pattern for {@link SimpleDateFormat}
+     * @return the attribute value
+     * @throws NullPointerException
+     *             if the name parameter is null or if the pattern parameter
+     *             is null
+     */
+    public Date getDate(CharSequence name, String pattern)
+            throws NullPointerException {
+        if (pattern == null) {
+            throw new NullPointerException("The pattern parameter is null.");
+        }
+        Date date = (Date) getParsedValue(name, ParsedType.DATE, pattern);
+        return date != null ? new Date(date.getTime()) : null;
+    }
+
+    /**
+     * Returns the attribute as key.
+     * 
+     * @param name
+     *            the attribute name
+     * @return the attribute value
+     * @throws NullPointerException
+     *             if the name parameter is null
+     */
+    public Key getKey(CharSequence name) throws NullPointerException {
+        return (Key) getParsedValue(name, ParsedType.KEY, null);
+    }
+
+    /**
+     * Returns the converted value. If the attribute value is the same as the
+     * previous one, the cached value is returned.
+     * 
+     * @param name
+     *            the attribute name
+     * @param type
+     *            the type
+     * @param pattern
+     *            the pattern
+     * @return the converted value
+     * @throws NullPointerException
+     *             if the name parameter is null
+     */
+    protected Object getParsedValue(CharSequence name, ParsedType type,
+            String pattern) throws NullPointerException {
+        if (name == null) {
+            throw new NullPointerException("The name parameter is null.");
+        }
+        String attributeName = name.toString();
+        Object source = request.getAttribute(attributeName);
+        String key =
+            pattern == null
+                ? type.name() + '\u0000' + attributeName
+                : type.name() + '\u0000' + attributeName + '\u0000' + pattern;
+        ParsedValue parsedValue = parsedValues.get(key);
+        if (parsedValue != null && parsedValue.source == source) {
+            return parsedValue.value;
+        }
+        Object value = type.parse(source, pattern);
+        parsedValues.put(key, new ParsedValue(source, value));
+        return value;
+    }
+
+    /**
+     * The type of the converted value.
+     */
+    protected enum ParsedType {
+
+        /**
+         * String.
+         */
+        STRING {
+            @Override
+            protected Object parse(Object source, String pattern) {
+                return StringUtil.toString(source);
+            }
+        },
+
+        /**
+         * Short.
+         */
+        SHORT {
+            @Override
+            protected Object parse(Object source, String pattern) {
+                return ShortUtil.toShort(toNumber(source, pattern));
+            }
+        },
+
+        /**
+         * Integer.
+         */
+        INTEGER {
+            @Override
+            protected Object parse(Object source, String pattern) {
+                return IntegerUtil.toInteger(toNumber(source, pattern));
+            }
+        },
+
+        /**
+         * Long.
+         */
+        LONG {
+            @Override
+            protected Object parse(Object source, String pattern) {
+                return LongUtil.toLong(toNumber(source, pattern));
+            }
+        },
+
+        /**
+         * Float.
+         */
+        FLOAT {
+            @Override
+            protected Object parse(Object source, String pattern) {
+                return FloatUtil.toFloat(toNumber(source, pattern));
+            }
+        },
+
+        /**
+         * Double.
+         */
+        DOUBLE {
+            @Override
+            protected Object parse(Object source, String pattern) {
+                return DoubleUtil.toDouble(toNumber(source, pattern));
+            }
+        },
+
+        /**
+         * Boolean.
+         */
+        BOOLEAN {
+            @Override
+            protected Object parse(Object source, String pattern) {
+                return BooleanUtil.toBoolean(source);
+            }
+        },
+
+        /**
+         * Date.
+         */
+        DATE {
+            @Override
+            protected Object parse(Object source, String pattern) {
+                return DateUtil.toDate(StringUtil.toString(source), pattern);
+            }
+        },
+
+        /**
+         * Key.
+         */
+        KEY {
+            @Override
+            protected Object parse(Object source, String pattern) {
+                if (source == null) {
+                    return null;
+                }
+                if (source instanceof Key) {
+                    return source;
+                }
+                return KeyFactory.stringToKey(source.toString());
+            }
+        };
+
+        /**
+         * Converts the attribute value.
+         * 
+         * @param source
+         *            the attribute value
+         * @param pattern
+         *            the pattern
+         * @return the converted value
+         */
+        protected abstract Object parse(Object source, String pattern);
+
+        /**
+         * Converts the attribute value to a number if the pattern is
+         * specified.
+         * 
+         * @param source
+         *            the attribute value
+         * @param pattern
+         *            the pattern for {@link DecimalFormat}
+         * @return the value to be converted
+         */
+        protected static Object toNumber(Object source, String pattern) {
+            if (pattern == null) {
+                return source;
+            }
+            return NumberUtil.toNumber(StringUtil.toString(source), pattern);
+        }
+    }
+
+    /**
+     * The converted value and its source.
+     */
+    protected static class ParsedValue {
+
+        /**
+         * The attribute value.
+         */
+        protected Object source;
+
+        /**
+         * The converted value.
+         */
+        protected Object value;
+
+        /**
+         * Constructor.
+         * 
+         * @param source
+         *            the attribute value
+         * @param value
+         *            the converted value
+         */
+        public ParsedValue(Object source, Object value) {
+            this.source = source;
+            this.value = value;
+        }
+    }
+}
@@ -15,6 +15,9 @@
  */
 package org.slim3.util;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 
 /**
@@ -35,6 +38,12 @@ public final class PropertyDesc {
 
     private Method writeMethod;
 
+    private MethodHandle readHandle;
+
+    private MethodHandle writeHandle;
+
+    private Class<?> wrapperClass;
+
     /**
      * Constructor.
      * 
@@ -63,6 +72,7 @@ public final class PropertyDesc {
         this.name = name;
         this.propertyClass = propertyClass;
         this.beanClass = beanClass;
+        wrapperClass = toWrapperClass(propertyClass);
     }
 
     /**
@@ -112,6 +122,10 @@ public final class PropertyDesc {
 
     void setReadMethod(Method readMethod) {
         this.readMethod = readMethod;
+        readHandle =
+            toMethodHandle(readMethod, MethodType.methodType(
+                Object.class,
+                Object.class));
     }
 
     /**
@@ -134,6 +148,23 @@ public final class PropertyDesc {
 
     void setWriteMethod(Method writeMethod) {
         this.writeMethod = writeMethod;
+        writeHandle =
+            toMethodHandle(writeMethod, MethodType.methodType(
+                void.class,
+                Object.class,
+                Object.class));
+    }
+
+    /**
+     * Determines if this property is accessed through method handles instead
+     * of reflection.
+     * 
+     * @return whether this property is accessed through method handles
+     * @since 1.0.18
+     */
+    public boolean isMethodHandleUsed() {
+        return (readMethod == null || readHandle != null)
+            && (writeMethod == null || writeHandle != null);
     }
 
     /**
@@ -157,6 +188,9 @@ public final class PropertyDesc {
                 + ") is not readable.");
         }
         try {
+            if (readHandle != null) {
+                return (Object) readHandle.invokeExact(bean);
+            }
             try {
                 return readMethod.invoke(bean);
             } catch (IllegalAccessException e) {
@@ -195,7 +229,13 @@ public final class PropertyDesc {
                 + ") is not writable.");
         }
         try {
-            value = ConversionUtil.convert(value, propertyClass);
+            if (value == null || !wrapperClass.isInstance(value)) {
+                value = ConversionUtil.convert(value, propertyClass);
+            }
+            if (writeHandle != null) {
+                writeHandle.invokeExact(bean, value);
+                return;
+            }
             try {
                 writeMethod.invoke(bean, value);
             } catch (IllegalAccessException e) {
@@ -213,4 +253,32 @@ public final class PropertyDesc {
                 + cause.getMessage(), cause);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Converts the method to a method handle of the type. If the method cannot
+     * be accessed by the public lookup, such as a method of a non-public
+     * class, null is returned and the method is invoked by reflection.
+     * 
+     * @param method
+     *            the method
+     * @param type
+     *            the method type
+     * @return the method handle or null if the method cannot be accessed
+     */
+    private static MethodHandle toMethodHandle(Method method, MethodType type) {
+        try {
+            return MethodHandles.publicLookup().unreflect(method).asType(type);
+        } catch (IllegalAccessException e) {
+            return null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static Class<?> toWrapperClass(Class<?> clazz) {
+        if (!clazz.isPrimitive()) {
+            return clazz;
+        }
+        return MethodType.methodType(clazz).wrap().returnType();
+    }
+}
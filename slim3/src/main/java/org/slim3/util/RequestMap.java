@@ -57,6 +57,15 @@ public class RequestMap extends HashMap<String, Object> {
         this.request = request;
     }
 
+    /**
+     * Returns the request.
+     * 
+     * @return the request
+     */
+    public HttpServletRequest getRequest() {
+        return request;
+    }
+
     @Override
     public void clear() {
         List<String> names = new ArrayList<String>();
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.util;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * {@link ResponseTimelineSink} that sets the timeline to the response header.
+ * The header is set just before the response is committed, so the time of
+ * writing the body, such as the rest of a JSP forward, is not included.
+ * 
+ * @author agent
+ * @since 1.0.18
+ * 
+ */
+public class ResponseHeaderTimelineSink implements ResponseTimelineSink {
+
+    /**
+     * The name of the response header.
+     */
+    public static final String HEADER_NAME = "X-Slim3-Timeline";
+
+    public void export(Timeline timeline, HttpServletRequest request,
+            HttpServletResponse response) {
+        if (!response.isCommitted()) {
+            response.setHeader(HEADER_NAME, timeline.toString());
+        }
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.util;
+
+/**
+ * {@link TimelineSink} that writes the timeline to the response. The timeline
+ * is exported to this sink just before the response is committed, that is,
+ * when the body is written, the buffer is flushed or an error or a redirect is
+ * sent. The events after that point are not included.
+ * 
+ * @author agent
+ * @since 1.0.18
+ * 
+ */
+public interface ResponseTimelineSink extends TimelineSink {
+}
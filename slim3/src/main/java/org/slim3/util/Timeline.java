@@ -0,0 +1,608 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A timeline of a request. The calls to the datastore, memcache and GWT RPC
+ * and the time of the controller and the forward are recorded while the
+ * timeline is attached to the current thread by {@link TimelineLocator}. When
+ * no timeline is attached, nothing is recorded.
+ * 
+ * @author agent
+ * @since 1.0.18
+ * 
+ */
+public class Timeline {
+
+    /**
+     * The category of datastore get.
+     */
+    public static final String DATASTORE_GET = "datastore.get";
+
+    /**
+     * The category of datastore put.
+     */
+    public static final String DATASTORE_PUT = "datastore.put";
+
+    /**
+     * The category of datastore delete.
+     */
+    public static final String DATASTORE_DELETE = "datastore.delete";
+
+    /**
+     * The category of datastore query.
+     */
+    public static final String DATASTORE_QUERY = "datastore.query";
+
+    /**
+     * The category of memcache.
+     */
+    public static final String MEMCACHE = "memcache";
+
+    /**
+     * The category of GWT RPC.
+     */
+    public static final String RPC = "rpc";
+
+    /**
+     * The category of controller.
+     */
+    public static final String CONTROLLER = "controller";
+
+    /**
+     * The category of forward.
+     */
+    public static final String FORWARD = "forward";
+
+    /**
+     * The maximum number of the events that are kept. The statistics include
+     * the events that are not kept.
+     */
+    protected static final int MAX_EVENTS = 1000;
+
+    /**
+     * The start time(nanoseconds).
+     */
+    protected final long startTime;
+
+    /**
+     * The end time(nanoseconds).
+     */
+    protected long endTime = -1;
+
+    /**
+     * The events.
+     */
+    protected final List<Event> events = new ArrayList<Event>();
+
+    /**
+     * The statistics per category.
+     */
+    protected final Map<String, Stat> stats = new LinkedHashMap<String, Stat>();
+
+    /**
+     * The wrapped futures whose events have not been recorded.
+     */
+    protected final List<RecordingFuture<?>> pendingFutures =
+        new ArrayList<RecordingFuture<?>>();
+
+    /**
+     * Constructor.
+     */
+    public Timeline() {
+        startTime = System.nanoTime();
+    }
+
+    /**
+     * Records an event.
+     * 
+     * @param category
+     *            the category
+     * @param name
+     *            the name
+     * @param start
+     *            the start time of the event returned by
+     *            {@link System#nanoTime()}
+     * @param entityCount
+     *            the number of the entities
+     * @param payloadBytes
+     *            the payload bytes
+     * @throws NullPointerException
+     *             if the category parameter is null
+     */
+    public synchronized void record(String category, String name, long start,
+            int entityCount, long payloadBytes) throws NullPointerException {
+        if (category == null) {
+            throw new NullPointerException("The category parameter is null.");
+        }
+        long duration = System.nanoTime() - start;
+        Stat stat = stats.get(category);
+        if (stat == null) {
+            stat = new Stat();
+            stats.put(category, stat);
+        }
+        stat.add(1, duration, entityCount, payloadBytes);
+        if (events.size() < MAX_EVENTS) {
+            events.add(new Event(
+                category,
+                name,
+                start - startTime,
+                duration,
+                entityCount,
+                payloadBytes));
+        }
+    }
+
+    /**
+     * Wraps the future so that the event is recorded when the result is
+     * returned first. If the result is never requested, the event is recorded
+     * when this timeline finishes.
+     * 
+     * @param <T>
+     *            the result type
+     * @param future
+     *            the future
+     * @param category
+     *            the category
+     * @param name
+     *            the name
+     * @param start
+     *            the start time of the event returned by
+     *            {@link System#nanoTime()}
+     * @param entityCount
+     *            the number of the entities or -1 if the number is the size
+     *            of the result
+     * @return the wrapped future
+     * @throws NullPointerException
+     *             if the future parameter is null or if the category
+     *             parameter is null
+     */
+    public <T> Future<T> wrap(Future<T> future, String category, String name,
+            long start, int entityCount) throws NullPointerException {
+        if (future == null) {
+            throw new NullPointerException("The future parameter is null.");
+        }
+        if (category == null) {
+            throw new NullPointerException("The category parameter is null.");
+        }
+        RecordingFuture<T> recordingFuture =
+            new RecordingFuture<T>(future, category, name, start, entityCount);
+        synchronized (this) {
+            pendingFutures.add(recordingFuture);
+        }
+        return recordingFuture;
+    }
+
+    /**
+     * Finishes this timeline. The events of the wrapped futures whose results
+     * have not been requested are recorded up to now.
+     */
+    public void finish() {
+        List<RecordingFuture<?>> futures;
+        synchronized (this) {
+            if (endTime >= 0) {
+                return;
+            }
+            futures = new ArrayList<RecordingFuture<?>>(pendingFutures);
+            pendingFutures.clear();
+        }
+        for (RecordingFuture<?> future : futures) {
+            future.record(null);
+        }
+        synchronized (this) {
+            if (endTime < 0) {
+                endTime = System.nanoTime();
+            }
+        }
+    }
+
+    /**
+     * Returns the elapsed time(nanoseconds).
+     * 
+     * @return the elapsed time
+     */
+    public synchronized long getElapsedTime() {
+        return (endTime < 0 ? System.nanoTime() : endTime) - startTime;
+    }
+
+    /**
+     * Returns the recorded events.
+     * 
+     * @return the recorded events
+     */
+    public synchronized List<Event> getEvents() {
+        return Collections.unmodifiableList(new ArrayList<Event>(events));
+    }
+
+    /**
+     * Returns the statistics per category.
+     * 
+     * @return the statistics per category
+     */
+    public synchronized Map<String, Stat> getStats() {
+        Map<String, Stat> map = new LinkedHashMap<String, Stat>();
+        for (Map.Entry<String, Stat> e : stats.entrySet()) {
+            map.put(e.getKey(), e.getValue().copy());
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder(128);
+        sb.append("elapsed=");
+        appendMillis(sb, getElapsedTime());
+        for (Map.Entry<String, Stat> e : stats.entrySet()) {
+            sb.append(", ").append(e.getKey()).append('=');
+            e.getValue().appendTo(sb);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Appends the time as milliseconds.
+     * 
+     * @param sb
+     *            the string builder
+     * @param nanos
+     *            the time(nanoseconds)
+     */
+    protected static void appendMillis(StringBuilder sb, long nanos) {
+        long micros = nanos / 1000;
+        sb.append(micros / 1000).append('.');
+        long fraction = micros % 1000;
+        if (fraction < 100) {
+            sb.append('0');
+        }
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        sb.append(fraction).append("ms");
+    }
+
+    /**
+     * An event of the timeline.
+     */
+    public static class Event {
+
+        private final String category;
+
+        private final String name;
+
+        private final long offset;
+
+        private final long duration;
+
+        private final int entityCount;
+
+        private final long payloadBytes;
+
+        /**
+         * Constructor.
+         * 
+         * @param category
+         *            the category
+         * @param name
+         *            the name
+         * @param offset
+         *            the offset from the start of the timeline(nanoseconds)
+         * @param duration
+         *            the duration(nanoseconds)
+         * @param entityCount
+         *            the number of the entities
+         * @param payloadBytes
+         *            the payload bytes
+         */
+        public Event(String category, String name, long offset,
+                long duration, int entityCount, long payloadBytes) {
+            this.category = category;
+            this.name = name;
+            this.offset = offset;
+            this.duration = duration;
+            this.entityCount = entityCount;
+            this.payloadBytes = payloadBytes;
+        }
+
+        /**
+         * Returns the category.
+         * 
+         * @return the category
+         */
+        public String getCategory() {
+            return category;
+        }
+
+        /**
+         * Returns the name.
+         * 
+         * @return the name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the offset from the start of the timeline(nanoseconds).
+         * 
+         * @return the offset
+         */
+        public long getOffset() {
+            return offset;
+        }
+
+        /**
+         * Returns the duration(nanoseconds).
+         * 
+         * @return the duration
+         */
+        public long getDuration() {
+            return duration;
+        }
+
+        /**
+         * Returns the number of the entities.
+         * 
+         * @return the number of the entities
+         */
+        public int getEntityCount() {
+            return entityCount;
+        }
+
+        /**
+         * Returns the payload bytes.
+         * 
+         * @return the payload bytes
+         */
+        public long getPayloadBytes() {
+            return payloadBytes;
+        }
+    }
+
+    /**
+     * The statistics of a category.
+     */
+    public static class Stat {
+
+        private long count;
+
+        private long totalTime;
+
+        private long entityCount;
+
+        private long payloadBytes;
+
+        /**
+         * Adds the values.
+         * 
+         * @param count
+         *            the number of the calls
+         * @param time
+         *            the time(nanoseconds)
+         * @param entityCount
+         *            the number of the entities
+         * @param payloadBytes
+         *            the payload bytes
+         */
+        public void add(long count, long time, long entityCount,
+                long payloadBytes) {
+            this.count += count;
+            totalTime += time;
+            this.entityCount += entityCount;
+            this.payloadBytes += payloadBytes;
+        }
+
+        /**
+         * Adds the other statistics.
+         * 
+         * @param other
+         *            the other statistics
+         */
+        public void add(Stat other) {
+            add(
+                other.count,
+                other.totalTime,
+                other.entityCount,
+                other.payloadBytes);
+        }
+
+        /**
+         * Returns a copy of this statistics.
+         * 
+         * @return a copy of this statistics
+         */
+        public Stat copy() {
+            Stat stat = new Stat();
+            stat.add(this);
+            return stat;
+        }
+
+        /**
+         * Returns the number of the calls.
+         * 
+         * @return the number of the calls
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the total time(nanoseconds).
+         * 
+         * @return the total time
+         */
+        public long getTotalTime() {
+            return totalTime;
+        }
+
+        /**
+         * Returns the number of the entities.
+         * 
+         * @return the number of the entities
+         */
+        public long getEntityCount() {
+            return entityCount;
+        }
+
+        /**
+         * Returns the payload bytes.
+         * 
+         * @return the payload bytes
+         */
+        public long getPayloadBytes() {
+            return payloadBytes;
+        }
+
+        /**
+         * Appends the string representation to the string builder.
+         * 
+         * @param sb
+         *            the string builder
+         */
+        protected void appendTo(StringBuilder sb) {
+            sb.append(count).append('/');
+            appendMillis(sb, totalTime);
+            if (entityCount > 0) {
+                sb.append('/').append(entityCount).append("entities");
+            }
+            if (payloadBytes > 0) {
+                sb.append('/').append(payloadBytes).append("bytes");
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(32);
+            appendTo(sb);
+            return sb.toString();
+        }
+    }
+
+    /**
+     * A future that records the event when the result is returned first.
+     * 
+     * @param <T>
+     *            the result type
+     */
+    protected class RecordingFuture<T> implements Future<T> {
+
+        private final Future<T> future;
+
+        private final String category;
+
+        private final String name;
+
+        private final long start;
+
+        private final int entityCount;
+
+        private boolean recorded = false;
+
+        /**
+         * Constructor.
+         * 
+         * @param future
+         *            the future
+         * @param category
+         *            the category
+         * @param name
+         *            the name
+         * @param start
+         *            the start time
+         * @param entityCount
+         *            the number of the entities or -1 if the number is the
+         *            size of the result
+         */
+        public RecordingFuture(Future<T> future, String category, String name,
+                long start, int entityCount) {
+            this.future = future;
+            this.category = category;
+            this.name = name;
+            this.start = start;
+            this.entityCount = entityCount;
+        }
+
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return future.cancel(mayInterruptIfRunning);
+        }
+
+        public boolean isCancelled() {
+            return future.isCancelled();
+        }
+
+        public boolean isDone() {
+            return future.isDone();
+        }
+
+        public T get() throws InterruptedException, ExecutionException {
+            T result = null;
+            try {
+                result = future.get();
+                return result;
+            } finally {
+                record(result);
+            }
+        }
+
+        public T get(long timeout, TimeUnit unit) throws InterruptedException,
+                ExecutionException, TimeoutException {
+            T result = null;
+            try {
+                result = future.get(timeout, unit);
+                return result;
+            } finally {
+                record(result);
+            }
+        }
+
+        /**
+         * Records the event unless it has been recorded.
+         * 
+         * @param result
+         *            the result
+         */
+        protected synchronized void record(T result) {
+            if (recorded) {
+                return;
+            }
+            recorded = true;
+            synchronized (Timeline.this) {
+                pendingFutures.remove(this);
+            }
+            int count = entityCount;
+            if (count < 0) {
+                if (result instanceof Collection<?>) {
+                    count = ((Collection<?>) result).size();
+                } else if (result instanceof Map<?, ?>) {
+                    count = ((Map<?, ?>) result).size();
+                } else {
+                    count = 0;
+                }
+            }
+            Timeline.this.record(category, name, start, count, 0);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.util;
+
+/**
+ * A class to access the current {@link Timeline}.
+ * 
+ * @author agent
+ * @since 1.0.18
+ * 
+ */
+public final class TimelineLocator {
+
+    private static ThreadLocal<Timeline> timelines =
+        new ThreadLocal<Timeline>();
+
+    /**
+     * Returns the {@link Timeline} attached to the current thread.
+     * 
+     * @return the {@link Timeline} attached to the current thread or null if
+     *         the timeline is not enabled
+     */
+    public static Timeline get() {
+        return timelines.get();
+    }
+
+    /**
+     * Sets the {@link Timeline} to the current thread.
+     * 
+     * @param timeline
+     *            the {@link Timeline}
+     */
+    public static void set(Timeline timeline) {
+        if (timeline == null) {
+            timelines.remove();
+        } else {
+            timelines.set(timeline);
+        }
+    }
+
+    private TimelineLocator() {
+    }
+}
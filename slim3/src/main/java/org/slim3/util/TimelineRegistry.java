@@ -0,0 +1,126 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.util;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * {@link TimelineSink} that sums up the statistics of the requests. The
+ * statistics are held in static fields, so they are shared by all the sinks
+ * of this class in the class loader and can be read by {@link #getStats()}
+ * like a management bean. They are not shared between App Engine instances.
+ * 
+ * @author agent
+ * @since 1.0.18
+ * 
+ */
+public class TimelineRegistry implements TimelineSink {
+
+    private static final Map<String, Timeline.Stat> stats =
+        new LinkedHashMap<String, Timeline.Stat>();
+
+    private static long requestCount;
+
+    private static long totalTime;
+
+    public void export(Timeline timeline, HttpServletRequest request,
+            HttpServletResponse response) {
+        add(timeline);
+    }
+
+    /**
+     * Adds the statistics of the timeline.
+     * 
+     * @param timeline
+     *            the timeline
+     * @throws NullPointerException
+     *             if the timeline parameter is null
+     */
+    public static void add(Timeline timeline) throws NullPointerException {
+        if (timeline == null) {
+            throw new NullPointerException("The timeline parameter is null.");
+        }
+        Map<String, Timeline.Stat> timelineStats = timeline.getStats();
+        long elapsedTime = timeline.getElapsedTime();
+        synchronized (stats) {
+            requestCount++;
+            totalTime += elapsedTime;
+            for (Map.Entry<String, Timeline.Stat> e : timelineStats
+                .entrySet()) {
+                Timeline.Stat stat = stats.get(e.getKey());
+                if (stat == null) {
+                    stat = new Timeline.Stat();
+                    stats.put(e.getKey(), stat);
+                }
+                stat.add(e.getValue());
+            }
+        }
+    }
+
+    /**
+     * Returns the statistics per category.
+     * 
+     * @return the statistics per category
+     */
+    public static Map<String, Timeline.Stat> getStats() {
+        Map<String, Timeline.Stat> map =
+            new LinkedHashMap<String, Timeline.Stat>();
+        synchronized (stats) {
+            for (Map.Entry<String, Timeline.Stat> e : stats.entrySet()) {
+                map.put(e.getKey(), e.getValue().copy());
+            }
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * Returns the number of the requests.
+     * 
+     * @return the number of the requests
+     */
+    public static long getRequestCount() {
+        synchronized (stats) {
+            return requestCount;
+        }
+    }
+
+    /**
+     * Returns the total time of the requests(nanoseconds).
+     * 
+     * @return the total time of the requests
+     */
+    public static long getTotalTime() {
+        synchronized (stats) {
+            return totalTime;
+        }
+    }
+
+    /**
+     * Clears the statistics.
+     */
+    public static void clear() {
+        synchronized (stats) {
+            stats.clear();
+            requestCount = 0;
+            totalTime = 0;
+        }
+    }
+}
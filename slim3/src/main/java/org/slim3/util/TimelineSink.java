@@ -0,0 +1,45 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.util;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * This interface exports the {@link Timeline} of a request. The class names
+ * of the sinks are specified by "slim3.timelineSink" context parameter.
+ * 
+ * @author agent
+ * @since 1.0.18
+ * 
+ */
+public interface TimelineSink {
+
+    /**
+     * Exports the timeline. This method is called after the request is
+     * processed, or just before the response is committed if this sink is a
+     * {@link ResponseTimelineSink}.
+     * 
+     * @param timeline
+     *            the timeline
+     * @param request
+     *            the request
+     * @param response
+     *            the response
+     */
+    void export(Timeline timeline, HttpServletRequest request,
+            HttpServletResponse response);
+}
@@ -21,6 +21,7 @@ import static org.junit.Assert.*;
 import java.util.Date;
 
 import org.junit.Test;
+import org.slim3.controller.content.ByteArrayContent;
 import org.slim3.controller.upload.FileUpload;
 import org.slim3.tester.ControllerTestCase;
 import org.slim3.util.RequestMap;
@@ -181,6 +182,23 @@ public class ControllerTest extends ControllerTestCase {
         assertThat(bytes[0], is((byte) 1));
     }
 
+    /**
+     * @throws Exception
+     * 
+     */
+    @Test
+    public void downloadForRange() throws Exception {
+        tester.request.setHeader("Range", "bytes=1-");
+        ByteArrayContent content = new ByteArrayContent(new byte[] { 1, 2 });
+        content.setETag("aaa");
+        controller.download("aaa.txt", content);
+        byte[] bytes = tester.response.getOutputAsByteArray();
+        assertThat(bytes.length, is(1));
+        assertThat(bytes[0], is((byte) 2));
+        assertThat(tester.response.getStatus(), is(206));
+        assertThat(tester.response.getHeader("ETag"), is("\"aaa\""));
+    }
+
     /**
      * @throws Exception
      * 
@@ -299,6 +317,37 @@ public class ControllerTest extends ControllerTestCase {
         assertThat((String)map.get("aaa"), is("aiueo"));
         assertThat((String)map.get("bbb"), is("12345"));
     }
+
+    /**
+     * @throws Exception
+     * 
+     */
+    @Test
+    public void asMapIsReused() throws Exception {
+        assertThat(
+            controller.asParsedMap(),
+            is(sameInstance(controller.asParsedMap())));
+        assertThat(
+            controller.asMap(),
+            is(sameInstance((RequestMap) controller.asParsedMap())));
+        tester.request.setAttribute("aaa", "1");
+        assertThat(controller.asInteger("aaa"), is(1));
+        tester.request.setAttribute("aaa", "2");
+        assertThat(controller.asInteger("aaa"), is(2));
+    }
+
+    /**
+     * @throws Exception
+     * 
+     */
+    @Test
+    public void asKeyIsDecodedOnce() throws Exception {
+        Key key = KeyFactory.createKey("Hoge", 1);
+        tester.request.setAttribute("key", KeyFactory.keyToString(key));
+        Key key2 = controller.asKey("key");
+        assertThat(key2, is(key));
+        assertThat(controller.asKey("key"), is(sameInstance(key2)));
+    }
     
     /**
      * @throws Exception
@@ -17,6 +17,13 @@ package org.slim3.controller;
 
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.junit.Test;
 import org.slim3.controller.controller.HogeController;
@@ -24,7 +31,13 @@ import org.slim3.controller.controller.IndexController;
 import org.slim3.controller.controller.hello.ListController;
 import org.slim3.controller.validator.Errors;
 import org.slim3.tester.ControllerTestCase;
+import org.slim3.util.Cleaner;
+import org.slim3.util.ResponseTimelineSink;
 import org.slim3.util.ServletContextLocator;
+import org.slim3.util.Timeline;
+import org.slim3.util.TimelineLocator;
+import org.slim3.util.TimelineRegistry;
+import org.slim3.util.TimelineSink;
 
 /**
  * @author higa
@@ -447,6 +460,114 @@ public class FrontControllerTest extends ControllerTestCase {
             is("/index.jsp"));
     }
 
+    /**
+     * @throws Exception
+     * 
+     */
+    @Test
+    public void initTimelineSinks() throws Exception {
+        assertThat(tester.frontController.timelineSinks.size(), is(0));
+        tester.servletContext.setInitParameter(
+            ControllerConstants.TIMELINE_SINK_KEY,
+            TimelineRegistry.class.getName());
+        tester.frontController.initTimelineSinks();
+        assertThat(tester.frontController.timelineSinks.size(), is(1));
+        assertThat(
+            tester.frontController.timelineSinks.get(0),
+            instanceOf(TimelineRegistry.class));
+    }
+
+    /**
+     * @throws Exception
+     * 
+     */
+    @Test
+    public void doFilterWithTimeline() throws Exception {
+        tester.frontController.timelineSinks.add(new TimelineRegistry());
+        tester.request.setServletPath("/");
+        try {
+            tester.frontController.doFilter(
+                tester.request,
+                tester.response,
+                tester.filterChain);
+            assertThat(TimelineRegistry.getRequestCount(), is(1L));
+            assertThat(
+                TimelineRegistry
+                    .getStats()
+                    .get(Timeline.CONTROLLER)
+                    .getCount(),
+                is(1L));
+            assertThat(
+                TimelineRegistry.getStats().get(Timeline.FORWARD).getCount(),
+                is(1L));
+            assertThat(TimelineLocator.get(), is(nullValue()));
+        } finally {
+            TimelineRegistry.clear();
+        }
+    }
+
+    /**
+     * @throws Exception
+     * 
+     */
+    @Test
+    public void timelineResponse() throws Exception {
+        final List<String> exported = new ArrayList<String>();
+        tester.frontController.timelineSinks.add(new ResponseTimelineSink() {
+            public void export(Timeline timeline, HttpServletRequest request,
+                    HttpServletResponse response) {
+                exported.add("response");
+            }
+        });
+        tester.frontController.timelineSinks.add(new TimelineSink() {
+            public void export(Timeline timeline, HttpServletRequest request,
+                    HttpServletResponse response) {
+                exported.add("other");
+            }
+        });
+        FrontController.TimelineResponse response =
+            tester.frontController.new TimelineResponse(
+                new Timeline(),
+                tester.request,
+                tester.response);
+        assertThat(exported.size(), is(0));
+        response.getWriter();
+        response.flushBuffer();
+        response.exportBeforeCommit();
+        assertThat(exported.size(), is(1));
+        assertThat(exported.get(0), is("response"));
+    }
+
+    /**
+     * @throws Exception
+     * 
+     */
+    @Test
+    public void processControllerWhenControllerFails() throws Exception {
+        Controller controller = new Controller() {
+            @Override
+            protected Navigation run() throws Exception {
+                throw new IllegalStateException("Hoge");
+            }
+        };
+        Timeline timeline = new Timeline();
+        TimelineLocator.set(timeline);
+        try {
+            tester.frontController.processController(
+                tester.request,
+                tester.response,
+                controller);
+            fail();
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), is("Hoge"));
+        } finally {
+            TimelineLocator.set(null);
+        }
+        assertThat(
+            timeline.getStats().get(Timeline.CONTROLLER).getCount(),
+            is(1L));
+    }
+
     /**
      * @throws Exception
      * 
@@ -465,4 +586,209 @@ public class FrontControllerTest extends ControllerTestCase {
             tester.request.getAttribute(ControllerConstants.ROUTED_KEY),
             is(notNullValue()));
     }
-}
\ No newline at end of file
+
+    /**
+     * @throws Exception
+     * 
+     */
+    @Test
+    public void doFilterForDirectDispatch() throws Exception {
+        tester.frontController.directDispatch = true;
+        tester.request.setServletPath("/hogehoge/111");
+        tester.frontController.doFilter(
+            tester.request,
+            tester.response,
+            tester.filterChain);
+        assertThat(
+            tester.servletContext.getLatestRequestDispatcher().getPath(),
+            is("/index.jsp"));
+        assertThat(tester.asString("aaa"), is("111"));
+        assertThat(
+            tester.request.getAttribute(ControllerConstants.ROUTED_KEY),
+            is(nullValue()));
+    }
+
+    /**
+     * @throws Exception
+     * 
+     */
+    @Test
+    public void doFilterForDirectDispatchWhenControllerIsNotFound()
+            throws Exception {
+        tester.frontController.directDispatch = true;
+        tester.request.setServletPath("/_ah/mail/hoge");
+        tester.frontController.doFilter(
+            tester.request,
+            tester.response,
+            tester.filterChain);
+        assertThat(
+            tester.servletContext.getLatestRequestDispatcher().getPath(),
+            is("/mail?address=hoge"));
+        assertThat(
+            tester.request.getAttribute(ControllerConstants.ROUTED_KEY),
+            is(notNullValue()));
+    }
+
+    /**
+     * @throws Exception
+     * 
+     */
+    @Test
+    public void getControllerClass() throws Exception {
+        assertThat(
+            tester.frontController.getControllerClass("/hoge"),
+            is((Object) HogeController.class));
+        assertThat(
+            tester.frontController.getControllerClass("/xxx"),
+            is(nullValue()));
+    }
+
+    /**
+     * @throws Exception
+     * 
+     */
+    @Test
+    public void getControllerEntryIsCached() throws Exception {
+        FrontController.ControllerEntry entry =
+            tester.frontController.getControllerEntry("/hoge");
+        assertThat(entry, is(notNullValue()));
+        assertThat(
+            tester.frontController.getControllerEntry("/hoge"),
+            is(sameInstance(entry)));
+        assertThat(
+            tester.frontController.createController("/hoge"),
+            instanceOf(HogeController.class));
+    }
+
+    /**
+     * @throws Exception
+     * 
+     */
+    @Test
+    public void getControllerEntryForClassNotFound() throws Exception {
+        assertThat(
+            tester.frontController.getControllerEntry("/xxx"),
+            is(nullValue()));
+        FrontController.ControllerEntry entry =
+            tester.frontController.missingControllerCache.get("/xxx");
+        assertThat(entry, is(notNullValue()));
+        assertThat(entry.controllerClass, is(nullValue()));
+        assertThat(
+            tester.frontController.controllerCache.containsKey("/xxx"),
+            is(false));
+    }
+
+    /**
+     * @throws Exception
+     * 
+     */
+    @Test
+    public void getControllerEntryForClassNotFoundWhenHotReloading()
+            throws Exception {
+        ClassLoader previous = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(
+            new HotReloadingClassLoader(previous, "aaa", "cool"));
+        try {
+            assertThat(
+                tester.frontController.getControllerEntry("/xxx"),
+                is(nullValue()));
+            assertThat(
+                tester.frontController.missingControllerCache.size(),
+                is(0));
+            assertThat(tester.frontController.controllerCache.size(), is(0));
+        } finally {
+            Thread.currentThread().setContextClassLoader(previous);
+        }
+    }
+
+    /**
+     * @throws Exception
+     * 
+     */
+    @Test
+    public void getControllerEntryWhenCacheIsFull() throws Exception {
+        tester.frontController.controllerCacheSize = 2;
+        tester.frontController.getControllerEntry("/xxx");
+        tester.frontController.getControllerEntry("/yyy");
+        tester.frontController.getControllerEntry("/xxx");
+        tester.frontController.getControllerEntry("/zzz");
+        assertThat(
+            tester.frontController.missingControllerCache.size(),
+            is(2));
+        assertThat(tester.frontController.missingControllerCache
+            .containsKey("/xxx"), is(true));
+        assertThat(tester.frontController.missingControllerCache
+            .containsKey("/yyy"), is(false));
+        assertThat(tester.frontController.missingControllerCache
+            .containsKey("/zzz"), is(true));
+        tester.frontController.getControllerEntry("/hoge");
+        assertThat(tester.frontController.controllerCache.size(), is(1));
+        assertThat(
+            tester.frontController.missingControllerCache.size(),
+            is(2));
+    }
+
+    /**
+     * @throws Exception
+     * 
+     */
+    @Test
+    public void getControllerEntryWhenPackageIsChanged() throws Exception {
+        assertThat(
+            tester.frontController.getControllerEntry("/list"),
+            is(nullValue()));
+        tester.servletContext.setAttribute(
+            ControllerConstants.CONTROLLER_PACKAGE_KEY,
+            "controller.hello");
+        assertThat(
+            tester.frontController.createController("/list"),
+            instanceOf(ListController.class));
+    }
+
+    /**
+     * @throws Exception
+     * 
+     */
+    @Test
+    public void controllerCacheIsCleanedByCleaner() throws Exception {
+        tester.frontController.getControllerEntry("/hoge");
+        tester.frontController.getControllerEntry("/xxx");
+        Cleaner.cleanAll();
+        assertThat(tester.frontController.controllerCache.size(), is(0));
+        assertThat(
+            tester.frontController.missingControllerCache.size(),
+            is(0));
+        tester.frontController.getControllerEntry("/hoge");
+        Cleaner.cleanAll();
+        assertThat(tester.frontController.controllerCache.size(), is(0));
+    }
+
+    /**
+     * @throws Exception
+     * 
+     */
+    @Test
+    public void createControllerForRegistry() throws Exception {
+        final HogeController hoge = new HogeController();
+        tester.frontController.controllerRegistry = new ControllerRegistry() {
+            public Class<? extends Controller> getControllerClass(
+                    String className) {
+                return HogeController.class.getName().equals(className)
+                    ? HogeController.class
+                    : null;
+            }
+
+            public Controller newController(String className) {
+                return HogeController.class.getName().equals(className)
+                    ? hoge
+                    : null;
+            }
+        };
+        assertThat(
+            tester.frontController.createController("/hoge"),
+            is(sameInstance((Controller) hoge)));
+        assertThat(
+            tester.frontController.createController("/hello/list"),
+            instanceOf(ListController.class));
+    }
+}
@@ -18,6 +18,9 @@ package org.slim3.controller;
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.*;
 
+import java.io.File;
+import java.net.URL;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -80,6 +83,91 @@ public class HotReloadingClassLoaderTest {
      * @throws Exception
      */
     @Test
+    public void isModified() throws Exception {
+        hotClassLoader.loadClass(CONTROLLER_CLASS_NAME);
+        assertThat(hotClassLoader.lastModifiedMap.size(), is(1));
+        assertThat(hotClassLoader.isModified(), is(false));
+        URL url = hotClassLoader.lastModifiedMap.keySet().iterator().next();
+        File file = new File(url.toURI());
+        long lastModified = file.lastModified();
+        try {
+            file.setLastModified(lastModified - 10000);
+            assertThat(hotClassLoader.isModified(), is(true));
+        } finally {
+            file.setLastModified(lastModified);
+        }
+    }
+
+    /**
+     * @throws Exception
+     * 
+     */
+    @Test
+    public void isModifiedWhenDirectoryIsChanged() throws Exception {
+        URL url =
+            hotClassLoader.getResource(CONTROLLER_CLASS_NAME.replace('.', '/')
+                + ".class");
+        File dir = new File(url.toURI()).getParentFile();
+        assertThat(
+            hotClassLoader.directoryLastModifiedMap.containsKey(dir),
+            is(true));
+        assertThat(hotClassLoader.isModified(), is(false));
+        long lastModified = dir.lastModified();
+        try {
+            dir.setLastModified(lastModified - 10000);
+            assertThat(hotClassLoader.isModified(), is(true));
+        } finally {
+            dir.setLastModified(lastModified);
+        }
+    }
+
+    /**
+     * @throws Exception
+     * 
+     */
+    @Test
+    public void isModifiedWhenDirectoryIsAdded() throws Exception {
+        URL url =
+            hotClassLoader.getResource(CONTROLLER_CLASS_NAME.replace('.', '/')
+                + ".class");
+        File parent = new File(url.toURI()).getParentFile();
+        long lastModified = parent.lastModified();
+        File dir = new File(parent, "added");
+        try {
+            assertThat(dir.mkdir(), is(true));
+            parent.setLastModified(lastModified);
+            assertThat(hotClassLoader.isModified(), is(true));
+        } finally {
+            dir.delete();
+            parent.setLastModified(lastModified);
+        }
+        assertThat(hotClassLoader.isModified(), is(false));
+    }
+
+    /**
+     * @throws Exception
+     * 
+     */
+    @Test
+    public void getDirectoryLastModifiedMapExcludesCoolPackage()
+            throws Exception {
+        for (File dir : hotClassLoader.directoryLastModifiedMap.keySet()) {
+            assertThat(dir.getName(), is(not("cool")));
+        }
+        HotReloadingClassLoader loader =
+            new HotReloadingClassLoader(originalClassLoader, ROOT_PACKAGE
+                + ".controller", "hello");
+        for (File dir : loader.directoryLastModifiedMap.keySet()) {
+            assertThat(dir.getName(), is(not("hello")));
+        }
+        assertThat(loader.directoryLastModifiedMap.isEmpty(), is(false));
+    }
+
+    /**
+     * @throws Exception
+     * 
+     */
+    @Test
     public void isTarget() throws Exception {
         assertThat(hotClassLoader.isTarget(CONTROLLER_CLASS_NAME), is(true));
         assertThat(hotClassLoader.isTarget(ROOT_PACKAGE
@@ -21,6 +21,8 @@ import static org.junit.Assert.*;
 import org.junit.After;
 import org.junit.Test;
 import org.slim3.tester.MockServletContext;
+import org.slim3.util.Cleanable;
+import org.slim3.util.Cleaner;
 import org.slim3.util.ServletContextLocator;
 
 /**
@@ -31,12 +33,17 @@ public class HotReloadingFilterTest {
 
     private HotReloadingFilter filter = new HotReloadingFilter();
 
+    private boolean modified = false;
+
+    private boolean cleaned = false;
+
     /**
      * @throws Exception
      */
     @After
     public void tearDown() throws Exception {
         ServletContextLocator.set(null);
+        Cleaner.cleanAll();
     }
 
     /**
@@ -115,6 +122,65 @@ public class HotReloadingFilterTest {
         assertThat(filter.coolPackageName, is("cool"));
     }
 
+    /**
+     * @throws Exception
+     * 
+     */
+    @Test
+    public void beginGeneration() throws Exception {
+        ClassLoader previousLoader =
+            Thread.currentThread().getContextClassLoader();
+        filter.rootPackageName = "aaa";
+        filter.coolPackageName = "cool";
+        HotReloadingClassLoader loader =
+            filter.beginGeneration(previousLoader);
+        filter.generationLock.readLock().unlock();
+        assertThat(loader.getParent(), is(sameInstance(previousLoader)));
+        assertThat(filter.generation, is(1L));
+        assertThat(
+            filter.beginGeneration(previousLoader),
+            is(sameInstance(loader)));
+        filter.generationLock.readLock().unlock();
+        assertThat(filter.generation, is(1L));
+    }
+
+    /**
+     * @throws Exception
+     * 
+     */
+    @Test
+    public void beginGenerationWhenClassIsModified() throws Exception {
+        ClassLoader previousLoader =
+            Thread.currentThread().getContextClassLoader();
+        filter.rootPackageName = "aaa";
+        filter.coolPackageName = "cool";
+        HotReloadingClassLoader oldLoader =
+            new HotReloadingClassLoader(previousLoader, "aaa", "cool") {
+                @Override
+                public boolean isModified() {
+                    return modified;
+                }
+            };
+        filter.hotReloadingClassLoader = oldLoader;
+        Cleaner.add(new Cleanable() {
+            public void clean() {
+                cleaned = true;
+            }
+        });
+        assertThat(
+            filter.beginGeneration(previousLoader),
+            is(sameInstance(oldLoader)));
+        filter.generationLock.readLock().unlock();
+        assertThat(cleaned, is(false));
+        modified = true;
+        HotReloadingClassLoader loader =
+            filter.beginGeneration(previousLoader);
+        filter.generationLock.readLock().unlock();
+        assertThat(loader, is(not(sameInstance(oldLoader))));
+        assertThat(filter.generation, is(1L));
+        assertThat(cleaned, is(true));
+    }
+
     /**
      * @throws Exception
      * 
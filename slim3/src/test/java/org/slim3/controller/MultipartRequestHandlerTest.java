@@ -18,8 +18,21 @@ package org.slim3.controller;
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.ServletInputStream;
+
 import org.junit.After;
 import org.junit.Test;
+import org.slim3.controller.upload.DigestFileItem;
+import org.slim3.controller.upload.DigestFileItemSink;
+import org.slim3.controller.upload.FileItem;
+import org.slim3.controller.upload.FileItemSink;
+import org.slim3.controller.upload.FileItemStream;
 import org.slim3.controller.upload.FileUpload;
 import org.slim3.tester.MockHttpServletRequest;
 import org.slim3.tester.MockServletContext;
@@ -30,6 +43,8 @@ import org.slim3.tester.MockServletContext;
  */
 public class MultipartRequestHandlerTest {
 
+    private static final String BOUNDARY = "----boundary";
+
     private MockServletContext servletContext = new MockServletContext();
 
     private MockHttpServletRequest request =
@@ -84,4 +99,170 @@ public class MultipartRequestHandlerTest {
         FileUpload upload = handler.createFileUpload();
         assertThat(upload.getFileSizeMax(), is(fileSizeMax));
     }
-}
\ No newline at end of file
+
+    /**
+     * @throws Exception
+     * 
+     */
+    @Test
+    public void handle() throws Exception {
+        setContent(part("aaa", null, "111")
+            + part("bbbArray", null, "222")
+            + part("bbbArray", null, "333")
+            + part("file", "hoge.txt", "hello")
+            + part("fileArray", "a.txt", "a")
+            + part("fileArray", "b.txt", ""));
+        new MultipartRequestHandler(request).handle();
+        assertThat((String) request.getAttribute("aaa"), is("111"));
+        String[] bbbArray = (String[]) request.getAttribute("bbbArray");
+        assertThat(bbbArray.length, is(2));
+        assertThat(bbbArray[0], is("222"));
+        assertThat(bbbArray[1], is("333"));
+        FileItem file = (FileItem) request.getAttribute("file");
+        assertThat(file.getFileName(), is("hoge.txt"));
+        assertThat(new String(file.getData(), "UTF-8"), is("hello"));
+        FileItem[] fileArray = (FileItem[]) request.getAttribute("fileArray");
+        assertThat(fileArray.length, is(2));
+        assertThat(fileArray[0].getFileName(), is("a.txt"));
+        assertThat(fileArray[1], is(nullValue()));
+    }
+
+    /**
+     * @throws Exception
+     * 
+     */
+    @Test
+    public void handleForSink() throws Exception {
+        setContent(part("file", "hoge.txt", "hello")
+            + part("other", "other.txt", "other"));
+        MultipartRequestHandler handler = new MultipartRequestHandler(request);
+        handler.addSink("file", new FileItemSink() {
+            public Object receive(FileItemStream item, InputStream stream)
+                    throws IOException {
+                assertThat(item.getFileName(), is("hoge.txt"));
+                return stream.read() == 'h' ? "read" : null;
+            }
+
+            public void discard(Object value) {
+            }
+        });
+        handler.handle();
+        assertThat((String) request.getAttribute("file"), is("read"));
+        assertThat(
+            request.getAttribute("other"),
+            is(instanceOf(FileItem.class)));
+    }
+
+    /**
+     * @throws Exception
+     * 
+     */
+    @Test
+    public void handleForDefaultSink() throws Exception {
+        setContent(part("fileArray", "a.txt", "a")
+            + part("fileArray", "b.txt", "b"));
+        MultipartRequestHandler handler = new MultipartRequestHandler(request);
+        handler.setDefaultSink(new DigestFileItemSink("MD5"));
+        handler.handle();
+        DigestFileItem[] fileArray =
+            (DigestFileItem[]) request.getAttribute("fileArray");
+        assertThat(fileArray.length, is(2));
+        assertThat(fileArray[0].getFileName(), is("a.txt"));
+        assertThat(
+            fileArray[0].getDigest(),
+            is("0cc175b9c0f1b6a831c399e269772661"));
+        assertThat(
+            fileArray[1].getDigest(),
+            is("92eb5ffee6ae2fec3ad71c777531578f"));
+    }
+
+    /**
+     * @throws Exception
+     * 
+     */
+    @Test
+    public void handleWhenFileSizeMaxIsExceeded() throws Exception {
+        System.setProperty(MultipartRequestHandler.FILE_SIZE_MAX_KEY, "3");
+        setContent(part("file", "hoge.txt", "hello"));
+        MultipartRequestHandler handler = new MultipartRequestHandler(request);
+        handler.setDefaultSink(new DigestFileItemSink("MD5"));
+        try {
+            handler.handle();
+            fail();
+        } catch (RuntimeException e) {
+            assertThat(request.getAttribute("file"), is(nullValue()));
+        }
+    }
+
+    /**
+     * @throws Exception
+     * 
+     */
+    @Test
+    public void handleDiscardsReceivedValuesWhenLaterItemFails()
+            throws Exception {
+        System.setProperty(MultipartRequestHandler.FILE_SIZE_MAX_KEY, "3");
+        setContent(part("file", "a.txt", "abc")
+            + part("fileArray", "b.txt", "b")
+            + part("other", "c.txt", "hello"));
+        final List<Object> discarded = new ArrayList<Object>();
+        MultipartRequestHandler handler = new MultipartRequestHandler(request);
+        handler.setDefaultSink(new DigestFileItemSink("MD5") {
+            @Override
+            public void discard(Object value) {
+                discarded.add(value);
+            }
+        });
+        try {
+            handler.handle();
+            fail();
+        } catch (RuntimeException e) {
+            assertThat(discarded.size(), is(2));
+            assertThat(
+                ((DigestFileItem) discarded.get(0)).getFileName(),
+                is("a.txt"));
+            assertThat(
+                ((DigestFileItem) discarded.get(1)).getFileName(),
+                is("b.txt"));
+            assertThat(request.getAttribute("file"), is(nullValue()));
+            assertThat(request.getAttribute("fileArray"), is(nullValue()));
+        }
+    }
+
+    /**
+     * @throws Exception
+     * 
+     */
+    @Test(expected = NullPointerException.class)
+    public void addSinkWhenSinkIsNull() throws Exception {
+        new MultipartRequestHandler(request).addSink("file", null);
+    }
+
+    private String part(String name, String fileName, String value) {
+        return "--"
+            + BOUNDARY
+            + "\r\nContent-Disposition: form-data; name=\""
+            + name
+            + "\""
+            + (fileName != null ? "; filename=\"" + fileName + "\"" : "")
+            + "\r\n\r\n"
+            + value
+            + "\r\n";
+    }
+
+    private void setContent(String parts) throws Exception {
+        final ByteArrayInputStream in =
+            new ByteArrayInputStream((parts + "--" + BOUNDARY + "--\r\n")
+                .getBytes("UTF-8"));
+        request.setCharacterEncoding("UTF-8");
+        request.setContentType(FileUpload.MULTIPART_FORM_DATA
+            + "; boundary="
+            + BOUNDARY);
+        request.setInputStream(new ServletInputStream() {
+            @Override
+            public int read() throws IOException {
+                return in.read();
+            }
+        });
+    }
+}
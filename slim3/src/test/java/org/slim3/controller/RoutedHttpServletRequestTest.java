@@ -0,0 +1,130 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.controller;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Map;
+
+import org.junit.Test;
+import org.slim3.tester.MockHttpServletRequest;
+import org.slim3.tester.MockServletContext;
+
+/**
+ * @author agent
+ * 
+ */
+public class RoutedHttpServletRequestTest {
+
+    private MockServletContext servletContext = new MockServletContext();
+
+    private MockHttpServletRequest request =
+        new MockHttpServletRequest(servletContext);
+
+    /**
+     * @throws Exception
+     * 
+     */
+    @Test
+    public void path() throws Exception {
+        request.setServletPath("/blog/edit/1");
+        request.setQueryString("aaa=1");
+        RoutedHttpServletRequest routed =
+            new RoutedHttpServletRequest(request, "/blog/edit", "id=1");
+        assertThat(routed.getServletPath(), is("/blog/edit"));
+        assertThat(routed.getPathInfo(), is(nullValue()));
+        assertThat(routed.getQueryString(), is("id=1"));
+        assertThat(
+            routed.getRequestURI(),
+            is(request.getContextPath() + "/blog/edit"));
+        assertThat(
+            routed.getRequestURL().toString().endsWith("/blog/edit"),
+            is(true));
+        assertThat(
+            routed.getOriginalRequest(),
+            is(sameInstance((Object) request)));
+    }
+
+    /**
+     * @throws Exception
+     * 
+     */
+    @Test
+    public void getAttributeForForward() throws Exception {
+        request.setServletPath("/blog/edit/1");
+        request.setQueryString("aaa=1");
+        RoutedHttpServletRequest routed =
+            new RoutedHttpServletRequest(request, "/blog/edit", "id=1");
+        assertThat(
+            (String) routed
+                .getAttribute(ControllerConstants.FORWARD_SERVLET_PATH_KEY),
+            is("/blog/edit/1"));
+        assertThat(
+            (String) routed.getAttribute("javax.servlet.forward.query_string"),
+            is("aaa=1"));
+        assertThat(routed.getAttribute("xxx"), is(nullValue()));
+        routed.setAttribute("xxx", "111");
+        assertThat((String) request.getAttribute("xxx"), is("111"));
+    }
+
+    /**
+     * @throws Exception
+     * 
+     */
+    @Test
+    public void getParameter() throws Exception {
+        request.setParameter("id", "2");
+        request.setParameter("aaa", "3");
+        RoutedHttpServletRequest routed =
+            new RoutedHttpServletRequest(
+                request,
+                "/mail",
+                "id=1&address=a%40b.com&flag");
+        assertThat(routed.getParameter("id"), is("1"));
+        assertThat(routed.getParameterValues("id").length, is(2));
+        assertThat(routed.getParameterValues("id")[1], is("2"));
+        assertThat(routed.getParameter("address"), is("a@b.com"));
+        assertThat(routed.getParameter("flag"), is(""));
+        assertThat(routed.getParameter("aaa"), is("3"));
+        assertThat(routed.getParameter("xxx"), is(nullValue()));
+        Map<String, String[]> map = routed.getParameterMap();
+        assertThat(map.size(), is(4));
+        assertThat(routed.getParameterNames().hasMoreElements(), is(true));
+    }
+
+    /**
+     * @throws Exception
+     * 
+     */
+    @Test
+    public void getParameterWithoutQueryString() throws Exception {
+        request.setParameter("aaa", "3");
+        RoutedHttpServletRequest routed =
+            new RoutedHttpServletRequest(request, "/hoge", null);
+        assertThat(routed.getParameter("aaa"), is("3"));
+        assertThat(routed.getParameterMap().size(), is(1));
+    }
+
+    /**
+     * @throws Exception
+     * 
+     */
+    @Test(expected = NullPointerException.class)
+    public void constructorWhenServletPathIsNull() throws Exception {
+        new RoutedHttpServletRequest(request, null, null);
+    }
+}
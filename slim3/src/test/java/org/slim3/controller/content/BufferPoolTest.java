@@ -0,0 +1,50 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.controller.content;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * @author agent
+ * 
+ */
+public class BufferPoolTest {
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void acquireAndRelease() throws Exception {
+        byte[] buffer = BufferPool.acquire();
+        assertThat(buffer.length, is(BufferPool.BUFFER_SIZE));
+        int size = BufferPool.size();
+        BufferPool.release(buffer);
+        assertThat(BufferPool.size(), is(size + 1));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void releaseForOtherSize() throws Exception {
+        int size = BufferPool.size();
+        BufferPool.release(new byte[1]);
+        assertThat(BufferPool.size(), is(size));
+    }
+}
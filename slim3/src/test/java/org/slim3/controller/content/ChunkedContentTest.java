@@ -0,0 +1,59 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.controller.content;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * @author agent
+ * 
+ */
+public class ChunkedContentTest {
+
+    private ChunkedContent<String> content =
+        new ChunkedContent<String>(Arrays.asList("012", "345", "6789"), 10) {
+            @Override
+            protected byte[] getBytes(String chunk) {
+                return chunk.getBytes();
+            }
+        };
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void writeTo() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        content.writeTo(out, 0, -1, new byte[4]);
+        assertThat(out.toString(), is("0123456789"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void writeToForRange() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        content.writeTo(out, 4, 5, new byte[4]);
+        assertThat(out.toString(), is("45678"));
+    }
+}
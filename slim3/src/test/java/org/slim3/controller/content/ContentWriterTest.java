@@ -0,0 +1,180 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.controller.content;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Test;
+import org.slim3.tester.MockHttpServletRequest;
+import org.slim3.tester.MockHttpServletResponse;
+import org.slim3.tester.MockServletContext;
+
+/**
+ * @author agent
+ * 
+ */
+public class ContentWriterTest {
+
+    private static final byte[] DATA = "0123456789".getBytes();
+
+    private MockServletContext servletContext = new MockServletContext();
+
+    private MockHttpServletRequest request =
+        new MockHttpServletRequest(servletContext);
+
+    private MockHttpServletResponse response = new MockHttpServletResponse();
+
+    private ContentWriter writer = new ContentWriter(request, response);
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void write() throws Exception {
+        writer.write(new ByteArrayContent(DATA), "text/plain", "inline");
+        assertThat(response.getStatus(), is(HttpServletResponse.SC_OK));
+        assertThat(response.getOutputAsString(), is("0123456789"));
+        assertThat(response.getContentType(), is("text/plain"));
+        assertThat(response.getHeader("Content-disposition"), is("inline"));
+        assertThat(response.getContentLength(), is(10));
+        assertThat(response.getHeader("Accept-Ranges"), is("bytes"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void writeForRange() throws Exception {
+        request.setHeader("Range", "bytes=2-4");
+        writer.write(new ByteArrayContent(DATA), null, null);
+        assertThat(
+            response.getStatus(),
+            is(HttpServletResponse.SC_PARTIAL_CONTENT));
+        assertThat(response.getOutputAsString(), is("234"));
+        assertThat(response.getHeader("Content-Range"), is("bytes 2-4/10"));
+        assertThat(response.getContentLength(), is(3));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void writeForUnsatisfiableRange() throws Exception {
+        request.setHeader("Range", "bytes=10-");
+        writer.write(new ByteArrayContent(DATA), null, null);
+        assertThat(response.getStatus(), is(416));
+        assertThat(response.getHeader("Content-Range"), is("bytes */10"));
+        assertThat(response.getOutputAsByteArray().length, is(0));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void writeForRangeWhenIfRangeDoesNotMatch() throws Exception {
+        request.setHeader("Range", "bytes=2-4");
+        request.setHeader("If-Range", "\"old\"");
+        ByteArrayContent content = new ByteArrayContent(DATA);
+        content.setETag("new");
+        writer.write(content, null, null);
+        assertThat(response.getStatus(), is(HttpServletResponse.SC_OK));
+        assertThat(response.getOutputAsString(), is("0123456789"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void writeForRangeWhenLengthIsUnknown() throws Exception {
+        request.setHeader("Range", "bytes=2-4");
+        writer.write(new ChunkedContent<byte[]>(
+            Arrays.asList(DATA),
+            -1), null, null);
+        assertThat(response.getStatus(), is(HttpServletResponse.SC_OK));
+        assertThat(response.getOutputAsString(), is("0123456789"));
+        assertThat(response.getHeader("Accept-Ranges"), is(nullValue()));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void writeForIfNoneMatch() throws Exception {
+        request.setHeader("If-None-Match", "\"aaa\", W/\"bbb\"");
+        ByteArrayContent content = new ByteArrayContent(DATA);
+        content.setETag("bbb");
+        writer.write(content, null, null);
+        assertThat(
+            response.getStatus(),
+            is(HttpServletResponse.SC_NOT_MODIFIED));
+        assertThat(response.getHeader("ETag"), is("\"bbb\""));
+        assertThat(response.getOutputAsByteArray().length, is(0));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void writeForIfModifiedSince() throws Exception {
+        request.setDateHeader("If-Modified-Since", 1000000000000L);
+        ByteArrayContent content = new ByteArrayContent(DATA);
+        content.setLastModified(1000000000000L);
+        writer.write(content, null, null);
+        assertThat(
+            response.getStatus(),
+            is(HttpServletResponse.SC_NOT_MODIFIED));
+        content.setLastModified(1000000001000L);
+        response = new MockHttpServletResponse();
+        new ContentWriter(request, response).write(content, null, null);
+        assertThat(response.getStatus(), is(HttpServletResponse.SC_OK));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void writeForHead() throws Exception {
+        request.setMethod("HEAD");
+        writer.write(new ByteArrayContent(DATA), null, null);
+        assertThat(response.getContentLength(), is(10));
+        assertThat(response.getOutputAsByteArray().length, is(0));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void parseRange() throws Exception {
+        assertThat(writer.parseRange(null, 10), is(nullValue()));
+        assertThat(writer.parseRange("bytes=0-0", 10)[1], is(0L));
+        assertThat(writer.parseRange("bytes=5-", 10)[1], is(9L));
+        assertThat(writer.parseRange("bytes=5-100", 10)[1], is(9L));
+        assertThat(writer.parseRange("bytes=-3", 10)[0], is(7L));
+        assertThat(writer.parseRange("bytes=-30", 10)[0], is(0L));
+        assertThat(writer.parseRange("bytes=0-1,3-4", 10), is(nullValue()));
+        assertThat(writer.parseRange("bytes=4-3", 10), is(nullValue()));
+        assertThat(writer.parseRange("items=0-1", 10), is(nullValue()));
+        assertThat(writer.parseRange("bytes=a-1", 10), is(nullValue()));
+        assertThat(
+            writer.parseRange("bytes=10-11", 10),
+            is(sameInstance(ContentWriter.INVALID_RANGE)));
+    }
+}
@@ -28,5 +28,6 @@ public class AppRouter extends RouterImpl {
      */
     public AppRouter() {
         addRouting("/_ah/mail/{address}", "/mail?address={address}");
+        addRouting("/hogehoge/{aaa}", "/hoge?aaa={aaa}");
     }
 }
\ No newline at end of file
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.controller.router;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.slim3.tester.MockHttpServletRequest;
+import org.slim3.tester.MockServletContext;
+
+/**
+ * @author agent
+ *
+ */
+public class RoutingTreeTest {
+
+    private MockServletContext servletContext = new MockServletContext();
+
+    private MockHttpServletRequest request =
+        new MockHttpServletRequest(servletContext);
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void routeLiteral() throws Exception {
+        RoutingTree tree =
+            new RoutingTree(Arrays.asList(
+                new Routing("/abc/", "/xyz/"),
+                new Routing("/abc/def", "/xyz/def")));
+        assertThat(tree.route(request, "/abc/"), is("/xyz/"));
+        assertThat(tree.route(request, "/abc/def"), is("/xyz/def"));
+        assertThat(tree.route(request, "/abc"), is(nullValue()));
+        assertThat(tree.route(request, "/abc/xxx"), is(nullValue()));
+        assertThat(tree.fallbackList.size(), is(0));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void routePlaceHolder() throws Exception {
+        RoutingTree tree =
+            new RoutingTree(Arrays.asList(new Routing(
+                "/abc/{xxx}/{yyy}",
+                "/abc?xxx={xxx}&yyy={yyy}")));
+        assertThat(
+            tree.route(request, "/abc/111/222"),
+            is("/abc?xxx=111&yyy=222"));
+        assertThat(tree.route(request, "/abc/111/"), is(nullValue()));
+        assertThat(tree.route(request, "/abc//222"), is(nullValue()));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void routeCatchAll() throws Exception {
+        RoutingTree tree =
+            new RoutingTree(Arrays.asList(
+                new Routing("/abc/{xxx}/*path", "/abc?xxx={xxx}&path={path}"),
+                new Routing("/img/prefix*path", "/img?path={path}")));
+        assertThat(
+            tree.route(request, "/abc/123/part1/part2"),
+            is("/abc?xxx=123&path=part1%2Fpart2"));
+        assertThat(tree.route(request, "/abc/123/"), is(nullValue()));
+        assertThat(tree.route(request, "/abc/123/a*b"), is(nullValue()));
+        assertThat(
+            tree.route(request, "/img/prefix1/2"),
+            is("/img?path=1%2F2"));
+        assertThat(tree.route(request, "/img/prefix"), is(nullValue()));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void routeFirstMatch() throws Exception {
+        RoutingTree tree =
+            new RoutingTree(Arrays.asList(
+                new Routing("/{app}/edit", "/{app}/edit1"),
+                new Routing("/blog/edit", "/blog/edit2"),
+                new Routing("/blog/*path", "/blog/3"),
+                new Routing("/blog/{id}", "/blog/4")));
+        assertThat(tree.route(request, "/blog/edit"), is("/blog/edit1"));
+        assertThat(tree.route(request, "/blog/1"), is("/blog/3"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void routeFallback() throws Exception {
+        RoutingTree tree =
+            new RoutingTree(Arrays.asList(
+                new Routing("/feed/{name}.xml", "/feed?name={name}"),
+                new Routing("/feed/{name}", "/feed2?name={name}")));
+        assertThat(tree.fallbackList.size(), is(1));
+        assertThat(tree.route(request, "/feed/aaa.xml"), is("/feed?name=aaa"));
+        assertThat(tree.route(request, "/feed/aaa"), is("/feed2?name=aaa"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void routeSameAsLinearScan() throws Exception {
+        List<Routing> routingList = new ArrayList<Routing>();
+        routingList.add(new Routing("/_ah/mail/{a}", "/mail?a={a}"));
+        routingList.add(new Routing("/{app}/edit/{id}", "/{app}/edit?id={id}"));
+        routingList.add(new Routing("/xxx/", "/yyy/"));
+        routingList.add(new Routing("/{id}/xxx/", "/{id}/yyy/"));
+        routingList.add(new Routing("/a/*rest", "/a?rest={rest}"));
+        routingList.add(new Routing("/a/b", "/ab"));
+        routingList.add(new Routing("/a.b/{c}", "/ab?c={c}"));
+        routingList.add(new Routing("*all", "/all?all={all}"));
+        RoutingTree tree = new RoutingTree(routingList);
+        String[] paths =
+            new String[] {
+                "/_ah/mail/aaa@bbb.com",
+                "/blog/edit/1",
+                "/blog/edit/",
+                "/xxx/",
+                "/1/xxx/",
+                "/a/b",
+                "/a/",
+                "/a.b/1",
+                "/aXb/1",
+                "",
+                "/",
+                "/x*y" };
+        for (String path : paths) {
+            String expected = null;
+            for (Routing r : routingList) {
+                expected = r.route(request, path);
+                if (expected != null) {
+                    break;
+                }
+            }
+            assertThat(path, tree.route(request, path), is(expected));
+        }
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test(expected = NullPointerException.class)
+    public void constructorWhenRoutingListIsNull() throws Exception {
+        new RoutingTree(null);
+    }
+}
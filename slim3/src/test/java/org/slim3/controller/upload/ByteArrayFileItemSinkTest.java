@@ -0,0 +1,58 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.controller.upload;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+
+import org.junit.Test;
+
+/**
+ * @author agent
+ * 
+ */
+public class ByteArrayFileItemSinkTest {
+
+    private ByteArrayFileItemSink sink = new ByteArrayFileItemSink();
+
+    /**
+     * @throws Exception
+     * 
+     */
+    @Test
+    public void receive() throws Exception {
+        FileItem fileItem =
+            (FileItem) sink.receive(
+                new MockFileItemStream("aaa/bbb.txt"),
+                new ByteArrayInputStream(new byte[] { 1, 2 }));
+        assertThat(fileItem.getShortFileName(), is("bbb.txt"));
+        assertThat(fileItem.getContentType(), is("text/plain"));
+        assertThat(fileItem.getData().length, is(2));
+    }
+
+    /**
+     * @throws Exception
+     * 
+     */
+    @Test
+    public void receiveForEmptyFile() throws Exception {
+        assertThat(sink.receive(
+            new MockFileItemStream("bbb.txt"),
+            new ByteArrayInputStream(new byte[0])), is(nullValue()));
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.controller.upload;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+
+import org.junit.Test;
+
+/**
+ * @author agent
+ * 
+ */
+public class DigestFileItemSinkTest {
+
+    /**
+     * @throws Exception
+     * 
+     */
+    @Test
+    public void receive() throws Exception {
+        DigestFileItemSink sink = new DigestFileItemSink("SHA-1");
+        DigestFileItem item =
+            (DigestFileItem) sink.receive(
+                new MockFileItemStream("aaa.txt"),
+                new ByteArrayInputStream("abc".getBytes("UTF-8")));
+        assertThat(item.getFileName(), is("aaa.txt"));
+        assertThat(item.getContentType(), is("text/plain"));
+        assertThat(
+            item.getDigest(),
+            is("a9993e364706816aba3e25717850c26c9cd0d89d"));
+        assertThat(item.getSize(), is(3L));
+        assertThat(item.getData(), is(nullValue()));
+    }
+
+    /**
+     * @throws Exception
+     * 
+     */
+    @Test
+    public void receiveForEmptyFile() throws Exception {
+        DigestFileItemSink sink = new DigestFileItemSink("SHA-1");
+        assertThat(sink.receive(
+            new MockFileItemStream("aaa.txt"),
+            new ByteArrayInputStream(new byte[0])), is(nullValue()));
+    }
+
+    /**
+     * @throws Exception
+     * 
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorForUnknownAlgorithm() throws Exception {
+        new DigestFileItemSink("XXX");
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.controller.validator;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slim3.controller.ControllerConstants;
+import org.slim3.tester.MockHttpServletRequest;
+import org.slim3.tester.MockServletContext;
+import org.slim3.util.ApplicationMessage;
+
+/**
+ * @author agent
+ * 
+ */
+public class ValidationPlanTest {
+
+    private static final ValidationPlan PLAN =
+        new ValidationPlan().add(
+            "aaa",
+            RequiredValidator.INSTANCE,
+            ByteTypeValidator.INSTANCE).add(
+            "bbb",
+            new RegexpValidator("\\d+"));
+
+    private Map<String, Object> parameters = new HashMap<String, Object>();
+
+    /**
+     * @throws Exception
+     */
+    @Before
+    public void setUp() throws Exception {
+        ApplicationMessage.setBundle("test", Locale.ENGLISH);
+    }
+
+    /**
+     * @throws Exception
+     */
+    @After
+    public void tearDown() throws Exception {
+        ApplicationMessage.clearBundle();
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void add() throws Exception {
+        ValidationPlan plan = new ValidationPlan();
+        ValidationPlan plan2 = plan.add("aaa", RequiredValidator.INSTANCE);
+        assertThat(plan.size(), is(0));
+        assertThat(plan2.size(), is(1));
+        assertThat(plan2.add("aaa", ByteTypeValidator.INSTANCE).size(), is(1));
+        assertThat(plan2.add("bbb", ByteTypeValidator.INSTANCE).size(), is(2));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void addReplacesValidators() throws Exception {
+        ValidationPlan plan =
+            PLAN.add("aaa", new RequiredValidator("required!"));
+        assertThat(plan.validate(parameters), is(false));
+        Errors errors =
+            (Errors) parameters.get(ControllerConstants.ERRORS_KEY);
+        assertThat(errors.get("aaa"), is("required!"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test(expected = NullPointerException.class)
+    public void addWhenNameIsNull() throws Exception {
+        new ValidationPlan().add(null, RequiredValidator.INSTANCE);
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test(expected = NullPointerException.class)
+    public void addWhenValidatorIsNull() throws Exception {
+        new ValidationPlan().add("aaa", (Validator) null);
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void validValue() throws Exception {
+        parameters.put("aaa", "1");
+        parameters.put("bbb", "123");
+        assertThat(PLAN.validate(parameters), is(true));
+        assertThat(
+            parameters.get(ControllerConstants.ERRORS_KEY),
+            is(nullValue()));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void validateForInvalidValue() throws Exception {
+        parameters.put("aaa", "xxx");
+        parameters.put("bbb", "xxx");
+        assertThat(PLAN.validate(parameters), is(false));
+        Errors errors =
+            (Errors) parameters.get(ControllerConstants.ERRORS_KEY);
+        assertThat(errors.size(), is(2));
+        assertThat(errors.get("aaa"), is("Aaa must be a byte."));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void validateUsesExistingErrors() throws Exception {
+        Errors errors = new Errors();
+        parameters.put(ControllerConstants.ERRORS_KEY, errors);
+        assertThat(PLAN.validate(parameters), is(false));
+        assertThat(
+            (Errors) parameters.get(ControllerConstants.ERRORS_KEY),
+            is(sameInstance(errors)));
+        assertThat(errors.get("aaa"), is("Aaa is required."));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void validateRequest() throws Exception {
+        MockHttpServletRequest request =
+            new MockHttpServletRequest(new MockServletContext());
+        request.setAttribute("aaa", "1");
+        assertThat(PLAN.validate(request), is(true));
+        request.setAttribute("aaa", "");
+        assertThat(PLAN.validate(request), is(false));
+        assertThat(
+            request.getAttribute(ControllerConstants.ERRORS_KEY),
+            is(notNullValue()));
+    }
+}
@@ -34,6 +34,8 @@ import com.google.appengine.api.datastore.Key;
  */
 public class AbstAttributeMetaTest extends AppEngineTestCase {
 
+    private int generatedCount = 0;
+
     private ModelMeta<Hoge> meta = new ModelMeta<Hoge>("Hoge", Hoge.class) {
 
         @Override
@@ -97,6 +99,18 @@ public class AbstAttributeMetaTest extends AppEngineTestCase {
         protected void postGet(Object model) {
             return;
         }
+
+        @Override
+        protected Object getAttributeValue(Object model,
+                AbstractAttributeMeta<?, ?> attributeMeta) {
+            Hoge m = (Hoge) model;
+            String attributeName = attributeMeta.getAttributeName();
+            if ("myString".equals(attributeName)) {
+                generatedCount++;
+                return m.getMyString();
+            }
+            return super.getAttributeValue(model, attributeMeta);
+        }
     };
 
     /**
@@ -137,6 +151,43 @@ public class AbstAttributeMetaTest extends AppEngineTestCase {
         hoge.setKey(Datastore.createKey(Hoge.class, 1));
         hoge.setMyString("aaa");
         assertThat((String) attrMeta.getValue(hoge), is("aaa"));
+        assertThat(generatedCount, is(1));
+    }
+
+    /**
+     * @throws Exception
+     * 
+     */
+    @Test
+    public void getValueByPropertyDesc() throws Exception {
+        AbstractAttributeMeta<Hoge, Integer> attrMeta =
+            new AbstractAttributeMeta<Hoge, Integer>(
+                meta,
+                "myInteger",
+                "myInteger",
+                Integer.class) {
+            };
+        Hoge hoge = new Hoge();
+        hoge.setMyInteger(1);
+        assertThat((Integer) attrMeta.getValue(hoge), is(1));
+        assertThat(generatedCount, is(0));
+        assertThat(attrMeta.propertyDesc, is(notNullValue()));
+    }
+
+    /**
+     * @throws Exception
+     * 
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void getValueWhenPropertyIsNotFound() throws Exception {
+        AbstractAttributeMeta<Hoge, String> attrMeta =
+            new AbstractAttributeMeta<Hoge, String>(
+                meta,
+                "xxx",
+                "xxx",
+                String.class) {
+            };
+        attrMeta.getValue(new Hoge());
     }
 
     /**
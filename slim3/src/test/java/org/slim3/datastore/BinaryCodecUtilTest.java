@@ -0,0 +1,203 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.datastore;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.junit.Test;
+import org.slim3.datastore.meta.DddMeta;
+import org.slim3.datastore.model.Ddd;
+import org.slim3.tester.AppEngineTestCase;
+
+import com.google.appengine.api.NamespaceManager;
+import com.google.appengine.api.datastore.Blob;
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.GeoPt;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.api.datastore.Query.SortDirection;
+import com.google.appengine.api.datastore.Text;
+
+/**
+ * @author agent
+ *
+ */
+public class BinaryCodecUtilTest extends AppEngineTestCase {
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void string() throws Exception {
+        assertThat((String) roundTrip("あいう"), is("あいう"));
+        assertThat(roundTrip(null), is(nullValue()));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void numbers() throws Exception {
+        assertThat((Long) roundTrip(1L), is(1L));
+        assertThat((Integer) roundTrip(2), is(2));
+        assertThat((Short) roundTrip((short) 3), is((short) 3));
+        assertThat((Byte) roundTrip((byte) 4), is((byte) 4));
+        assertThat((Double) roundTrip(5d), is(5d));
+        assertThat((Float) roundTrip(6f), is(6f));
+        assertThat((Boolean) roundTrip(true), is(true));
+        assertThat((Boolean) roundTrip(false), is(false));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void datastoreTypes() throws Exception {
+        Key key = KeyFactory.createKey("Hoge", 1);
+        assertThat((Key) roundTrip(key), is(key));
+        Date date = new Date();
+        assertThat((Date) roundTrip(date), is(date));
+        assertThat((Text) roundTrip(new Text("aaa")), is(new Text("aaa")));
+        Blob blob = new Blob(new byte[] { 1, 2 });
+        assertThat((Blob) roundTrip(blob), is(blob));
+        assertThat((byte[]) roundTrip(new byte[] { 1 }), is(new byte[] { 1 }));
+        assertThat(
+            (GeoPt) roundTrip(new GeoPt(1f, 2f)),
+            is(new GeoPt(1f, 2f)));
+        assertThat(
+            (SortDirection) roundTrip(SortDirection.ASCENDING),
+            is(SortDirection.ASCENDING));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void keys() throws Exception {
+        Key parent = KeyFactory.createKey("Parent", "aaa");
+        Key key = KeyFactory.createKey(parent, "Child", 1);
+        assertThat((Key) roundTrip(key), is(key));
+        Key incompleteKey = new Entity("Child", parent).getKey();
+        Key incompleteKey2 = (Key) roundTrip(incompleteKey);
+        assertThat(incompleteKey2.isComplete(), is(false));
+        assertThat(incompleteKey2.getKind(), is("Child"));
+        assertThat(incompleteKey2.getParent(), is(parent));
+        NamespaceManager.set("ns");
+        Key namespaceKey;
+        try {
+            namespaceKey = KeyFactory.createKey("Hoge", 1);
+        } finally {
+            NamespaceManager.set(null);
+        }
+        Key namespaceKey2 = (Key) roundTrip(namespaceKey);
+        assertThat(namespaceKey2, is(namespaceKey));
+        assertThat(namespaceKey2.getNamespace(), is("ns"));
+        assertThat(NamespaceManager.get(), is(nullValue()));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void keyIsSmallerThanKeyString() throws Exception {
+        Key key =
+            KeyFactory.createKey(KeyFactory.createKey("Parent", 1), "Child", 2);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(baos);
+        BinaryCodecUtil.writeValue(out, key);
+        out.flush();
+        assertThat(
+            baos.size() < KeyFactory.keyToString(key).length(),
+            is(true));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void collections() throws Exception {
+        List<String> list = new ArrayList<String>(Arrays.asList("a", "b"));
+        Object ret = roundTrip(list);
+        assertThat(ret, is(ArrayList.class));
+        assertThat(ret, is((Object) list));
+        HashSet<Long> set = new HashSet<Long>(Arrays.asList(1L, 2L));
+        ret = roundTrip(set);
+        assertThat(ret, is(HashSet.class));
+        assertThat(ret, is((Object) set));
+        TreeSet<Integer> sortedSet = new TreeSet<Integer>(Arrays.asList(2, 1));
+        ret = roundTrip(sortedSet);
+        assertThat(ret, is(TreeSet.class));
+        assertThat(ret, is((Object) sortedSet));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void serializable() throws Exception {
+        List<String> list = Arrays.asList("a", "b");
+        assertThat(roundTrip(list), is((Object) list));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void model() throws Exception {
+        DddMeta meta = DddMeta.get();
+        Ddd aaa = new Ddd();
+        aaa.setKey(KeyFactory.createKey("Ddd", 1));
+        aaa.setVersion(2L);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(baos);
+        meta.writeTo(aaa, out);
+        out.flush();
+        byte[] bytes = baos.toByteArray();
+        Ddd aaa2 =
+            meta.readFrom(new DataInputStream(new ByteArrayInputStream(bytes)));
+        assertThat(aaa2.getKey(), is(aaa.getKey()));
+        assertThat(aaa2.getVersion(), is(2L));
+        assertThat(aaa2.getSchemaVersion(), is(1));
+
+        ByteArrayOutputStream baos2 = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(baos2);
+        oos.writeObject(aaa);
+        oos.close();
+        assertThat(bytes.length < baos2.size() / 2, is(true));
+    }
+
+    private Object roundTrip(Object value) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(baos);
+        BinaryCodecUtil.writeValue(out, value);
+        out.flush();
+        return BinaryCodecUtil.readValue(new DataInputStream(
+            new ByteArrayInputStream(baos.toByteArray())));
+    }
+}
@@ -776,4 +776,56 @@ public class DatastoreUtilTest extends AppEngineTestCase {
         assertThat(filters.size(), is(1));
         assertThat(filters.get(0), instanceOf(Query.FilterPredicate.class));
     }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void toFiltersForCipherIn() throws Exception {
+        List<Filter> filters =
+            DatastoreUtil.toFilters(meta, meta.myCipherString.in("aaa", "bbb"));
+        Query.FilterPredicate fp = (Query.FilterPredicate) filters.get(0);
+        List<?> values = (List<?>) fp.getValue();
+        assertThat(values.size(), is(2));
+        assertThat((String) values.get(0), is(meta.encrypt("aaa")));
+        assertThat((String) values.get(1), is(meta.encrypt("bbb")));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void toFiltersForCipherInWithMixedValues() throws Exception {
+        List<Filter> filters =
+            DatastoreUtil.toFilters(meta, meta.myCipherString.in(
+                "aaa",
+                null,
+                "bbb"));
+        Query.FilterPredicate fp = (Query.FilterPredicate) filters.get(0);
+        assertThat(fp.getPropertyName(), is("myCipherString"));
+        List<?> values = (List<?>) fp.getValue();
+        assertThat(values.size(), is(3));
+        assertThat((String) values.get(0), is(meta.encrypt("aaa")));
+        assertThat(values.get(1), is(nullValue()));
+        assertThat((String) values.get(2), is(meta.encrypt("bbb")));
+        assertThat(meta.decrypt((String) values.get(2)), is("bbb"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void encryptStrings() throws Exception {
+        List<Object> values =
+            DatastoreUtil.encryptStrings(meta, Arrays.<Object> asList(
+                "aaa",
+                1L,
+                null,
+                "bbb"));
+        assertThat(values.size(), is(4));
+        assertThat((String) values.get(0), is(meta.encrypt("aaa")));
+        assertThat((Long) values.get(1), is(1L));
+        assertThat(values.get(2), is(nullValue()));
+        assertThat((String) values.get(3), is(meta.encrypt("bbb")));
+    }
 }
\ No newline at end of file
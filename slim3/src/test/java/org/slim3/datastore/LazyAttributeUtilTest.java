@@ -0,0 +1,182 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.datastore;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.slim3.datastore.meta.HogeMeta;
+import org.slim3.datastore.model.Hoge;
+import org.slim3.tester.AppEngineTestCase;
+
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.api.datastore.Text;
+
+/**
+ * @author agent
+ * 
+ */
+public class LazyAttributeUtilTest extends AppEngineTestCase {
+
+    private LazyHogeMeta meta = new LazyHogeMeta();
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void resolve() throws Exception {
+        Hoge hoge = meta.entityToModel(createEntity());
+        assertThat(hoge.getMyStringText(), is(nullValue()));
+        assertThat(LazyAttributeUtil.isPending(hoge, "myStringText"), is(true));
+        LazyAttributeUtil.resolve(hoge, "myStringText");
+        assertThat(hoge.getMyStringText(), is("aaa"));
+        assertThat(
+            LazyAttributeUtil.isPending(hoge, "myStringText"),
+            is(false));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void discard() throws Exception {
+        Hoge hoge = meta.entityToModel(createEntity());
+        LazyAttributeUtil.discard(hoge, "myStringText");
+        hoge.setMyStringText("bbb");
+        LazyAttributeUtil.resolve(hoge, "myStringText");
+        assertThat(hoge.getMyStringText(), is("bbb"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void resolveAll() throws Exception {
+        Hoge hoge = meta.entityToModel(createEntity());
+        Entity entity = meta.modelToEntity(hoge);
+        assertThat(
+            ((Text) entity.getProperty("myStringText")).getValue(),
+            is("aaa"));
+        assertThat(
+            LazyAttributeUtil.isPending(hoge, "myStringText"),
+            is(false));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void resolveForNotPendingModel() throws Exception {
+        Hoge hoge = new Hoge();
+        hoge.setMyStringText("aaa");
+        LazyAttributeUtil.resolve(hoge, "myStringText");
+        assertThat(hoge.getMyStringText(), is("aaa"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void resolveWhenDecodingFails() throws Exception {
+        Hoge hoge = meta.entityToModel(createEntity());
+        meta.failing = true;
+        try {
+            LazyAttributeUtil.resolve(hoge, "myStringText");
+            fail();
+        } catch (IllegalStateException e) {
+            System.out.println(e);
+        }
+        assertThat(LazyAttributeUtil.isPending(hoge, "myStringText"), is(true));
+        meta.failing = false;
+        LazyAttributeUtil.resolve(hoge, "myStringText");
+        assertThat(hoge.getMyStringText(), is("aaa"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void resolveAllWhenDecodingFails() throws Exception {
+        Hoge hoge = meta.entityToModel(createEntity());
+        meta.failing = true;
+        try {
+            LazyAttributeUtil.resolveAll(hoge);
+            fail();
+        } catch (IllegalStateException e) {
+            System.out.println(e);
+        }
+        assertThat(LazyAttributeUtil.isPending(hoge, "myStringText"), is(true));
+        meta.failing = false;
+        LazyAttributeUtil.resolveAll(hoge);
+        assertThat(hoge.getMyStringText(), is("aaa"));
+        assertThat(
+            LazyAttributeUtil.isPending(hoge, "myStringText"),
+            is(false));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void decodeNotLazyAttribute() throws Exception {
+        new HogeMeta().decodeLazyAttribute(
+            new Hoge(),
+            "myStringText",
+            createEntity());
+    }
+
+    private Entity createEntity() {
+        Entity entity = new Entity(KeyFactory.createKey("Hoge", 1));
+        entity.setUnindexedProperty("myStringText", new Text("aaa"));
+        return entity;
+    }
+
+    private static class LazyHogeMeta extends HogeMeta {
+
+        private boolean failing;
+
+        @Override
+        public Hoge entityToModel(Entity entity) {
+            Hoge model = super.entityToModel(entity);
+            model.setMyStringText(null);
+            deferLazyAttributes(model, entity, "myStringText");
+            return model;
+        }
+
+        @Override
+        public Entity modelToEntity(Object model) {
+            resolveLazyAttributes(model);
+            return super.modelToEntity(model);
+        }
+
+        @Override
+        protected void decodeLazyAttribute(Object object,
+                String attributeName, Entity entity) {
+            Hoge model = (Hoge) object;
+            if (failing) {
+                throw new IllegalStateException("The entity is broken.");
+            }
+            if ("myStringText".equals(attributeName)) {
+                model.setMyStringText(textToString((Text) entity
+                    .getProperty("myStringText")));
+                return;
+            }
+            super.decodeLazyAttribute(object, attributeName, entity);
+        }
+    }
+}
@@ -394,6 +394,28 @@ public class ModelMetaTest {
         assertThat(meta.decrypt(meta.encrypt(text)), is(text));
     }
 
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void encryptAll() throws Exception {
+        CipherFactory.getFactory().setLimitedKey("1234567890abcdef");
+        List<String> texts = Arrays.asList("hoge", null, "foo");
+        List<String> encryptedTexts = meta.encryptAll(texts);
+        assertThat(encryptedTexts.size(), is(3));
+        assertThat(encryptedTexts.get(0), is(meta.encrypt("hoge")));
+        assertThat(encryptedTexts.get(1), is(nullValue()));
+        assertThat(meta.decrypt(encryptedTexts.get(2)), is("foo"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test(expected = NullPointerException.class)
+    public void encryptAllWhenTextsIsNull() throws Exception {
+        meta.encryptAll(null);
+    }
+
     /**
      * @throws Exception
      */
@@ -184,6 +184,155 @@ public class ModelQueryTest extends AppEngineTestCase {
         assertThat(list.size(), is(1));
     }
 
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void asListUsingProject() throws Exception {
+        Hoge hoge = new Hoge();
+        hoge.setMyString("aaa");
+        hoge.setMyInteger(1);
+        hoge.setMyLong(2L);
+        DatastoreUtil.put(ds, null, meta.modelToEntity(hoge));
+        List<Hoge> list =
+            new ModelQuery<Hoge>(ds, meta)
+                .project(meta.myString, meta.myInteger)
+                .asList();
+        assertThat(list.size(), is(1));
+        Hoge hoge2 = list.get(0);
+        assertThat(hoge2.getKey(), is(notNullValue()));
+        assertThat(hoge2.getMyString(), is("aaa"));
+        assertThat(hoge2.getMyInteger(), is(1));
+        assertThat(hoge2.getMyLong(), is(nullValue()));
+        assertThat(DatastoreUtil.isPartialModel(hoge2), is(true));
+        assertThat(DatastoreUtil.isPartialModel(hoge), is(false));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void asIteratorUsingProject() throws Exception {
+        Hoge hoge = new Hoge();
+        hoge.setMyString("aaa");
+        DatastoreUtil.put(ds, null, meta.modelToEntity(hoge));
+        Iterator<Hoge> ite =
+            new ModelQuery<Hoge>(ds, meta).project(meta.myString).asIterator();
+        assertThat(ite.hasNext(), is(true));
+        Hoge hoge2 = ite.next();
+        assertThat(hoge2.getMyString(), is("aaa"));
+        assertThat(DatastoreUtil.isPartialModel(hoge2), is(true));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void putPartialModel() throws Exception {
+        Hoge hoge = new Hoge();
+        hoge.setMyString("aaa");
+        DatastoreUtil.put(ds, null, meta.modelToEntity(hoge));
+        Hoge hoge2 =
+            new ModelQuery<Hoge>(ds, meta).project(meta.myString).asSingle();
+        DatastoreUtil.modelToEntity(ds, hoge2);
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void projectPrimaryKey() throws Exception {
+        new ModelQuery<Hoge>(ds, meta).project(meta.key);
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test(expected = IllegalStateException.class)
+    public void projectSubModel() throws Exception {
+        new ModelQuery<Ccc>(ds, cccMeta).project(cccMeta.version);
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void asListUsingProjectAndInMemoryCriteria() throws Exception {
+        Hoge hoge = new Hoge();
+        hoge.setMyString("aaa");
+        hoge.setMyInteger(1);
+        DatastoreUtil.put(ds, null, meta.modelToEntity(hoge));
+        List<Hoge> list =
+            new ModelQuery<Hoge>(ds, meta)
+                .project(meta.myString)
+                .filterInMemory(meta.myString.equal("aaa"))
+                .sortInMemory(meta.key.asc)
+                .asList();
+        assertThat(list.size(), is(1));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test(expected = IllegalStateException.class)
+    public void asListUsingProjectAndFilterInMemoryForNotProjectedAttribute()
+            throws Exception {
+        new ModelQuery<Hoge>(ds, meta)
+            .project(meta.myString)
+            .filterInMemory(meta.myInteger.equal(1))
+            .asList();
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test(expected = IllegalStateException.class)
+    public void asListUsingProjectAndSortInMemoryForNotProjectedAttribute()
+            throws Exception {
+        new ModelQuery<Hoge>(ds, meta)
+            .project(meta.myString)
+            .sortInMemory(meta.myInteger.asc)
+            .asList();
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void projectAfterExecution() throws Exception {
+        Hoge hoge = new Hoge();
+        hoge.setMyString("aaa");
+        hoge.setMyInteger(1);
+        DatastoreUtil.put(ds, null, meta.modelToEntity(hoge));
+        ModelQuery<Hoge> query =
+            new ModelQuery<Hoge>(ds, meta).project(meta.myString);
+        assertThat(query.asList().get(0).getMyInteger(), is(nullValue()));
+        query.project(meta.myInteger);
+        Hoge hoge2 = query.asList().get(0);
+        assertThat(hoge2.getMyString(), is("aaa"));
+        assertThat(hoge2.getMyInteger(), is(1));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void toProjectionType() throws Exception {
+        ModelQuery<Hoge> query = new ModelQuery<Hoge>(ds, meta);
+        assertThat(
+            query.toProjectionType(int.class),
+            is((Object) Long.class));
+        assertThat(
+            query.toProjectionType(Float.class),
+            is((Object) Double.class));
+        assertThat(
+            query.toProjectionType(Query.SortDirection.class),
+            is((Object) String.class));
+        assertThat(
+            query.toProjectionType(String.class),
+            is((Object) String.class));
+    }
+
     /**
      * @throws Exception
      */
@@ -27,7 +27,7 @@ import com.google.appengine.api.datastore.Key;
  * @author higa
  * 
  */
-public final class AaaMeta extends
+public class AaaMeta extends
         org.slim3.datastore.ModelMeta<org.slim3.datastore.model.Aaa> {
 
     private static final AaaMeta INSTANCE = new AaaMeta();
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.datastore.meta;
+
+import org.slim3.datastore.json.JsonRootReader;
+import org.slim3.datastore.json.JsonWriter;
+import org.slim3.datastore.model.Ddd;
+
+import com.google.appengine.api.datastore.AsyncDatastoreService;
+import com.google.appengine.api.datastore.Key;
+
+/**
+ * @author agent
+ * 
+ */
+public final class DddMeta extends
+        org.slim3.datastore.ModelMeta<org.slim3.datastore.model.Ddd> {
+
+    private static final DddMeta INSTANCE = new DddMeta();
+
+    /**
+     * @return {@link DddMeta}
+     */
+    public static DddMeta get() {
+        return INSTANCE;
+    }
+
+    /**
+     * 
+     */
+    public DddMeta() {
+        super("Ddd", org.slim3.datastore.model.Ddd.class);
+    }
+
+    /**
+     * 
+     */
+    public org.slim3.datastore.CoreAttributeMeta<org.slim3.datastore.model.Ddd, com.google.appengine.api.datastore.Key> key =
+        new org.slim3.datastore.CoreAttributeMeta<org.slim3.datastore.model.Ddd, com.google.appengine.api.datastore.Key>(
+            this,
+            "__key__",
+            "key",
+            com.google.appengine.api.datastore.Key.class);
+
+    /**
+     * 
+     */
+    public org.slim3.datastore.CoreAttributeMeta<org.slim3.datastore.model.Ddd, java.lang.Integer> schemaVersion =
+        new org.slim3.datastore.CoreAttributeMeta<org.slim3.datastore.model.Ddd, java.lang.Integer>(
+            this,
+            "schemaVersion",
+            "schemaVersion",
+            java.lang.Integer.class);
+
+    /**
+     * 
+     */
+    public org.slim3.datastore.CoreAttributeMeta<org.slim3.datastore.model.Ddd, java.lang.Long> version =
+        new org.slim3.datastore.CoreAttributeMeta<org.slim3.datastore.model.Ddd, java.lang.Long>(
+            this,
+            "version",
+            "version",
+            java.lang.Long.class);
+
+    @Override
+    protected void setKey(Object model,
+            com.google.appengine.api.datastore.Key key) {
+        org.slim3.datastore.model.Ddd m = (org.slim3.datastore.model.Ddd) model;
+        m.setKey(key);
+    }
+
+    @Override
+    protected Key getKey(Object model) {
+        org.slim3.datastore.model.Ddd m = (org.slim3.datastore.model.Ddd) model;
+        return m.getKey();
+    }
+
+    @Override
+    protected long getVersion(Object model) {
+        org.slim3.datastore.model.Ddd m = (org.slim3.datastore.model.Ddd) model;
+        return m.getVersion() != null ? m.getVersion().longValue() : 0L;
+    }
+
+    @Override
+    protected void incrementVersion(Object model) {
+        org.slim3.datastore.model.Ddd m = (org.slim3.datastore.model.Ddd) model;
+        long version = m.getVersion() != null ? m.getVersion().longValue() : 0L;
+        m.setVersion(Long.valueOf(version + 1L));
+    }
+
+    @Override
+    protected void prePut(Object model) {
+    }
+
+    @Override
+    protected void assignKeyToModelRefIfNecessary(AsyncDatastoreService ds,
+            Object model) throws NullPointerException {
+    }
+
+    @Override
+    public org.slim3.datastore.model.Ddd entityToModel(
+            com.google.appengine.api.datastore.Entity entity) {
+        org.slim3.datastore.model.Ddd model =
+            new org.slim3.datastore.model.Ddd();
+        model.setKey(entity.getKey());
+        model.setSchemaVersion(longToInteger((java.lang.Long) entity
+            .getProperty("schemaVersion")));
+        model.setVersion((java.lang.Long) entity.getProperty("version"));
+        return model;
+    }
+
+    @Override
+    public com.google.appengine.api.datastore.Entity modelToEntity(
+            java.lang.Object model) {
+        org.slim3.datastore.model.Ddd m = (org.slim3.datastore.model.Ddd) model;
+        com.google.appengine.api.datastore.Entity entity = null;
+        if (m.getKey() != null) {
+            entity = new com.google.appengine.api.datastore.Entity(m.getKey());
+        } else {
+            entity = new com.google.appengine.api.datastore.Entity(kind);
+        }
+        entity.setProperty("schemaVersion", m.getSchemaVersion());
+        entity.setProperty("version", m.getVersion());
+        return entity;
+    }
+
+    @Override
+    public String getClassHierarchyListName() {
+        return "slim3.classHierarchyList";
+    }
+
+    @Override
+    public String getSchemaVersionName() {
+        return "slim3.schemaVersion";
+    }
+
+    @Override
+    protected void modelToJson(JsonWriter writer, Object model, int maxDepth, int currentDepth) {
+    }
+
+    @Override
+    public Ddd jsonToModel(JsonRootReader reader, int maxDepth, int currentDepth) {
+        return null;
+    }
+
+    @Override
+    protected void postGet(Object model) {
+        return;
+    }
+
+    @Override
+    public boolean isBinaryCodecSupported() {
+        return true;
+    }
+
+    @Override
+    public long getBinaryCodecSchemaHash() {
+        return 0x1234567890abcdefL;
+    }
+
+    @Override
+    public void writeTo(java.lang.Object model, java.io.DataOutput out)
+            throws java.io.IOException {
+        org.slim3.datastore.model.Ddd m = (org.slim3.datastore.model.Ddd) model;
+        writeValue(out, m.getKey());
+        writeValue(out, m.getSchemaVersion());
+        writeValue(out, m.getVersion());
+    }
+
+    @Override
+    public org.slim3.datastore.model.Ddd readFrom(java.io.DataInput in)
+            throws java.io.IOException {
+        org.slim3.datastore.model.Ddd model =
+            new org.slim3.datastore.model.Ddd();
+        com.google.appengine.api.datastore.Key _key = readValue(in);
+        model.setKey(_key);
+        java.lang.Integer _schemaVersion = readValue(in);
+        model.setSchemaVersion(_schemaVersion);
+        java.lang.Long _version = readValue(in);
+        model.setVersion(_version);
+        return model;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,320 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.datastore.meta;
+
+//@javax.annotation.Generated(value = { "slim3-gen", "@VERSION@" }, date = "2026-10-19 16:09:26")
+/** */
+public final class EeeMeta extends org.slim3.datastore.ModelMeta<org.slim3.datastore.model.Eee> {
+
+    /** */
+    public final org.slim3.datastore.CoreAttributeMeta<org.slim3.datastore.model.Eee, com.google.appengine.api.datastore.Key> key = new org.slim3.datastore.CoreAttributeMeta<org.slim3.datastore.model.Eee, com.google.appengine.api.datastore.Key>(this, "__key__", "key", com.google.appengine.api.datastore.Key.class);
+
+    /** */
+    public final org.slim3.datastore.CoreAttributeMeta<org.slim3.datastore.model.Eee, java.lang.Long> version = new org.slim3.datastore.CoreAttributeMeta<org.slim3.datastore.model.Eee, java.lang.Long>(this, "version", "version", java.lang.Long.class);
+
+    /** */
+    public final org.slim3.datastore.CoreAttributeMeta<org.slim3.datastore.model.Eee, java.lang.Integer> count = new org.slim3.datastore.CoreAttributeMeta<org.slim3.datastore.model.Eee, java.lang.Integer>(this, "count", "count", int.class);
+
+    /** */
+    public final org.slim3.datastore.StringAttributeMeta<org.slim3.datastore.model.Eee> name = new org.slim3.datastore.StringAttributeMeta<org.slim3.datastore.model.Eee>(this, "name", "name");
+
+    /** */
+    public final org.slim3.datastore.CoreAttributeMeta<org.slim3.datastore.model.Eee, com.google.appengine.api.datastore.Query.SortDirection> direction = new org.slim3.datastore.CoreAttributeMeta<org.slim3.datastore.model.Eee, com.google.appengine.api.datastore.Query.SortDirection>(this, "direction", "direction", com.google.appengine.api.datastore.Query.SortDirection.class);
+
+    /** */
+    public final org.slim3.datastore.StringCollectionAttributeMeta<org.slim3.datastore.model.Eee, java.util.List<java.lang.String>> tags = new org.slim3.datastore.StringCollectionAttributeMeta<org.slim3.datastore.model.Eee, java.util.List<java.lang.String>>(this, "tags", "tags", java.util.List.class);
+
+    /** */
+    public final org.slim3.datastore.CollectionAttributeMeta<org.slim3.datastore.model.Eee, java.util.Set<java.lang.Long>, java.lang.Long> numbers = new org.slim3.datastore.CollectionAttributeMeta<org.slim3.datastore.model.Eee, java.util.Set<java.lang.Long>, java.lang.Long>(this, "numbers", "numbers", java.util.Set.class);
+
+    /** */
+    public final org.slim3.datastore.ModelRefAttributeMeta<org.slim3.datastore.model.Eee, org.slim3.datastore.ModelRef<org.slim3.datastore.model.Eee>, org.slim3.datastore.model.Eee> parentRef = new org.slim3.datastore.ModelRefAttributeMeta<org.slim3.datastore.model.Eee, org.slim3.datastore.ModelRef<org.slim3.datastore.model.Eee>, org.slim3.datastore.model.Eee>(this, "parentRef", "parentRef", org.slim3.datastore.ModelRef.class, org.slim3.datastore.model.Eee.class);
+
+    private static final EeeMeta slim3_singleton = new EeeMeta();
+
+    /**
+     * @return the singleton
+     */
+    public static EeeMeta get() {
+       return slim3_singleton;
+    }
+
+    /** */
+    public EeeMeta() {
+        super("Eee", org.slim3.datastore.model.Eee.class);
+    }
+
+    @Override
+    public org.slim3.datastore.model.Eee entityToModel(com.google.appengine.api.datastore.Entity entity) {
+        org.slim3.datastore.model.Eee model = new org.slim3.datastore.model.Eee();
+        model.setKey(entity.getKey());
+        model.setVersion((java.lang.Long) entity.getProperty("version"));
+        model.setCount(longToPrimitiveInt((java.lang.Long) entity.getProperty("count")));
+        model.setName((java.lang.String) entity.getProperty("name"));
+        model.setDirection(stringToEnum(com.google.appengine.api.datastore.Query.SortDirection.class, (java.lang.String) entity.getProperty("direction")));
+        model.setTags(toList(java.lang.String.class, entity.getProperty("tags")));
+        model.setNumbers(new java.util.HashSet<java.lang.Long>(toList(java.lang.Long.class, entity.getProperty("numbers"))));
+        if (model.getParentRef() == null) {
+            throw new NullPointerException("The property(parentRef) is null.");
+        }
+        model.getParentRef().setKey((com.google.appengine.api.datastore.Key) entity.getProperty("parentRef"));
+        return model;
+    }
+
+    @Override
+    public com.google.appengine.api.datastore.Entity modelToEntity(java.lang.Object model) {
+        org.slim3.datastore.model.Eee m = (org.slim3.datastore.model.Eee) model;
+        com.google.appengine.api.datastore.Entity entity = null;
+        if (m.getKey() != null) {
+            entity = new com.google.appengine.api.datastore.Entity(m.getKey());
+        } else {
+            entity = new com.google.appengine.api.datastore.Entity(kind);
+        }
+        entity.setProperty("version", m.getVersion());
+        entity.setProperty("count", m.getCount());
+        entity.setProperty("name", m.getName());
+        entity.setProperty("direction", enumToString(m.getDirection()));
+        entity.setProperty("tags", m.getTags());
+        entity.setProperty("numbers", m.getNumbers());
+        if (m.getParentRef() == null) {
+            throw new NullPointerException("The property(parentRef) must not be null.");
+        }
+        entity.setProperty("parentRef", m.getParentRef().getKey());
+        return entity;
+    }
+
+    @Override
+    protected com.google.appengine.api.datastore.Key getKey(Object model) {
+        org.slim3.datastore.model.Eee m = (org.slim3.datastore.model.Eee) model;
+        return m.getKey();
+    }
+
+    @Override
+    protected void setKey(Object model, com.google.appengine.api.datastore.Key key) {
+        validateKey(key);
+        org.slim3.datastore.model.Eee m = (org.slim3.datastore.model.Eee) model;
+        m.setKey(key);
+    }
+
+    @Override
+    protected long getVersion(Object model) {
+        org.slim3.datastore.model.Eee m = (org.slim3.datastore.model.Eee) model;
+        return m.getVersion() != null ? m.getVersion().longValue() : 0L;
+    }
+
+    @Override
+    protected void assignKeyToModelRefIfNecessary(com.google.appengine.api.datastore.AsyncDatastoreService ds, java.lang.Object model) {
+        org.slim3.datastore.model.Eee m = (org.slim3.datastore.model.Eee) model;
+        if (m.getParentRef() == null) {
+            throw new NullPointerException("The property(parentRef) must not be null.");
+        }
+        m.getParentRef().assignKeyIfNecessary(ds);
+    }
+
+    @Override
+    protected void incrementVersion(Object model) {
+        org.slim3.datastore.model.Eee m = (org.slim3.datastore.model.Eee) model;
+        long version = m.getVersion() != null ? m.getVersion().longValue() : 0L;
+        m.setVersion(Long.valueOf(version + 1L));
+    }
+
+    @Override
+    protected void prePut(Object model) {
+    }
+
+    @Override
+    protected void postGet(Object model) {
+    }
+
+    @Override
+    public String getSchemaVersionName() {
+        return "slim3.schemaVersion";
+    }
+
+    @Override
+    public String getClassHierarchyListName() {
+        return "slim3.classHierarchyList";
+    }
+
+    @Override
+    protected boolean isCipherProperty(String propertyName) {
+        return false;
+    }
+
+    @Override
+    protected Object getAttributeValue(Object model, org.slim3.datastore.AbstractAttributeMeta<?, ?> attributeMeta) {
+        org.slim3.datastore.model.Eee m = (org.slim3.datastore.model.Eee) model;
+        if (attributeMeta == this.key) return m.getKey();
+        if (attributeMeta == this.version) return m.getVersion();
+        if (attributeMeta == this.count) return m.getCount();
+        if (attributeMeta == this.name) return m.getName();
+        if (attributeMeta == this.direction) return m.getDirection();
+        if (attributeMeta == this.tags) return m.getTags();
+        if (attributeMeta == this.numbers) return m.getNumbers();
+        if (attributeMeta == this.parentRef) return m.getParentRef();
+        return super.getAttributeValue(model, attributeMeta);
+    }
+
+    @Override
+    protected void modelToJson(org.slim3.datastore.json.JsonWriter writer, java.lang.Object model, int maxDepth, int currentDepth) {
+        org.slim3.datastore.model.Eee m = (org.slim3.datastore.model.Eee) model;
+        writer.beginObject();
+        org.slim3.datastore.json.Default encoder0 = new org.slim3.datastore.json.Default();
+        if(m.getKey() != null){
+            writer.setNextPropertyName("key");
+            encoder0.encode(writer, m.getKey());
+        }
+        if(m.getVersion() != null){
+            writer.setNextPropertyName("version");
+            encoder0.encode(writer, m.getVersion());
+        }
+        writer.setNextPropertyName("count");
+        encoder0.encode(writer, m.getCount());
+        if(m.getName() != null){
+            writer.setNextPropertyName("name");
+            encoder0.encode(writer, m.getName());
+        }
+        if(m.getDirection() != null){
+            writer.setNextPropertyName("direction");
+            encoder0.encode(writer, m.getDirection());
+        }
+        if(m.getTags() != null){
+            writer.setNextPropertyName("tags");
+            writer.beginArray();
+            for(java.lang.String v : m.getTags()){
+                encoder0.encode(writer, v);
+            }
+            writer.endArray();
+        }
+        if(m.getNumbers() != null){
+            writer.setNextPropertyName("numbers");
+            writer.beginArray();
+            for(java.lang.Long v : m.getNumbers()){
+                encoder0.encode(writer, v);
+            }
+            writer.endArray();
+        }
+        if(m.getParentRef() != null && m.getParentRef().getKey() != null){
+            writer.setNextPropertyName("parentRef");
+            encoder0.encode(writer, m.getParentRef(), maxDepth, currentDepth);
+        }
+        writer.endObject();
+    }
+
+    @Override
+    protected org.slim3.datastore.model.Eee jsonToModel(org.slim3.datastore.json.JsonRootReader rootReader, int maxDepth, int currentDepth) {
+        org.slim3.datastore.model.Eee m = new org.slim3.datastore.model.Eee();
+        org.slim3.datastore.json.JsonReader reader = null;
+        org.slim3.datastore.json.Default decoder0 = new org.slim3.datastore.json.Default();
+        reader = rootReader.newObjectReader("key");
+        m.setKey(decoder0.decode(reader, m.getKey()));
+        reader = rootReader.newObjectReader("version");
+        m.setVersion(decoder0.decode(reader, m.getVersion()));
+        reader = rootReader.newObjectReader("count");
+        m.setCount(decoder0.decode(reader, m.getCount()));
+        reader = rootReader.newObjectReader("name");
+        m.setName(decoder0.decode(reader, m.getName()));
+        reader = rootReader.newObjectReader("direction");
+        m.setDirection(decoder0.decode(reader, m.getDirection(), com.google.appengine.api.datastore.Query.SortDirection.class));
+        reader = rootReader.newObjectReader("tags");
+        {
+            java.util.ArrayList<java.lang.String> elements = new java.util.ArrayList<java.lang.String>();
+            org.slim3.datastore.json.JsonArrayReader r = rootReader.newArrayReader("tags");
+            if(r != null){
+                reader = r;
+                int n = r.length();
+                for(int i = 0; i < n; i++){
+                    r.setIndex(i);
+                    java.lang.String v = decoder0.decode(reader, (java.lang.String)null)                    ;
+                    if(v != null){
+                        elements.add(v);
+                    }
+                }
+                m.setTags(elements);
+            }
+        }
+        reader = rootReader.newObjectReader("numbers");
+        {
+            java.util.HashSet<java.lang.Long> elements = new java.util.HashSet<java.lang.Long>();
+            org.slim3.datastore.json.JsonArrayReader r = rootReader.newArrayReader("numbers");
+            if(r != null){
+                reader = r;
+                int n = r.length();
+                for(int i = 0; i < n; i++){
+                    r.setIndex(i);
+                    java.lang.Long v = decoder0.decode(reader, (java.lang.Long)null)                    ;
+                    if(v != null){
+                        elements.add(v);
+                    }
+                }
+                m.setNumbers(elements);
+            }
+        }
+        reader = rootReader.newObjectReader("parentRef");
+        decoder0.decode(reader, m.getParentRef(), maxDepth, currentDepth);
+        return m;
+    }
+    @Override
+    public boolean isBinaryCodecSupported() {
+        return true;
+    }
+
+    @Override
+    public long getBinaryCodecSchemaHash() {
+        return 0x811c35360b212857L;
+    }
+
+    @Override
+    public void writeTo(java.lang.Object model, java.io.DataOutput out) throws java.io.IOException {
+        org.slim3.datastore.model.Eee m = (org.slim3.datastore.model.Eee) model;
+        writeValue(out, m.getKey());
+        writeValue(out, m.getVersion());
+        out.writeInt(m.getCount());
+        writeValue(out, m.getName());
+        writeValue(out, enumToString(m.getDirection()));
+        writeValue(out, m.getTags());
+        writeValue(out, m.getNumbers());
+        if (m.getParentRef() == null) {
+            throw new NullPointerException("The property(parentRef) must not be null.");
+        }
+        writeValue(out, m.getParentRef().getKey());
+    }
+
+    @Override
+    public org.slim3.datastore.model.Eee readFrom(java.io.DataInput in) throws java.io.IOException {
+        org.slim3.datastore.model.Eee model = new org.slim3.datastore.model.Eee();
+        com.google.appengine.api.datastore.Key _key = readValue(in);
+        model.setKey(_key);
+        java.lang.Long _version = readValue(in);
+        model.setVersion(_version);
+        model.setCount(in.readInt());
+        java.lang.String _name = readValue(in);
+        model.setName(_name);
+        java.lang.String _direction = readValue(in);
+        model.setDirection(stringToEnum(com.google.appengine.api.datastore.Query.SortDirection.class, _direction));
+        java.util.List<java.lang.String> _tags = readValue(in);
+        model.setTags(_tags);
+        java.util.Set<java.lang.Long> _numbers = readValue(in);
+        model.setNumbers(_numbers);
+        if (model.getParentRef() == null) {
+            throw new NullPointerException("The property(parentRef) is null.");
+        }
+        com.google.appengine.api.datastore.Key _parentRef = readValue(in);
+        model.getParentRef().setKey(_parentRef);
+        return model;
+    }
+
+}
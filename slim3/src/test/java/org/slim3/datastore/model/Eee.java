@@ -0,0 +1,176 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.datastore.model;
+
+import java.util.List;
+import java.util.Set;
+
+import org.slim3.datastore.Attribute;
+import org.slim3.datastore.InverseModelListRef;
+import org.slim3.datastore.Model;
+import org.slim3.datastore.ModelRef;
+
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.Query.SortDirection;
+
+/**
+ * @author agent
+ * 
+ */
+@Model(binaryCodec = true)
+public class Eee {
+
+    @Attribute(primaryKey = true)
+    private Key key;
+
+    @Attribute(version = true)
+    private Long version;
+
+    private int count;
+
+    private String name;
+
+    private SortDirection direction;
+
+    private List<String> tags;
+
+    private Set<Long> numbers;
+
+    private ModelRef<Eee> parentRef = new ModelRef<Eee>(Eee.class);
+
+    @Attribute(persistent = false)
+    private InverseModelListRef<Eee, Eee> childrenRef =
+        new InverseModelListRef<Eee, Eee>(Eee.class, "parentRef", this);
+
+    /**
+     * @return the key
+     */
+    public Key getKey() {
+        return key;
+    }
+
+    /**
+     * @param key
+     *            the key
+     */
+    public void setKey(Key key) {
+        this.key = key;
+    }
+
+    /**
+     * @return the version
+     */
+    public Long getVersion() {
+        return version;
+    }
+
+    /**
+     * @param version
+     *            the version
+     */
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    /**
+     * @return the count
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @param count
+     *            the count
+     */
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    /**
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param name
+     *            the name
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return the direction
+     */
+    public SortDirection getDirection() {
+        return direction;
+    }
+
+    /**
+     * @param direction
+     *            the direction
+     */
+    public void setDirection(SortDirection direction) {
+        this.direction = direction;
+    }
+
+    /**
+     * @return the tags
+     */
+    public List<String> getTags() {
+        return tags;
+    }
+
+    /**
+     * @param tags
+     *            the tags
+     */
+    public void setTags(List<String> tags) {
+        this.tags = tags;
+    }
+
+    /**
+     * @return the numbers
+     */
+    public Set<Long> getNumbers() {
+        return numbers;
+    }
+
+    /**
+     * @param numbers
+     *            the numbers
+     */
+    public void setNumbers(Set<Long> numbers) {
+        this.numbers = numbers;
+    }
+
+    /**
+     * @return the parent reference
+     */
+    public ModelRef<Eee> getParentRef() {
+        return parentRef;
+    }
+
+    /**
+     * @return the children reference
+     */
+    public InverseModelListRef<Eee, Eee> getChildrenRef() {
+        return childrenRef;
+    }
+}
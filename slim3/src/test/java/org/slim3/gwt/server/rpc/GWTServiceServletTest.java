@@ -18,9 +18,13 @@ package org.slim3.gwt.server.rpc;
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.*;
 
+import java.lang.reflect.Method;
+
+import org.junit.After;
 import org.junit.Test;
 import org.slim3.gwt.client.service.HogeService;
 import org.slim3.gwt.server.service.HogeServiceImpl;
+import org.slim3.util.Cleaner;
 
 /**
  * @author higa
@@ -30,6 +34,14 @@ public class GWTServiceServletTest {
 
     private GWTServiceServlet servlet = new GWTServiceServlet();
 
+    /**
+     * @throws Exception
+     */
+    @After
+    public void tearDown() throws Exception {
+        Cleaner.cleanAll();
+    }
+
     /**
      * @throws Exception
      */
@@ -47,4 +59,95 @@ public class GWTServiceServletTest {
     public void testGetClass() throws Exception {
         assertThat(servlet.getClass("I").getName(), is(int.class.getName()));
     }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getClassFromCache() throws Exception {
+        String className = HogeServiceImpl.class.getName();
+        Class<?> clazz = servlet.getClass(className);
+        assertThat(servlet.classCache.get(className), is(sameInstance(clazz)));
+        assertThat(servlet.getClass(className), is(sameInstance(clazz)));
+        Cleaner.cleanAll();
+        assertThat(servlet.classCache.size(), is(0));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getMethod() throws Exception {
+        Method method =
+            servlet.getMethod(HogeServiceImpl.class, "greet", new Class<?>[0]);
+        assertThat(method.getName(), is("greet"));
+        assertThat(servlet.getMethod(
+            HogeServiceImpl.class,
+            "greet",
+            new Class<?>[0]), is(sameInstance(method)));
+        assertThat(servlet.methodCache.size(), is(1));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test(expected = NoSuchMethodException.class)
+    public void getMethodWhenMethodIsNotFound() throws Exception {
+        servlet.getMethod(HogeServiceImpl.class, "xxx", new Class<?>[0]);
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void recordPayload() throws Exception {
+        Method method = HogeServiceImpl.class.getMethod("greet");
+        servlet.recordPayload(method, "//OK[1]");
+        long[] counts =
+            servlet.getPayloadHistogram().getCounts(
+                HogeServiceImpl.class.getName() + ".greet");
+        assertThat(counts[0], is(1L));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void shouldCompressResponse() throws Exception {
+        servlet.gzipThreshold = 5;
+        assertThat(
+            servlet.shouldCompressResponse(null, null, "1234"),
+            is(false));
+        assertThat(
+            servlet.shouldCompressResponse(null, null, "12345"),
+            is(true));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getService() throws Exception {
+        Object service = servlet.getService(HogeServiceImpl.class);
+        assertThat(service, is(instanceOf(HogeServiceImpl.class)));
+        assertThat(
+            servlet.getService(HogeServiceImpl.class),
+            is(not(sameInstance(service))));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getServiceWhenServiceIsSingleton() throws Exception {
+        servlet.serviceSingleton = true;
+        Object service = servlet.getService(HogeServiceImpl.class);
+        assertThat(
+            servlet.getService(HogeServiceImpl.class),
+            is(sameInstance(service)));
+        Cleaner.cleanAll();
+        assertThat(
+            servlet.getService(HogeServiceImpl.class),
+            is(not(sameInstance(service))));
+    }
 }
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.gwt.server.rpc;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * @author agent
+ * 
+ */
+public class PayloadHistogramTest {
+
+    private PayloadHistogram histogram = new PayloadHistogram();
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void record() throws Exception {
+        histogram.record("aaa", 0);
+        histogram.record("aaa", 1023);
+        histogram.record("aaa", 1024);
+        histogram.record("aaa", 2000000);
+        long[] counts = histogram.getCounts("aaa");
+        assertThat(counts.length, is(histogram.getBounds().length + 1));
+        assertThat(counts[0], is(2L));
+        assertThat(counts[1], is(1L));
+        assertThat(counts[counts.length - 1], is(1L));
+        assertThat(histogram.getNames().contains("aaa"), is(true));
+        assertThat(histogram.getCounts("bbb"), is(nullValue()));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test(expected = NullPointerException.class)
+    public void recordWhenNameIsNull() throws Exception {
+        histogram.record(null, 0);
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void clear() throws Exception {
+        histogram.record("aaa", 0);
+        histogram.clear();
+        assertThat(histogram.getNames().size(), is(0));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testToString() throws Exception {
+        histogram.record("aaa", 0);
+        assertThat(histogram.toString().startsWith("aaa: <1024=1"), is(true));
+    }
+}
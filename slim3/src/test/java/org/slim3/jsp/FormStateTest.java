@@ -0,0 +1,176 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.jsp;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Date;
+
+import org.junit.Test;
+import org.slim3.jsp.FormState.Field;
+import org.slim3.tester.MockHttpServletRequest;
+import org.slim3.tester.MockServletContext;
+
+/**
+ * @author agent
+ * 
+ */
+public class FormStateTest {
+
+    private MockServletContext servletContext = new MockServletContext();
+
+    private MockHttpServletRequest request =
+        new MockHttpServletRequest(servletContext);
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void get() throws Exception {
+        FormState state = FormState.get(request);
+        assertThat(FormState.get(request), is(sameInstance(state)));
+        assertThat(
+            request.getAttribute(FormState.FORM_STATE_KEY),
+            is((Object) state));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getField() throws Exception {
+        FormState state = new FormState(request);
+        request.setAttribute("aaa", "<a>");
+        Field field = state.getField("aaa");
+        assertThat(
+            field.getTextAttributes(),
+            is("name=\"aaa\" value=\"&lt;a&gt;\""));
+        assertThat(state.getField("aaa"), is(sameInstance(field)));
+        assertThat(
+            field.getTextAttributes(),
+            is(sameInstance(field.getTextAttributes())));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getFieldWhenAttributeIsChanged() throws Exception {
+        FormState state = new FormState(request);
+        request.setAttribute("aaa", "111");
+        Field field = state.getField("aaa");
+        request.setAttribute("aaa", "222");
+        Field field2 = state.getField("aaa");
+        assertThat(field2, is(not(sameInstance(field))));
+        assertThat(field2.getStringValue(), is("222"));
+        request.removeAttribute("aaa");
+        assertThat(state.getField("aaa").getStringValue(), is(nullValue()));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getFieldWhenArrayIsChangedInPlace() throws Exception {
+        FormState state = new FormState(request);
+        String[] value = new String[] { "111", "222" };
+        request.setAttribute("aaaArray", value);
+        Field field = state.getField("aaaArray");
+        assertThat(field.contains("111", "multibox"), is(true));
+        assertThat(state.getField("aaaArray"), is(sameInstance(field)));
+        value[0] = "333";
+        Field field2 = state.getField("aaaArray");
+        assertThat(field2, is(not(sameInstance(field))));
+        assertThat(field2.contains("111", "multibox"), is(false));
+        assertThat(field2.contains("333", "multibox"), is(true));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getFieldWhenValueIsMutable() throws Exception {
+        FormState state = new FormState(request);
+        Date value = new Date(0);
+        request.setAttribute("aaa", value);
+        String s = state.getField("aaa").getStringValue();
+        value.setTime(1000L * 60 * 60 * 24 * 365);
+        assertThat(state.getField("aaa").getStringValue(), is(not(s)));
+        assertThat(state.fields.containsKey("aaa"), is(false));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getCheckboxAttributes() throws Exception {
+        FormState state = new FormState(request);
+        request.setAttribute("aaa", true);
+        assertThat(
+            state.getField("aaa").getCheckboxAttributes(),
+            is("name=\"aaa\" checked=\"checked\""));
+        assertThat(
+            state.getField("bbb").getCheckboxAttributes(),
+            is("name=\"bbb\""));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void isSelected() throws Exception {
+        FormState state = new FormState(request);
+        request.setAttribute("aaa", 111);
+        assertThat(state.getField("aaa").isSelected("111"), is(true));
+        assertThat(state.getField("aaa").isSelected("222"), is(false));
+        assertThat(state.getField("aaa").isSelected(null), is(false));
+        assertThat(state.getField("bbb").isSelected(null), is(true));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void contains() throws Exception {
+        FormState state = new FormState(request);
+        request.setAttribute("aaaArray", new String[] { "111", "222" });
+        Field field = state.getField("aaaArray");
+        assertThat(field.contains("111", "multibox"), is(true));
+        assertThat(field.contains("333", "multibox"), is(false));
+        assertThat(
+            state.getField("bbbArray").contains("111", "multibox"),
+            is(false));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test(expected = IllegalStateException.class)
+    public void containsForNotStringArray() throws Exception {
+        FormState state = new FormState(request);
+        request.setAttribute("aaaArray", new int[] { 1 });
+        state.getField("aaaArray").contains("1", "multibox");
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test(expected = NullPointerException.class)
+    public void constructorWhenRequestIsNull() throws Exception {
+        new FormState(null);
+    }
+}
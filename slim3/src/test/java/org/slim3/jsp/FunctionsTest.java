@@ -174,6 +174,18 @@ public class FunctionsTest {
         assertThat(Functions.br("\n"), is("<br />"));
     }
 
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void brForText() throws Exception {
+        assertThat(
+            Functions.br("a\r\nb\rc\nd\n\re"),
+            is("a<br />b<br />c<br />d<br /><br />e"));
+        String input = "abc";
+        assertThat(Functions.br(input), is(sameInstance(input)));
+    }
+
     /**
      * @throws Exception
      */
@@ -191,6 +203,18 @@ public class FunctionsTest {
         assertThat(Functions.nbsp("  "), is("&nbsp;&nbsp;"));
     }
 
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void nbspForText() throws Exception {
+        assertThat(
+            Functions.nbsp("a b  c "),
+            is("a&nbsp;b&nbsp;&nbsp;c&nbsp;"));
+        String input = "abc";
+        assertThat(Functions.nbsp(input), is(sameInstance(input)));
+    }
+
     /**
      * @throws Exception
      */
@@ -272,6 +296,19 @@ public class FunctionsTest {
         assertThat(Functions.text("aaa"), is("name=\"aaa\" value=\"111\""));
     }
 
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void textForEscape() throws Exception {
+        request.setAttribute("aaa", "<a>");
+        assertThat(
+            Functions.text("aaa"),
+            is("name=\"aaa\" value=\"&lt;a&gt;\""));
+        request.setAttribute("aaa", 1);
+        assertThat(Functions.text("aaa"), is("name=\"aaa\" value=\"1\""));
+    }
+
     /**
      * @throws Exception
      */
@@ -388,6 +425,24 @@ public class FunctionsTest {
             is("name=\"aaa\" value=\"222\""));
     }
 
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void radioWhenAttributeIsChanged() throws Exception {
+        request.setAttribute("aaa", "111");
+        assertThat(
+            Functions.radio("aaa", "111"),
+            is("name=\"aaa\" value=\"111\" checked=\"checked\""));
+        request.setAttribute("aaa", "222");
+        assertThat(
+            Functions.radio("aaa", "111"),
+            is("name=\"aaa\" value=\"111\""));
+        assertThat(
+            Functions.radio("aaa", "<2>"),
+            is("name=\"aaa\" value=\"&lt;2&gt;\""));
+    }
+
     /**
      * @throws Exception
      */
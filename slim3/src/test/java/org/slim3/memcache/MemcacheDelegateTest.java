@@ -18,20 +18,41 @@ package org.slim3.memcache;
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 
 import org.junit.Test;
+import org.slim3.datastore.model.Aaa;
+import org.slim3.datastore.model.Ddd;
 import org.slim3.tester.AppEngineTestCase;
 
 import com.google.appengine.api.NamespaceManager;
+import com.google.appengine.api.datastore.KeyFactory;
 import com.google.appengine.api.memcache.ConsistentErrorHandler;
 import com.google.appengine.api.memcache.ConsistentLogAndContinueErrorHandler;
+import com.google.appengine.api.memcache.Expiration;
+import com.google.appengine.api.memcache.MemcacheSerialization;
+import com.google.appengine.api.memcache.MemcacheServicePb;
 import com.google.appengine.api.memcache.MemcacheService.SetPolicy;
+import com.google.appengine.repackaged.com.google.protobuf.ByteString;
+import com.google.appengine.repackaged.com.google.protobuf.Message;
+import com.google.apphosting.api.ApiProxy;
 
 /**
  * @author higa
@@ -164,6 +185,321 @@ public class MemcacheDelegateTest extends AppEngineTestCase {
         assertThat((Integer) map.get("aaa"), is(1));
     }
 
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getAsync() throws Exception {
+        MemcacheDelegate cache = new MemcacheDelegate();
+        assertThat(cache.getAsync("aaa").get(), is(nullValue()));
+        cache.ms.put("aaa", 1);
+        Future<Object> future = cache.getAsync("aaa");
+        assertThat((Integer) future.get(), is(1));
+        assertThat((Integer) future.get(), is(1));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getAsyncUsingBinaryCodec() throws Exception {
+        MemcacheDelegate cache = new MemcacheDelegate();
+        Ddd aaa = new Ddd();
+        aaa.setKey(KeyFactory.createKey("Ddd", 1));
+        cache.put("aaa", aaa);
+        Ddd aaa2 = (Ddd) cache.getAsync("aaa").get();
+        assertThat(aaa2.getKey(), is(aaa.getKey()));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getAllAsync() throws Exception {
+        MemcacheDelegate cache = new MemcacheDelegate();
+        assertThat(
+            cache.getAllAsync(Arrays.asList("aaa")).get().isEmpty(),
+            is(true));
+        cache.ms.put("aaa", 1);
+        cache.ms.put("bbb", "2");
+        Future<Map<Object, Object>> future =
+            cache.getAllAsync(Arrays.asList("aaa", "bbb", "ccc"));
+        Map<?, ?> map = future.get();
+        assertThat(map.size(), is(2));
+        assertThat((Integer) map.get("aaa"), is(1));
+        assertThat((String) map.get("bbb"), is("2"));
+        assertThat(future.get(), is(sameInstance((Object) map)));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getAllAsyncUsingNamespace() throws Exception {
+        MemcacheDelegate cache = new MemcacheDelegate();
+        NamespaceManager.set("hoge");
+        cache.put("aaa", "1");
+        NamespaceManager.set(null);
+        assertThat(
+            cache.getAllAsync(Arrays.asList("aaa")).get().isEmpty(),
+            is(true));
+        NamespaceManager.set("hoge");
+        Map<?, ?> map = cache.getAllAsync(Arrays.asList("aaa")).get();
+        assertThat((String) map.get("aaa"), is("1"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test(expected = NullPointerException.class)
+    public void getAllAsyncWhenKeysIsNull() throws Exception {
+        new MemcacheDelegate().getAllAsync(null);
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getOrCompute() throws Exception {
+        final long[] now = new long[] { 1000 };
+        MemcacheDelegate cache = new MemcacheDelegate() {
+            @Override
+            protected long currentTimeMillis() {
+                return now[0];
+            }
+        };
+        final AtomicInteger count = new AtomicInteger();
+        Callable<String> callable = new Callable<String>() {
+            public String call() throws Exception {
+                now[0] += 30;
+                return "value" + count.incrementAndGet();
+            }
+        };
+        long expirationTime = 4102444800000L;
+        Expiration expires = Expiration.onDate(new Date(expirationTime));
+        assertThat(cache.getOrCompute("aaa", expires, callable), is("value1"));
+        assertThat(cache.getOrCompute("aaa", expires, callable), is("value1"));
+        assertThat(count.get(), is(1));
+        MemcacheDelegate.ComputedValue computed =
+            (MemcacheDelegate.ComputedValue) cache.get("aaa");
+        assertThat((String) computed.getValue(), is("value1"));
+        assertThat(computed.getDelta(), is(30L));
+        assertThat(computed.getExpirationTime(), is(expirationTime));
+        assertThat(
+            cache.contains(new MemcacheDelegate.LeaseKey("aaa")),
+            is(false));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test(expected = NullPointerException.class)
+    public void getOrComputeWhenCallableIsNull() throws Exception {
+        new MemcacheDelegate().getOrCompute("aaa", null, null);
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getOrComputeWhenCallableFails() throws Exception {
+        MemcacheDelegate cache = new MemcacheDelegate();
+        try {
+            cache.getOrCompute("aaa", null, new Callable<String>() {
+                public String call() throws Exception {
+                    throw new IllegalStateException("hoge");
+                }
+            });
+            fail();
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), is("hoge"));
+        }
+        assertThat(
+            cache.contains(new MemcacheDelegate.LeaseKey("aaa")),
+            is(false));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getOrComputeMergesConcurrentComputations() throws Exception {
+        final MemcacheDelegate cache = new MemcacheDelegate();
+        final AtomicInteger count = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch finish = new CountDownLatch(1);
+        final Callable<String> callable = new Callable<String>() {
+            public String call() throws Exception {
+                count.incrementAndGet();
+                started.countDown();
+                finish.await();
+                return "111";
+            }
+        };
+        final ApiProxy.Environment env = ApiProxy.getCurrentEnvironment();
+        Callable<String> caller = new Callable<String>() {
+            public String call() throws Exception {
+                ApiProxy.setEnvironmentForCurrentThread(env);
+                return cache.getOrCompute("aaa", null, callable);
+            }
+        };
+        FutureTask<String> first = new FutureTask<String>(caller);
+        FutureTask<String> second = new FutureTask<String>(caller);
+        new Thread(first).start();
+        started.await();
+        Thread thread = new Thread(second);
+        thread.start();
+        while (thread.getState() != Thread.State.WAITING) {
+            Thread.sleep(10);
+        }
+        finish.countDown();
+        assertThat(first.get(), is("111"));
+        assertThat(second.get(), is("111"));
+        assertThat(count.get(), is(1));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getOrComputeWhenLeaseIsHeld() throws Exception {
+        MemcacheDelegate cache = new MemcacheDelegate();
+        cache.leaseMillis = 200;
+        cache.pollMillis = 10;
+        cache.put(new MemcacheDelegate.LeaseKey("aaa"), Boolean.TRUE);
+        assertThat(cache.getOrCompute("aaa", null, new Callable<String>() {
+            public String call() throws Exception {
+                return "111";
+            }
+        }), is("111"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void waitForValueBacksOff() throws Exception {
+        final long[] now = new long[] { 0 };
+        final List<Long> sleeps = new ArrayList<Long>();
+        MemcacheDelegate cache = new MemcacheDelegate() {
+            @Override
+            protected long currentTimeMillis() {
+                return now[0];
+            }
+
+            @Override
+            protected void sleep(long millis) throws InterruptedException {
+                sleeps.add(millis);
+                now[0] += millis;
+            }
+        };
+        cache.pollMillis = 50;
+        cache.maxPollMillis = 400;
+        cache.maxWaitMillis = 1000;
+        assertThat(cache.waitForValue("aaa"), is(nullValue()));
+        assertThat(sleeps, is(Arrays.asList(50L, 100L, 200L, 400L, 250L)));
+        assertThat(now[0], is(1000L));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void waitForValueUntilLeaseExpires() throws Exception {
+        final long[] now = new long[] { 0 };
+        MemcacheDelegate cache = new MemcacheDelegate() {
+            @Override
+            protected long currentTimeMillis() {
+                return now[0];
+            }
+
+            @Override
+            protected void sleep(long millis) throws InterruptedException {
+                now[0] += millis;
+            }
+        };
+        cache.leaseMillis = 300;
+        assertThat(cache.waitForValue("aaa"), is(nullValue()));
+        assertThat(now[0], is(300L));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void waitForValueWhenValueIsComputed() throws Exception {
+        final MemcacheDelegate.ComputedValue computed =
+            new MemcacheDelegate.ComputedValue("111", 10, 0);
+        final int[] polls = new int[1];
+        MemcacheDelegate cache = new MemcacheDelegate() {
+            @Override
+            protected void sleep(long millis) throws InterruptedException {
+                if (++polls[0] == 2) {
+                    put("aaa", computed);
+                }
+            }
+        };
+        assertThat(
+            (String) cache.waitForValue("aaa").getValue(),
+            is("111"));
+        assertThat(polls[0], is(2));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getOrComputeReturnsStaleValueWhenLeaseIsHeld()
+            throws Exception {
+        MemcacheDelegate cache = new MemcacheDelegate() {
+            @Override
+            protected boolean shouldRefresh(ComputedValue computed) {
+                return true;
+            }
+        };
+        cache.put("aaa", new MemcacheDelegate.ComputedValue("stale", 10, 1));
+        cache.put(new MemcacheDelegate.LeaseKey("aaa"), Boolean.TRUE);
+        assertThat(cache.getOrCompute("aaa", null, new Callable<String>() {
+            public String call() throws Exception {
+                return "111";
+            }
+        }), is("stale"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void shouldRefresh() throws Exception {
+        final double[] random = new double[] { 1.0 };
+        final long[] now = new long[] { 0 };
+        MemcacheDelegate cache = new MemcacheDelegate() {
+            @Override
+            protected double random() {
+                return random[0];
+            }
+
+            @Override
+            protected long currentTimeMillis() {
+                return now[0];
+            }
+        };
+        MemcacheDelegate.ComputedValue computed =
+            new MemcacheDelegate.ComputedValue("111", 100, 1000);
+        assertThat(cache.shouldRefresh(computed), is(false));
+        now[0] = 1000;
+        assertThat(cache.shouldRefresh(computed), is(true));
+        now[0] = 900;
+        random[0] = 0.1;
+        assertThat(cache.shouldRefresh(computed), is(true));
+        random[0] = 0.9;
+        assertThat(cache.shouldRefresh(computed), is(false));
+        assertThat(cache.shouldRefresh(new MemcacheDelegate.ComputedValue(
+            "111",
+            100,
+            0)), is(false));
+    }
+
     /**
      * @throws Exception
      */
@@ -257,6 +593,47 @@ public class MemcacheDelegateTest extends AppEngineTestCase {
         assertThat(map.get("bbb"), is(4L));
     }
 
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void incrementAllAsync() throws Exception {
+        MemcacheDelegate cache = new MemcacheDelegate();
+        cache.ms.put("aaa", 1);
+        Map<Object, Long> map =
+            cache.incrementAllAsync(Arrays.asList("aaa", "ccc"), 2).get();
+        assertThat(map.size(), is(2));
+        assertThat(map.get("aaa"), is(3L));
+        assertThat(map.get("ccc"), is(nullValue()));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void incrementAllAsyncUsingInitialValue() throws Exception {
+        MemcacheDelegate cache = new MemcacheDelegate();
+        Map<Object, Long> map =
+            cache.incrementAllAsync(Arrays.asList("aaa"), 2, 1).get();
+        assertThat(map.get("aaa"), is(3L));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void incrementAllAsyncUsingOffsets() throws Exception {
+        MemcacheDelegate cache = new MemcacheDelegate();
+        cache.ms.put("bbb", 2);
+        Map<Object, Long> offsets = new HashMap<Object, Long>();
+        offsets.put("aaa", 1L);
+        offsets.put("bbb", 2L);
+        Map<Object, Long> map = cache.incrementAllAsync(offsets).get();
+        assertThat(map.size(), is(2));
+        assertThat(map.get("aaa"), is(nullValue()));
+        assertThat(map.get("bbb"), is(4L));
+    }
+
     /**
      * @throws Exception
      */
@@ -325,6 +702,329 @@ public class MemcacheDelegateTest extends AppEngineTestCase {
         assertThat((String) set.iterator().next(), is("aaa"));
     }
 
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void putModelUsingBinaryCodec() throws Exception {
+        MemcacheDelegate cache = new MemcacheDelegate();
+        Ddd aaa = new Ddd();
+        aaa.setKey(KeyFactory.createKey("Ddd", 1));
+        cache.put("aaa", aaa);
+        Ddd aaa2 = (Ddd) cache.get("aaa");
+        assertThat(aaa2.getKey(), is(aaa.getKey()));
+        assertThat(cache.ms.contains("aaa"), is(true));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getModelWhenSchemaIsChanged() throws Exception {
+        MemcacheDelegate cache = new MemcacheDelegate();
+        cache.serializer = new S3MemcacheSerializer() {
+            @Override
+            public S3MemcacheSerialization.ValueAndFlags serialize(Object value)
+                    throws IOException {
+                S3MemcacheSerialization.ValueAndFlags vaf =
+                    super.serialize(value);
+                vaf.value[2 + Ddd.class.getName().length()] ^= 1;
+                return vaf;
+            }
+        };
+        cache.put("aaa", new Ddd());
+        assertThat(cache.ms.contains("aaa"), is(true));
+        assertThat(cache.get("aaa"), is(nullValue()));
+        assertThat(cache.getAll(Arrays.asList("aaa")).size(), is(0));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void putAllModelUsingBinaryCodec() throws Exception {
+        MemcacheDelegate cache = new MemcacheDelegate();
+        Map<Object, Object> values = new HashMap<Object, Object>();
+        values.put("aaa", new Ddd());
+        values.put("bbb", 1L);
+        Set<Object> set =
+            cache.putAll(values, null, SetPolicy.ADD_ONLY_IF_NOT_PRESENT);
+        assertThat(set.size(), is(2));
+        assertThat(cache.get("aaa"), is(Ddd.class));
+        assertThat((Long) cache.get("bbb"), is(1L));
+        set = cache.putAll(values, null, SetPolicy.ADD_ONLY_IF_NOT_PRESENT);
+        assertThat(set.size(), is(0));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void putAllAsync() throws Exception {
+        MemcacheDelegate cache = new MemcacheDelegate();
+        Map<Object, Object> values = new HashMap<Object, Object>();
+        values.put("aaa", 1L);
+        values.put("bbb", new Aaa());
+        Set<Object> set = cache.putAllAsync(values).get();
+        assertThat(set.size(), is(2));
+        assertThat((Long) cache.ms.get("aaa"), is(1L));
+        assertThat(cache.get("bbb"), is(Aaa.class));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void putAllAsyncUsingExpiresAndPolicy() throws Exception {
+        MemcacheDelegate cache = new MemcacheDelegate();
+        Map<Object, Object> values = new HashMap<Object, Object>();
+        values.put("aaa", 1L);
+        Set<Object> set =
+            cache.putAllAsync(
+                values,
+                Expiration.byDeltaSeconds(60),
+                SetPolicy.ADD_ONLY_IF_NOT_PRESENT).get();
+        assertThat(set.size(), is(1));
+        assertThat((String) set.iterator().next(), is("aaa"));
+        set =
+            cache.putAllAsync(
+                values,
+                null,
+                SetPolicy.ADD_ONLY_IF_NOT_PRESENT).get();
+        assertThat(set.size(), is(0));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void asyncCallsOverlap() throws Exception {
+        MemcacheDelegate cache = new MemcacheDelegate();
+        Map<Object, Object> values = new HashMap<Object, Object>();
+        values.put("aaa", "1");
+        Future<Set<Object>> putFuture = cache.putAllAsync(values);
+        Future<Map<Object, Long>> incrementFuture =
+            cache.incrementAllAsync(Arrays.asList("bbb"), 1, 0);
+        assertThat(putFuture.get().size(), is(1));
+        assertThat(incrementFuture.get().get("bbb"), is(1L));
+        assertThat((String) cache.getAsync("aaa").get(), is("1"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void putAndGetUsingSerializer() throws Exception {
+        MemcacheDelegate cache = new MemcacheDelegate();
+        final List<Object> serialized = new ArrayList<Object>();
+        cache.serializer = new S3MemcacheSerializer() {
+            @Override
+            public S3MemcacheSerialization.ValueAndFlags serialize(Object value)
+                    throws IOException {
+                serialized.add(value);
+                return super.serialize(value);
+            }
+
+            @Override
+            public Object deserialize(byte[] value, int flags)
+                    throws ClassNotFoundException, IOException {
+                return "deserialized:" + super.deserialize(value, flags);
+            }
+        };
+        cache.put("aaa", "1");
+        Map<Object, Object> values = new HashMap<Object, Object>();
+        values.put("bbb", "2");
+        cache.putAll(values);
+        assertThat(serialized.size(), is(2));
+        assertThat((String) cache.ms.get("aaa"), is("1"));
+        assertThat((String) cache.get("aaa"), is("deserialized:1"));
+        assertThat(
+            (String) cache.getAll(Arrays.asList("bbb")).get("bbb"),
+            is("deserialized:2"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void putAndGetCompressedValue() throws Exception {
+        MemcacheDelegate cache = new MemcacheDelegate();
+        cache.compressionThreshold = 100;
+        String value = new String(new char[1000]);
+        cache.put("aaa", value);
+        assertThat((String) cache.get("aaa"), is(value));
+        assertThat(
+            (String) cache.getAll(Arrays.asList("aaa")).get("aaa"),
+            is(value));
+        assertThat((String) cache.getAsync("aaa").get(), is(value));
+        S3Stats stats = (S3Stats) cache.statistics();
+        assertThat(stats.getCompressedItemCount() > 0, is(true));
+        assertThat(stats.getBytesSavedByCompression() > 0, is(true));
+        assertThat(stats.getCompressionRatio() < 1, is(true));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void putWithoutCompression() throws Exception {
+        MemcacheDelegate cache = new MemcacheDelegate();
+        cache.compressionThreshold = 0;
+        String value = new String(new char[1000]);
+        cache.put("aaa", value);
+        assertThat((String) cache.ms.get("aaa"), is(value));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void putAndGetChunkedValue() throws Exception {
+        MemcacheDelegate cache = new MemcacheDelegate();
+        cache.compressionThreshold = 0;
+        cache.chunkSize = 10;
+        String value = "0123456789012345678901234567890123456789";
+        Map<Object, Object> values = new HashMap<Object, Object>();
+        values.put("aaa", value);
+        values.put("bbb", "1");
+        assertThat(cache.putAll(values).size(), is(2));
+        assertThat((String) cache.get("aaa"), is(value));
+        Map<Object, Object> map = cache.getAll(Arrays.asList("aaa", "bbb"));
+        assertThat((String) map.get("aaa"), is(value));
+        assertThat((String) map.get("bbb"), is("1"));
+        S3Stats stats = (S3Stats) cache.statistics();
+        assertThat(stats.getChunkedItemCount() > 0, is(true));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getChunkedValueWhenChunkIsMissing() throws Exception {
+        final List<Object> chunkKeys = new ArrayList<Object>();
+        MemcacheDelegate cache = new MemcacheDelegate() {
+            @Override
+            protected String chunkKey(String id, int index) {
+                String key = super.chunkKey(id, index);
+                chunkKeys.add(key);
+                return key;
+            }
+        };
+        cache.compressionThreshold = 0;
+        cache.chunkSize = 10;
+        cache.put("aaa", "0123456789012345678901234567890123456789");
+        assertThat(chunkKeys.size(), is(4));
+        cache.ms.delete(chunkKeys.get(1));
+        assertThat(cache.get("aaa"), is(nullValue()));
+        assertThat(cache.getAll(Arrays.asList("aaa")).size(), is(0));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void readChunksWhenManifestIsCorrupted() throws Exception {
+        int[][] countAndLengths =
+            new int[][] { { -1, 10 }, { 1, -1 }, { 1, Integer.MAX_VALUE } };
+        for (int[] countAndLength : countAndLengths) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(baos);
+            out.writeUTF("hoge");
+            out.writeInt(countAndLength[0]);
+            out.writeInt(0);
+            out.writeInt(countAndLength[1]);
+            out.close();
+            try {
+                new MemcacheDelegate().readChunks("", baos.toByteArray());
+                fail();
+            } catch (IOException e) {
+                assertThat(e.getMessage(), is(notNullValue()));
+            }
+        }
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void compressionIsDisabledByDefault() throws Exception {
+        assertThat(new MemcacheDelegate().compressionThreshold, is(0));
+        Memcache.compressionThreshold(100);
+        try {
+            assertThat(new MemcacheDelegate().compressionThreshold, is(100));
+        } finally {
+            Memcache.compressionThreshold(null);
+        }
+        MemcacheDelegate cache = new MemcacheDelegate();
+        String value = new String(new char[100 * 1024]);
+        cache.put("aaa", value);
+        assertThat((String) cache.ms.get("aaa"), is(value));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void putChunkedValueWhenValueIsNotStored() throws Exception {
+        final List<Object> chunkKeys = new ArrayList<Object>();
+        MemcacheDelegate cache = new MemcacheDelegate() {
+            @Override
+            protected String chunkKey(String id, int index) {
+                String key = super.chunkKey(id, index);
+                chunkKeys.add(key);
+                return key;
+            }
+        };
+        cache.chunkSize = 10;
+        cache.put("aaa", "1");
+        assertThat(cache.put(
+            "aaa",
+            "0123456789012345678901234567890123456789",
+            null,
+            SetPolicy.ADD_ONLY_IF_NOT_PRESENT), is(false));
+        assertThat(chunkKeys.size(), is(4));
+        for (Object chunkKey : chunkKeys) {
+            assertThat(cache.ms.contains(chunkKey), is(false));
+        }
+        assertThat((String) cache.get("aaa"), is("1"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void putAllAsyncChunkedValue() throws Exception {
+        final List<Object> chunkKeys = new ArrayList<Object>();
+        MemcacheDelegate cache = new MemcacheDelegate() {
+            @Override
+            protected String chunkKey(String id, int index) {
+                String key = super.chunkKey(id, index);
+                chunkKeys.add(key);
+                return key;
+            }
+        };
+        cache.chunkSize = 10;
+        String value = "0123456789012345678901234567890123456789";
+        Map<Object, Object> values = new HashMap<Object, Object>();
+        values.put("aaa", value);
+        Future<Set<Object>> future = cache.putAllAsync(values);
+        assertThat(cache.ms.contains(chunkKeys.get(0)), is(true));
+        assertThat(future.get().size(), is(1));
+        assertThat((String) cache.get("aaa"), is(value));
+        values.put("aaa", "9876543210987654321098765432109876543210");
+        chunkKeys.clear();
+        future =
+            cache.putAllAsync(
+                values,
+                null,
+                SetPolicy.ADD_ONLY_IF_NOT_PRESENT);
+        assertThat(future.get().size(), is(0));
+        for (Object chunkKey : chunkKeys) {
+            assertThat(cache.ms.contains(chunkKey), is(false));
+        }
+        assertThat((String) cache.get("aaa"), is(value));
+    }
+
     /**
      * @throws Exception
      */
@@ -358,6 +1058,298 @@ public class MemcacheDelegateTest extends AppEngineTestCase {
         cache.ms.get("bbb");
     }
 
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getUsingNearCache() throws Exception {
+        MemcacheDelegate cache = new MemcacheDelegate();
+        cache.nearCache = new NearCache(60000, 1000);
+        cache.ms.put("aaa", "1");
+        assertThat((String) cache.get("aaa"), is("1"));
+        cache.ms.put("aaa", "2");
+        assertThat((String) cache.get("aaa"), is("1"));
+        assertThat(cache.nearCache.getHitCount(), is(1L));
+        assertThat(cache.nearCache.getMissCount(), is(1L));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getUsingNearCacheAndNamespace() throws Exception {
+        MemcacheDelegate cache = new MemcacheDelegate();
+        cache.nearCache = new NearCache(60000, 1000);
+        cache.put("aaa", "1");
+        assertThat((String) cache.get("aaa"), is("1"));
+        NamespaceManager.set("hoge");
+        assertThat(cache.get("aaa"), is(nullValue()));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void putInvalidatesNearCache() throws Exception {
+        MemcacheDelegate cache = new MemcacheDelegate();
+        cache.nearCache = new NearCache(60000, 1000);
+        cache.put("aaa", "1");
+        assertThat((String) cache.get("aaa"), is("1"));
+        cache.put("aaa", "2");
+        assertThat((String) cache.get("aaa"), is("2"));
+        Map<Object, Object> values = new HashMap<Object, Object>();
+        values.put("aaa", "3");
+        cache.putAll(values);
+        assertThat((String) cache.get("aaa"), is("3"));
+        values.put("aaa", new Aaa());
+        cache.putAll(values);
+        assertThat(cache.get("aaa"), is(Aaa.class));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @SuppressWarnings("deprecation")
+    @Test
+    public void putAllAsyncInvalidatesNearCache() throws Exception {
+        MemcacheDelegate cache = new MemcacheDelegate();
+        cache.nearCache = new NearCache(60000, 1000);
+        cache.put("aaa", "1");
+        assertThat((String) cache.get("aaa"), is("1"));
+        Map<Object, Object> values = new HashMap<Object, Object>();
+        values.put("aaa", "2");
+        Future<Set<Object>> future = cache.putAllAsync(values);
+        byte[] key = MemcacheSerialization.makePbKey("aaa");
+        cache.nearCache.put(
+            cache.getNamespace(),
+            key,
+            new byte[] { 1 },
+            0,
+            "1");
+        assertThat(cache.nearCache.size(), is(1));
+        future.get();
+        assertThat(cache.nearCache.size(), is(0));
+        assertThat((String) cache.get("aaa"), is("2"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getDoesNotKeepValueOverwrittenDuringCall() throws Exception {
+        MemcacheDelegate cache = new MemcacheDelegate() {
+            private boolean interleaved;
+
+            @Override
+            protected boolean makeSyncCall(String methodName,
+                    Message request, Message.Builder response,
+                    String errorText) {
+                boolean ret =
+                    super.makeSyncCall(
+                        methodName,
+                        request,
+                        response,
+                        errorText);
+                if (methodName.equals("Get") && !interleaved) {
+                    interleaved = true;
+                    put("aaa", "2");
+                }
+                return ret;
+            }
+        };
+        cache.nearCache = new NearCache(60000, 1000);
+        cache.put("aaa", "1");
+        assertThat((String) cache.get("aaa"), is("1"));
+        assertThat(cache.nearCache.size(), is(0));
+        assertThat((String) cache.get("aaa"), is("2"));
+        assertThat(cache.nearCache.size(), is(1));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getAllDoesNotKeepValueDeletedDuringCall() throws Exception {
+        MemcacheDelegate cache = new MemcacheDelegate() {
+            private boolean interleaved;
+
+            @Override
+            protected boolean makeSyncCall(String methodName,
+                    Message request, Message.Builder response,
+                    String errorText) {
+                boolean ret =
+                    super.makeSyncCall(
+                        methodName,
+                        request,
+                        response,
+                        errorText);
+                if (methodName.equals("Get") && !interleaved) {
+                    interleaved = true;
+                    delete("aaa");
+                }
+                return ret;
+            }
+        };
+        cache.nearCache = new NearCache(60000, 1000);
+        cache.put("aaa", "1");
+        cache.put("bbb", "2");
+        assertThat(cache.getAll(Arrays.asList("aaa", "bbb")).size(), is(2));
+        assertThat(cache.nearCache.get(
+            cache.getNamespace(),
+            MemcacheSerialization.makePbKey("aaa")), is(nullValue()));
+        assertThat(cache.get("aaa"), is(nullValue()));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void memcacheFutureResolvesOnlyOnce() throws Exception {
+        MemcacheDelegate cache = new MemcacheDelegate();
+        final AtomicInteger convertCount = new AtomicInteger();
+        final AtomicInteger completeCount = new AtomicInteger();
+        final MemcacheServicePb.MemcacheGetResponse.Builder response =
+            MemcacheServicePb.MemcacheGetResponse.newBuilder();
+        Future<Object> future =
+            cache.new MemcacheFuture<Object>(
+                "Get",
+                MemcacheServicePb.MemcacheGetRequest
+                    .newBuilder()
+                    .addKey(
+                        ByteString.copyFrom(MemcacheSerialization
+                            .makePbKey("aaa")))
+                    .build(),
+                response,
+                "error",
+                null) {
+
+                @Override
+                protected Object convert() {
+                    convertCount.incrementAndGet();
+                    throw new IllegalStateException("broken");
+                }
+
+                @Override
+                protected void complete() {
+                    completeCount.incrementAndGet();
+                }
+            };
+        ExecutionException first = null;
+        try {
+            future.get();
+            fail();
+        } catch (ExecutionException e) {
+            first = e;
+        }
+        try {
+            future.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e, is(sameInstance(first)));
+        }
+        assertThat(convertCount.get(), is(1));
+        assertThat(completeCount.get(), is(1));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void deleteInvalidatesNearCache() throws Exception {
+        MemcacheDelegate cache = new MemcacheDelegate();
+        cache.nearCache = new NearCache(60000, 1000);
+        cache.put("aaa", "1");
+        assertThat((String) cache.get("aaa"), is("1"));
+        cache.delete("aaa");
+        assertThat(cache.get("aaa"), is(nullValue()));
+        cache.put("aaa", "1");
+        assertThat((String) cache.get("aaa"), is("1"));
+        cache.deleteAll(Arrays.asList("aaa"));
+        assertThat(cache.get("aaa"), is(nullValue()));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void incrementInvalidatesNearCache() throws Exception {
+        MemcacheDelegate cache = new MemcacheDelegate();
+        cache.nearCache = new NearCache(60000, 1000);
+        cache.put("aaa", 1L);
+        assertThat((Long) cache.get("aaa"), is(1L));
+        cache.increment("aaa", 1);
+        assertThat((Long) cache.get("aaa"), is(2L));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void cleanAllClearsNearCache() throws Exception {
+        MemcacheDelegate cache = new MemcacheDelegate();
+        cache.nearCache = new NearCache(60000, 1000);
+        cache.put("aaa", "1");
+        cache.get("aaa");
+        cache.cleanAll();
+        assertThat(cache.nearCache.size(), is(0));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getAllUsingNearCache() throws Exception {
+        MemcacheDelegate cache = new MemcacheDelegate();
+        cache.nearCache = new NearCache(60000, 1000);
+        cache.ms.put("aaa", "1");
+        cache.ms.put("bbb", "2");
+        cache.getAll(Arrays.asList("aaa"));
+        cache.ms.put("aaa", "3");
+        Map<Object, Object> map = cache.getAll(Arrays.asList("aaa", "bbb"));
+        assertThat(map.size(), is(2));
+        assertThat((String) map.get("aaa"), is("1"));
+        assertThat((String) map.get("bbb"), is("2"));
+        cache.ms.put("bbb", "4");
+        map = cache.getAll(Arrays.asList("aaa", "bbb"));
+        assertThat((String) map.get("bbb"), is("2"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getAsyncUsingNearCache() throws Exception {
+        MemcacheDelegate cache = new MemcacheDelegate();
+        cache.nearCache = new NearCache(60000, 1000);
+        cache.ms.put("aaa", "1");
+        cache.ms.put("bbb", "2");
+        assertThat((String) cache.getAsync("aaa").get(), is("1"));
+        cache.ms.put("aaa", "3");
+        assertThat((String) cache.getAsync("aaa").get(), is("1"));
+        Map<Object, Object> map =
+            cache.getAllAsync(Arrays.asList("aaa", "bbb")).get();
+        assertThat((String) map.get("aaa"), is("1"));
+        assertThat((String) map.get("bbb"), is("2"));
+        assertThat(cache.nearCache.size(), is(2));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void statisticsIncludesNearCache() throws Exception {
+        MemcacheDelegate cache = new MemcacheDelegate();
+        cache.nearCache = new NearCache(60000, 1000);
+        cache.put("aaa", "1");
+        cache.get("aaa");
+        cache.get("aaa");
+        S3Stats stats = (S3Stats) cache.statistics();
+        assertThat(stats.getNearCacheHitCount(), is(1L));
+        assertThat(stats.getNearCacheMissCount(), is(1L));
+        assertThat(stats.getNearCacheHitRatio(), is(0.5d));
+        assertThat(stats.getNearCacheItemCount(), is(1L));
+    }
+
     /**
      * @throws Exception
      */
@@ -22,6 +22,8 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 
 import org.junit.Test;
@@ -50,6 +52,9 @@ public class MemcacheTest extends AppEngineTestCase {
     @Override
     public void tearDown() throws Exception {
         Memcache.delegateClass(MemcacheDelegate.class);
+        Memcache.nearCache(null);
+        Memcache.serializer(new S3MemcacheSerializer());
+        Memcache.compressionThreshold(null);
         super.tearDown();
     }
 
@@ -146,6 +151,42 @@ public class MemcacheTest extends AppEngineTestCase {
         assertThat((Integer) map.get("aaa"), is(1));
     }
 
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getAsync() throws Exception {
+        assertThat(Memcache.getAsync("aaa").get(), is(nullValue()));
+        ms.put("aaa", 1);
+        Future<Integer> future = Memcache.getAsync("aaa");
+        assertThat(future.get(), is(1));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getAllAsync() throws Exception {
+        ms.put("aaa", 1);
+        Map<?, ?> map = Memcache.getAllAsync(Arrays.asList("aaa")).get();
+        assertThat(map.size(), is(1));
+        assertThat((Integer) map.get("aaa"), is(1));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getOrCompute() throws Exception {
+        Callable<String> callable = new Callable<String>() {
+            public String call() throws Exception {
+                return "111";
+            }
+        };
+        assertThat(Memcache.getOrCompute("aaa", null, callable), is("111"));
+        assertThat(Memcache.get("aaa"), is(notNullValue()));
+    }
+
     /**
      * @throws Exception
      */
@@ -284,6 +325,46 @@ public class MemcacheTest extends AppEngineTestCase {
         assertThat((String) set.iterator().next(), is("aaa"));
     }
 
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void putAllAsync() throws Exception {
+        Map<Object, Object> values = new HashMap<Object, Object>();
+        values.put("aaa", 1L);
+        Set<Object> set = Memcache.putAllAsync(values).get();
+        assertThat((Long) ms.get("aaa"), is(1L));
+        assertThat(set.size(), is(1));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void putAllAsyncUsingExpiresAndPolicy() throws Exception {
+        Map<Object, Object> values = new HashMap<Object, Object>();
+        values.put("aaa", 1L);
+        ms.put("aaa", 2L);
+        Set<Object> set =
+            Memcache.putAllAsync(
+                values,
+                null,
+                SetPolicy.ADD_ONLY_IF_NOT_PRESENT).get();
+        assertThat(set.size(), is(0));
+        assertThat((Long) ms.get("aaa"), is(2L));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void incrementAllAsync() throws Exception {
+        ms.put("aaa", 1);
+        Map<Object, Long> map =
+            Memcache.incrementAllAsync(Arrays.asList("aaa"), 2).get();
+        assertThat(map.get("aaa"), is(3L));
+    }
+
     /**
      * @throws Exception
      */
@@ -304,6 +385,81 @@ public class MemcacheTest extends AppEngineTestCase {
         assertThat(Memcache.statistics(), is(notNullValue()));
     }
 
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void nearCache() throws Exception {
+        assertThat(Memcache.nearCache(), is(nullValue()));
+        NearCache nearCache = new NearCache(60000, 1000);
+        assertThat(Memcache.nearCache(nearCache), is(nullValue()));
+        assertThat(Memcache.nearCache(), is(sameInstance(nearCache)));
+        Memcache.put("aaa", "1");
+        assertThat((String) Memcache.get("aaa"), is("1"));
+        ms.put("aaa", "2");
+        assertThat((String) Memcache.get("aaa"), is("1"));
+        S3Stats stats = (S3Stats) Memcache.statistics();
+        assertThat(stats.getNearCacheHitRatio(), is(0.5d));
+        assertThat(Memcache.nearCache(null), is(sameInstance(nearCache)));
+        assertThat((String) Memcache.get("aaa"), is("2"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void serializer() throws Exception {
+        assertThat(Memcache.serializer(), is(S3MemcacheSerializer.class));
+        MemcacheSerializer serializer = new S3MemcacheSerializer();
+        assertThat(
+            Memcache.serializer(serializer),
+            is(not(sameInstance(serializer))));
+        assertThat(Memcache.serializer(), is(sameInstance(serializer)));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test(expected = NullPointerException.class)
+    public void serializerWhenSerializerIsNull() throws Exception {
+        Memcache.serializer(null);
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void newSerializer() throws Exception {
+        assertThat(Memcache.newSerializer(), is(S3MemcacheSerializer.class));
+        System.setProperty(Memcache.SERIALIZER_KEY, String.class.getName());
+        try {
+            Memcache.newSerializer();
+            fail();
+        } catch (IllegalStateException e) {
+            System.out.println(e.getMessage());
+        } finally {
+            System.clearProperty(Memcache.SERIALIZER_KEY);
+        }
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void compressionThreshold() throws Exception {
+        assertThat(Memcache.compressionThreshold(), is(0));
+        System.setProperty(MemcacheDelegate.COMPRESSION_THRESHOLD_KEY, "100");
+        try {
+            assertThat(Memcache.compressionThreshold(), is(0));
+            assertThat(Memcache.compressionThreshold(null), is(0));
+            assertThat(Memcache.compressionThreshold(), is(100));
+            assertThat(Memcache.compressionThreshold(200), is(100));
+            assertThat(Memcache.compressionThreshold(), is(200));
+        } finally {
+            System.clearProperty(MemcacheDelegate.COMPRESSION_THRESHOLD_KEY);
+        }
+    }
+
     /**
      * @throws Exception
      */
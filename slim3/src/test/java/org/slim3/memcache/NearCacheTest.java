@@ -0,0 +1,353 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.memcache;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+import org.slim3.util.Cleaner;
+
+/**
+ * @author agent
+ *
+ */
+public class NearCacheTest {
+
+    private static final byte[] AAA = new byte[] { 'a', 'a', 'a' };
+
+    private static final byte[] BBB = new byte[] { 'b', 'b', 'b' };
+
+    private static final byte[] CCC = new byte[] { 'c', 'c', 'c' };
+
+    private long now = 0;
+
+    private MemcacheSerializer serializer = new S3MemcacheSerializer();
+
+    private NearCache cache = new NearCache(1000, 100) {
+        @Override
+        protected long currentTimeMillis() {
+            return now;
+        }
+    };
+
+    /**
+     * @throws Exception
+     */
+    @After
+    public void tearDown() throws Exception {
+        System.clearProperty(NearCache.TTL_KEY);
+        System.clearProperty(NearCache.MAX_WEIGHT_KEY);
+        Cleaner.cleanAll();
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void constructor() throws Exception {
+        assertThat(cache.getTtl(), is(1000L));
+        assertThat(cache.getMaxWeight(), is(100L));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorWhenTtlIsNotPositive() throws Exception {
+        new NearCache(0, 100);
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorWhenMaxWeightIsNotPositive() throws Exception {
+        new NearCache(1000, 0);
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void fromSystemProperties() throws Exception {
+        assertThat(NearCache.fromSystemProperties(), is(nullValue()));
+        System.setProperty(NearCache.TTL_KEY, "500");
+        NearCache nearCache = NearCache.fromSystemProperties();
+        assertThat(nearCache.getTtl(), is(500L));
+        assertThat(
+            nearCache.getMaxWeight(),
+            is(NearCache.DEFAULT_MAX_WEIGHT));
+        System.setProperty(NearCache.MAX_WEIGHT_KEY, "10");
+        assertThat(NearCache.fromSystemProperties().getMaxWeight(), is(10L));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getAndPut() throws Exception {
+        assertThat(cache.get("", AAA), is(nullValue()));
+        put("", AAA, "111");
+        assertThat((String) cache.get("", AAA).getValue(serializer), is("111"));
+        assertThat(cache.get("hoge", AAA), is(nullValue()));
+        assertThat(cache.size(), is(1));
+        assertThat(cache.getWeight(), is(6L));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void putOverwritesEntry() throws Exception {
+        put("", AAA, "111");
+        put("", AAA, "2222");
+        assertThat(
+            (String) cache.get("", AAA).getValue(serializer),
+            is("2222"));
+        assertThat(cache.size(), is(1));
+        assertThat(cache.getWeight(), is(7L));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getWhenExpired() throws Exception {
+        put("", AAA, "111");
+        now = 999;
+        assertThat(cache.get("", AAA), is(notNullValue()));
+        now = 1000;
+        assertThat(cache.get("", AAA), is(nullValue()));
+        assertThat(cache.size(), is(0));
+        assertThat(cache.getWeight(), is(0L));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void evictLeastRecentlyUsedEntry() throws Exception {
+        String value = new String(new char[44]);
+        put("", AAA, value);
+        put("", BBB, value);
+        cache.get("", AAA);
+        put("", CCC, value);
+        assertThat(cache.get("", AAA), is(notNullValue()));
+        assertThat(cache.get("", BBB), is(nullValue()));
+        assertThat(cache.get("", CCC), is(notNullValue()));
+        assertThat(cache.getWeight(), is(94L));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void putWhenEntryIsTooHeavy() throws Exception {
+        put("", AAA, new String(new char[98]));
+        assertThat(cache.get("", AAA), is(nullValue()));
+        assertThat(cache.getWeight(), is(0L));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getValueOfMutableValue() throws Exception {
+        List<String> list = new ArrayList<String>();
+        list.add("aaa");
+        put("", AAA, list);
+        @SuppressWarnings("unchecked")
+        List<String> list2 =
+            (List<String>) cache.get("", AAA).getValue(serializer);
+        assertThat(list2, is(list));
+        assertThat(list2, is(not(sameInstance(list))));
+        list2.add("bbb");
+        List<?> list3 = (List<?>) cache.get("", AAA).getValue(serializer);
+        assertThat(list3.size(), is(1));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getValueOfImmutableValue() throws Exception {
+        String value = "111";
+        put("", AAA, value);
+        assertThat(
+            cache.get("", AAA).getValue(serializer),
+            is(sameInstance((Object) value)));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getValueOfDeclaredImmutableValue() throws Exception {
+        serializer = new S3MemcacheSerializer() {
+            @Override
+            public boolean isImmutable(Object value) {
+                return value instanceof List<?> || super.isImmutable(value);
+            }
+        };
+        List<String> list = new ArrayList<String>();
+        put("", AAA, list);
+        assertThat(
+            cache.get("", AAA).getValue(serializer),
+            is(sameInstance((Object) list)));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void segments() throws Exception {
+        assertThat(cache.segments.length, is(1));
+        assertThat(new NearCache(1000, 64 * 1024).segments.length, is(1));
+        assertThat(new NearCache(1000, 128 * 1024).segments.length, is(2));
+        assertThat(
+            new NearCache(1000, NearCache.DEFAULT_MAX_WEIGHT).segments.length,
+            is(16));
+        assertThat(
+            new NearCache(1000, 100 * 1024 * 1024).segments.length,
+            is(16));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getAndPutUsingSegments() throws Exception {
+        NearCache nearCache =
+            new NearCache(1000, NearCache.DEFAULT_MAX_WEIGHT);
+        for (int i = 0; i < 100; i++) {
+            byte[] key = new byte[] { (byte) i };
+            nearCache.put("", key, new byte[] { 1 }, 0, i);
+        }
+        assertThat(nearCache.size(), is(100));
+        assertThat(nearCache.getWeight(), is(200L));
+        for (int i = 0; i < 100; i++) {
+            byte[] key = new byte[] { (byte) i };
+            assertThat((Integer) nearCache
+                .get("", key)
+                .getValue(serializer), is(i));
+        }
+        nearCache.remove("", new byte[] { 0 });
+        assertThat(nearCache.size(), is(99));
+        nearCache.clear();
+        assertThat(nearCache.size(), is(0));
+        assertThat(nearCache.getWeight(), is(0L));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void remove() throws Exception {
+        put("", AAA, "111");
+        cache.remove("", AAA);
+        assertThat(cache.get("", AAA), is(nullValue()));
+        assertThat(cache.getWeight(), is(0L));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void putUsingVersions() throws Exception {
+        long[] versions = cache.getVersions();
+        S3MemcacheSerialization.ValueAndFlags vaf =
+            S3MemcacheSerialization.serialize("111");
+        assertThat(
+            cache.put("", AAA, vaf.value, vaf.flags, null, versions),
+            is(true));
+        assertThat(cache.size(), is(1));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void putUsingVersionsAfterRemove() throws Exception {
+        long[] versions = cache.getVersions();
+        cache.remove("", AAA);
+        S3MemcacheSerialization.ValueAndFlags vaf =
+            S3MemcacheSerialization.serialize("111");
+        assertThat(
+            cache.put("", AAA, vaf.value, vaf.flags, null, versions),
+            is(false));
+        assertThat(cache.get("", AAA), is(nullValue()));
+        versions = cache.getVersions();
+        cache.clear();
+        assertThat(
+            cache.put("", AAA, vaf.value, vaf.flags, null, versions),
+            is(false));
+        assertThat(cache.size(), is(0));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void clear() throws Exception {
+        put("", AAA, "111");
+        put("hoge", AAA, "111");
+        cache.clear();
+        assertThat(cache.size(), is(0));
+        assertThat(cache.getWeight(), is(0L));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void hitRatio() throws Exception {
+        assertThat(cache.getHitRatio(), is(0d));
+        put("", AAA, "111");
+        cache.get("", AAA);
+        cache.get("", BBB);
+        cache.get("", AAA);
+        cache.get("", CCC);
+        assertThat(cache.getHitCount(), is(2L));
+        assertThat(cache.getMissCount(), is(2L));
+        assertThat(cache.getHitRatio(), is(0.5d));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void cleanedByCleaner() throws Exception {
+        put("", AAA, "111");
+        Cleaner.cleanAll();
+        assertThat(cache.size(), is(0));
+        put("", AAA, "111");
+        Cleaner.cleanAll();
+        assertThat(cache.size(), is(0));
+    }
+
+    private void put(String namespace, byte[] key, Object value)
+            throws Exception {
+        S3MemcacheSerialization.ValueAndFlags vaf =
+            S3MemcacheSerialization.serialize(value);
+        cache.put(namespace, key, vaf.value, vaf.flags, serializer
+            .isImmutable(value) ? value : null);
+    }
+}
@@ -18,9 +18,25 @@ package org.slim3.memcache;
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.*;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
 import org.junit.Test;
+import org.slim3.datastore.meta.AaaMeta;
+import org.slim3.datastore.model.Aaa;
+import org.slim3.datastore.model.Bbb;
+import org.slim3.datastore.model.Ddd;
+import org.slim3.datastore.model.Eee;
 import org.slim3.tester.AppEngineTestCase;
+import org.slim3.util.Cleaner;
 
+import com.google.appengine.api.datastore.Entity;
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+import com.google.appengine.api.datastore.Query.SortDirection;
 import com.google.appengine.api.memcache.MemcacheSerialization;
 import com.google.appengine.api.memcache.MemcacheSerialization.ValueAndFlags;
 
@@ -101,4 +117,272 @@ public class S3MemcacheSerializationTest extends AppEngineTestCase {
             valueAndFlags.value,
             valueAndFlags.flags.ordinal()), is(value));
     }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void model() throws Exception {
+        Ddd value = new Ddd();
+        value.setKey(KeyFactory.createKey("Ddd", 1));
+        value.setVersion(1L);
+        S3MemcacheSerialization.ValueAndFlags valueAndFlags =
+            S3MemcacheSerialization.serialize(value);
+        assertThat(valueAndFlags.flags, is(S3MemcacheSerialization.MODEL));
+        Ddd value2 =
+            (Ddd) S3MemcacheSerialization.deserialize(
+                valueAndFlags.value,
+                valueAndFlags.flags);
+        assertThat(value2.getKey(), is(value.getKey()));
+        assertThat(value2.getVersion(), is(1L));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test(expected = SchemaMismatchException.class)
+    public void modelWhenSchemaIsChanged() throws Exception {
+        S3MemcacheSerialization.ValueAndFlags valueAndFlags =
+            S3MemcacheSerialization.serialize(new Ddd());
+        valueAndFlags.value[2 + Ddd.class.getName().length()] ^= 1;
+        S3MemcacheSerialization.deserialize(
+            valueAndFlags.value,
+            valueAndFlags.flags);
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void generatedModel() throws Exception {
+        Eee value = new Eee();
+        value.setKey(KeyFactory.createKey("Eee", 1));
+        value.setVersion(1L);
+        value.setCount(2);
+        value.setName("aaa");
+        value.setDirection(SortDirection.DESCENDING);
+        value.setTags(new ArrayList<String>(Arrays.asList("a", "b")));
+        value.setNumbers(new HashSet<Long>(Arrays.asList(1L, 2L)));
+        S3MemcacheSerialization.ValueAndFlags valueAndFlags =
+            S3MemcacheSerialization.serialize(value);
+        assertThat(valueAndFlags.flags, is(S3MemcacheSerialization.MODEL));
+        Eee value2 =
+            (Eee) S3MemcacheSerialization.deserialize(
+                valueAndFlags.value,
+                valueAndFlags.flags);
+        assertThat(value2.getKey(), is(value.getKey()));
+        assertThat(value2.getVersion(), is(1L));
+        assertThat(value2.getCount(), is(2));
+        assertThat(value2.getName(), is("aaa"));
+        assertThat(value2.getDirection(), is(SortDirection.DESCENDING));
+        assertThat(value2.getTags(), is(value.getTags()));
+        assertThat(value2.getNumbers(), is(value.getNumbers()));
+        assertThat(value2.getParentRef().getKey(), is(nullValue()));
+        assertThat(value2.getChildrenRef(), is(notNullValue()));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void generatedModelWithIncompleteKey() throws Exception {
+        Key parentKey = KeyFactory.createKey("Eee", 2);
+        Eee value = new Eee();
+        value.setKey(new Entity("Eee", parentKey).getKey());
+        value.getParentRef().setKey(parentKey);
+        S3MemcacheSerialization.ValueAndFlags valueAndFlags =
+            S3MemcacheSerialization.serialize(value);
+        Eee value2 =
+            (Eee) S3MemcacheSerialization.deserialize(
+                valueAndFlags.value,
+                valueAndFlags.flags);
+        assertThat(value2.getKey().isComplete(), is(false));
+        assertThat(value2.getKey().getParent(), is(parentKey));
+        assertThat(value2.getParentRef().getKey(), is(parentKey));
+        assertThat(value2.getDirection(), is(nullValue()));
+        assertThat(value2.getTags(), is(nullValue()));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test(expected = SchemaMismatchException.class)
+    public void generatedModelWhenSchemaIsChanged() throws Exception {
+        S3MemcacheSerialization.ValueAndFlags valueAndFlags =
+            S3MemcacheSerialization.serialize(new Eee());
+        valueAndFlags.value[2 + Eee.class.getName().length()] ^= 1;
+        S3MemcacheSerialization.deserialize(
+            valueAndFlags.value,
+            valueAndFlags.flags);
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void modelWithoutBinaryCodec() throws Exception {
+        Bbb value = new Bbb();
+        S3MemcacheSerialization.ValueAndFlags valueAndFlags =
+            S3MemcacheSerialization.serialize(value);
+        assertThat(
+            valueAndFlags.flags,
+            is(not(S3MemcacheSerialization.MODEL)));
+        assertThat(S3MemcacheSerialization.deserialize(
+            valueAndFlags.value,
+            valueAndFlags.flags), is(Bbb.class));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void resolveClassUsingCache() throws Exception {
+        Cleaner.cleanAll();
+        assertThat(S3MemcacheSerialization.getCachedClassCount(), is(0));
+        List<Bbb> value = new ArrayList<Bbb>();
+        value.add(new Bbb());
+        S3MemcacheSerialization.ValueAndFlags valueAndFlags =
+            S3MemcacheSerialization.serialize(value);
+        List<?> value2 =
+            (List<?>) S3MemcacheSerialization.deserialize(
+                valueAndFlags.value,
+                valueAndFlags.flags);
+        assertThat(value2.get(0), is(Bbb.class));
+        int count = S3MemcacheSerialization.getCachedClassCount();
+        assertThat(count > 0, is(true));
+        S3MemcacheSerialization.deserialize(
+            valueAndFlags.value,
+            valueAndFlags.flags);
+        assertThat(S3MemcacheSerialization.getCachedClassCount(), is(count));
+        assertThat(
+            S3MemcacheSerialization.resolveClass(Bbb.class.getName()),
+            is(sameInstance((Object) Bbb.class)));
+        Cleaner.cleanAll();
+        assertThat(S3MemcacheSerialization.getCachedClassCount(), is(0));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test(expected = ClassNotFoundException.class)
+    public void resolveClassWhenClassIsNotFound() throws Exception {
+        S3MemcacheSerialization.resolveClass("xxx.Xxx");
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void compressAndDecompress() throws Exception {
+        long count = S3MemcacheSerialization.getCompressedCount();
+        S3MemcacheSerialization.ValueAndFlags vaf =
+            S3MemcacheSerialization.serialize(new String(new char[1000]));
+        S3MemcacheSerialization.ValueAndFlags compressed =
+            S3MemcacheSerialization.compress(vaf);
+        assertThat(compressed.value.length < vaf.value.length, is(true));
+        assertThat(
+            compressed.flags,
+            is(vaf.flags | S3MemcacheSerialization.COMPRESSED));
+        assertThat(S3MemcacheSerialization.getCompressedCount(), is(count + 1));
+        S3MemcacheSerialization.ValueAndFlags decompressed =
+            S3MemcacheSerialization.decompress(compressed);
+        assertThat(decompressed.flags, is(vaf.flags));
+        assertThat(Arrays.equals(decompressed.value, vaf.value), is(true));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void compressWhenValueIsNotReduced() throws Exception {
+        S3MemcacheSerialization.ValueAndFlags vaf =
+            S3MemcacheSerialization.serialize("a");
+        assertThat(
+            S3MemcacheSerialization.compress(vaf),
+            is(sameInstance(vaf)));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void decompressWhenValueIsNotCompressed() throws Exception {
+        S3MemcacheSerialization.ValueAndFlags vaf =
+            S3MemcacheSerialization.serialize("a");
+        assertThat(
+            S3MemcacheSerialization.decompress(vaf),
+            is(sameInstance(vaf)));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test(expected = IOException.class)
+    public void decompressWhenValueIsCorrupted() throws Exception {
+        S3MemcacheSerialization
+            .decompress(new S3MemcacheSerialization.ValueAndFlags(
+                new byte[] { 0, 0, 0, 10, 1, 2, 3 },
+                S3MemcacheSerialization.COMPRESSED));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void decompressWhenLengthIsInvalid() throws Exception {
+        byte[][] values =
+            new byte[][] {
+                { (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 1 },
+                { 0x7f, (byte) 0xff, (byte) 0xff, (byte) 0xff, 1 },
+                { 0, 0x10, 0, 0, 1, 2, 3 } };
+        for (byte[] value : values) {
+            try {
+                S3MemcacheSerialization
+                    .decompress(new S3MemcacheSerialization.ValueAndFlags(
+                        value,
+                        S3MemcacheSerialization.COMPRESSED));
+                fail();
+            } catch (IOException e) {
+                assertThat(e.getMessage().contains("is invalid"), is(true));
+            }
+        }
+    }
+
+    /**
+     * @throws Exception
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void lazyModel() throws Exception {
+        Entity entity = new Entity(KeyFactory.createKey("Aaa", 1));
+        entity.setProperty("schemaVersion", 2L);
+        Aaa value = new LazyAaaMeta().entityToModel(entity);
+        assertThat(value.getSchemaVersion(), is(nullValue()));
+        S3MemcacheSerialization.ValueAndFlags valueAndFlags =
+            S3MemcacheSerialization.serialize(Arrays.asList(value));
+        List<Aaa> value2 =
+            (List<Aaa>) S3MemcacheSerialization.deserialize(
+                valueAndFlags.value,
+                valueAndFlags.flags);
+        assertThat(value2.get(0).getSchemaVersion(), is(2));
+        assertThat(value.getSchemaVersion(), is(2));
+    }
+
+    private static class LazyAaaMeta extends AaaMeta {
+
+        @Override
+        public Aaa entityToModel(Entity entity) {
+            Aaa model = super.entityToModel(entity);
+            model.setSchemaVersion(null);
+            deferLazyAttributes(model, entity, "schemaVersion");
+            return model;
+        }
+
+        @Override
+        protected void decodeLazyAttribute(Object object,
+                String attributeName, Entity entity) {
+            ((Aaa) object).setSchemaVersion(longToInteger((Long) entity
+                .getProperty("schemaVersion")));
+        }
+    }
 }
\ No newline at end of file
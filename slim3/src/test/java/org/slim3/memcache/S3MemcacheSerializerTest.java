@@ -0,0 +1,63 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.memcache;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.slim3.datastore.model.Ddd;
+import org.slim3.tester.AppEngineTestCase;
+
+import com.google.appengine.api.datastore.KeyFactory;
+
+/**
+ * @author agent
+ *
+ */
+public class S3MemcacheSerializerTest extends AppEngineTestCase {
+
+    private S3MemcacheSerializer serializer = new S3MemcacheSerializer();
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void serializeAndDeserialize() throws Exception {
+        S3MemcacheSerialization.ValueAndFlags valueAndFlags =
+            serializer.serialize("aaa");
+        assertThat((String) serializer.deserialize(
+            valueAndFlags.value,
+            valueAndFlags.flags), is("aaa"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void serializeAndDeserializeModel() throws Exception {
+        Ddd value = new Ddd();
+        value.setKey(KeyFactory.createKey("Ddd", 1));
+        S3MemcacheSerialization.ValueAndFlags valueAndFlags =
+            serializer.serialize(value);
+        assertThat(valueAndFlags.flags, is(S3MemcacheSerialization.MODEL));
+        Ddd value2 =
+            (Ddd) serializer.deserialize(
+                valueAndFlags.value,
+                valueAndFlags.flags);
+        assertThat(value2.getKey(), is(value.getKey()));
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.memcache;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.slim3.tester.AppEngineTestCase;
+
+import com.google.appengine.api.memcache.MemcacheService;
+import com.google.appengine.api.memcache.MemcacheServiceFactory;
+import com.google.appengine.api.memcache.Stats;
+
+/**
+ * @author agent
+ *
+ */
+public class S3StatsTest extends AppEngineTestCase {
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void constructor() throws Exception {
+        MemcacheService ms = MemcacheServiceFactory.getMemcacheService();
+        ms.put("aaa", 1);
+        ms.get("aaa");
+        Stats stats = ms.getStatistics();
+        NearCache nearCache = new NearCache(1000, 100);
+        S3MemcacheSerialization.ValueAndFlags vaf =
+            S3MemcacheSerialization.serialize("111");
+        nearCache.put("", new byte[] { 1 }, vaf.value, vaf.flags, "111");
+        nearCache.get("", new byte[] { 1 });
+        nearCache.get("", new byte[] { 2 });
+        nearCache.get("", new byte[] { 3 });
+        S3Stats s3Stats = new S3Stats(stats, nearCache);
+        assertThat(s3Stats.getHitCount(), is(stats.getHitCount()));
+        assertThat(s3Stats.getItemCount(), is(stats.getItemCount()));
+        assertThat(s3Stats.getNearCacheHitCount(), is(1L));
+        assertThat(s3Stats.getNearCacheMissCount(), is(2L));
+        assertThat(s3Stats.getNearCacheHitRatio(), is(1d / 3));
+        assertThat(s3Stats.getNearCacheItemCount(), is(1L));
+        assertThat(s3Stats.getNearCacheWeight(), is(4L));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void constructorWithoutNearCache() throws Exception {
+        S3Stats s3Stats =
+            new S3Stats(MemcacheServiceFactory
+                .getMemcacheService()
+                .getStatistics(), null);
+        assertThat(s3Stats.getNearCacheHitCount(), is(0L));
+        assertThat(s3Stats.getNearCacheHitRatio(), is(0d));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test(expected = NullPointerException.class)
+    public void constructorWhenStatsIsNull() throws Exception {
+        new S3Stats(null, null);
+    }
+}
@@ -37,4 +37,45 @@ public class AesCipherTest {
         String value = "abc";
         assertThat(cipher.decrypt(cipher.encrypt(value)), is(value));
     }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void cipherIsReused() throws Exception {
+        String key = "xxxxxxxxxxxxxxxx";
+        AesCipher cipher = new AesCipher();
+        javax.crypto.Cipher c =
+            cipher.getCipher(javax.crypto.Cipher.ENCRYPT_MODE, key);
+        assertThat(
+            cipher.getCipher(javax.crypto.Cipher.ENCRYPT_MODE, key),
+            is(sameInstance(c)));
+        assertThat(
+            cipher.getCipher(javax.crypto.Cipher.DECRYPT_MODE, key),
+            is(not(sameInstance(c))));
+        assertThat(
+            cipher.encrypt(key, "abc"),
+            is(new AesCipher().encrypt(key, "abc")));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void decryptInvalidText() throws Exception {
+        String key = "xxxxxxxxxxxxxxxx";
+        AesCipher cipher = new AesCipher();
+        cipher.setKey(key);
+        assertThat(cipher.decrypt("abc"), is(nullValue()));
+        assertThat(AesCipher.ciphers.get().containsKey(key), is(false));
+        assertThat(cipher.decrypt(cipher.encrypt("abc")), is("abc"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void encryptWhenKeyIsNot128Bits() throws Exception {
+        new AesCipher().encrypt("xxx", "abc");
+    }
 }
\ No newline at end of file
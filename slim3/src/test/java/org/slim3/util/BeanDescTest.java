@@ -111,6 +111,20 @@ public class BeanDescTest {
         assertThat(beanDesc.getPropertyDesc("hhh"), is(nullValue()));
     }
 
+    /**
+     * 
+     */
+    @Test
+    public void getCopyPropertyDescs() {
+        PropertyDesc[][] pairs = beanDesc.getCopyPropertyDescs(beanDesc);
+        assertThat(pairs.length, is(1));
+        assertThat(pairs[0][0].getName(), is("aaa"));
+        assertThat(pairs[0][1].isWritable(), is(true));
+        assertThat(
+            beanDesc.getCopyPropertyDescs(beanDesc),
+            is(sameInstance(pairs)));
+    }
+
     @SuppressWarnings("unused")
     private static class MyBean {
         private String aaa;
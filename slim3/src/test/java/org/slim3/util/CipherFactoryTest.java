@@ -33,6 +33,7 @@ public class CipherFactoryTest {
     @After
     public void tearDown() {
         System.clearProperty(CipherFactory.CIPHER_FACTORY_KEY);
+        Cleaner.cleanAll();
     }
 
     /**
@@ -58,6 +59,17 @@ public class CipherFactoryTest {
         assertThat(factory, instanceOf(MyCipherFactory.class));
     }
 
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getCachedFactory() throws Exception {
+        CipherFactory factory = CipherFactory.getFactory();
+        assertThat(CipherFactory.getFactory(), is(sameInstance(factory)));
+        Cleaner.cleanAll();
+        assertThat(CipherFactory.getFactory(), is(not(sameInstance(factory))));
+    }
+
     /**
      *
      */
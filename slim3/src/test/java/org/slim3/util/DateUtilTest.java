@@ -273,6 +273,37 @@ public class DateUtilTest {
         assertThat(DateUtil.toString(new Date(0), "EEE"), is("木"));
     }
 
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testToStringWhenLocaleAndTimeZoneAreChanged()
+            throws Exception {
+        LocaleLocator.set(Locale.ENGLISH);
+        assertThat(DateUtil.toString(new Date(0), "EEE HH"), is("Thu 00"));
+        LocaleLocator.set(Locale.JAPAN);
+        assertThat(DateUtil.toString(new Date(0), "EEE HH"), is("木 00"));
+        TimeZoneLocator.set(TimeZone.getTimeZone("Asia/Tokyo"));
+        assertThat(DateUtil.toString(new Date(0), "EEE HH"), is("木 09"));
+        LocaleLocator.set(Locale.ENGLISH);
+        TimeZoneLocator.set(TimeZone.getTimeZone("UTC"));
+        assertThat(DateUtil.toString(new Date(0), "EEE HH"), is("Thu 00"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void toDateWithPatternWhenTimeZoneIsChanged() throws Exception {
+        assertThat(
+            DateUtil.toDate("19700101 09", "yyyyMMdd HH"),
+            is(new Date(9 * 60 * 60 * 1000)));
+        TimeZoneLocator.set(TimeZone.getTimeZone("Asia/Tokyo"));
+        assertThat(
+            DateUtil.toDate("19700101 09", "yyyyMMdd HH"),
+            is(new Date(0)));
+    }
+
     /**
      * @throws Exception
      */
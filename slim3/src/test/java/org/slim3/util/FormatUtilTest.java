@@ -0,0 +1,124 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.util;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.text.DecimalFormat;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import org.junit.Test;
+
+/**
+ * @author agent
+ * 
+ */
+public class FormatUtilTest {
+
+    private static final TimeZone GMT = TimeZone.getTimeZone("GMT");
+
+    private static final TimeZone JST = TimeZone.getTimeZone("Asia/Tokyo");
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getDateFormat() throws Exception {
+        SimpleDateFormat df =
+            FormatUtil.getDateFormat("yyyyMMdd", Locale.ENGLISH, GMT);
+        assertThat(df.toPattern(), is("yyyyMMdd"));
+        assertThat(df.getTimeZone(), is(GMT));
+        assertThat(
+            FormatUtil.getDateFormat("yyyyMMdd", Locale.ENGLISH, GMT),
+            is(sameInstance(df)));
+        assertThat(
+            FormatUtil.getDateFormat("yyyyMMdd", Locale.ENGLISH, JST),
+            is(not(sameInstance(df))));
+        assertThat(
+            FormatUtil.getDateFormat("yyyyMMdd", Locale.JAPAN, GMT),
+            is(not(sameInstance(df))));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getDateFormatWhenTimeZoneIsChangedByParsing()
+            throws Exception {
+        SimpleDateFormat df =
+            FormatUtil.getDateFormat("yyyyMMdd z", Locale.ENGLISH, GMT);
+        df.parse("19700101 JST");
+        assertThat(
+            FormatUtil
+                .getDateFormat("yyyyMMdd z", Locale.ENGLISH, GMT)
+                .getTimeZone(),
+            is(GMT));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getDateFormatInOtherThread() throws Exception {
+        final SimpleDateFormat df =
+            FormatUtil.getDateFormat("yyyyMMdd", Locale.ENGLISH, GMT);
+        final SimpleDateFormat[] other = new SimpleDateFormat[1];
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                other[0] =
+                    FormatUtil.getDateFormat("yyyyMMdd", Locale.ENGLISH, GMT);
+            }
+        };
+        thread.start();
+        thread.join();
+        assertThat(other[0], is(not(sameInstance(df))));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getDecimalFormat() throws Exception {
+        DecimalFormat df = FormatUtil.getDecimalFormat("#,###", Locale.GERMANY);
+        assertThat(df.format(1000), is("1.000"));
+        assertThat(
+            FormatUtil.getDecimalFormat("#,###", Locale.GERMANY),
+            is(sameInstance(df)));
+        assertThat(
+            FormatUtil.getDecimalFormat("#,###", Locale.US).format(1000),
+            is("1,000"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test(expected = NullPointerException.class)
+    public void getDateFormatWhenPatternIsNull() throws Exception {
+        FormatUtil.getDateFormat(null, Locale.ENGLISH, GMT);
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test(expected = NullPointerException.class)
+    public void getDecimalFormatWhenLocaleIsNull() throws Exception {
+        FormatUtil.getDecimalFormat("###", null);
+    }
+}
@@ -18,6 +18,8 @@ package org.slim3.util;
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.*;
 
+import java.io.StringWriter;
+
 import org.junit.Test;
 
 /**
@@ -34,4 +36,56 @@ public class HtmlUtilTest {
         assertThat(HtmlUtil.escape("<a>"), is("&lt;a&gt;"));
         assertThat(HtmlUtil.escape(" "), is(" "));
     }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void escapeForAllSpecialCharacters() throws Exception {
+        assertThat(
+            HtmlUtil.escape("a&b<c>d\"e'f"),
+            is("a&amp;b&lt;c&gt;d&#034;e&#039;f"));
+        assertThat(HtmlUtil.escape("&&"), is("&amp;&amp;"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void escapeWhenNothingIsEscaped() throws Exception {
+        String input = "abc def";
+        assertThat(HtmlUtil.escape(input), is(sameInstance(input)));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void escapeToStringBuilder() throws Exception {
+        StringBuilder sb = new StringBuilder("x");
+        HtmlUtil.escape("<a>", sb);
+        HtmlUtil.escape("b", sb);
+        HtmlUtil.escape(null, sb);
+        assertThat(sb.toString(), is("x&lt;a&gt;b"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void escapeToWriter() throws Exception {
+        StringWriter writer = new StringWriter();
+        HtmlUtil.escape("a<b>c", writer);
+        HtmlUtil.escape("d", writer);
+        HtmlUtil.escape(null, writer);
+        assertThat(writer.toString(), is("a&lt;b&gt;cd"));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test(expected = NullPointerException.class)
+    public void escapeWhenWriterIsNull() throws Exception {
+        HtmlUtil.escape("a", (StringWriter) null);
+    }
 }
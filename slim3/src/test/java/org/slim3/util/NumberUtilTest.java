@@ -66,6 +66,17 @@ public class NumberUtilTest {
         assertThat(NumberUtil.toString(new Integer(1000), "#,###"), is("1,000"));
     }
 
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testToStringForSeveralPatterns() throws Exception {
+        assertThat(NumberUtil.toString(1000, "#,###"), is("1,000"));
+        assertThat(NumberUtil.toString(1000, "#"), is("1000"));
+        assertThat(NumberUtil.toString(1.5, "0.00"), is("1.50"));
+        assertThat(NumberUtil.toString(2000, "#,###"), is("2,000"));
+    }
+
     /**
      * @throws Exception
      */
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.util;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Date;
+
+import org.junit.Test;
+import org.slim3.tester.AppEngineTestCase;
+import org.slim3.tester.MockHttpServletRequest;
+import org.slim3.tester.MockServletContext;
+
+import com.google.appengine.api.datastore.Key;
+import com.google.appengine.api.datastore.KeyFactory;
+
+/**
+ * @author agent
+ * 
+ */
+public class ParsedRequestMapTest extends AppEngineTestCase {
+
+    private MockServletContext servletContext = new MockServletContext();
+
+    private MockHttpServletRequest request =
+        new MockHttpServletRequest(servletContext);
+
+    private ParsedRequestMap map = new ParsedRequestMap(request);
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getString() throws Exception {
+        request.setAttribute("aaa", 1);
+        assertThat(map.getString("aaa"), is("1"));
+        assertThat(map.getString("bbb"), is(nullValue()));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getNumber() throws Exception {
+        request.setAttribute("aaa", "1");
+        assertThat(map.getShort("aaa"), is((short) 1));
+        assertThat(map.getShort("aaa", "###"), is((short) 1));
+        assertThat(map.getInteger("aaa"), is(1));
+        assertThat(map.getInteger("aaa", "###"), is(1));
+        assertThat(map.getLong("aaa"), is(1L));
+        assertThat(map.getLong("aaa", "###"), is(1L));
+        assertThat(map.getFloat("aaa"), is(1f));
+        assertThat(map.getFloat("aaa", "###"), is(1f));
+        assertThat(map.getDouble("aaa"), is(1d));
+        assertThat(map.getDouble("aaa", "###"), is(1d));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getBoolean() throws Exception {
+        request.setAttribute("aaa", "true");
+        assertThat(map.getBoolean("aaa"), is(true));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getDate() throws Exception {
+        request.setAttribute("aaa", "01011970");
+        Date date = map.getDate("aaa", "MMddyyyy");
+        assertThat(date, is(new Date(0)));
+        date.setTime(1);
+        assertThat(map.getDate("aaa", "MMddyyyy"), is(new Date(0)));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getKey() throws Exception {
+        Key key = KeyFactory.createKey("Hoge", 1);
+        request.setAttribute("aaa", KeyFactory.keyToString(key));
+        assertThat(map.getKey("aaa"), is(key));
+        request.setAttribute("aaa", key);
+        assertThat(map.getKey("aaa"), is(sameInstance(key)));
+        assertThat(map.getKey("bbb"), is(nullValue()));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void parsedOnce() throws Exception {
+        Key key = KeyFactory.createKey("Hoge", 1);
+        request.setAttribute("aaa", KeyFactory.keyToString(key));
+        Key key2 = map.getKey("aaa");
+        assertThat(map.getKey("aaa"), is(sameInstance(key2)));
+        assertThat(map.parsedValues.size(), is(1));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void parsedAgainWhenAttributeIsChanged() throws Exception {
+        request.setAttribute("aaa", "1");
+        assertThat(map.getInteger("aaa"), is(1));
+        request.setAttribute("aaa", "2");
+        assertThat(map.getInteger("aaa"), is(2));
+        map.put("aaa", "3");
+        assertThat(map.getInteger("aaa"), is(3));
+        request.removeAttribute("aaa");
+        assertThat(map.getInteger("aaa"), is(nullValue()));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void parsedPerPattern() throws Exception {
+        request.setAttribute("aaa", "1,000");
+        assertThat(map.getInteger("aaa", "#,###"), is(1000));
+        assertThat(map.getInteger("aaa", "###"), is(1));
+        assertThat(map.parsedValues.size(), is(2));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test(expected = NullPointerException.class)
+    public void getIntegerWhenNameIsNull() throws Exception {
+        map.getInteger(null);
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test(expected = NullPointerException.class)
+    public void getIntegerWhenPatternIsNull() throws Exception {
+        map.getInteger("aaa", null);
+    }
+}
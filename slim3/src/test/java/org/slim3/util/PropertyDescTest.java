@@ -101,6 +101,43 @@ public class PropertyDescTest {
         assertThat((String) pd.getValue(aaa), is("111"));
     }
 
+    /**
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void isMethodHandleUsed() throws Exception {
+        PropertyDesc pd = new PropertyDesc("aaa", int.class, getClass());
+        pd.setReadMethod(getClass().getDeclaredMethod("getAaa"));
+        pd.setWriteMethod(getClass().getDeclaredMethod("setAaa", int.class));
+        assertThat(pd.isMethodHandleUsed(), is(true));
+        pd.setValue(this, 3);
+        assertThat((Integer) pd.getValue(this), is(3));
+    }
+
+    /**
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void isMethodHandleUsedForNonPublicClass() throws Exception {
+        Aaa aaa = AaaFactory.newInstance();
+        PropertyDesc pd = new PropertyDesc("aaa", String.class, aaa.getClass());
+        pd.setReadMethod(aaa.getClass().getMethod("getAaa"));
+        assertThat(pd.isMethodHandleUsed(), is(false));
+    }
+
+    /**
+     * 
+     * @throws Exception
+     */
+    @Test(expected = WrapRuntimeException.class)
+    public void setValueForIllegalBean() throws Exception {
+        PropertyDesc pd = new PropertyDesc("aaa", int.class, getClass());
+        pd.setWriteMethod(getClass().getDeclaredMethod("setAaa", int.class));
+        pd.setValue("xxx", 1);
+    }
+
     /**
      * 
      * @throws Exception
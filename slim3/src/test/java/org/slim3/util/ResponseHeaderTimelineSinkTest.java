@@ -0,0 +1,69 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.util;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.slim3.tester.MockHttpServletRequest;
+import org.slim3.tester.MockHttpServletResponse;
+import org.slim3.tester.MockServletContext;
+
+/**
+ * @author agent
+ * 
+ */
+public class ResponseHeaderTimelineSinkTest {
+
+    private MockHttpServletRequest request =
+        new MockHttpServletRequest(new MockServletContext());
+
+    private MockHttpServletResponse response = new MockHttpServletResponse();
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void export() throws Exception {
+        Timeline timeline = new Timeline();
+        timeline.finish();
+        new ResponseHeaderTimelineSink().export(timeline, request, response);
+        assertThat(
+            response.getHeader(ResponseHeaderTimelineSink.HEADER_NAME),
+            is(timeline.toString()));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void exportWhenResponseIsCommitted() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse() {
+            @Override
+            public boolean isCommitted() {
+                return true;
+            }
+        };
+        new ResponseHeaderTimelineSink().export(
+            new Timeline(),
+            request,
+            response);
+        assertThat(
+            response.getHeader(ResponseHeaderTimelineSink.HEADER_NAME),
+            is(nullValue()));
+    }
+}
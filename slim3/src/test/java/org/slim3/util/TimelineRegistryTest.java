@@ -0,0 +1,87 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.util;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Test;
+import org.slim3.tester.MockHttpServletRequest;
+import org.slim3.tester.MockHttpServletResponse;
+import org.slim3.tester.MockServletContext;
+
+/**
+ * @author agent
+ * 
+ */
+public class TimelineRegistryTest {
+
+    /**
+     * @throws Exception
+     */
+    @After
+    public void tearDown() throws Exception {
+        TimelineRegistry.clear();
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void export() throws Exception {
+        Timeline timeline = new Timeline();
+        timeline.record(
+            Timeline.DATASTORE_PUT,
+            "Hoge",
+            System.nanoTime(),
+            1,
+            0);
+        timeline.finish();
+        TimelineSink sink = new TimelineRegistry();
+        sink.export(timeline, new MockHttpServletRequest(
+            new MockServletContext()), new MockHttpServletResponse());
+        sink.export(timeline, new MockHttpServletRequest(
+            new MockServletContext()), new MockHttpServletResponse());
+        assertThat(TimelineRegistry.getRequestCount(), is(2L));
+        assertThat(
+            TimelineRegistry.getTotalTime(),
+            is(timeline.getElapsedTime() * 2));
+        Timeline.Stat stat =
+            TimelineRegistry.getStats().get(Timeline.DATASTORE_PUT);
+        assertThat(stat.getCount(), is(2L));
+        assertThat(stat.getEntityCount(), is(2L));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void clear() throws Exception {
+        TimelineRegistry.add(new Timeline());
+        TimelineRegistry.clear();
+        assertThat(TimelineRegistry.getRequestCount(), is(0L));
+        assertThat(TimelineRegistry.getStats().size(), is(0));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test(expected = NullPointerException.class)
+    public void addWhenTimelineIsNull() throws Exception {
+        TimelineRegistry.add(null);
+    }
+}
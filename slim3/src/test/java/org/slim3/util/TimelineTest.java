@@ -0,0 +1,189 @@
+/*
+ * Copyright 2004-2010 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.slim3.util;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * @author agent
+ * 
+ */
+public class TimelineTest {
+
+    private Timeline timeline = new Timeline();
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void record() throws Exception {
+        long start = System.nanoTime();
+        timeline.record(Timeline.DATASTORE_GET, "Hoge", start, 2, 0);
+        timeline.record(Timeline.DATASTORE_GET, "Foo", start, 3, 0);
+        timeline.record(Timeline.MEMCACHE, "Get", start, 0, 10);
+        List<Timeline.Event> events = timeline.getEvents();
+        assertThat(events.size(), is(3));
+        Timeline.Event event = events.get(0);
+        assertThat(event.getCategory(), is(Timeline.DATASTORE_GET));
+        assertThat(event.getName(), is("Hoge"));
+        assertThat(event.getOffset() >= 0, is(true));
+        assertThat(event.getDuration() >= 0, is(true));
+        assertThat(event.getEntityCount(), is(2));
+        Map<String, Timeline.Stat> stats = timeline.getStats();
+        assertThat(stats.size(), is(2));
+        Timeline.Stat stat = stats.get(Timeline.DATASTORE_GET);
+        assertThat(stat.getCount(), is(2L));
+        assertThat(stat.getEntityCount(), is(5L));
+        assertThat(stats.get(Timeline.MEMCACHE).getPayloadBytes(), is(10L));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void recordOverMaxEvents() throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i <= Timeline.MAX_EVENTS; i++) {
+            timeline.record(Timeline.MEMCACHE, "Get", start, 0, 0);
+        }
+        assertThat(timeline.getEvents().size(), is(Timeline.MAX_EVENTS));
+        assertThat(
+            timeline.getStats().get(Timeline.MEMCACHE).getCount(),
+            is((long) Timeline.MAX_EVENTS + 1));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test(expected = NullPointerException.class)
+    public void recordWhenCategoryIsNull() throws Exception {
+        timeline.record(null, "Hoge", System.nanoTime(), 0, 0);
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void getStatsReturnsCopy() throws Exception {
+        timeline.record(Timeline.RPC, "Hoge", System.nanoTime(), 0, 0);
+        timeline.getStats().get(Timeline.RPC).add(1, 0, 0, 0);
+        assertThat(timeline.getStats().get(Timeline.RPC).getCount(), is(1L));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void wrap() throws Exception {
+        Future<List<String>> future =
+            timeline.wrap(
+                new FakeFuture<List<String>>(Arrays.asList("a", "b")),
+                Timeline.DATASTORE_GET,
+                "Hoge",
+                System.nanoTime(),
+                -1);
+        assertThat(timeline.getEvents().size(), is(0));
+        assertThat(future.get().size(), is(2));
+        future.get();
+        List<Timeline.Event> events = timeline.getEvents();
+        assertThat(events.size(), is(1));
+        assertThat(events.get(0).getEntityCount(), is(2));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void wrapWithEntityCount() throws Exception {
+        Future<Void> future =
+            timeline.wrap(
+                new FakeFuture<Void>(null),
+                Timeline.DATASTORE_DELETE,
+                "Hoge",
+                System.nanoTime(),
+                3);
+        future.get();
+        assertThat(timeline.getEvents().get(0).getEntityCount(), is(3));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void finishRecordsFutureNotWaitedFor() throws Exception {
+        timeline.wrap(
+            new FakeFuture<Void>(null),
+            Timeline.DATASTORE_PUT,
+            "Hoge",
+            System.nanoTime(),
+            2);
+        Future<Void> future =
+            timeline.wrap(
+                new FakeFuture<Void>(null),
+                Timeline.DATASTORE_DELETE,
+                "Hoge",
+                System.nanoTime(),
+                1);
+        future.get();
+        assertThat(timeline.getEvents().size(), is(1));
+        timeline.finish();
+        List<Timeline.Event> events = timeline.getEvents();
+        assertThat(events.size(), is(2));
+        assertThat(events.get(1).getCategory(), is(Timeline.DATASTORE_PUT));
+        assertThat(events.get(1).getEntityCount(), is(2));
+        assertThat(timeline.pendingFutures.size(), is(0));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test(expected = NullPointerException.class)
+    public void wrapWhenFutureIsNull() throws Exception {
+        timeline.wrap(null, Timeline.RPC, "Hoge", System.nanoTime(), 0);
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void finish() throws Exception {
+        timeline.finish();
+        long elapsedTime = timeline.getElapsedTime();
+        Thread.sleep(2);
+        assertThat(timeline.getElapsedTime(), is(elapsedTime));
+    }
+
+    /**
+     * @throws Exception
+     */
+    @Test
+    public void testToString() throws Exception {
+        timeline.record(Timeline.MEMCACHE, "Get", System.nanoTime(), 0, 10);
+        timeline.finish();
+        String s = timeline.toString();
+        assertThat(s.startsWith("elapsed="), is(true));
+        assertThat(s.contains(", memcache=1/"), is(true));
+        assertThat(s.endsWith("/10bytes"), is(true));
+    }
+}